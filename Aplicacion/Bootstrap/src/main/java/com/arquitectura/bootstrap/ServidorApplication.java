@@ -7,6 +7,7 @@ import com.arquitectura.controladores.LogSubscriber;
 import com.arquitectura.controladores.ServidorController;
 import com.arquitectura.controladores.ServidorView;
 import com.arquitectura.controladores.conexion.ConnectionRegistry;
+import com.arquitectura.controladores.conexion.OutboundOverflowPolicy;
 import com.arquitectura.controladores.p2p.ClusterChannelReplicationListener;
 import com.arquitectura.controladores.p2p.ClusterInvitationReplicationListener;
 import com.arquitectura.controladores.p2p.ClusterUserRegistrationListener;
@@ -17,7 +18,6 @@ import com.arquitectura.repositorios.CanalRepository;
 import com.arquitectura.repositorios.ClienteRepository;
 import com.arquitectura.repositorios.InvitacionRepository;
 import com.arquitectura.repositorios.InvitacionRepositoryImpl;
-import com.arquitectura.repositorios.LogRepository;
 import com.arquitectura.repositorios.MensajeRepository;
 import com.arquitectura.repositorios.jdbc.DatabaseInitializer;
 import com.arquitectura.repositorios.jdbc.JdbcCanalRepository;
@@ -26,23 +26,32 @@ import com.arquitectura.repositorios.jdbc.JdbcLogRepository;
 import com.arquitectura.repositorios.jdbc.JdbcMensajeRepository;
 import com.arquitectura.servicios.AudioStorageService;
 import com.arquitectura.servicios.AudioTranscriptionService;
+import com.arquitectura.servicios.AvatarStorageService;
 import com.arquitectura.servicios.CanalService;
 import com.arquitectura.servicios.ConexionService;
 import com.arquitectura.servicios.MensajeriaService;
 import com.arquitectura.servicios.MessageSyncService;
 import com.arquitectura.servicios.RegistroService;
 import com.arquitectura.servicios.ReporteService;
+import com.arquitectura.servicios.cache.CanalCatalog;
+import com.arquitectura.servicios.cache.ChannelReportCache;
+import com.arquitectura.servicios.cache.ClienteIdentityCache;
 import com.arquitectura.servicios.eventos.InvitationNotificationService;
 import com.arquitectura.servicios.eventos.MessageNotificationService;
 import com.arquitectura.servicios.eventos.SessionEventBus;
 import com.arquitectura.servicios.impl.AudioStorageServiceImpl;
+import com.arquitectura.servicios.impl.AvatarStorageServiceImpl;
 import com.arquitectura.servicios.impl.CanalServiceImpl;
+import com.arquitectura.servicios.impl.LogOverflowPolicy;
 import com.arquitectura.servicios.impl.ConexionServiceImpl;
 import com.arquitectura.servicios.impl.MensajeriaServiceImpl;
 import com.arquitectura.servicios.impl.MessageSyncServiceImpl;
 import com.arquitectura.servicios.impl.RegistroServiceImpl;
 import com.arquitectura.servicios.impl.ReporteServiceImpl;
+import com.arquitectura.servicios.impl.TranscriptionWorkerPool;
 import com.arquitectura.servicios.impl.VoskTranscriptionService;
+import com.arquitectura.servicios.impl.WriteBehindLogRepository;
+import com.arquitectura.servicios.metrics.ConnectionPoolMetricsTracker;
 import com.arquitectura.servicios.metrics.MetricsSessionObserver;
 import com.arquitectura.servicios.metrics.ServerMetrics;
 import com.arquitectura.servicios.security.PasswordHasher;
@@ -57,6 +66,8 @@ public final class ServidorApplication {
 
     private final DataSource dataSource;
     private final SessionEventBus eventBus;
+    private final WriteBehindLogRepository logRepository;
+    private final TranscriptionWorkerPool transcriptionPool;
     private final RegistroService registroService;
     private final ReporteService reporteService;
     private final ConexionService conexionService;
@@ -71,31 +82,62 @@ public final class ServidorApplication {
     public ServidorApplication() {
         ServerConfig serverConfig = ServerConfig.getInstance();
         DBConfig config = DBConfig.getInstance();
+        // El tracker se registra antes de la primera conexion (el pool arranca de forma perezosa)
+        config.setPoolMetricsTrackerFactory(new ConnectionPoolMetricsTracker());
         this.dataSource = config.getMySqlDataSource();
         DatabaseInitializer.ensureSchema(dataSource);
 
         ClienteRepository clienteRepository = new JdbcClienteRepository(dataSource);
         CanalRepository canalRepository = new JdbcCanalRepository(dataSource);
         MensajeRepository mensajeRepository = new JdbcMensajeRepository(dataSource);
-        LogRepository logRepository = new JdbcLogRepository(dataSource);
+        // La bitácora se persiste en lotes fuera del camino de cada login, conexión o mensaje
+        this.logRepository = new WriteBehindLogRepository(
+            new JdbcLogRepository(dataSource),
+            serverConfig.getLogBufferCapacity(),
+            serverConfig.getLogBufferBatchSize(),
+            serverConfig.getLogBufferFlushIntervalMs(),
+            LogOverflowPolicy.fromConfig(serverConfig.getLogBufferOverflowPolicy())
+        );
         InvitacionRepository invitacionRepository = new InvitacionRepositoryImpl();
 
         // Limpiar estados de conexión del inicio anterior
         clienteRepository.disconnectAll();
 
         this.eventBus = new SessionEventBus();
+        eventBus.configureAsync(serverConfig.getEventWorkers(), serverConfig.getEventQueueCapacity());
         // Observabilidad / métricas
         ServerMetrics.startMetricsServer(serverConfig.getMetricsPort());
         new MetricsSessionObserver(eventBus);
+        // Identidades de clientes en memoria para enrutar y notificar sin consultar la base por mensaje
+        ClienteIdentityCache identityCache = new ClienteIdentityCache(clienteRepository,
+            serverConfig.getIdentityCacheMaxEntries(), eventBus);
+        // Canales y miembros en memoria para traducir UUIDs del clúster y repartir mensajes de canal
+        CanalCatalog canalCatalog = new CanalCatalog(canalRepository, eventBus);
+        canalCatalog.warmUp();
+        // Listados de canales con miembros por usuario (LIST_CHANNELS, REPORT_CANALES)
+        ChannelReportCache channelReportCache = new ChannelReportCache(canalRepository,
+            serverConfig.getChannelReportCacheMaxEntries(), eventBus);
 
         this.connectionRegistry = new ConnectionRegistry(eventBus, serverConfig.getServerId(), canalRepository, clienteRepository);
+        connectionRegistry.configureOutbound(serverConfig.getOutboundQueueCapacity(),
+            OutboundOverflowPolicy.fromConfig(serverConfig.getOutboundOverflowPolicy()));
+        connectionRegistry.setIdentityCache(identityCache);
+        connectionRegistry.setChannelCatalog(canalCatalog);
         DatabaseSyncCoordinator databaseSyncCoordinator = new DatabaseSyncCoordinator(
             clienteRepository,
             canalRepository,
             mensajeRepository,
             dataSource,
-            eventBus
+            eventBus,
+            config.getBatchSize()
         );
+        databaseSyncCoordinator.setIdentityCache(identityCache);
+        databaseSyncCoordinator.setChannelCatalog(canalCatalog);
+        databaseSyncCoordinator.setChannelReportCache(channelReportCache);
+        databaseSyncCoordinator.setReplicationRetentionDays(serverConfig.getPeerReplicationRetentionDays());
+        // Avatares fuera de MySQL, direccionados por su SHA-256
+        AvatarStorageService avatarStorage = new AvatarStorageServiceImpl();
+        databaseSyncCoordinator.setAvatarStorage(avatarStorage);
         this.peerManager = new ServerPeerManager(
             serverConfig.getServerId(),
             serverConfig.getPeerPort(),
@@ -105,22 +147,31 @@ public final class ServidorApplication {
             clienteRepository,
             canalRepository
         );
+        peerManager.configureSnapshotStreaming(serverConfig.getPeerSnapshotPageSize(), serverConfig.getPeerSnapshotWindow());
+        peerManager.configureFraming(!"json".equalsIgnoreCase(serverConfig.getPeerFraming()),
+            serverConfig.getPeerCompressionThreshold());
+        peerManager.configureBatching(serverConfig.getPeerBatchMaxEnvelopes(), serverConfig.getPeerBatchLingerMs());
+        peerManager.configureOutbox(serverConfig.getPeerOutboxDirectory(), serverConfig.getPeerRetryBaseMs(),
+            serverConfig.getPeerRetryMaxMs(), serverConfig.getPeerMaxRetries(), serverConfig.getPeerOutboxMaxAgeMinutes());
+        peerManager.configureAckWindow(serverConfig.getPeerAckWindow(), serverConfig.getPeerAckDelayMs());
+        peerManager.setIdentityCache(identityCache);
+        peerManager.setChannelCatalog(canalCatalog);
         connectionRegistry.setPeerManager(peerManager);
         new ClusterUserRegistrationListener(peerManager, eventBus);
-        new ClusterUserStatusReplicationListener(peerManager, clienteRepository, eventBus);
+        new ClusterUserStatusReplicationListener(peerManager, identityCache, eventBus);
         new ClusterChannelReplicationListener(peerManager, canalRepository, eventBus);
-        new ClusterInvitationReplicationListener(peerManager, canalRepository, clienteRepository, invitacionRepository, eventBus);
-        new com.arquitectura.servicios.eventos.LogSubscriber(logRepository, clienteRepository, canalRepository, eventBus);
-        eventBus.subscribe(new LogSubscriber());
+        new ClusterInvitationReplicationListener(peerManager, canalRepository, identityCache, invitacionRepository, eventBus);
+        new com.arquitectura.servicios.eventos.LogSubscriber(logRepository, clienteRepository, identityCache, canalRepository, eventBus);
+        eventBus.subscribeAsync(new LogSubscriber());
         
         // Servicios para notificar eventos en tiempo real a los clientes
-        new MessageNotificationService(connectionRegistry, canalRepository, clienteRepository, eventBus);
-        new InvitationNotificationService(connectionRegistry, canalRepository, clienteRepository, invitacionRepository, eventBus);
+        new MessageNotificationService(connectionRegistry, canalRepository, canalCatalog, identityCache, eventBus);
+        new InvitationNotificationService(connectionRegistry, canalRepository, identityCache, invitacionRepository, eventBus);
 
         PasswordHasher passwordHasher = new Sha256PasswordHasher(config);
-        RegistroServiceImpl registroServiceImpl = new RegistroServiceImpl(clienteRepository, passwordHasher, eventBus);
+        RegistroServiceImpl registroServiceImpl = new RegistroServiceImpl(clienteRepository, passwordHasher, avatarStorage, eventBus);
         this.registroService = registroServiceImpl;
-        this.reporteService = new ReporteServiceImpl(clienteRepository, canalRepository, mensajeRepository, logRepository);
+        this.reporteService = new ReporteServiceImpl(clienteRepository, channelReportCache, mensajeRepository, logRepository);
         this.conexionService = new ConexionServiceImpl(connectionRegistry, clienteRepository, eventBus);
         this.canalService = new CanalServiceImpl(canalRepository, clienteRepository, invitacionRepository, eventBus);
         
@@ -130,10 +181,15 @@ public final class ServidorApplication {
         // Instanciar el servicio de transcripción de audio (Vosk)
         AudioTranscriptionService transcriptionService = new VoskTranscriptionService();
         // Instanciar el servicio de almacenamiento de audio
-        this.audioStorageService = new AudioStorageServiceImpl();
+        this.audioStorageService = new AudioStorageServiceImpl(serverConfig.getAudioChunkBytes(),
+            serverConfig.getUploadMaxBytes(), serverConfig.getUploadChunkBytes());
+        peerManager.setAudioStorageService(audioStorageService);
         // Instanciar el servicio de sincronización de mensajes
-        this.messageSyncService = new MessageSyncServiceImpl(mensajeRepository, clienteRepository, canalRepository, audioStorageService);
-        this.mensajeriaService = new MensajeriaServiceImpl(mensajeRepository, logRepository, connectionRegistry, eventBus, transcriptionService, audioStorageService);
+        this.messageSyncService = new MessageSyncServiceImpl(mensajeRepository, identityCache, canalRepository, audioStorageService,
+            serverConfig.getMessageSyncPageSize());
+        this.transcriptionPool = new TranscriptionWorkerPool(transcriptionService, mensajeRepository, eventBus,
+            serverConfig.getTranscriptionWorkers(), serverConfig.getTranscriptionQueueCapacity());
+        this.mensajeriaService = new MensajeriaServiceImpl(mensajeRepository, logRepository, connectionRegistry, eventBus, transcriptionPool, audioStorageService);
 
         // Iniciar servidor TCP
         this.tcpServer = new TCPServer(registroService, canalService, mensajeriaService, reporteService, conexionService, audioStorageService, messageSyncService, eventBus, connectionRegistry, this.peerManager);
@@ -147,9 +203,11 @@ public final class ServidorApplication {
     /**
      * Realiza un cierre ordenado del servidor:
      * 1. Notifica a los clientes conectados
-     * 2. Cierra todas las sesiones (publicando eventos LOGOUT)
+     * 2. Cierra todas las sesiones (publicando eventos LOGOUT), vacía las colas del bus de eventos
+     *    y persiste los logs pendientes
      * 3. Detiene el peer manager (notificando al cluster)
      * 4. Detiene el servidor TCP
+     * 5. Cierra el pool de conexiones JDBC
      */
     public void shutdown() {
         java.util.logging.Logger logger = java.util.logging.Logger.getLogger(ServidorApplication.class.getName());
@@ -159,7 +217,10 @@ public final class ServidorApplication {
             // 1. Cerrar todas las conexiones de clientes (esto también publica LOGOUT para cada uno)
             connectionRegistry.shutdownAllSessions("El servidor se está apagando");
             
-            // 2. Dar tiempo para que los eventos LOGOUT se repliquen al cluster
+            // 2. Dar tiempo para que los eventos LOGOUT se procesen y se repliquen al cluster
+            transcriptionPool.shutdown(2000);
+            eventBus.shutdown(2000);
+            logRepository.close();
             Thread.sleep(500);
             
             // 3. Detener el peer manager
@@ -171,6 +232,9 @@ public final class ServidorApplication {
             if (tcpServer != null) {
                 tcpServer.shutdown();
             }
+
+            // 5. Cerrar el pool de conexiones a la base de datos
+            DBConfig.getInstance().closeDataSource();
             
             logger.info("✅ Servidor cerrado correctamente");
         } catch (InterruptedException e) {
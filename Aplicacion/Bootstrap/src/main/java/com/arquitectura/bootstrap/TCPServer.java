@@ -2,15 +2,21 @@ package com.arquitectura.bootstrap;
 
 import java.io.IOException;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.arquitectura.bootstrap.config.ServerConfig;
+import com.arquitectura.bootstrap.nio.NioTransport;
 import com.arquitectura.controladores.conexion.ConnectionHandler;
 import com.arquitectura.controladores.conexion.ConnectionHandlerPool;
 import com.arquitectura.controladores.conexion.ConnectionRegistry;
@@ -23,17 +29,24 @@ import com.arquitectura.servicios.MessageSyncService;
 import com.arquitectura.servicios.RegistroService;
 import com.arquitectura.servicios.ReporteService;
 import com.arquitectura.servicios.eventos.SessionEventBus;
+import com.arquitectura.servicios.metrics.ServerMetrics;
 
 /**
  * TCP Server that listens for client connections and delegates handling
- * to ConnectionHandler instances from a pool.
+ * to ConnectionHandler instances. With {@code server.ioMode=blocking} each session
+ * runs on its own thread from a pool, with {@code server.ioMode=virtual} on its own
+ * virtual thread, and with {@code server.ioMode=nio} sessions are multiplexed over
+ * selector threads by {@link NioTransport}.
  */
 public class TCPServer implements Runnable {
 
     private static final Logger LOGGER = Logger.getLogger(TCPServer.class.getName());
+    private static final String SERVER_FULL_RESPONSE =
+        "{\"command\":\"ERROR\",\"payload\":{\"error\":\"Servidor lleno. Máximo de conexiones alcanzado.\"}}\n";
 
     private final int port;
     private final int maxConnections;
+    private final String ioMode;
     private final RegistroService registroService;
     private final CanalService canalService;
     private final MensajeriaService mensajeriaService;
@@ -48,6 +61,8 @@ public class TCPServer implements Runnable {
     private final ExecutorService executor;
 
     private ServerSocket serverSocket;
+    private ServerSocketChannel serverChannel;
+    private NioTransport nioTransport;
     private volatile boolean running = false;
 
     public TCPServer(RegistroService registroService,
@@ -63,6 +78,7 @@ public class TCPServer implements Runnable {
         ServerConfig config = ServerConfig.getInstance();
         this.port = config.getServerPort();
         this.maxConnections = config.getMaxConnections();
+        this.ioMode = config.getIoMode();
         this.registroService = registroService;
         this.canalService = canalService;
         this.mensajeriaService = mensajeriaService;
@@ -73,20 +89,31 @@ public class TCPServer implements Runnable {
         this.eventBus = eventBus;
         this.registry = registry;
         this.peerManager = peerManager;
-        this.pool = new ConnectionHandlerPool(10, () -> new ConnectionHandler(
-            registroService, canalService, mensajeriaService, reporteService, conexionService, audioStorageService, messageSyncService, eventBus, registry, peerManager
-        ));
-        this.executor = Executors.newCachedThreadPool();
+        this.pool = new ConnectionHandlerPool(maxConnections, this::newHandler);
+        if (isVirtualMode()) {
+            this.executor = Executors.newVirtualThreadPerTaskExecutor();
+            ServerMetrics.startVirtualThreadPinningMonitor();
+        } else {
+            this.executor = Executors.newCachedThreadPool();
+        }
     }
 
     @Override
     public void run() {
+        if ("nio".equals(ioMode)) {
+            runNio();
+        } else {
+            runBlocking();
+        }
+    }
+
+    private void runBlocking() {
         try {
             serverSocket = new ServerSocket(port);
             running = true;
             
             String hostAddress = getServerAddress();
-            LOGGER.log(Level.INFO, "Servidor TCP iniciado en {0}:{1}", new Object[]{hostAddress, port});
+            LOGGER.log(Level.INFO, "Servidor TCP iniciado en {0}:{1} (modo {2})", new Object[]{hostAddress, port, ioMode});
             
             while (running) {
                 try {
@@ -105,7 +132,7 @@ public class TCPServer implements Runnable {
                             var writer = new java.io.BufferedWriter(
                                 new java.io.OutputStreamWriter(clientSocket.getOutputStream(), 
                                 java.nio.charset.StandardCharsets.UTF_8));
-                            writer.write("{\"command\":\"ERROR\",\"payload\":{\"error\":\"Servidor lleno. Máximo de conexiones alcanzado.\"}}\n");
+                            writer.write(SERVER_FULL_RESPONSE);
                             writer.flush();
                         } catch (IOException ignored) {
                         }
@@ -117,7 +144,7 @@ public class TCPServer implements Runnable {
                     LOGGER.log(Level.INFO, "Nueva conexión desde {0} ({1}/{2} conexiones)", 
                         new Object[]{clientAddress, currentConnections + 1, maxConnections});
                     
-                    ConnectionHandler handler = pool.acquire(clientSocket);
+                    ConnectionHandler handler = acquireHandler(clientSocket);
                     if (handler != null) {
                         executor.execute(handler);
                     } else {
@@ -137,6 +164,81 @@ public class TCPServer implements Runnable {
         }
     }
 
+    /**
+     * Acepta en este hilo y reparte los canales entre los selectores; ningún hilo queda
+     * bloqueado por una sesión inactiva.
+     */
+    private void runNio() {
+        ServerConfig config = ServerConfig.getInstance();
+        try {
+            nioTransport = new NioTransport(config.getNioSelectorThreads(), config.getNioWorkerThreads(),
+                config.getNioMaxFrameBytes(), config.getNioMaxPendingCommands(), config.getNioMaxOutboundBytes());
+            nioTransport.start();
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.bind(new InetSocketAddress(port));
+            running = true;
+
+            String hostAddress = getServerAddress();
+            LOGGER.log(Level.INFO, "Servidor TCP (NIO) iniciado en {0}:{1}", new Object[]{hostAddress, port});
+
+            while (running) {
+                try {
+                    SocketChannel channel = serverChannel.accept();
+                    String clientAddress = String.valueOf(channel.getRemoteAddress());
+
+                    int currentConnections = registry.getTotalConnections();
+                    if (currentConnections >= maxConnections) {
+                        LOGGER.log(Level.WARNING,
+                            "Conexión rechazada desde {0} - Límite alcanzado ({1}/{2} conexiones)",
+                            new Object[]{clientAddress, currentConnections, maxConnections});
+                        try {
+                            // El canal sigue en modo bloqueante: la notificación sale completa antes de cerrar
+                            channel.write(ByteBuffer.wrap(SERVER_FULL_RESPONSE.getBytes(StandardCharsets.UTF_8)));
+                        } catch (IOException ignored) {
+                        }
+                        channel.close();
+                        continue;
+                    }
+
+                    LOGGER.log(Level.INFO, "Nueva conexión desde {0} ({1}/{2} conexiones)",
+                        new Object[]{clientAddress, currentConnections + 1, maxConnections});
+                    nioTransport.accept(channel, newHandler());
+                } catch (IOException e) {
+                    if (running) {
+                        LOGGER.log(Level.WARNING, "Error aceptando conexión", e);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Error iniciando servidor TCP (NIO)", e);
+        } finally {
+            shutdown();
+        }
+    }
+
+    private boolean isVirtualMode() {
+        return "virtual".equals(ioMode);
+    }
+
+    /**
+     * En modo virtual cada conexión recibe un handler nuevo (son baratos y el hilo no se reutiliza);
+     * en modo bloqueante se reciclan desde el pool, limitado por {@code server.maxConnections}.
+     */
+    private ConnectionHandler acquireHandler(Socket clientSocket) {
+        if (isVirtualMode()) {
+            ConnectionHandler handler = newHandler();
+            handler.attach(clientSocket);
+            return handler;
+        }
+        return pool.acquire(clientSocket);
+    }
+
+    private ConnectionHandler newHandler() {
+        return new ConnectionHandler(
+            registroService, canalService, mensajeriaService, reporteService, conexionService, audioStorageService, messageSyncService, eventBus, registry, peerManager
+        );
+    }
+
     public void start() {
         Thread serverThread = new Thread(this, "TCP-Server");
         serverThread.setDaemon(true);
@@ -162,6 +264,16 @@ public class TCPServer implements Runnable {
                 LOGGER.log(Level.WARNING, "Error cerrando ServerSocket", e);
             }
         }
+        if (serverChannel != null && serverChannel.isOpen()) {
+            try {
+                serverChannel.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Error cerrando ServerSocketChannel", e);
+            }
+        }
+        if (nioTransport != null) {
+            nioTransport.shutdown();
+        }
         executor.shutdown();
         LOGGER.log(Level.INFO, "Servidor TCP detenido");
     }
@@ -70,6 +70,221 @@ public final class ServerConfig {
         return getIntProperty("server.maxConnections", 5);
     }
 
+    /**
+     * Motor de E/S para clientes: {@code blocking} (hilo de plataforma por conexión),
+     * {@code virtual} (hilo virtual por conexión) o {@code nio} (selectores).
+     */
+    public String getIoMode() {
+        return getProperty("server.ioMode", "blocking").trim().toLowerCase();
+    }
+
+    public int getNioSelectorThreads() {
+        return getIntProperty("server.nio.selectorThreads", Runtime.getRuntime().availableProcessors());
+    }
+
+    public int getNioWorkerThreads() {
+        return getIntProperty("server.nio.workerThreads", Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    public int getNioMaxFrameBytes() {
+        return getIntProperty("server.nio.maxFrameBytes", 16 * 1024 * 1024);
+    }
+
+    /**
+     * Comandos de una sesión esperando al pool a partir de los cuales se deja de leer su socket.
+     */
+    public int getNioMaxPendingCommands() {
+        return getIntProperty("server.nio.maxPendingCommands", 64);
+    }
+
+    /**
+     * Bytes por sesión pendientes de escribir en el socket a partir de los cuales el registro
+     * espera; mientras tanto su cola de salida se llena y aplica la política de desborde.
+     */
+    public int getNioMaxOutboundBytes() {
+        return getIntProperty("server.nio.maxOutboundBytes", 1024 * 1024);
+    }
+
+    /**
+     * Frames que puede acumular la cola de salida de cada sesión antes de aplicar la política de desborde.
+     */
+    public int getOutboundQueueCapacity() {
+        return getIntProperty("server.outbound.queueCapacity", 1024);
+    }
+
+    /**
+     * {@code drop_oldest} o {@code disconnect}.
+     */
+    public String getOutboundOverflowPolicy() {
+        return getProperty("server.outbound.overflowPolicy", "drop_oldest");
+    }
+
+    /**
+     * Mensajes por trama MESSAGE_SYNC al sincronizar el historial de un cliente.
+     */
+    public int getMessageSyncPageSize() {
+        return getIntProperty("server.messageSync.pageSize", 200);
+    }
+
+    /**
+     * Bytes máximos por fragmento FETCH_AUDIO al descargar un audio.
+     */
+    public int getAudioChunkBytes() {
+        return getIntProperty("server.audio.chunkBytes", 65536);
+    }
+
+    /**
+     * Tamaño máximo en bytes de un archivo subido (UPLOAD_AUDIO o carga por fragmentos).
+     */
+    public long getUploadMaxBytes() {
+        return getIntProperty("server.upload.maxBytes", 26214400);
+    }
+
+    /**
+     * Bytes máximos por fragmento UPLOAD_CHUNK.
+     */
+    public int getUploadChunkBytes() {
+        return getIntProperty("server.upload.chunkBytes", 262144);
+    }
+
+    /**
+     * Hilos de cada observador asíncrono del bus de eventos; los eventos de un mismo actor o
+     * canal siempre van al mismo hilo.
+     */
+    public int getEventWorkers() {
+        return getIntProperty("server.events.workers", 2);
+    }
+
+    /**
+     * Eventos que puede acumular la cola de cada hilo antes de que quien publica espere.
+     */
+    public int getEventQueueCapacity() {
+        return getIntProperty("server.events.queueCapacity", 4096);
+    }
+
+    /**
+     * Hilos de transcripción de audio; 0 usa uno por núcleo.
+     */
+    public int getTranscriptionWorkers() {
+        return getIntProperty("server.transcription.workers", 0);
+    }
+
+    /**
+     * Audios que pueden esperar transcripción; si la cola se llena se omiten.
+     */
+    public int getTranscriptionQueueCapacity() {
+        return getIntProperty("server.transcription.queueCapacity", 256);
+    }
+
+    /**
+     * Identidades de clientes (id, usuario, email) que se mantienen en memoria.
+     */
+    public int getIdentityCacheMaxEntries() {
+        return getIntProperty("server.identityCache.maxEntries", 10000);
+    }
+
+    /**
+     * Usuarios cuyo listado de canales con miembros se mantiene en memoria.
+     */
+    public int getChannelReportCacheMaxEntries() {
+        return getIntProperty("server.channelReportCache.maxEntries", 5000);
+    }
+
+    /**
+     * Filas por página al transferir el snapshot completo a un par.
+     */
+    public int getPeerSnapshotPageSize() {
+        return getIntProperty("server.peer.snapshotPageSize", 500);
+    }
+
+    /**
+     * Páginas del snapshot que se envían sin confirmación del par antes de esperar.
+     */
+    public int getPeerSnapshotWindow() {
+        return getIntProperty("server.peer.snapshotWindow", 4);
+    }
+
+    /**
+     * Días que se conservan entradas del log de replicación que algún par no ha aplicado.
+     */
+    public int getPeerReplicationRetentionDays() {
+        return getIntProperty("server.peer.replicationRetentionDays", 7);
+    }
+
+    /**
+     * Formato del enlace con otros servidores: {@code cbor} (se negocia con cada peer) o {@code json}.
+     */
+    public String getPeerFraming() {
+        return getProperty("server.peer.framing", "cbor");
+    }
+
+    /**
+     * Tamaño mínimo en bytes de una trama binaria entre servidores para comprimirla (0 = nunca).
+     */
+    public int getPeerCompressionThreshold() {
+        return getIntProperty("server.peer.compressionThreshold", 1024);
+    }
+
+    /**
+     * Sobres como máximo en cada escritura agrupada a un par.
+     */
+    public int getPeerBatchMaxEnvelopes() {
+        return getIntProperty("server.peer.batchMaxEnvelopes", 64);
+    }
+
+    /**
+     * Milisegundos que el escritor de un par espera por más sobres antes de escribir el lote.
+     */
+    public int getPeerBatchLingerMs() {
+        return getIntProperty("server.peer.batchLingerMs", 2);
+    }
+
+    /**
+     * Directorio del outbox de mensajes reenviados a otros servidores (vacío = solo en memoria).
+     */
+    public String getPeerOutboxDirectory() {
+        return getProperty("server.peer.outboxDir", "/var/chat/outbox");
+    }
+
+    /**
+     * Milisegundos de la primera espera de confirmación de un mensaje reenviado; se duplica con cada fallo.
+     */
+    public int getPeerRetryBaseMs() {
+        return getIntProperty("server.peer.retryBaseMs", 5000);
+    }
+
+    /**
+     * Tope en milisegundos de la espera entre reintentos a un mismo servidor.
+     */
+    public int getPeerRetryMaxMs() {
+        return getIntProperty("server.peer.retryMaxMs", 300000);
+    }
+
+    public int getPeerMaxRetries() {
+        return getIntProperty("server.peer.maxRetries", 6);
+    }
+
+    /**
+     * Minutos que un mensaje espera a que su servidor destino vuelva antes de descartarse.
+     */
+    public int getPeerOutboxMaxAgeMinutes() {
+        return getIntProperty("server.peer.outboxMaxAgeMinutes", 1440);
+    }
+
+    /**
+     * Mensajes numerados que un par puede enviar sin confirmación antes de esperar.
+     */
+    public int getPeerAckWindow() {
+        return getIntProperty("server.peer.ackWindow", 256);
+    }
+
+    /**
+     * Milisegundos que se espera para confirmar juntos los mensajes recibidos de un par.
+     */
+    public int getPeerAckDelayMs() {
+        return getIntProperty("server.peer.ackDelayMs", 20);
+    }
+
     public int getPeerPort() {
         return getIntProperty("server.peerPort", getServerPort() + 1000);
     }
@@ -93,6 +308,31 @@ public final class ServerConfig {
             .collect(Collectors.toList());
     }
 
+    /**
+     * Entradas de log que admite el buffer de escritura diferida antes de aplicar la política de desborde.
+     */
+    public int getLogBufferCapacity() {
+        return getIntProperty("log.buffer.capacity", 10000);
+    }
+
+    public int getLogBufferBatchSize() {
+        return getIntProperty("log.buffer.batchSize", 200);
+    }
+
+    /**
+     * Espera máxima, en milisegundos, antes de persistir un lote incompleto.
+     */
+    public int getLogBufferFlushIntervalMs() {
+        return getIntProperty("log.buffer.flushIntervalMs", 500);
+    }
+
+    /**
+     * {@code drop_oldest}, {@code drop_newest} o {@code block}.
+     */
+    public String getLogBufferOverflowPolicy() {
+        return getProperty("log.buffer.overflowPolicy", "drop_oldest");
+    }
+
     public String getAudioDirectory() {
         return getProperty("storage.audioDir", "/var/chat/audio");
     }
@@ -0,0 +1,102 @@
+package com.arquitectura.bootstrap.nio;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Hilo selector que multiplexa la E/S de muchas sesiones. Cualquier cambio sobre las
+ * {@link SelectionKey} se encola con {@link #execute(Runnable)} y se aplica en este hilo.
+ */
+final class NioSelectorLoop implements Runnable {
+
+    private static final Logger LOGGER = Logger.getLogger(NioSelectorLoop.class.getName());
+
+    private final Selector selector;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final Thread thread;
+    private volatile boolean running;
+
+    NioSelectorLoop(String name) throws IOException {
+        this.selector = Selector.open();
+        this.thread = new Thread(this, name);
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        running = true;
+        thread.start();
+    }
+
+    void register(NioSession session) {
+        execute(() -> session.attach(selector));
+    }
+
+    void execute(Runnable task) {
+        tasks.add(task);
+        if (Thread.currentThread() != thread) {
+            selector.wakeup();
+        }
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                selector.select();
+                runTasks();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    NioSession session = (NioSession) key.attachment();
+                    try {
+                        if (key.isValid() && key.isReadable()) {
+                            session.onReadable();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            session.onWritable();
+                        }
+                    } catch (CancelledKeyException ignored) {
+                    }
+                }
+                // Tareas encoladas por las propias sesiones de este hilo (cierres, interés de escritura)
+                runTasks();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Error en el selector " + thread.getName(), e);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.SEVERE, "Error inesperado en el selector " + thread.getName(), e);
+            }
+        }
+        runTasks();
+        // Las sesiones ya fueron cerradas por ConnectionRegistry.shutdownAllSessions; aquí solo se liberan canales
+        for (SelectionKey key : selector.keys()) {
+            try {
+                key.channel().close();
+            } catch (IOException ignored) {
+            }
+        }
+        try {
+            selector.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    void shutdown() {
+        running = false;
+        selector.wakeup();
+    }
+}
@@ -0,0 +1,431 @@
+package com.arquitectura.bootstrap.nio;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.arquitectura.controladores.conexion.BinaryFrameCodec;
+import com.arquitectura.controladores.conexion.ConnectionHandler;
+
+/**
+ * Estado de una conexión de cliente atendida por un {@link NioSelectorLoop}.
+ * <p>
+ * La lectura y la escritura ocurren en el hilo selector; las líneas completas se entregan al
+ * {@link ConnectionHandler} en un pool de trabajo, de una en una y en orden de llegada, para que
+ * los comandos que tocan base de datos no bloqueen al selector. Si la sesión negoció el protocolo
+ * binario, lo que llega después son tramas con prefijo de longitud.
+ * <p>
+ * Con {@code maxPendingTasks} comandos esperando al pool se deja de leer el socket (sin
+ * {@code OP_READ} el cliente queda frenado por la ventana TCP) hasta que el pool se pone al día
+ * con la mitad de ellos.
+ * <p>
+ * En sentido contrario, con {@code maxOutboundBytes} sin escribir en el socket el {@code flush}
+ * del registro espera a que el selector libere espacio. Así la cola de salida de la sesión se
+ * llena y su política de desborde actúa igual que con sockets bloqueantes.
+ */
+final class NioSession implements Closeable {
+
+    private static final Logger LOGGER = Logger.getLogger(NioSession.class.getName());
+    private static final int READ_BUFFER_SIZE = 8 * 1024;
+
+    private final SocketChannel channel;
+    private final NioSelectorLoop loop;
+    private final ConnectionHandler handler;
+    private final Executor workers;
+    private final int maxFrameBytes;
+    private final int maxPendingTasks;
+    private final long maxOutboundBytes;
+    // Bytes leídos y aún no convertidos en tareas (quedan aquí mientras la lectura está en pausa)
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+    private final ByteArrayOutputStream lineBuffer = new ByteArrayOutputStream();
+    // Trama binaria en curso: primero la cabecera y luego el cuerpo; solo los toca el selector
+    private final byte[] frameHeader = new byte[BinaryFrameCodec.HEADER_BYTES];
+    private int headerRead;
+    private byte[] frameBody;
+    private int bodyRead;
+    private final Queue<ByteBuffer> outbound = new ConcurrentLinkedQueue<>();
+    private final AtomicLong outboundBytes = new AtomicLong();
+    private final ReentrantLock outboundLock = new ReentrantLock();
+    private final Condition outboundSpace = outboundLock.newCondition();
+    private final Queue<Runnable> inbound = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingTasks = new AtomicInteger();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private SelectionKey key;
+    // Solo lo toca el selector
+    private boolean readPaused;
+
+    NioSession(SocketChannel channel, NioSelectorLoop loop, ConnectionHandler handler, Executor workers,
+               int maxFrameBytes, int maxPendingTasks, long maxOutboundBytes) {
+        this.channel = channel;
+        this.loop = loop;
+        this.handler = handler;
+        this.workers = workers;
+        this.maxFrameBytes = maxFrameBytes;
+        this.maxPendingTasks = Math.max(1, maxPendingTasks);
+        this.maxOutboundBytes = Math.max(1, maxOutboundBytes);
+        handler.setMaxFrameBytes(maxFrameBytes);
+    }
+
+    /**
+     * Se ejecuta en el hilo selector: registra el canal y abre la sesión en el registro.
+     */
+    void attach(Selector selector) {
+        try {
+            key = channel.register(selector, SelectionKey.OP_READ, this);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "No se pudo registrar el canal en el selector", e);
+            closeNow();
+            return;
+        }
+        String remoteAddress = String.valueOf(remoteAddress());
+        String remoteHost = remoteAddress() instanceof InetSocketAddress inet && inet.getAddress() != null
+            ? inet.getAddress().getHostAddress()
+            : null;
+        dispatch(() -> handler.open(remoteAddress, remoteHost, new ChannelOutputStream(), this));
+    }
+
+    void onReadable() {
+        int read;
+        try {
+            read = channel.read(readBuffer);
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Cliente desconectado: {0}", e.getMessage());
+            close();
+            return;
+        }
+        if (read < 0) {
+            close();
+            return;
+        }
+        parseBuffered();
+    }
+
+    /**
+     * Convierte en tareas lo que haya en el búfer de lectura. Si se llega al máximo de tareas
+     * pendientes se detiene y deja el resto en el búfer para cuando se reanude.
+     */
+    private void parseBuffered() {
+        readBuffer.flip();
+        byte[] data = readBuffer.array();
+        int position = readBuffer.position();
+        int limit = readBuffer.limit();
+        while (position < limit && !closed.get() && !readPaused) {
+            position = handler.usesBinaryFrames()
+                ? readFrame(data, position, limit)
+                : readLine(data, position, limit);
+            if (pendingTasks.get() >= maxPendingTasks) {
+                pauseRead();
+            }
+        }
+        readBuffer.position(position);
+        readBuffer.compact();
+    }
+
+    private void pauseRead() {
+        readPaused = true;
+        updateInterest();
+        LOGGER.log(Level.FINE, "{0} comandos pendientes, se pausa la lectura de {1}",
+            new Object[]{pendingTasks.get(), remoteAddress()});
+    }
+
+    /**
+     * Se ejecuta en el hilo selector cuando el pool se puso al día: entrega lo que quedó en el
+     * búfer y vuelve a leer si no se alcanzó otra vez el máximo.
+     */
+    private void resumeRead() {
+        if (!readPaused || closed.get()) {
+            return;
+        }
+        readPaused = false;
+        parseBuffered();
+        updateInterest();
+    }
+
+    /**
+     * @return posición siguiente a la línea entregada, o {@code limit} si la línea sigue incompleta
+     */
+    private int readLine(byte[] data, int start, int limit) {
+        for (int i = start; i < limit; i++) {
+            if (data[i] == '\n') {
+                lineBuffer.write(data, start, i - start);
+                emitLine();
+                return i + 1;
+            }
+        }
+        lineBuffer.write(data, start, limit - start);
+        if (lineBuffer.size() > maxFrameBytes) {
+            LOGGER.log(Level.WARNING, "Línea de {0} bytes excede server.nio.maxFrameBytes, cerrando {1}",
+                new Object[]{lineBuffer.size(), remoteAddress()});
+            lineBuffer.reset();
+            close();
+        }
+        return limit;
+    }
+
+    /**
+     * Avanza la trama binaria en curso con los bytes disponibles y la entrega al completarse.
+     */
+    private int readFrame(byte[] data, int position, int limit) {
+        if (frameBody == null) {
+            int n = Math.min(frameHeader.length - headerRead, limit - position);
+            System.arraycopy(data, position, frameHeader, headerRead, n);
+            headerRead += n;
+            position += n;
+            if (headerRead < frameHeader.length) {
+                return position;
+            }
+            headerRead = 0;
+            try {
+                frameBody = new byte[BinaryFrameCodec.bodyLength(frameHeader, maxFrameBytes)];
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "{0} (server.nio.maxFrameBytes), cerrando {1}",
+                    new Object[]{e.getMessage(), remoteAddress()});
+                close();
+                return limit;
+            }
+            bodyRead = 0;
+        }
+        int n = Math.min(frameBody.length - bodyRead, limit - position);
+        System.arraycopy(data, position, frameBody, bodyRead, n);
+        bodyRead += n;
+        position += n;
+        if (bodyRead == frameBody.length) {
+            byte[] body = frameBody;
+            frameBody = null;
+            dispatch(() -> handler.handleFrame(body));
+        }
+        return position;
+    }
+
+    private void emitLine() {
+        String line = lineBuffer.toString(StandardCharsets.UTF_8);
+        lineBuffer.reset();
+        if (line.endsWith("\r")) {
+            line = line.substring(0, line.length() - 1);
+        }
+        String frame = line;
+        dispatch(() -> handler.handleLine(frame));
+    }
+
+    void onWritable() {
+        try {
+            ByteBuffer buffer;
+            while ((buffer = outbound.peek()) != null) {
+                released(channel.write(buffer));
+                if (buffer.hasRemaining()) {
+                    return;
+                }
+                outbound.poll();
+            }
+            updateInterest();
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Error escribiendo al cliente: {0}", e.getMessage());
+            close();
+        }
+    }
+
+    /**
+     * Deja el frame para el selector. Si ya hay {@code maxOutboundBytes} sin escribir espera a que
+     * se libere espacio; nunca se llama desde el selector, sino desde los escritores del registro.
+     */
+    private void enqueue(ByteBuffer frame) throws IOException {
+        outboundLock.lock();
+        try {
+            while (outboundBytes.get() >= maxOutboundBytes && !closed.get()) {
+                outboundSpace.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Escritura interrumpida", e);
+        } finally {
+            outboundLock.unlock();
+        }
+        if (closed.get()) {
+            throw new IOException("Conexión cerrada");
+        }
+        outboundBytes.addAndGet(frame.remaining());
+        outbound.add(frame);
+        loop.execute(this::updateInterest);
+    }
+
+    /**
+     * Descuenta lo escrito y despierta a quien espera si se bajó del máximo.
+     */
+    private void released(long written) {
+        if (written <= 0) {
+            return;
+        }
+        long after = outboundBytes.addAndGet(-written);
+        if (after < maxOutboundBytes && after + written >= maxOutboundBytes) {
+            signalOutboundSpace();
+        }
+    }
+
+    private void signalOutboundSpace() {
+        outboundLock.lock();
+        try {
+            outboundSpace.signalAll();
+        } finally {
+            outboundLock.unlock();
+        }
+    }
+
+    /**
+     * Se ejecuta en el hilo selector: lee salvo en pausa y escribe mientras quede algo pendiente.
+     */
+    private void updateInterest() {
+        if (key != null && key.isValid()) {
+            key.interestOps((readPaused ? 0 : SelectionKey.OP_READ)
+                | (outbound.isEmpty() ? 0 : SelectionKey.OP_WRITE));
+        }
+    }
+
+    /**
+     * Ejecuta tareas de la sesión en el pool de trabajo garantizando orden y exclusión mutua.
+     */
+    private void dispatch(SessionTask task) {
+        pendingTasks.incrementAndGet();
+        inbound.add(() -> {
+            try {
+                task.run();
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Cliente desconectado: {0}", e.getMessage());
+                close();
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Error procesando la sesión " + remoteAddress(), e);
+            }
+        });
+        if (draining.compareAndSet(false, true)) {
+            workers.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        do {
+            Runnable task;
+            while ((task = inbound.poll()) != null) {
+                task.run();
+                if (pendingTasks.decrementAndGet() == maxPendingTasks / 2) {
+                    loop.execute(this::resumeRead);
+                }
+            }
+            draining.set(false);
+        } while (!inbound.isEmpty() && draining.compareAndSet(false, true));
+    }
+
+    /**
+     * Cierre idempotente: lo invocan el registro (al remover la sesión), el selector (EOF o error)
+     * y el propio handler. Lo pendiente de escribir se intenta entregar antes de cerrar el canal.
+     */
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        // Quien espera espacio en la salida falla en lugar de quedar bloqueado
+        signalOutboundSpace();
+        loop.execute(() -> {
+            onWritable();
+            closeNow();
+        });
+        dispatch(handler::close);
+    }
+
+    private void closeNow() {
+        if (key != null) {
+            key.cancel();
+        }
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+        outbound.clear();
+        outboundBytes.set(0);
+        signalOutboundSpace();
+    }
+
+    private SocketAddress remoteAddress() {
+        try {
+            return channel.getRemoteAddress();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    @FunctionalInterface
+    private interface SessionTask {
+        void run() throws IOException;
+    }
+
+    /**
+     * Adaptador {@link OutputStream} que el {@code ConnectionRegistry} envuelve en su búfer:
+     * cada {@code flush} se convierte en un frame pendiente para el selector y espera si el
+     * cliente no está leyendo.
+     */
+    private final class ChannelOutputStream extends OutputStream {
+
+        private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+        private final ReentrantLock lock = new ReentrantLock();
+
+        @Override
+        public void write(int b) {
+            lock.lock();
+            try {
+                pending.write(b);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            lock.lock();
+            try {
+                pending.write(b, off, len);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            byte[] bytes;
+            lock.lock();
+            try {
+                if (pending.size() == 0) {
+                    return;
+                }
+                bytes = pending.toByteArray();
+                pending.reset();
+            } finally {
+                lock.unlock();
+            }
+            enqueue(ByteBuffer.wrap(bytes));
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.arquitectura.bootstrap.nio;
+
+import java.io.IOException;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.arquitectura.controladores.conexion.ConnectionHandler;
+
+/**
+ * Motor no bloqueante para las conexiones de clientes: un grupo de selectores (por defecto uno por
+ * núcleo) se reparte los canales aceptados y un pool acotado ejecuta los comandos de cada sesión.
+ * Las sesiones inactivas no ocupan ningún hilo.
+ */
+public class NioTransport {
+
+    private static final Logger LOGGER = Logger.getLogger(NioTransport.class.getName());
+
+    private final NioSelectorLoop[] loops;
+    private final ExecutorService workers;
+    private final int maxFrameBytes;
+    private final int maxPendingTasks;
+    private final long maxOutboundBytes;
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * @param maxPendingTasks comandos por sesión esperando al pool a partir de los cuales se deja
+     *                        de leer su socket
+     * @param maxOutboundBytes bytes por sesión sin escribir en el socket a partir de los cuales el
+     *                         registro espera antes de entregar más
+     */
+    public NioTransport(int selectorThreads, int workerThreads, int maxFrameBytes, int maxPendingTasks,
+                        long maxOutboundBytes) throws IOException {
+        this.loops = new NioSelectorLoop[Math.max(1, selectorThreads)];
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new NioSelectorLoop("NIO-Selector-" + (i + 1));
+        }
+        this.workers = Executors.newFixedThreadPool(Math.max(1, workerThreads), namedThreads("NIO-Worker-"));
+        this.maxFrameBytes = maxFrameBytes;
+        this.maxPendingTasks = maxPendingTasks;
+        this.maxOutboundBytes = maxOutboundBytes;
+    }
+
+    public void start() {
+        for (NioSelectorLoop loop : loops) {
+            loop.start();
+        }
+        LOGGER.log(Level.INFO, "Motor NIO iniciado con {0} selectores", loops.length);
+    }
+
+    /**
+     * Entrega un canal recién aceptado a uno de los selectores (round-robin).
+     */
+    public void accept(SocketChannel channel, ConnectionHandler handler) throws IOException {
+        channel.configureBlocking(false);
+        NioSelectorLoop loop = loops[Math.floorMod(next.getAndIncrement(), loops.length)];
+        loop.register(new NioSession(channel, loop, handler, workers, maxFrameBytes, maxPendingTasks, maxOutboundBytes));
+    }
+
+    public void shutdown() {
+        for (NioSelectorLoop loop : loops) {
+            loop.shutdown();
+        }
+        workers.shutdown();
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
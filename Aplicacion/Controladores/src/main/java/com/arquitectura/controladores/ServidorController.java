@@ -64,7 +64,7 @@ public class ServidorController implements SessionObserver, ServerPeerManager.Pe
         this.conexionesModel = (DefaultListModel<String>) vista.getLstConexiones().getModel();
         this.servidoresModel = (DefaultListModel<String>) vista.getLstServidores().getModel();
         wire();
-        this.eventBus.subscribe(this);
+        this.eventBus.subscribeAsync(this);
         this.peerManager.addPeerStatusListener(this);
         refreshConexiones();
         refreshServidores();
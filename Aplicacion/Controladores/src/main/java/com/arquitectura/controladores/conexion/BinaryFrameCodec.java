@@ -0,0 +1,102 @@
+package com.arquitectura.controladores.conexion;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import com.arquitectura.dto.CommandEnvelope;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.BinaryNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * Protocolo binario de clientes, negociado con {@code HELLO}: cada trama es un entero de 4 bytes
+ * big-endian con la longitud seguido del {@link CommandEnvelope} codificado en CBOR.
+ * <p>
+ * Los DTO son los mismos que en JSON. Los campos cuyo nombre termina en {@code Base64} viajan
+ * como bytes crudos (byte string de CBOR) en ambos sentidos, sin el 33% de Base64; al recibirlos
+ * Jackson los vuelve a entregar como texto Base64 a los DTO, así que los servicios no cambian.
+ */
+public final class BinaryFrameCodec {
+
+    public static final String PROTOCOLO = "cbor";
+    public static final int HEADER_BYTES = 4;
+    public static final int DEFAULT_MAX_FRAME_BYTES = 16 * 1024 * 1024;
+    private static final String SUFIJO_BINARIO = "Base64";
+
+    private static final ObjectMapper CBOR = new ObjectMapper(new CBORFactory())
+        .registerModule(new JavaTimeModule())
+        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private BinaryFrameCodec() {
+    }
+
+    /**
+     * Trama completa (prefijo de longitud incluido) lista para escribir en el socket.
+     */
+    public static byte[] encode(CommandEnvelope envelope) throws JsonProcessingException {
+        JsonNode tree = CBOR.valueToTree(envelope);
+        aBytesCrudos(tree, campo -> campo.endsWith(SUFIJO_BINARIO));
+        byte[] body = CBOR.writeValueAsBytes(tree);
+        return ByteBuffer.allocate(HEADER_BYTES + body.length)
+            .putInt(body.length)
+            .put(body)
+            .array();
+    }
+
+    /**
+     * Decodifica el cuerpo de una trama (sin el prefijo de longitud).
+     */
+    public static JsonNode decode(byte[] body) throws IOException {
+        return CBOR.readTree(body);
+    }
+
+    /**
+     * Longitud anunciada en la cabecera; falla si supera {@code maxFrameBytes}.
+     */
+    public static int bodyLength(byte[] header, int maxFrameBytes) throws IOException {
+        int length = ByteBuffer.wrap(header, 0, HEADER_BYTES).getInt();
+        if (length < 0 || length > maxFrameBytes) {
+            throw new IOException("Trama binaria de " + length + " bytes fuera de rango");
+        }
+        return length;
+    }
+
+    /**
+     * Reemplaza, en todo el árbol, el texto Base64 de los campos que cumplen {@code campoBinario}
+     * por sus bytes, para que CBOR los escriba como byte string. También lo usa el enlace binario
+     * entre servidores.
+     */
+    public static void aBytesCrudos(JsonNode node, Predicate<String> campoBinario) {
+        if (node instanceof ObjectNode object) {
+            List<String> binarios = new ArrayList<>();
+            var fields = object.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> entry = fields.next();
+                if (entry.getValue().isTextual() && campoBinario.test(entry.getKey())) {
+                    binarios.add(entry.getKey());
+                } else {
+                    aBytesCrudos(entry.getValue(), campoBinario);
+                }
+            }
+            for (String campo : binarios) {
+                try {
+                    object.set(campo, BinaryNode.valueOf(Base64.getDecoder().decode(object.get(campo).asText())));
+                } catch (IllegalArgumentException e) {
+                    // No era Base64 válido: se deja como texto
+                }
+            }
+        } else if (node != null && node.isArray()) {
+            node.forEach(item -> aBytesCrudos(item, campoBinario));
+        }
+    }
+}
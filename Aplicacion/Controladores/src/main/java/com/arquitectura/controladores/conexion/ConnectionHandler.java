@@ -1,9 +1,12 @@
 package com.arquitectura.controladores.conexion;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.Socket;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
@@ -14,17 +17,27 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.arquitectura.dto.AckResponse;
+import com.arquitectura.dto.AudioChunkResponse;
+import com.arquitectura.dto.AvatarResponse;
 import com.arquitectura.dto.ChannelRequest;
 import com.arquitectura.dto.CommandEnvelope;
 import com.arquitectura.dto.ErrorResponse;
+import com.arquitectura.dto.FetchAudioRequest;
+import com.arquitectura.dto.FetchAvatarRequest;
+import com.arquitectura.dto.HelloRequest;
+import com.arquitectura.dto.HelloResponse;
 import com.arquitectura.dto.InviteRequest;
 import com.arquitectura.dto.LoginRequest;
 import com.arquitectura.dto.LoginResponse;
 import com.arquitectura.dto.MessageRequest;
+import com.arquitectura.dto.MessageSyncRequest;
 import com.arquitectura.dto.MessageSyncResponse;
 import com.arquitectura.dto.RegisterRequest;
 import com.arquitectura.dto.UploadAudioRequest;
 import com.arquitectura.dto.UploadAudioResponse;
+import com.arquitectura.dto.UploadBeginRequest;
+import com.arquitectura.dto.UploadChunkRequest;
+import com.arquitectura.dto.UploadCommitRequest;
 import com.arquitectura.entidades.Canal;
 import com.arquitectura.servicios.AudioStorageService;
 import com.arquitectura.servicios.CanalService;
@@ -33,12 +46,14 @@ import com.arquitectura.servicios.MensajeriaService;
 import com.arquitectura.servicios.MessageSyncService;
 import com.arquitectura.servicios.RegistroService;
 import com.arquitectura.servicios.ReporteService;
+import com.arquitectura.servicios.conexion.EncodedFrame;
 import com.arquitectura.servicios.eventos.SessionEvent;
 import com.arquitectura.servicios.eventos.SessionEventBus;
 import com.arquitectura.servicios.eventos.SessionEventType;
 import com.arquitectura.servicios.metrics.ServerMetrics;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.BinaryNode;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
 import io.prometheus.client.Histogram;
@@ -47,6 +62,12 @@ public class ConnectionHandler implements Runnable {
 
     private static final Logger LOGGER = Logger.getLogger(ConnectionHandler.class.getName());
     private static final int BASE64_PREVIEW_LENGTH = 10;
+    // Fragmentos por FETCH_AUDIO: acota lo que se encola de una vez en la cola de salida;
+    // el cliente pide el resto con el offset siguiente
+    private static final int FETCH_AUDIO_MAX_CHUNKS = 16;
+    // Páginas por LOGIN o MESSAGE_SYNC, con el mismo fin; el cliente sigue con MESSAGE_SYNC
+    // desde el último cursor mientras reciba hasMore=true
+    private static final int MESSAGE_SYNC_MAX_PAGES = 8;
 
     private final RegistroService registroService;
     private final CanalService canalService;
@@ -69,10 +90,13 @@ public class ConnectionHandler implements Runnable {
     }
 
     private Socket socket;
-    private BufferedReader reader;
-    private BufferedWriter writer;
+    private InputStream input;
+    private String remoteHost;
     private String sessionId;
     private Long clienteId;
+    // Protocolo binario negociado con HELLO; lo leen el hilo del socket o el selector NIO
+    private volatile boolean binaryFrames;
+    private int maxFrameBytes = BinaryFrameCodec.DEFAULT_MAX_FRAME_BYTES;
 
     public ConnectionHandler(RegistroService registroService,
                               CanalService canalService,
@@ -104,12 +128,29 @@ public class ConnectionHandler implements Runnable {
         this.pool = pool;
     }
 
+    /**
+     * Tamaño máximo de una trama binaria entrante; se anuncia al cliente en la respuesta al
+     * {@code HELLO}.
+     */
+    public void setMaxFrameBytes(int maxFrameBytes) {
+        if (maxFrameBytes > 0) {
+            this.maxFrameBytes = maxFrameBytes;
+        }
+    }
+
+    /**
+     * @return {@code true} si la sesión negoció el protocolo binario y las tramas entrantes
+     * llevan prefijo de longitud en lugar de terminar en {@code '\n'}
+     */
+    public boolean usesBinaryFrames() {
+        return binaryFrames;
+    }
+
     @Override
     public void run() {
         try {
-            sessionId = registry.register(socket);
-            writer = registry.writerOf(sessionId);
-            reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            open(socket.getRemoteSocketAddress().toString(), hostOf(socket), socket);
+            input = new BufferedInputStream(socket.getInputStream());
             listen();
         } catch (java.net.SocketException e) {
             // Conexión cerrada por el cliente, no loguear como error
@@ -124,108 +165,212 @@ public class ConnectionHandler implements Runnable {
         }
     }
 
+    /**
+     * Registra la sesión sobre un socket bloqueante usando su propio flujo de salida.
+     */
+    private void open(String remoteAddress, String remoteHost, Socket socket) throws IOException {
+        open(remoteAddress, remoteHost, socket.getOutputStream(), socket);
+    }
+
+    /**
+     * Registra la sesión en el {@link ConnectionRegistry} sin asumir el tipo de transporte.
+     * Lo usan tanto el modo bloqueante (socket por hilo) como el motor NIO, que entrega
+     * un {@link OutputStream} respaldado por el canal y un {@link Closeable} para cerrarlo.
+     */
+    public void open(String remoteAddress, String remoteHost, OutputStream out, Closeable transport) throws IOException {
+        this.remoteHost = remoteHost;
+        sessionId = registry.register(remoteAddress, out, transport);
+    }
+
+    /**
+     * Lee líneas JSON hasta que el cliente negocia el protocolo binario con {@code HELLO}; desde
+     * ahí, tramas con prefijo de longitud. Los comandos se procesan en este hilo, así que el
+     * cambio ocurre justo entre la línea del {@code HELLO} y la primera trama binaria.
+     */
     private void listen() throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+        byte[] header = new byte[BinaryFrameCodec.HEADER_BYTES];
+        while (true) {
+            if (binaryFrames) {
+                if (!readFully(header, true)) {
+                    return;
+                }
+                byte[] body = new byte[BinaryFrameCodec.bodyLength(header, maxFrameBytes)];
+                readFully(body, false);
+                handleFrame(body);
+                continue;
+            }
+            line.reset();
+            int b;
+            while ((b = input.read()) != -1 && b != '\n') {
+                line.write(b);
+            }
+            if (b == -1 && line.size() == 0) {
+                return;
+            }
+            int length = line.size();
+            byte[] bytes = line.toByteArray();
+            if (length > 0 && bytes[length - 1] == '\r') {
+                length--;
+            }
+            handleLine(new String(bytes, 0, length, StandardCharsets.UTF_8));
+            if (b == -1) {
+                return;
+            }
+        }
+    }
 
-        String line;
+    /**
+     * @return {@code false} si el cliente cerró antes del primer byte y {@code eofAllowed}
+     */
+    private boolean readFully(byte[] buffer, boolean eofAllowed) throws IOException {
+        int read = 0;
+        while (read < buffer.length) {
+            int n = input.read(buffer, read, buffer.length - read);
+            if (n == -1) {
+                if (read == 0 && eofAllowed) {
+                    return false;
+                }
+                throw new EOFException("Trama binaria incompleta");
+            }
+            read += n;
+        }
+        return true;
+    }
 
-        while ((line = reader.readLine()) != null) {
+    /**
+     * Procesa una línea del protocolo (un {@code CommandEnvelope} JSON) ya delimitada por el transporte.
+     */
+    public void handleLine(String line) throws IOException {
 
-            if (line.isBlank()) {
+        if (line == null || line.isBlank()) {
 
-                continue;
+            return;
 
-            }
+        }
 
-            String rawCommand = "";
+        process(() -> mapper.readTree(line));
 
-            Histogram.Timer latencyTimer = null;
+    }
 
-            Histogram.Timer responseTimer = null;
+    /**
+     * Procesa el cuerpo de una trama binaria (un {@code CommandEnvelope} CBOR, sin el prefijo de
+     * longitud) ya delimitada por el transporte.
+     */
+    public void handleFrame(byte[] body) throws IOException {
 
-            try {
+        process(() -> BinaryFrameCodec.decode(body));
 
-                JsonNode node = mapper.readTree(line);
+    }
 
-                rawCommand = node.hasNonNull("command") ? node.get("command").asText() : "";
+    private void process(EnvelopeReader envelopeReader) throws IOException {
 
-                String command = rawCommand.toUpperCase(Locale.ROOT);
+        String rawCommand = "";
 
-                JsonNode payload = node.get("payload");
+        Histogram.Timer latencyTimer = null;
 
+        Histogram.Timer responseTimer = null;
 
+        try {
 
-                LOGGER.log(Level.INFO, "Comando recibido: {0}", command);
+            JsonNode node = envelopeReader.read();
 
-                if (payload != null) {
+            rawCommand = node.hasNonNull("command") ? node.get("command").asText() : "";
 
-                    LOGGER.log(Level.INFO, "Payload: {0}", sanitizePayload(command, payload));
+            String command = rawCommand.toUpperCase(Locale.ROOT);
 
-                }
+            JsonNode payload = node.get("payload");
+
+
+
+            LOGGER.log(Level.INFO, "Comando recibido: {0}", command);
 
+            if (payload != null) {
 
+                LOGGER.log(Level.INFO, "Payload: {0}", sanitizePayload(command, payload));
+
+            }
 
-                responseTimer = ServerMetrics.startServerResponseTimer();
 
-                latencyTimer = ServerMetrics.startCommandTimer(command);
 
-                processCommand(command, payload);
+            responseTimer = ServerMetrics.startServerResponseTimer();
 
-                ServerMetrics.finishCommand(command, "success", latencyTimer);
+            latencyTimer = ServerMetrics.startCommandTimer(command);
 
-            } catch (IllegalArgumentException e) {
+            processCommand(command, payload);
 
-                LOGGER.log(Level.INFO, "Error de validación: {0}", e.getMessage());
+            ServerMetrics.finishCommand(command, "success", latencyTimer);
 
-                String cmd = normalizeCommandForMetrics(rawCommand);
+        } catch (IllegalArgumentException e) {
 
-                ServerMetrics.recordCommandError(cmd, "validation_error");
+            LOGGER.log(Level.INFO, "Error de validación: {0}", e.getMessage());
 
-                ServerMetrics.finishCommand(cmd, "validation_error", latencyTimer);
+            String cmd = normalizeCommandForMetrics(rawCommand);
 
-                send("ERROR", new ErrorResponse(e.getMessage()));
+            ServerMetrics.recordCommandError(cmd, "validation_error");
 
-            } catch (com.fasterxml.jackson.core.JsonProcessingException e) {
+            ServerMetrics.finishCommand(cmd, "validation_error", latencyTimer);
 
-                LOGGER.log(Level.WARNING, "JSON inválido: {0}", e.getMessage());
+            send("ERROR", new ErrorResponse(e.getMessage()));
 
-                String cmd = normalizeCommandForMetrics(rawCommand);
+        } catch (com.fasterxml.jackson.core.JsonProcessingException e) {
 
-                ServerMetrics.recordCommandError(cmd, "json_error");
+            LOGGER.log(Level.WARNING, "JSON inválido: {0}", e.getMessage());
 
-                ServerMetrics.finishCommand(cmd, "json_error", latencyTimer);
+            String cmd = normalizeCommandForMetrics(rawCommand);
 
-                send("ERROR", new ErrorResponse("Formato JSON inválido"));
+            ServerMetrics.recordCommandError(cmd, "json_error");
 
-            } catch (Exception e) {
+            ServerMetrics.finishCommand(cmd, "json_error", latencyTimer);
 
-                LOGGER.log(Level.WARNING, "Error procesando comando: {0}", e.getMessage());
+            send("ERROR", new ErrorResponse("Formato JSON inválido"));
 
-                String cmd = normalizeCommandForMetrics(rawCommand);
+        } catch (Exception e) {
 
-                ServerMetrics.recordCommandError(cmd, "internal_error");
+            LOGGER.log(Level.WARNING, "Error procesando comando: {0}", e.getMessage());
 
-                ServerMetrics.finishCommand(cmd, "internal_error", latencyTimer);
+            String cmd = normalizeCommandForMetrics(rawCommand);
 
-                send("ERROR", new ErrorResponse("Error interno del servidor"));
+            ServerMetrics.recordCommandError(cmd, "internal_error");
 
-            } finally {
+            ServerMetrics.finishCommand(cmd, "internal_error", latencyTimer);
 
-                ServerMetrics.observeServerResponse(responseTimer);
+            send("ERROR", new ErrorResponse("Error interno del servidor"));
 
-            }
+        } finally {
+
+            ServerMetrics.observeServerResponse(responseTimer);
 
         }
 
     }
 
+    /**
+     * Libera la sesión cuando el transporte no es un hilo dedicado (modo NIO).
+     */
+    public void close() {
+        cleanup();
+    }
+
+    private static String hostOf(Socket socket) {
+        return socket.getInetAddress() != null ? socket.getInetAddress().getHostAddress() : null;
+    }
+
 
     private void processCommand(String command, JsonNode payload) throws IOException {
         switch (command) {
             case "PING" -> handlePing();
+            case "HELLO" -> handleHello(payload);
             case "REGISTER" -> handleRegister(payload);
             case "LOGIN" -> handleLogin(payload);
             case "LOGOUT" -> handleLogout();
+            case "MESSAGE_SYNC" -> handleMessageSync(payload);
             case "UPLOAD_AUDIO" -> handleUploadAudio(payload);
+            case "UPLOAD_BEGIN" -> handleUploadBegin(payload);
+            case "UPLOAD_CHUNK" -> handleUploadChunk(payload);
+            case "UPLOAD_COMMIT" -> handleUploadCommit(payload);
+            case "FETCH_AUDIO" -> handleFetchAudio(payload);
+            case "FETCH_AVATAR" -> handleFetchAvatar(payload);
             case "SEND_USER" -> handleSendUser(payload);
             case "SEND_CHANNEL" -> handleSendChannel(payload);
             case "CREATE_CHANNEL" -> handleCreateChannel(payload);
@@ -265,6 +410,34 @@ public class ConnectionHandler implements Runnable {
         send("PING", new AckResponse("PONG"));
     }
 
+    /**
+     * Negocia el protocolo de la sesión. La respuesta siempre va en JSON; si se acordó
+     * {@code cbor}, lo siguiente en ambos sentidos son tramas binarias.
+     */
+    private void handleHello(JsonNode payload) throws IOException {
+        HelloRequest request = payload != null ? mapper.treeToValue(payload, HelloRequest.class) : new HelloRequest();
+        String protocolo = request.getProtocolo() == null || request.getProtocolo().isBlank()
+            ? "json" : request.getProtocolo().trim().toLowerCase(Locale.ROOT);
+        if (!protocolo.equals("json") && !protocolo.equals(BinaryFrameCodec.PROTOCOLO)) {
+            throw new IllegalArgumentException("Protocolo no soportado: " + request.getProtocolo());
+        }
+        if (binaryFrames) {
+            throw new IllegalArgumentException("El protocolo ya fue negociado");
+        }
+        ServerMetrics.recordProtocolNegotiation(protocolo);
+        HelloResponse response = new HelloResponse(protocolo, maxFrameBytes);
+        if (protocolo.equals("json")) {
+            send("HELLO", response);
+            return;
+        }
+        String json = mapper.writeValueAsString(new CommandEnvelope("HELLO", response));
+        // Antes de encolar: la siguiente trama del cliente puede llegar en cuanto lea la respuesta
+        binaryFrames = true;
+        if (!registry.switchToBinary(sessionId, json)) {
+            binaryFrames = false;
+        }
+    }
+
     private void handleRegister(JsonNode payload) throws IOException {
         RegisterRequest request = mapper.treeToValue(payload, RegisterRequest.class);
         byte[] foto = new byte[0];
@@ -278,8 +451,8 @@ public class ConnectionHandler implements Runnable {
     private void handleLogin(JsonNode payload) throws IOException {
         LoginRequest request = mapper.treeToValue(payload, LoginRequest.class);
         String ip = request.getIp();
-        if ((ip == null || ip.isBlank()) && socket != null && socket.getInetAddress() != null) {
-            ip = socket.getInetAddress().getHostAddress();
+        if (ip == null || ip.isBlank()) {
+            ip = remoteHost;
         }
 
         var cliente = registroService.autenticarCliente(request.getEmail(), request.getContrasenia(), ip);
@@ -293,13 +466,17 @@ public class ConnectionHandler implements Runnable {
         registry.updateCliente(sessionId, cliente.getId(), cliente.getNombreDeUsuario(), ip);
 
         // Enviar respuesta de login exitoso lo antes posible para evitar timeouts en el cliente
-        String fotoBase64 = null;
-        byte[] foto = cliente.getFoto();
-        if (foto != null && foto.length > 0) {
-            fotoBase64 = Base64.getEncoder().encodeToString(foto);
+        LoginResponse response = new LoginResponse(true, "Login exitoso", null);
+        try {
+            // La foto propia se sigue enviando para los clientes que no usan FETCH_AVATAR
+            AvatarResponse avatar = registroService.obtenerAvatar(cliente.getId(), cliente.getFotoHash());
+            response.setFotoBase64(avatar.getDatosBase64());
+            response.setFotoHash(avatar.getFotoHash());
+        } catch (IllegalArgumentException e) {
+            // Sin avatar
         }
 
-        send("LOGIN", new LoginResponse(true, "Login exitoso", fotoBase64));
+        send("LOGIN", response);
 
         try {
             eventBus.publish(new SessionEvent(SessionEventType.LOGIN, sessionId, cliente.getId(), null));
@@ -309,16 +486,58 @@ public class ConnectionHandler implements Runnable {
         
         // Sincronizar mensajes del usuario
         try {
-            MessageSyncResponse syncResponse = messageSyncService.sincronizarMensajes(cliente.getId());
-            send("MESSAGE_SYNC", syncResponse);
-            LOGGER.info(() -> "Mensajes sincronizados para usuario " + cliente.getNombreDeUsuario() + 
-                             ": " + syncResponse.getTotalMensajes() + " mensajes");
+            streamMessageSync(cliente.getId(), cliente.getNombreDeUsuario(), request.getUltimoMensajeId());
         } catch (Exception e) {
             LOGGER.warning(() -> "Error sincronizando mensajes para usuario " + cliente.getId() + ": " + e.getMessage());
             // No fallar el login por error de sincronización
         }
     }
 
+    private void handleMessageSync(JsonNode payload) throws IOException {
+        ensureAuthenticated();
+        MessageSyncRequest request = payload != null && !payload.isNull()
+            ? mapper.treeToValue(payload, MessageSyncRequest.class)
+            : new MessageSyncRequest();
+        String usuario = registry.descriptorOf(sessionId) != null ? registry.descriptorOf(sessionId).getUsuario() : null;
+        streamMessageSync(clienteId, usuario, request.getUltimoMensajeId());
+    }
+
+    /**
+     * Envía los mensajes posteriores a {@code desdeId} en tramas MESSAGE_SYNC, una por página y
+     * hasta {@link #MESSAGE_SYNC_MAX_PAGES}; si la última enviada lleva {@code hasMore=true}, el
+     * cliente pide el resto con un MESSAGE_SYNC desde su {@code cursor}.
+     */
+    private void streamMessageSync(Long usuarioId, String usuario, Long desdeId) throws IOException {
+        var timer = ServerMetrics.startMessageSyncTimer();
+        int pages = 0;
+        int total = 0;
+        long bytes = 0;
+        try {
+            Long cursor = desdeId;
+            MessageSyncResponse page;
+            do {
+                page = messageSyncService.sincronizarMensajes(usuarioId, cursor);
+                long sent = send("MESSAGE_SYNC", page);
+                if (sent == 0) {
+                    // Sesión cerrada o trama descartada por desborde: el cliente reanuda desde su cursor
+                    break;
+                }
+                bytes += sent;
+                pages++;
+                total += page.getTotalMensajes();
+                cursor = page.getCursor();
+            } while (page.isHasMore() && pages < MESSAGE_SYNC_MAX_PAGES);
+        } finally {
+            ServerMetrics.observeMessageSyncDuration(timer);
+            ServerMetrics.observeMessageSyncBacklog(total);
+            ServerMetrics.observeMessageSyncTransfer(pages, bytes);
+        }
+        int sentPages = pages;
+        int sentMessages = total;
+        LOGGER.info(() -> "Mensajes sincronizados para usuario " + usuario + ": " + sentMessages +
+            " mensajes en " + sentPages + " páginas");
+    }
+
     private void handleLogout() throws IOException {
         ensureAuthenticated();
         
@@ -364,6 +583,65 @@ public class ConnectionHandler implements Runnable {
         }
     }
 
+    /**
+     * Carga por fragmentos: UPLOAD_BEGIN devuelve el {@code uploadId} y el offset desde el que
+     * enviar (también para reanudar tras reconectar), cada UPLOAD_CHUNK responde con el
+     * offset siguiente y UPLOAD_COMMIT verifica el hash y devuelve la ruta como UPLOAD_AUDIO.
+     */
+    private void handleUploadBegin(JsonNode payload) throws IOException {
+        ensureAuthenticated();
+        UploadBeginRequest request = mapper.treeToValue(payload, UploadBeginRequest.class);
+        send("UPLOAD_BEGIN", audioStorageService.iniciarCarga(clienteId, request));
+    }
+
+    private void handleUploadChunk(JsonNode payload) throws IOException {
+        ensureAuthenticated();
+        UploadChunkRequest request = mapper.treeToValue(payload, UploadChunkRequest.class);
+        send("UPLOAD_CHUNK", audioStorageService.escribirFragmento(clienteId, request));
+    }
+
+    private void handleUploadCommit(JsonNode payload) throws IOException {
+        ensureAuthenticated();
+        UploadCommitRequest request = mapper.treeToValue(payload, UploadCommitRequest.class);
+        String rutaGuardada = audioStorageService.confirmarCarga(clienteId, request.getUploadId());
+        send("UPLOAD_COMMIT", new UploadAudioResponse(true, rutaGuardada, "Archivo guardado exitosamente"));
+    }
+
+    /**
+     * Envía el audio en tramas FETCH_AUDIO de tamaño acotado, desde {@code offset} y hasta
+     * {@link #FETCH_AUDIO_MAX_CHUNKS} fragmentos; si el último enviado no tiene
+     * {@code ultimo=true}, el cliente continúa pidiendo desde el offset siguiente.
+     */
+    private void handleFetchAudio(JsonNode payload) throws IOException {
+        ensureAuthenticated();
+        FetchAudioRequest request = mapper.treeToValue(payload, FetchAudioRequest.class);
+        String rutaArchivo = request.getRutaArchivo();
+        if (!mensajeriaService.puedeDescargarAudio(clienteId, rutaArchivo)) {
+            throw new IllegalArgumentException("Audio no encontrado");
+        }
+        long offset = request.getOffset() != null ? request.getOffset() : 0L;
+        for (int i = 0; i < FETCH_AUDIO_MAX_CHUNKS; i++) {
+            AudioChunkResponse chunk = audioStorageService.leerFragmento(rutaArchivo, offset);
+            if (chunk == null) {
+                throw new IllegalArgumentException("Audio no encontrado");
+            }
+            if (send("FETCH_AUDIO", chunk) == 0 || chunk.isUltimo()) {
+                return;
+            }
+            offset += chunk.getLongitud();
+        }
+    }
+
+    /**
+     * Envía el avatar de un usuario. Las listas de usuarios solo traen {@code fotoHash}; el
+     * cliente pide aquí las imágenes que no tenga guardadas.
+     */
+    private void handleFetchAvatar(JsonNode payload) throws IOException {
+        ensureAuthenticated();
+        FetchAvatarRequest request = mapper.treeToValue(payload, FetchAvatarRequest.class);
+        send("FETCH_AVATAR", registroService.obtenerAvatar(request.getUsuarioId(), request.getFotoHash()));
+    }
+
     private void handleSendUser(JsonNode payload) throws IOException {
         ensureAuthenticated();
         MessageRequest request = mapper.treeToValue(payload, MessageRequest.class);
@@ -462,15 +740,26 @@ public class ConnectionHandler implements Runnable {
         }
     }
 
-    private void send(String command, Object payload) throws IOException {
-        if (writer == null) {
-            return;
+    /**
+     * @return bytes UTF-8 de la trama encolada, o 0 si no se envió
+     */
+    private long send(String command, Object payload) throws IOException {
+        if (sessionId == null) {
+            return 0;
         }
         CommandEnvelope response = new CommandEnvelope(command, payload);
+        if (binaryFrames) {
+            byte[] frame = BinaryFrameCodec.encode(response);
+            if (!registry.sendFrame(sessionId, EncodedFrame.ofBinary(null, frame))) {
+                return 0;
+            }
+            LOGGER.log(Level.INFO, "Respuesta enviada: {0} ({1} bytes, binaria)", new Object[]{command, frame.length});
+            return frame.length;
+        }
         String jsonResponse = mapper.writeValueAsString(response);
-        writer.write(jsonResponse);
-        writer.write('\n');
-        writer.flush();
+        if (!registry.sendFrame(sessionId, jsonResponse)) {
+            return 0;
+        }
         
         // Logging de la respuesta enviada
         LOGGER.log(Level.INFO, "Respuesta enviada: {0}", command);
@@ -481,6 +770,25 @@ public class ConnectionHandler implements Runnable {
         } catch (Exception e) {
             LOGGER.log(Level.FINE, "No se pudo formatear la respuesta para logging", e);
         }
+        return utf8Length(jsonResponse);
+    }
+
+    private static long utf8Length(String text) {
+        long bytes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
     }
 
     private JsonNode sanitizeBase64ForLogging(JsonNode node) {
@@ -501,6 +809,9 @@ public class ConnectionHandler implements Runnable {
                     if (value != null && value.length() > BASE64_PREVIEW_LENGTH) {
                         objectNode.put(fieldName, value.substring(0, BASE64_PREVIEW_LENGTH) + "...");
                     }
+                } else if (child.isBinary()) {
+                    // Bytes crudos del protocolo binario
+                    objectNode.put(fieldName, "<" + ((BinaryNode) child).binaryValue().length + " bytes>");
                 } else {
                     sanitizeBase64ForLogging(child);
                 }
@@ -519,7 +830,7 @@ public class ConnectionHandler implements Runnable {
             return false;
         }
         String normalized = fieldName.toLowerCase(Locale.ROOT);
-        return normalized.equals("audiobase64") || normalized.equals("fotobase64") || normalized.contains("fotoperfil");
+        return normalized.equals("audiobase64") || normalized.equals("datosbase64") || normalized.equals("fotobase64") || normalized.contains("fotoperfil");
     }
 
     private String normalizeCommandForMetrics(String command) {
@@ -600,9 +911,9 @@ public class ConnectionHandler implements Runnable {
         if (sessionId != null) {
             registry.unregister(sessionId);
         }
-        if (reader != null) {
+        if (input != null) {
             try {
-                reader.close();
+                input.close();
             } catch (IOException ignored) {
             }
         }
@@ -616,9 +927,15 @@ public class ConnectionHandler implements Runnable {
             eventBus.publish(new SessionEvent(SessionEventType.LOGOUT, sessionId, clienteId, null));
         }
         this.socket = null;
-        this.reader = null;
-        this.writer = null;
+        this.remoteHost = null;
+        this.input = null;
         this.sessionId = null;
         this.clienteId = null;
+        this.binaryFrames = false;
+    }
+
+    @FunctionalInterface
+    private interface EnvelopeReader {
+        JsonNode read() throws IOException;
     }
 }
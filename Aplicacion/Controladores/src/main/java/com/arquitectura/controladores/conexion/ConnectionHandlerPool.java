@@ -1,35 +1,61 @@
 package com.arquitectura.controladores.conexion;
 
 import java.net.Socket;
-import java.util.Queue;
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Supplier;
 
+/**
+ * Reutiliza instancias de {@link ConnectionHandler} hasta {@code capacity} sesiones simultáneas.
+ * Los handlers se crean bajo demanda, así que la capacidad puede igualar {@code server.maxConnections}
+ * sin reservar memoria para conexiones que nunca llegan.
+ */
 public class ConnectionHandlerPool {
 
-    private final Queue<ConnectionHandler> pool;
+    private final Deque<ConnectionHandler> idle = new ArrayDeque<>();
+    private final Supplier<ConnectionHandler> factory;
+    private final int capacity;
+    // ReentrantLock en lugar de synchronized para no fijar hilos portadores en modo virtual
+    private final ReentrantLock lock = new ReentrantLock();
+    private int created;
 
     public ConnectionHandlerPool(int capacity, Supplier<ConnectionHandler> factory) {
-        this.pool = new ArrayBlockingQueue<>(capacity);
-        for (int i = 0; i < capacity; i++) {
-            ConnectionHandler handler = factory.get();
-            handler.setPool(this);
-            pool.add(handler);
-        }
+        this.capacity = capacity;
+        this.factory = factory;
     }
 
-    public synchronized ConnectionHandler acquire(Socket socket) {
-        ConnectionHandler handler = pool.poll();
+    public ConnectionHandler acquire(Socket socket) {
+        ConnectionHandler handler;
+        lock.lock();
+        try {
+            handler = idle.poll();
+            if (handler == null) {
+                if (created >= capacity) {
+                    return null;
+                }
+                created++;
+            }
+        } finally {
+            lock.unlock();
+        }
         if (handler == null) {
-            return null;
+            handler = factory.get();
+            handler.setPool(this);
         }
         handler.attach(socket);
         return handler;
     }
 
-    public synchronized void release(ConnectionHandler handler) {
-        if (handler != null) {
-            pool.offer(handler);
+    public void release(ConnectionHandler handler) {
+        if (handler == null) {
+            return;
+        }
+        lock.lock();
+        try {
+            idle.push(handler);
+        } finally {
+            lock.unlock();
         }
     }
 }
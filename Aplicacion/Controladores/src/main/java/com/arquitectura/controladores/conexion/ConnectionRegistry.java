@@ -1,8 +1,10 @@
 package com.arquitectura.controladores.conexion;
 
-import java.io.BufferedWriter;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.net.Socket;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
@@ -15,10 +17,17 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 
 import com.arquitectura.controladores.p2p.ServerPeerManager;
 import com.arquitectura.dto.CommandEnvelope;
@@ -26,11 +35,16 @@ import com.arquitectura.entidades.Canal;
 import com.arquitectura.entidades.Cliente;
 import com.arquitectura.repositorios.CanalRepository;
 import com.arquitectura.repositorios.ClienteRepository;
+import com.arquitectura.servicios.cache.CanalCatalog;
+import com.arquitectura.servicios.cache.ClienteIdentityCache;
 import com.arquitectura.servicios.conexion.ConnectionGateway;
+import com.arquitectura.servicios.conexion.EncodedFrame;
 import com.arquitectura.servicios.conexion.SessionDescriptor;
 import com.arquitectura.servicios.eventos.SessionEvent;
 import com.arquitectura.servicios.eventos.SessionEventBus;
 import com.arquitectura.servicios.eventos.SessionEventType;
+import com.arquitectura.servicios.metrics.ServerMetrics;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
@@ -38,6 +52,9 @@ public class ConnectionRegistry implements ConnectionGateway {
 
     private static final Logger LOGGER = Logger.getLogger(ConnectionRegistry.class.getName());
     private static final String DEFAULT_SERVER_ID = "local-server";
+    private static final int DEFAULT_OUTBOUND_CAPACITY = 1024;
+    private static final EncodedFrame.BinaryEncoder BINARY_EVENT_ENCODER =
+        payload -> BinaryFrameCodec.encode(new CommandEnvelope("EVENT", payload));
 
     private final Map<String, ConnectionContext> contexts = new ConcurrentHashMap<>();
     private final Map<String, RemoteSessionSnapshot> remoteSessions = new ConcurrentHashMap<>();
@@ -48,8 +65,21 @@ public class ConnectionRegistry implements ConnectionGateway {
     private final CanalRepository canalRepository;
     private final ClienteRepository clienteRepository;
     private final Set<String> knownRemoteServers = ConcurrentHashMap.newKeySet();
+    // Índices secundarios para que el enrutamiento cueste O(audiencia) y no O(sesiones del nodo)
+    private final Map<Long, Set<String>> localSessionsByChannel = new ConcurrentHashMap<>();
+    private final Map<Long, Set<String>> localSessionsByCliente = new ConcurrentHashMap<>();
+    private final Map<Long, Set<String>> remoteKeysByChannel = new ConcurrentHashMap<>();
+    private final Map<Long, Set<String>> remoteKeysByCliente = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> remoteKeysByEmail = new ConcurrentHashMap<>();
+    // Un hilo virtual por vaciado de cola: un cliente lento solo bloquea su propia tarea de escritura
+    private final ExecutorService writerExecutor = Executors.newThreadPerTaskExecutor(
+        Thread.ofVirtual().name("session-writer-", 0).factory());
 
     private volatile ServerPeerManager peerManager;
+    private volatile ClienteIdentityCache identityCache;
+    private volatile CanalCatalog channelCatalog;
+    private volatile int outboundCapacity = DEFAULT_OUTBOUND_CAPACITY;
+    private volatile OutboundOverflowPolicy overflowPolicy = OutboundOverflowPolicy.DROP_OLDEST;
 
     public ConnectionRegistry(SessionEventBus eventBus, CanalRepository canalRepository) {
         this(eventBus, DEFAULT_SERVER_ID, canalRepository, null);
@@ -74,14 +104,43 @@ public class ConnectionRegistry implements ConnectionGateway {
         this.peerManager = peerManager;
     }
 
+    /**
+     * Resuelve los emails de los usuarios desde la caché de identidades en lugar de la base.
+     */
+    public void setIdentityCache(ClienteIdentityCache identityCache) {
+        this.identityCache = identityCache;
+    }
+
+    /**
+     * Traduce ids y UUIDs de canal de las sesiones remotas en memoria en lugar de en la base.
+     */
+    public void setChannelCatalog(CanalCatalog channelCatalog) {
+        this.channelCatalog = channelCatalog;
+    }
+
+    /**
+     * Ajusta la cola de salida de las sesiones que se registren a partir de ahora.
+     */
+    public void configureOutbound(int capacity, OutboundOverflowPolicy policy) {
+        this.outboundCapacity = capacity > 0 ? capacity : DEFAULT_OUTBOUND_CAPACITY;
+        this.overflowPolicy = policy != null ? policy : OutboundOverflowPolicy.DROP_OLDEST;
+    }
+
     public String getLocalServerId() {
         return localServerId;
     }
 
     public String register(Socket socket) throws IOException {
+        return register(socket.getRemoteSocketAddress().toString(), socket.getOutputStream(), socket);
+    }
+
+    /**
+     * Registra una sesión independiente del transporte: {@code out} recibe las líneas JSON en UTF-8
+     * y {@code transport} se cierra al remover la sesión (socket bloqueante o canal NIO).
+     */
+    public String register(String clientIp, OutputStream out, Closeable transport) {
         String sessionId = "session-" + sequence.incrementAndGet();
-        String clientIp = socket.getRemoteSocketAddress().toString();
-        ConnectionContext context = new ConnectionContext(sessionId, socket);
+        ConnectionContext context = new ConnectionContext(sessionId, clientIp, out, transport, outboundCapacity);
         context.descriptor = new SessionDescriptor(sessionId, null, "Anónimo", clientIp, localServerId, true);
         contexts.put(sessionId, context);
         LOGGER.info(() -> "Nueva conexión TCP registrada " + sessionId + " desde " + clientIp);
@@ -94,10 +153,11 @@ public class ConnectionRegistry implements ConnectionGateway {
         ConnectionContext context = contexts.remove(sessionId);
         if (context != null) {
             SessionDescriptor descriptor = context.descriptor;
+            unindexLocal(sessionId, descriptor);
             if (descriptor != null && descriptor.getClienteId() != null && peerManager != null) {
                 peerManager.notifyClientLogout(toSnapshot(descriptor));
             }
-            context.close();
+            closeGracefully(context);
             LOGGER.info(() -> "Sesión removida " + sessionId);
 
             eventBus.publish(new SessionEvent(SessionEventType.TCP_DISCONNECTED, sessionId,
@@ -117,12 +177,16 @@ public class ConnectionRegistry implements ConnectionGateway {
             if (previous != null && previous.getClienteId() != null && peerManager != null) {
                 peerManager.notifyClientLogout(toSnapshot(previous));
             }
-            String clientIp = context.socket.getRemoteSocketAddress().toString();
-            context.descriptor = new SessionDescriptor(sessionId, null, "Anónimo", clientIp, localServerId, true);
+            unindexLocal(sessionId, previous);
+            context.descriptor = new SessionDescriptor(sessionId, null, "Anónimo", context.remoteAddress, localServerId, true);
             LOGGER.info(() -> "Sesión " + sessionId + " cambió a estado anónimo");
         } else {
             Set<Long> canales = previous != null ? new HashSet<>(previous.getCanales()) : Set.of();
+            if (previous != null && previous.getClienteId() != null && !previous.getClienteId().equals(clienteId)) {
+                indexRemove(localSessionsByCliente, previous.getClienteId(), sessionId);
+            }
             context.descriptor = new SessionDescriptor(sessionId, clienteId, usuario, ip, localServerId, true, canales);
+            indexAdd(localSessionsByCliente, clienteId, sessionId);
             LOGGER.info(() -> "Sesión " + sessionId + " autenticada como " + usuario);
             if (peerManager != null) {
                 peerManager.notifyClientLogin(toSnapshot(context.descriptor));
@@ -130,9 +194,64 @@ public class ConnectionRegistry implements ConnectionGateway {
         }
     }
 
-    public BufferedWriter writerOf(String sessionId) {
+    /**
+     * Encola una línea ya serializada (respuesta a un comando) en la cola de salida de la sesión,
+     * de modo que comparte orden y escritor con los eventos que entrega el registro.
+     * @return {@code false} si la sesión ya no existe o fue descartada por desborde.
+     */
+    public boolean sendFrame(String sessionId, String frame) {
+        return sendFrame(sessionId, EncodedFrame.of(null, frame));
+    }
+
+    /**
+     * Igual que {@link #sendFrame(String, String)} con una trama ya codificada (p. ej. binaria).
+     */
+    public boolean sendFrame(String sessionId, EncodedFrame frame) {
         ConnectionContext context = contexts.get(sessionId);
-        return context != null ? context.writer : null;
+        return context != null && enqueue(context, frame);
+    }
+
+    /**
+     * Encola la respuesta JSON al {@code HELLO} y pasa la sesión al protocolo binario: todo lo
+     * que se encole después, incluidos los eventos, sale como trama binaria.
+     */
+    public boolean switchToBinary(String sessionId, String ackFrame) {
+        ConnectionContext context = contexts.get(sessionId);
+        if (context == null) {
+            return false;
+        }
+        context.enqueueLock.lock();
+        try {
+            if (!enqueue(context, EncodedFrame.of(null, ackFrame))) {
+                return false;
+            }
+            context.binary = true;
+        } finally {
+            context.enqueueLock.unlock();
+        }
+        LOGGER.info(() -> "Sesión " + sessionId + " usa el protocolo binario " + BinaryFrameCodec.PROTOCOLO);
+        return true;
+    }
+
+    @Override
+    public EncodedFrame encodeEvent(Object payload) {
+        if (payload instanceof EncodedFrame frame) {
+            return frame;
+        }
+        try {
+            EncodedFrame frame = EncodedFrame.of(payload, mapper.writeValueAsString(new CommandEnvelope("EVENT", payload)));
+            LOGGER.fine(() -> "Evento serializado (" + frame.length() + " bytes): " + frame);
+            return frame;
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("No se pudo serializar el evento", e);
+        }
+    }
+
+    /**
+     * Payload original de un evento, tanto si llega crudo como ya codificado.
+     */
+    private static Object unwrap(Object payload) {
+        return payload instanceof EncodedFrame frame ? frame.getPayload() : payload;
     }
 
     public SessionDescriptor descriptorOf(String sessionId) {
@@ -161,6 +280,7 @@ public class ConnectionRegistry implements ConnectionGateway {
         ConnectionContext context = contexts.get(sessionId);
         if (context != null && context.descriptor != null) {
             context.descriptor.joinChannel(canalId);
+            indexAdd(localSessionsByChannel, canalId, sessionId);
             LOGGER.info(() -> String.format("👥 Usuario %s (%s) se unió al canal %d",
                 context.descriptor.getUsuario(),
                 context.descriptor.getSessionId(),
@@ -195,6 +315,8 @@ public class ConnectionRegistry implements ConnectionGateway {
             "Cierre programado del servidor"
         );
         
+        EncodedFrame frame = encodeEvent(notification);
+
         // Copiar las claves para evitar ConcurrentModificationException
         List<String> sessionIds = new ArrayList<>(contexts.keySet());
         
@@ -206,7 +328,7 @@ public class ConnectionRegistry implements ConnectionGateway {
             
             try {
                 // Enviar notificación de shutdown al cliente
-                send(context, notification);
+                send(context, frame);
                 
                 // Dar un pequeño tiempo para que llegue el mensaje
                 Thread.sleep(50);
@@ -234,9 +356,11 @@ public class ConnectionRegistry implements ConnectionGateway {
     }
 
     private void broadcastInternal(Object payload, boolean includeRemote) {
-        contexts.values().forEach(ctx -> send(ctx, payload));
+        // Se serializa una sola vez y el mismo frame se comparte entre todas las sesiones
+        EncodedFrame frame = encodeEvent(payload);
+        contexts.values().forEach(ctx -> send(ctx, frame));
         if (includeRemote && peerManager != null) {
-            peerManager.broadcast(payload);
+            peerManager.broadcast(unwrap(payload));
         }
     }
 
@@ -252,25 +376,19 @@ public class ConnectionRegistry implements ConnectionGateway {
     private void sendToChannelInternal(Long canalId, Object payload, boolean includeRemote) {
         System.out.println("📡 ENVIANDO MENSAJE A CANAL " + canalId);
 
-        var miembrosCanal = contexts.values().stream()
+        var miembrosCanal = localSessionsByChannel.getOrDefault(canalId, Set.of()).stream()
+            .map(contexts::get)
+            .filter(ctx -> ctx != null && ctx.descriptor != null)
             .map(ctx -> ctx.descriptor)
-            .filter(desc -> desc != null && desc.getCanales().contains(canalId))
             .toList();
 
         System.out.println("   👥 Miembros del canal encontrados: " + miembrosCanal.size());
 
         if (miembrosCanal.isEmpty()) {
             System.out.println("⚠️ NO SE ENCONTRARON MIEMBROS PARA EL CANAL " + canalId);
-            System.out.println("📋 ESTADO ACTUAL DE CONEXIONES:");
-            for (ConnectionContext ctx : contexts.values()) {
-                if (ctx.descriptor != null) {
-                    System.out.println("   - " + ctx.descriptor.getSessionId()
-                        + " | Usuario: " + ctx.descriptor.getUsuario()
-                        + " | Canales: " + ctx.descriptor.getCanales());
-                }
-            }
         } else {
-            Long emisorId = extractEmisorId(payload);
+            Long emisorId = extractEmisorId(unwrap(payload));
+            EncodedFrame frame = encodeEvent(payload);
             for (var descriptor : miembrosCanal) {
                 if (emisorId != null && emisorId.equals(descriptor.getClienteId())) {
                     continue;
@@ -281,17 +399,14 @@ public class ConnectionRegistry implements ConnectionGateway {
                     descriptor.getUsuario()));
 
                 ConnectionContext ctx = contexts.get(descriptor.getSessionId());
-                send(ctx, payload);
+                send(ctx, frame);
             }
         }
 
         if (includeRemote && peerManager != null) {
-            Set<String> targetServers = remoteSessions.values().stream()
-                .filter(snapshot -> snapshot.getCanales().contains(canalId))
-                .map(RemoteSessionSnapshot::getServerId)
-                .collect(Collectors.toSet());
+            Set<String> targetServers = remoteServersOf(remoteKeysByChannel.get(canalId));
             for (String serverId : targetServers) {
-                peerManager.forwardToChannel(serverId, canalId, payload);
+                peerManager.forwardToChannel(serverId, canalId, unwrap(payload));
             }
         }
 
@@ -308,7 +423,7 @@ public class ConnectionRegistry implements ConnectionGateway {
         if (peerManager != null) {
             RemoteSessionSnapshot remote = findRemoteSessionByCompositeId(sessionId);
             if (remote != null) {
-                peerManager.forwardToSession(remote.getServerId(), remote.getSessionId(), payload);
+                peerManager.forwardToSession(remote.getServerId(), remote.getSessionId(), unwrap(payload));
             } else {
                 LOGGER.warning(() -> "No se encontró la sesión " + sessionId + " para envío directo");
             }
@@ -330,28 +445,25 @@ public class ConnectionRegistry implements ConnectionGateway {
     }
 
     private void sendToUserInternal(Long userId, Object payload, boolean includeRemote) {
-        contexts.values().stream()
-            .filter(ctx -> ctx.descriptor != null && userId.equals(ctx.descriptor.getClienteId()))
-            .forEach(ctx -> send(ctx, payload));
+        List<ConnectionContext> locales = localSessionsByCliente.getOrDefault(userId, Set.of()).stream()
+            .map(contexts::get)
+            .filter(ctx -> ctx != null && ctx.descriptor != null && userId.equals(ctx.descriptor.getClienteId()))
+            .toList();
+        if (!locales.isEmpty()) {
+            EncodedFrame frame = encodeEvent(payload);
+            locales.forEach(ctx -> send(ctx, frame));
+        }
 
         if (includeRemote && peerManager != null) {
             // Buscar el email del usuario local para identificar sesiones remotas correctamente
-            String userEmail = null;
-            if (clienteRepository != null) {
-                userEmail = clienteRepository.findById(userId)
-                    .map(Cliente::getEmail)
-                    .orElse(null);
-            }
+            String userEmail = emailOf(userId);
             
             final String finalUserEmail = userEmail;
             Set<String> servers;
             
             if (finalUserEmail != null && !finalUserEmail.isBlank()) {
                 // Buscar sesiones remotas por email (más confiable entre servidores)
-                servers = remoteSessions.values().stream()
-                    .filter(snapshot -> finalUserEmail.equalsIgnoreCase(snapshot.getEmail()))
-                    .map(RemoteSessionSnapshot::getServerId)
-                    .collect(Collectors.toSet());
+                servers = remoteServersOf(remoteKeysByEmail.get(emailKey(finalUserEmail)));
                 
                 if (!servers.isEmpty()) {
                     LOGGER.fine(() -> String.format("Encontradas %d sesiones remotas para usuario %d (email: %s)", 
@@ -359,14 +471,11 @@ public class ConnectionRegistry implements ConnectionGateway {
                 }
             } else {
                 // Fallback: buscar por clienteId (comportamiento anterior, puede fallar entre servidores)
-                servers = remoteSessions.values().stream()
-                    .filter(snapshot -> snapshot.getClienteId() != null && snapshot.getClienteId().equals(userId))
-                    .map(RemoteSessionSnapshot::getServerId)
-                    .collect(Collectors.toSet());
+                servers = remoteServersOf(remoteKeysByCliente.get(userId));
             }
             
             for (String serverId : servers) {
-                peerManager.forwardToUser(serverId, userId, payload);
+                peerManager.forwardToUser(serverId, userId, unwrap(payload));
             }
         }
     }
@@ -546,7 +655,7 @@ public class ConnectionRegistry implements ConnectionGateway {
             }
             return changed;
         }
-        remoteSessions.put(key, copy);
+        putRemote(key, copy);
         if (notify) {
             publishClusterStateUpdate();
         }
@@ -561,41 +670,41 @@ public class ConnectionRegistry implements ConnectionGateway {
         String effectiveBase = baseServerId(effectiveServerId);
         Long clienteId = snapshot.getClienteId();
         String sessionId = snapshot.getSessionId();
-        final boolean[] removed = {false};
-        remoteSessions.entrySet().removeIf(entry -> {
-            RemoteSessionSnapshot current = entry.getValue();
+        boolean removed = false;
+        for (String key : candidateKeysFor(clienteId)) {
+            RemoteSessionSnapshot current = remoteSessions.get(key);
             if (current == null) {
-                return false;
+                continue;
             }
             if (!Objects.equals(current.getClienteId(), clienteId)) {
-                return false;
+                continue;
             }
             if (sessionId != null && !sessionId.equals(current.getSessionId())) {
-                return false;
+                continue;
             }
             if (Objects.equals(current.getServerId(), effectiveServerId)) {
-                return false;
+                continue;
             }
             String currentBase = baseServerId(current.getServerId());
-            boolean shouldRemove = currentBase != null && currentBase.equalsIgnoreCase(effectiveBase);
-            if (shouldRemove) {
-                removed[0] = true;
+            if (currentBase != null && currentBase.equalsIgnoreCase(effectiveBase)) {
+                removed |= removeRemote(key) != null;
             }
-            return shouldRemove;
-        });
-        return removed[0];
+        }
+        return removed;
     }
 
     public boolean removeRemoteSession(String serverId, String sessionId, Long clienteId) {
         boolean removed = false;
         if (serverId != null && sessionId != null) {
-            removed = remoteSessions.remove(remoteKey(serverId, sessionId)) != null;
+            removed = removeRemote(remoteKey(serverId, sessionId)) != null;
         }
         if (!removed && serverId != null && clienteId != null) {
-            removed = remoteSessions.entrySet().removeIf(entry -> {
-                RemoteSessionSnapshot snapshot = entry.getValue();
-                return serverId.equals(snapshot.getServerId()) && clienteId.equals(snapshot.getClienteId());
-            });
+            for (String key : candidateKeysFor(clienteId)) {
+                RemoteSessionSnapshot snapshot = remoteSessions.get(key);
+                if (snapshot != null && serverId.equals(snapshot.getServerId()) && clienteId.equals(snapshot.getClienteId())) {
+                    removed |= removeRemote(key) != null;
+                }
+            }
         }
         if (removed) {
             publishClusterStateUpdate();
@@ -607,15 +716,18 @@ public class ConnectionRegistry implements ConnectionGateway {
         if (serverId == null || sessionId == null || canalId == null) {
             return false;
         }
-        RemoteSessionSnapshot snapshot = remoteSessions.get(remoteKey(serverId, sessionId));
+        String key = remoteKey(serverId, sessionId);
+        RemoteSessionSnapshot snapshot = remoteSessions.get(key);
         if (snapshot == null) {
             return false;
         }
         boolean changed;
         if (joined) {
             changed = snapshot.getCanales().add(canalId);
+            indexAdd(remoteKeysByChannel, canalId, key);
         } else {
             changed = snapshot.getCanales().remove(canalId);
+            indexRemove(remoteKeysByChannel, canalId, key);
         }
         if (changed) {
             publishClusterStateUpdate();
@@ -632,14 +744,14 @@ public class ConnectionRegistry implements ConnectionGateway {
             return List.of();
         }
         List<RemoteSessionSnapshot> removed = new ArrayList<>();
-        remoteSessions.entrySet().removeIf(entry -> {
-            RemoteSessionSnapshot snapshot = entry.getValue();
-            if (serverId.equals(snapshot.getServerId())) {
-                removed.add(copySnapshot(snapshot));
-                return true;
+        for (Map.Entry<String, RemoteSessionSnapshot> entry : remoteSessions.entrySet()) {
+            if (serverId.equals(entry.getValue().getServerId())) {
+                RemoteSessionSnapshot snapshot = removeRemote(entry.getKey());
+                if (snapshot != null) {
+                    removed.add(copySnapshot(snapshot));
+                }
             }
-            return false;
-        });
+        }
         if (!silent && !removed.isEmpty()) {
             publishClusterStateUpdate();
         }
@@ -659,6 +771,86 @@ public class ConnectionRegistry implements ConnectionGateway {
         }
     }
 
+    // --- Índices secundarios ---
+
+    private static <K> void indexAdd(Map<K, Set<String>> index, K key, String value) {
+        if (key == null || value == null) {
+            return;
+        }
+        index.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(value);
+    }
+
+    private static <K> void indexRemove(Map<K, Set<String>> index, K key, String value) {
+        if (key == null || value == null) {
+            return;
+        }
+        index.computeIfPresent(key, (k, values) -> {
+            values.remove(value);
+            return values.isEmpty() ? null : values;
+        });
+    }
+
+    private void unindexLocal(String sessionId, SessionDescriptor descriptor) {
+        if (descriptor == null) {
+            return;
+        }
+        indexRemove(localSessionsByCliente, descriptor.getClienteId(), sessionId);
+        for (Long canalId : descriptor.getCanales()) {
+            indexRemove(localSessionsByChannel, canalId, sessionId);
+        }
+    }
+
+    private void putRemote(String key, RemoteSessionSnapshot snapshot) {
+        unindexRemote(key, remoteSessions.put(key, snapshot));
+        indexAdd(remoteKeysByCliente, snapshot.getClienteId(), key);
+        indexAdd(remoteKeysByEmail, emailKey(snapshot.getEmail()), key);
+        for (Long canalId : snapshot.getCanales()) {
+            indexAdd(remoteKeysByChannel, canalId, key);
+        }
+    }
+
+    private RemoteSessionSnapshot removeRemote(String key) {
+        RemoteSessionSnapshot removed = remoteSessions.remove(key);
+        unindexRemote(key, removed);
+        return removed;
+    }
+
+    private void unindexRemote(String key, RemoteSessionSnapshot snapshot) {
+        if (snapshot == null) {
+            return;
+        }
+        indexRemove(remoteKeysByCliente, snapshot.getClienteId(), key);
+        indexRemove(remoteKeysByEmail, emailKey(snapshot.getEmail()), key);
+        for (Long canalId : snapshot.getCanales()) {
+            indexRemove(remoteKeysByChannel, canalId, key);
+        }
+    }
+
+    private List<String> candidateKeysFor(Long clienteId) {
+        if (clienteId == null) {
+            return new ArrayList<>(remoteSessions.keySet());
+        }
+        return new ArrayList<>(remoteKeysByCliente.getOrDefault(clienteId, Set.of()));
+    }
+
+    private Set<String> remoteServersOf(Set<String> remoteKeys) {
+        if (remoteKeys == null || remoteKeys.isEmpty()) {
+            return Set.of();
+        }
+        Set<String> servers = new HashSet<>();
+        for (String key : remoteKeys) {
+            RemoteSessionSnapshot snapshot = remoteSessions.get(key);
+            if (snapshot != null && snapshot.getServerId() != null) {
+                servers.add(snapshot.getServerId());
+            }
+        }
+        return servers;
+    }
+
+    private static String emailKey(String email) {
+        return email != null && !email.isBlank() ? email.trim().toLowerCase(java.util.Locale.ROOT) : null;
+    }
+
     private RemoteSessionSnapshot copySnapshot(RemoteSessionSnapshot snapshot) {
         RemoteSessionSnapshot copy = new RemoteSessionSnapshot(
             snapshot.getServerId(),
@@ -682,10 +874,10 @@ public class ConnectionRegistry implements ConnectionGateway {
             if (canalId == null) {
                 continue;
             }
-            canalRepository.findById(canalId)
-                .map(Canal::getUuid)
-                .filter(uuid -> uuid != null && !uuid.isBlank())
-                .ifPresent(uuid -> mapping.put(canalId, uuid));
+            String uuid = resolveChannelUuid(canalId, null);
+            if (uuid != null && !uuid.isBlank()) {
+                mapping.put(canalId, uuid);
+            }
         }
         snapshot.setChannelUuids(mapping);
     }
@@ -739,6 +931,10 @@ public class ConnectionRegistry implements ConnectionGateway {
     }
 
     private Long resolveChannelId(Long remoteId, String canalUuid) {
+        CanalCatalog catalog = channelCatalog;
+        if (catalog != null) {
+            return catalog.resolveId(remoteId, canalUuid);
+        }
         if (canalRepository == null) {
             return remoteId;
         }
@@ -767,6 +963,14 @@ public class ConnectionRegistry implements ConnectionGateway {
         if (localId == null) {
             return fallbackUuid;
         }
+        CanalCatalog catalog = channelCatalog;
+        if (catalog != null) {
+            String uuid = catalog.resolveUuid(localId);
+            return uuid != null ? uuid : fallbackUuid;
+        }
+        if (canalRepository == null) {
+            return fallbackUuid;
+        }
         return canalRepository.findById(localId)
             .map(Canal::getUuid)
             .filter(uuid -> uuid != null && !uuid.isBlank())
@@ -846,16 +1050,27 @@ public class ConnectionRegistry implements ConnectionGateway {
         return trimmed.isEmpty() ? null : trimmed;
     }
 
+    private String emailOf(Long clienteId) {
+        if (clienteId == null) {
+            return null;
+        }
+        ClienteIdentityCache cache = identityCache;
+        if (cache != null) {
+            return cache.findEmail(clienteId).orElse(null);
+        }
+        if (clienteRepository != null) {
+            return clienteRepository.findById(clienteId)
+                .map(Cliente::getEmail)
+                .orElse(null);
+        }
+        return null;
+    }
+
     private RemoteSessionSnapshot toSnapshot(SessionDescriptor descriptor) {
         Set<Long> canales = descriptor != null ? new HashSet<>(descriptor.getCanales()) : Set.of();
         
         // Obtener email del usuario para identificación global entre servidores
-        String email = null;
-        if (clienteRepository != null && descriptor != null && descriptor.getClienteId() != null) {
-            email = clienteRepository.findById(descriptor.getClienteId())
-                .map(Cliente::getEmail)
-                .orElse(null);
-        }
+        String email = descriptor != null ? emailOf(descriptor.getClienteId()) : null;
         
         RemoteSessionSnapshot snapshot = new RemoteSessionSnapshot(localServerId,
             descriptor != null ? descriptor.getSessionId() : null,
@@ -918,54 +1133,173 @@ public class ConnectionRegistry implements ConnectionGateway {
     }
 
     private void send(ConnectionContext ctx, Object payload) {
+        send(ctx, encodeEvent(payload));
+    }
+
+    private void send(ConnectionContext ctx, EncodedFrame frame) {
         if (ctx == null) {
             System.out.println("❌ CONTEXTO NULO - no se puede enviar mensaje");
             return;
         }
+        if (!enqueue(ctx, frame)) {
+            return;
+        }
+        LOGGER.fine(() -> "Mensaje encolado a sesión " + ctx.sessionId + " (usuario: "
+            + (ctx.descriptor != null && ctx.descriptor.getUsuario() != null
+                ? ctx.descriptor.getUsuario()
+                : "(usuario no autenticado)")
+            + ", " + frame.length() + " bytes)");
+    }
+
+    /**
+     * Deja el frame en la cola acotada de la sesión y agenda su vaciado. Nunca escribe en el socket
+     * desde el hilo que entrega, así un fan-out no espera a la ventana TCP del cliente más lento.
+     */
+    private boolean enqueue(ConnectionContext ctx, EncodedFrame frame) {
+        if (ctx.closed) {
+            return false;
+        }
+        // El formato se decide al encolar y bajo el lock de la sesión para que ninguna trama
+        // JSON quede detrás de la respuesta al HELLO que la pasó a binario. Es un ReentrantLock y
+        // no synchronized para no fijar el hilo virtual mientras codifica o espera la cola
+        ctx.enqueueLock.lock();
+        try {
+            return offer(ctx, ctx.binary ? frame.toBinary(BINARY_EVENT_ENCODER) : frame);
+        } catch (UncheckedIOException e) {
+            LOGGER.log(Level.WARNING, "No se pudo codificar la trama para " + ctx.sessionId, e);
+            return false;
+        } finally {
+            ctx.enqueueLock.unlock();
+        }
+    }
+
+    private boolean offer(ConnectionContext ctx, EncodedFrame frame) {
+        if (!ctx.outbound.offer(frame)) {
+            if (overflowPolicy == OutboundOverflowPolicy.DISCONNECT) {
+                ServerMetrics.recordSessionOutboundDropped(ctx.sessionId, "disconnect");
+                LOGGER.warning(() -> "Cola de salida llena en " + ctx.sessionId + ", desconectando consumidor lento");
+                abort(ctx);
+                return false;
+            }
+            while (!ctx.outbound.offer(frame)) {
+                if (ctx.outbound.poll() != null) {
+                    ServerMetrics.recordSessionOutboundDropped(ctx.sessionId, "drop_oldest");
+                }
+            }
+        }
+        ServerMetrics.updateSessionOutboundDepth(ctx.sessionId, ctx.outbound.size());
+        scheduleDrain(ctx);
+        return true;
+    }
+
+    private void scheduleDrain(ConnectionContext ctx) {
+        if (!ctx.draining.compareAndSet(false, true)) {
+            return;
+        }
         try {
-            CommandEnvelope envelope = new CommandEnvelope("EVENT", payload);
-            String json = mapper.writeValueAsString(envelope);
-            ctx.writer.write(json);
-            ctx.writer.write('\n');
-            ctx.writer.flush();
+            writerExecutor.execute(() -> drain(ctx));
+        } catch (RejectedExecutionException e) {
+            ctx.draining.set(false);
+        }
+    }
 
-            String usuario = ctx.descriptor != null && ctx.descriptor.getUsuario() != null
-                ? ctx.descriptor.getUsuario()
-                : "(usuario no autenticado)";
+    /**
+     * Escribe todo lo pendiente y hace un único flush por lote.
+     */
+    private void drain(ConnectionContext ctx) {
+        do {
+            ctx.writeLock.lock();
+            try {
+                if (writePending(ctx) > 0) {
+                    ctx.writer.flush();
+                }
+            } catch (IOException e) {
+                LOGGER.fine(() -> "Error escribiendo a " + ctx.sessionId + ": " + e.getMessage());
+                ctx.outbound.clear();
+                abort(ctx);
+            } finally {
+                ctx.writeLock.unlock();
+                ctx.draining.set(false);
+            }
+            ServerMetrics.updateSessionOutboundDepth(ctx.sessionId, ctx.outbound.size());
+        } while (!ctx.closed && !ctx.outbound.isEmpty() && ctx.draining.compareAndSet(false, true));
+    }
 
-            System.out.println(
-                "✅ MENSAJE ENVIADO EXITOSAMENTE a sesión " + ctx.sessionId + " (usuario: " + usuario + ")"
-            );
-            System.out.println("   Contenido entregado: " + json);
+    private int writePending(ConnectionContext ctx) throws IOException {
+        int written = 0;
+        EncodedFrame frame;
+        while ((frame = ctx.outbound.poll()) != null) {
+            frame.writeTo(ctx.writer);
+            written++;
+        }
+        return written;
+    }
 
-        } catch (IOException e) {
-            System.out.println("❌ ERROR IO enviando a " + ctx.sessionId + ": " + e.getMessage());
-            e.printStackTrace();
-        } catch (Exception e) {
-            System.out.println("❌ ERROR INESPERADO enviando a " + ctx.sessionId + ": " + e.getMessage());
-            e.printStackTrace();
+    /**
+     * Entrega lo que quede en la cola (p. ej. la respuesta a CLOSE_CONN) y luego cierra el transporte.
+     */
+    private void closeGracefully(ConnectionContext ctx) {
+        ctx.closed = true;
+        Runnable finish = () -> {
+            ctx.writeLock.lock();
+            try {
+                writePending(ctx);
+                ctx.writer.flush();
+            } catch (IOException ignored) {
+            } finally {
+                ctx.writeLock.unlock();
+                ctx.close();
+                ServerMetrics.clearSessionOutbound(ctx.sessionId);
+            }
+        };
+        try {
+            writerExecutor.execute(finish);
+        } catch (RejectedExecutionException e) {
+            finish.run();
         }
     }
 
+    /**
+     * Cierra el transporte sin vaciar la cola; el hilo lector (o el selector NIO) detecta el cierre
+     * y completa el unregister por la ruta habitual.
+     */
+    private void abort(ConnectionContext ctx) {
+        ctx.closed = true;
+        ctx.close();
+    }
+
     private static class ConnectionContext {
         private final String sessionId;
-        private final Socket socket;
-        private final BufferedWriter writer;
+        private final String remoteAddress;
+        private final Closeable transport;
+        private final BufferedOutputStream writer;
+        private final BlockingQueue<EncodedFrame> outbound;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final ReentrantLock writeLock = new ReentrantLock();
+        // Ordena el encolado respecto del cambio a binario
+        private final ReentrantLock enqueueLock = new ReentrantLock();
+        private volatile boolean closed;
+        // Protocolo binario negociado con HELLO; se cambia bajo enqueueLock
+        private boolean binary;
         private SessionDescriptor descriptor;
 
-        private ConnectionContext(String sessionId, Socket socket) throws IOException {
+        private ConnectionContext(String sessionId, String remoteAddress, OutputStream out, Closeable transport, int outboundCapacity) {
             this.sessionId = sessionId;
-            this.socket = socket;
-            this.writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+            this.remoteAddress = remoteAddress;
+            this.transport = transport;
+            this.writer = new BufferedOutputStream(out);
+            this.outbound = new ArrayBlockingQueue<>(outboundCapacity);
         }
 
         private void close() {
+            // Primero el transporte: así falla cualquier escritura bloqueada esperando al cliente
+            // (socket o salida NIO llena) y el cierre del búfer no queda esperando detrás de ella
             try {
-                writer.close();
+                transport.close();
             } catch (IOException ignored) {
             }
             try {
-                socket.close();
+                writer.close();
             } catch (IOException ignored) {
             }
         }
@@ -0,0 +1,24 @@
+package com.arquitectura.controladores.conexion;
+
+import java.util.Locale;
+
+/**
+ * Qué hacer cuando la cola de salida de una sesión está llena porque el cliente no lee a tiempo.
+ */
+public enum OutboundOverflowPolicy {
+    /** Descarta los frames más antiguos pendientes y conserva los nuevos. */
+    DROP_OLDEST,
+    /** Cierra la sesión del consumidor lento. */
+    DISCONNECT;
+
+    public static OutboundOverflowPolicy fromConfig(String raw) {
+        if (raw == null || raw.isBlank()) {
+            return DROP_OLDEST;
+        }
+        try {
+            return valueOf(raw.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return DROP_OLDEST;
+        }
+    }
+}
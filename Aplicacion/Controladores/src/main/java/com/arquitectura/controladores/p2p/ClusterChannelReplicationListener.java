@@ -29,7 +29,7 @@ public class ClusterChannelReplicationListener implements SessionObserver {
                                              SessionEventBus eventBus) {
         this.peerManager = Objects.requireNonNull(peerManager, "peerManager");
         this.canalRepository = Objects.requireNonNull(canalRepository, "canalRepository");
-        Objects.requireNonNull(eventBus, "eventBus").subscribe(this);
+        Objects.requireNonNull(eventBus, "eventBus").subscribeAsync(this);
     }
 
     @Override
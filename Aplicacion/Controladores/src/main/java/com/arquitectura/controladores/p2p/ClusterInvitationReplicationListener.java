@@ -9,11 +9,10 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.arquitectura.entidades.Canal;
-import com.arquitectura.entidades.Cliente;
 import com.arquitectura.entidades.Invitacion;
 import com.arquitectura.repositorios.CanalRepository;
-import com.arquitectura.repositorios.ClienteRepository;
 import com.arquitectura.repositorios.InvitacionRepository;
+import com.arquitectura.servicios.cache.ClienteIdentityCache;
 import com.arquitectura.servicios.eventos.SessionEvent;
 import com.arquitectura.servicios.eventos.SessionEventBus;
 import com.arquitectura.servicios.eventos.SessionEventType;
@@ -30,19 +29,19 @@ public class ClusterInvitationReplicationListener implements SessionObserver {
 
     private final ServerPeerManager peerManager;
     private final CanalRepository canalRepository;
-    private final ClienteRepository clienteRepository;
+    private final ClienteIdentityCache identityCache;
     private final InvitacionRepository invitacionRepository;
 
     public ClusterInvitationReplicationListener(ServerPeerManager peerManager,
                                                 CanalRepository canalRepository,
-                                                ClienteRepository clienteRepository,
+                                                ClienteIdentityCache identityCache,
                                                 InvitacionRepository invitacionRepository,
                                                 SessionEventBus eventBus) {
         this.peerManager = Objects.requireNonNull(peerManager, "peerManager");
         this.canalRepository = Objects.requireNonNull(canalRepository, "canalRepository");
-        this.clienteRepository = Objects.requireNonNull(clienteRepository, "clienteRepository");
+        this.identityCache = Objects.requireNonNull(identityCache, "identityCache");
         this.invitacionRepository = Objects.requireNonNull(invitacionRepository, "invitacionRepository");
-        Objects.requireNonNull(eventBus, "eventBus").subscribe(this);
+        Objects.requireNonNull(eventBus, "eventBus").subscribeAsync(this);
     }
 
     @Override
@@ -105,13 +104,11 @@ public class ClusterInvitationReplicationListener implements SessionObserver {
             
             // Incluir emails para identificación global entre servidores
             if (invitacion.getInvitadorId() != null) {
-                clienteRepository.findById(invitacion.getInvitadorId())
-                    .map(Cliente::getEmail)
+                identityCache.findEmail(invitacion.getInvitadorId())
                     .ifPresent(record::setInvitadorEmail);
             }
             if (invitacion.getInvitadoId() != null) {
-                clienteRepository.findById(invitacion.getInvitadoId())
-                    .map(Cliente::getEmail)
+                identityCache.findEmail(invitacion.getInvitadoId())
                     .ifPresent(record::setInvitadoEmail);
             }
             
@@ -25,7 +25,7 @@ public class ClusterUserRegistrationListener implements SessionObserver {
 
     public ClusterUserRegistrationListener(ServerPeerManager peerManager, SessionEventBus eventBus) {
         this.peerManager = Objects.requireNonNull(peerManager, "peerManager");
-        Objects.requireNonNull(eventBus, "eventBus").subscribe(this);
+        Objects.requireNonNull(eventBus, "eventBus").subscribeAsync(this);
         this.userRegisteredType = SessionEventTypes.userRegistered();
         if (this.userRegisteredType == null) {
             LOGGER.warning("SessionEventType USER_REGISTERED no disponible; no se replicarán nuevos registros al clúster");
@@ -8,8 +8,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.arquitectura.dto.ConnectionStatusUpdateDto;
-import com.arquitectura.entidades.Cliente;
-import com.arquitectura.repositorios.ClienteRepository;
+import com.arquitectura.servicios.cache.ClienteIdentityCache;
 import com.arquitectura.servicios.eventos.SessionEvent;
 import com.arquitectura.servicios.eventos.SessionEventBus;
 import com.arquitectura.servicios.eventos.SessionEventType;
@@ -25,17 +24,17 @@ public class ClusterUserStatusReplicationListener implements SessionObserver {
     private static final Logger LOGGER = Logger.getLogger(ClusterUserStatusReplicationListener.class.getName());
 
     private final ServerPeerManager peerManager;
-    private final ClienteRepository clienteRepository;
+    private final ClienteIdentityCache identityCache;
     
     // Contador de sesiones activas por usuario para determinar si es la primera/última conexión
     private final ConcurrentHashMap<Long, AtomicInteger> activeSessions = new ConcurrentHashMap<>();
 
     public ClusterUserStatusReplicationListener(ServerPeerManager peerManager,
-                                                 ClienteRepository clienteRepository,
+                                                 ClienteIdentityCache identityCache,
                                                  SessionEventBus eventBus) {
         this.peerManager = Objects.requireNonNull(peerManager, "peerManager");
-        this.clienteRepository = Objects.requireNonNull(clienteRepository, "clienteRepository");
-        Objects.requireNonNull(eventBus, "eventBus").subscribe(this);
+        this.identityCache = Objects.requireNonNull(identityCache, "identityCache");
+        Objects.requireNonNull(eventBus, "eventBus").subscribeAsync(this);
         LOGGER.info("ClusterUserStatusReplicationListener inicializado - replicará cambios de estado de conexión al clúster");
     }
 
@@ -101,7 +100,7 @@ public class ClusterUserStatusReplicationListener implements SessionObserver {
      */
     private void broadcastStatusChange(Long userId, boolean connected) {
         try {
-            Cliente cliente = clienteRepository.findById(userId).orElse(null);
+            ClienteIdentityCache.Identidad cliente = identityCache.findById(userId).orElse(null);
             if (cliente == null) {
                 LOGGER.warning(() -> "No se encontró el cliente " + userId + " para replicar su estado al clúster");
                 return;
@@ -114,8 +113,8 @@ public class ClusterUserStatusReplicationListener implements SessionObserver {
             ConnectionStatusUpdateDto dto = new ConnectionStatusUpdateDto();
             dto.setEvento("USER_STATUS_CHANGED");
             dto.setUsuarioId(userId);
-            dto.setUsuarioNombre(cliente.getNombreDeUsuario());
-            dto.setUsuarioEmail(cliente.getEmail());
+            dto.setUsuarioNombre(cliente.usuario());
+            dto.setUsuarioEmail(cliente.email());
             dto.setConectado(connected);
             dto.setSesionesActivas(sesiones);
             dto.setTimestamp(LocalDateTime.now());
@@ -126,7 +125,7 @@ public class ClusterUserStatusReplicationListener implements SessionObserver {
             LOGGER.info(() -> String.format(
                 "Estado de usuario %d (%s) replicado al clúster: %s",
                 userId,
-                cliente.getNombreDeUsuario(),
+                cliente.usuario(),
                 connected ? "CONECTADO" : "DESCONECTADO"
             ));
         } catch (Exception e) {
@@ -19,6 +19,12 @@ public class DatabaseSnapshot {
     private List<MensajeRecord> mensajes = new ArrayList<>();
     private List<InvitationRecord> invitaciones = new ArrayList<>();
 
+    // Rango del log de replicacion del emisor que cubre este volcado: (fromSeq, toSeq].
+    // Un volcado completo usa fromSeq = 0; los parciales en tiempo real no traen logId.
+    private String logId;
+    private Long fromSeq;
+    private Long toSeq;
+
     public List<ClienteRecord> getClientes() {
         return clientes;
     }
@@ -59,6 +65,30 @@ public class DatabaseSnapshot {
         this.invitaciones = invitaciones != null ? new ArrayList<>(invitaciones) : new ArrayList<>();
     }
 
+    public String getLogId() {
+        return logId;
+    }
+
+    public void setLogId(String logId) {
+        this.logId = logId;
+    }
+
+    public Long getFromSeq() {
+        return fromSeq;
+    }
+
+    public void setFromSeq(Long fromSeq) {
+        this.fromSeq = fromSeq;
+    }
+
+    public Long getToSeq() {
+        return toSeq;
+    }
+
+    public void setToSeq(Long toSeq) {
+        this.toSeq = toSeq;
+    }
+
     public boolean isEmpty() {
         return clientes.isEmpty() && canales.isEmpty() && canalMiembros.isEmpty()
             && mensajes.isEmpty() && invitaciones.isEmpty();
@@ -12,9 +12,12 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Base64;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.UUID;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -30,6 +33,10 @@ import com.arquitectura.entidades.TextoMensaje;
 import com.arquitectura.repositorios.CanalRepository;
 import com.arquitectura.repositorios.ClienteRepository;
 import com.arquitectura.repositorios.MensajeRepository;
+import com.arquitectura.servicios.AvatarStorageService;
+import com.arquitectura.servicios.cache.CanalCatalog;
+import com.arquitectura.servicios.cache.ChannelReportCache;
+import com.arquitectura.servicios.cache.ClienteIdentityCache;
 import com.arquitectura.servicios.eventos.SessionEvent;
 import com.arquitectura.servicios.eventos.SessionEventBus;
 import com.arquitectura.servicios.eventos.SessionEventType;
@@ -40,23 +47,102 @@ import com.arquitectura.servicios.eventos.SessionEventType;
 public class DatabaseSyncCoordinator {
 
     private static final Logger LOGGER = Logger.getLogger(DatabaseSyncCoordinator.class.getName());
+    private static final int DEFAULT_BATCH_SIZE = 500;
+    private static final int REPLICATION_TRIGGER_COUNT = 10;
+    // Un hueco en la secuencia del log más reciente que esto puede ser una transacción aún sin
+    // confirmar; uno más antiguo se da por abortado
+    private static final int IN_FLIGHT_GRACE_SECONDS = 120;
+    // Entradas recientes del log que se revisan buscando huecos
+    private static final int IN_FLIGHT_SCAN_LIMIT = 10000;
+    private static final int PRUNE_BATCH_SIZE = 5000;
+
+    private static final String CLIENTES_SELECT =
+        "SELECT id, usuario, email, contrasenia, foto, foto_hash, ip, estado FROM clientes ";
+    private static final String CANALES_SELECT =
+        "SELECT id, uuid, nombre, privado FROM canales ";
+    private static final String MIEMBROS_SELECT =
+        "SELECT cc.canal_id, c.uuid AS canal_uuid, cc.cliente_id FROM canal_clientes cc JOIN canales c ON c.id = cc.canal_id ";
+    private static final String MENSAJES_SELECT =
+        "SELECT m.id, m.timestamp, m.tipo, m.emisor_id, m.receptor_id, m.canal_id, m.contenido, m.ruta_archivo, m.mime, " +
+        "m.duracion_seg, m.transcripcion, c.uuid AS canal_uuid FROM mensajes m LEFT JOIN canales c ON c.id = m.canal_id ";
+    private static final String INVITACIONES_SELECT =
+        "SELECT i.id, i.canal_id, c.uuid AS canal_uuid, i.invitador_id, i.invitado_id, i.fecha_invitacion, i.estado " +
+        "FROM invitaciones i LEFT JOIN canales c ON c.id = i.canal_id ";
 
     private final ClienteRepository clienteRepository;
     private final CanalRepository canalRepository;
     private final MensajeRepository mensajeRepository;
     private final DataSource dataSource;
     private final SessionEventBus eventBus;
+    private final int batchSize;
+    private volatile ClienteIdentityCache identityCache;
+    private volatile CanalCatalog channelCatalog;
+    private volatile ChannelReportCache channelReportCache;
+    private volatile AvatarStorageService avatarStorage;
+    private volatile String replicationLogId;
+    private volatile boolean replicationLogResolved;
+    private volatile int replicationRetentionDays = 7;
 
     public DatabaseSyncCoordinator(ClienteRepository clienteRepository,
                                    CanalRepository canalRepository,
                                    MensajeRepository mensajeRepository,
                                    DataSource dataSource,
                                    SessionEventBus eventBus) {
+        this(clienteRepository, canalRepository, mensajeRepository, dataSource, eventBus, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param batchSize filas acumuladas por {@code executeBatch()} al aplicar snapshots
+     */
+    public DatabaseSyncCoordinator(ClienteRepository clienteRepository,
+                                   CanalRepository canalRepository,
+                                   MensajeRepository mensajeRepository,
+                                   DataSource dataSource,
+                                   SessionEventBus eventBus,
+                                   int batchSize) {
         this.clienteRepository = Objects.requireNonNull(clienteRepository, "clienteRepository");
         this.canalRepository = Objects.requireNonNull(canalRepository, "canalRepository");
         this.mensajeRepository = Objects.requireNonNull(mensajeRepository, "mensajeRepository");
         this.dataSource = Objects.requireNonNull(dataSource, "dataSource");
         this.eventBus = eventBus; // Puede ser null si no se desean notificaciones
+        this.batchSize = batchSize > 0 ? batchSize : DEFAULT_BATCH_SIZE;
+    }
+
+    /**
+     * Caché de identidades que se invalida para los clientes que llegan replicados.
+     */
+    public void setIdentityCache(ClienteIdentityCache identityCache) {
+        this.identityCache = identityCache;
+    }
+
+    /**
+     * Catálogo de canales que se recarga para los canales y membresías que llegan replicados.
+     */
+    public void setChannelCatalog(CanalCatalog channelCatalog) {
+        this.channelCatalog = channelCatalog;
+    }
+
+    /**
+     * Caché de listados de canales que se vacía al llegar canales o membresías replicados.
+     */
+    public void setChannelReportCache(ChannelReportCache channelReportCache) {
+        this.channelReportCache = channelReportCache;
+    }
+
+    /**
+     * Almacén de avatares: los snapshots siguen llevando la imagen, pero aquí se guarda en el
+     * almacén y la fila solo conserva su hash. Sin almacén la imagen va a la columna {@code foto}.
+     */
+    public void setAvatarStorage(AvatarStorageService avatarStorage) {
+        this.avatarStorage = avatarStorage;
+    }
+
+    /**
+     * Días que se conservan las entradas del log de replicación que algún par aún no anunció
+     * haber aplicado. Un par que vuelve después recibe el estado completo.
+     */
+    public void setReplicationRetentionDays(int replicationRetentionDays) {
+        this.replicationRetentionDays = Math.max(1, replicationRetentionDays);
     }
 
     /**
@@ -75,9 +161,10 @@ public class DatabaseSyncCoordinator {
             record.setUsuario(cliente.getNombreDeUsuario());
             record.setEmail(cliente.getEmail());
             record.setContrasenia(cliente.getContrasenia());
-            if (cliente.getFoto() != null && cliente.getFoto().length > 0) {
-                record.setFotoBase64(Base64.getEncoder().encodeToString(cliente.getFoto()));
-            }
+            byte[] foto = cliente.getFotoHash() == null
+                ? clienteRepository.findFoto(cliente.getId()).orElse(null)
+                : null;
+            record.setFotoBase64(fotoBase64(foto, cliente.getFotoHash()));
             record.setIp(cliente.getIp());
             record.setEstado(cliente.getEstado());
             clientes.add(record);
@@ -87,6 +174,8 @@ public class DatabaseSyncCoordinator {
         List<DatabaseSnapshot.CanalRecord> canales = new ArrayList<>();
         List<DatabaseSnapshot.ChannelMembershipRecord> memberships = new ArrayList<>();
         Map<Long, String> canalUuidCache = new HashMap<>();
+        // Todas las membresías en una consulta, no una por canal
+        Map<Long, Set<Long>> miembrosPorCanal = canalRepository.findAllUserIds();
         for (Canal canal : canalRepository.findAll()) {
             if (canal == null || canal.getId() == null) {
                 continue;
@@ -101,15 +190,11 @@ public class DatabaseSyncCoordinator {
                 canalUuidCache.put(canal.getId(), canal.getUuid());
             }
 
-            List<Cliente> usuarios = canalRepository.findUsers(canal.getId());
-            for (Cliente usuario : usuarios) {
-                if (usuario == null || usuario.getId() == null) {
-                    continue;
-                }
+            for (Long clienteId : new TreeSet<>(miembrosPorCanal.getOrDefault(canal.getId(), Set.of()))) {
                 DatabaseSnapshot.ChannelMembershipRecord membership = new DatabaseSnapshot.ChannelMembershipRecord();
                 membership.setCanalId(canal.getId());
                 membership.setCanalUuid(canal.getUuid());
-                membership.setClienteId(usuario.getId());
+                membership.setClienteId(clienteId);
                 memberships.add(membership);
             }
         }
@@ -121,32 +206,12 @@ public class DatabaseSyncCoordinator {
             if (mensaje == null || mensaje.getId() == null) {
                 continue;
             }
-            DatabaseSnapshot.MensajeRecord record = new DatabaseSnapshot.MensajeRecord();
-            record.setId(mensaje.getId());
-            LocalDateTime ts = mensaje.getTimeStamp();
-            record.setTimestamp(ts != null ? ts.toString() : null);
-            record.setTipo(mensaje.getTipo());
-            record.setEmisorId(mensaje.getEmisor());
-            record.setReceptorId(mensaje.getReceptor());
             Long mensajeCanalId = mensaje.getCanalId();
-            record.setCanalId(mensajeCanalId);
-            if (mensajeCanalId != null) {
-                String uuid = canalUuidCache.computeIfAbsent(mensajeCanalId,
-                    id -> canalRepository.findById(id).map(Canal::getUuid).orElse(null));
-                record.setCanalUuid(uuid);
-            }
-            if (mensaje instanceof TextoMensaje texto) {
-                record.setContenido(texto.getContenido());
-            } else if (mensaje instanceof AudioMensaje audio) {
-                record.setRutaArchivo(audio.getRutaArchivo());
-                record.setMime(audio.getMime());
-                record.setDuracionSeg(audio.getDuracionSeg());
-                record.setTranscripcion(audio.getTranscripcion());
-            } else if (mensaje instanceof ArchivoMensaje archivo) {
-                record.setRutaArchivo(archivo.getRutaArchivo());
-                record.setMime(archivo.getMime());
-            }
-            mensajes.add(record);
+            String canalUuid = mensajeCanalId != null
+                ? canalUuidCache.computeIfAbsent(mensajeCanalId,
+                    id -> canalRepository.findById(id).map(Canal::getUuid).orElse(null))
+                : null;
+            mensajes.add(toMensajeRecord(mensaje, canalUuid));
         }
         snapshot.setMensajes(mensajes);
 
@@ -155,6 +220,432 @@ public class DatabaseSyncCoordinator {
         return snapshot;
     }
 
+    /**
+     * Identificador del log de replicación local, o {@code null} si la base no tiene los
+     * triggers que lo alimentan (en ese caso solo se intercambian snapshots completos).
+     */
+    public String getReplicationLogId() {
+        if (!replicationLogResolved) {
+            synchronized (this) {
+                if (!replicationLogResolved) {
+                    replicationLogId = loadReplicationLogId();
+                    replicationLogResolved = true;
+                }
+            }
+        }
+        return replicationLogId;
+    }
+
+    private String loadReplicationLogId() {
+        String triggersSql = "SELECT COUNT(*) FROM INFORMATION_SCHEMA.TRIGGERS " +
+            "WHERE TRIGGER_SCHEMA = DATABASE() AND TRIGGER_NAME LIKE '%\\_replog'";
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            try (ResultSet rs = statement.executeQuery(triggersSql)) {
+                if (!rs.next() || rs.getInt(1) < REPLICATION_TRIGGER_COUNT) {
+                    LOGGER.warning("Log de replicación incompleto; se usarán snapshots completos en la sincronización");
+                    return null;
+                }
+            }
+            try (ResultSet rs = statement.executeQuery("SELECT log_id FROM replication_meta WHERE id = 1")) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "No se pudo leer el log de replicación local", e);
+            return null;
+        }
+    }
+
+    /**
+     * Marcas de agua ya aplicadas por este servidor, por identificador de log remoto.
+     * Se anuncian en el HELLO para que cada par envíe solo lo posterior.
+     */
+    public Map<String, Long> loadReplicationMarks() {
+        Map<String, Long> marks = new HashMap<>();
+        if (getReplicationLogId() == null) {
+            return marks;
+        }
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement ps = connection.prepareStatement("SELECT log_id, last_seq FROM replication_peers");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                marks.put(rs.getString(1), rs.getLong(2));
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "No se pudieron leer las marcas de replicación", e);
+        }
+        return marks;
+    }
+
+    /**
+     * Captura lo que un par necesita a partir de su marca sobre el log local: solo el delta
+     * si la marca es válida, o el snapshot completo si el par es nuevo (sin marca), la marca
+     * no corresponde al log actual o es anterior a lo podado.
+     * <p>
+     * Se envían todas las filas visibles, pero {@code toSeq} se queda por debajo del primer hueco
+     * reciente de la secuencia: una transacción sin confirmar que obtuvo un número menor no se
+     * pierde, porque el siguiente delta empieza antes de ella. Lo reenviado de más se aplica con
+     * los mismos upserts idempotentes.
+     */
+    public DatabaseSnapshot captureSince(Long remoteMark) {
+        String logId = getReplicationLogId();
+        if (logId == null) {
+            return captureSnapshot();
+        }
+        // Las secuencias se leen antes que las filas: lo escrito en medio se reenvía la próxima vez
+        long safeSeq = currentReplicationSeq();
+        long maxSeq = Math.max(safeSeq, maxReplicationSeq());
+        DatabaseSnapshot snapshot = null;
+        long fromSeq = 0L;
+        if (isValidMark(remoteMark, maxSeq)) {
+            snapshot = captureDelta(remoteMark, maxSeq);
+            fromSeq = remoteMark;
+            // Una poda durante la consulta pudo borrar parte del rango
+            if (remoteMark < prunedReplicationSeq()) {
+                snapshot = null;
+                fromSeq = 0L;
+            }
+        }
+        if (snapshot == null) {
+            snapshot = captureSnapshot();
+        }
+        snapshot.setLogId(logId);
+        snapshot.setFromSeq(fromSeq);
+        snapshot.setToSeq(Math.max(safeSeq, fromSeq));
+        return snapshot;
+    }
+
+    /**
+     * Indica si un par con esa marca sobre el log local necesita el estado completo en lugar
+     * del delta.
+     */
+    public boolean requiresFullSnapshot(Long remoteMark) {
+        return getReplicationLogId() == null || !isValidMark(remoteMark, maxReplicationSeq());
+    }
+
+    private boolean isValidMark(Long remoteMark, long maxSeq) {
+        return remoteMark != null && remoteMark >= prunedReplicationSeq() && remoteMark <= maxSeq;
+    }
+
+    private DatabaseSnapshot captureDelta(long fromSeq, long toSeq) {
+        DatabaseSnapshot snapshot = new DatabaseSnapshot();
+        String changedIds = "SELECT entidad_id FROM replication_log WHERE entidad = ? AND seq > ? AND seq <= ?";
+        try (Connection connection = dataSource.getConnection()) {
+            snapshot.setClientes(queryRecords(connection,
+                CLIENTES_SELECT + "WHERE id IN (" + changedIds + ") ORDER BY id",
+                this::mapClienteRecord, "clientes", fromSeq, toSeq));
+            snapshot.setCanales(queryRecords(connection,
+                CANALES_SELECT + "WHERE id IN (" + changedIds + ") ORDER BY id",
+                this::mapCanalRecord, "canales", fromSeq, toSeq));
+            snapshot.setCanalMiembros(queryRecords(connection,
+                MIEMBROS_SELECT + "WHERE (cc.canal_id, cc.cliente_id) IN (" +
+                    "SELECT entidad_id, entidad_ref FROM replication_log WHERE entidad = ? AND seq > ? AND seq <= ?)",
+                this::mapMembershipRecord, "canal_clientes", fromSeq, toSeq));
+            snapshot.setMensajes(queryRecords(connection,
+                MENSAJES_SELECT + "WHERE m.id IN (" + changedIds + ") ORDER BY m.id",
+                this::mapMensajeRecord, "mensajes", fromSeq, toSeq));
+            snapshot.setInvitaciones(queryRecords(connection,
+                INVITACIONES_SELECT + "WHERE i.id IN (" + changedIds + ") ORDER BY i.id",
+                this::mapInvitationRecord, "invitaciones", fromSeq, toSeq));
+        } catch (SQLException e) {
+            throw new IllegalStateException("Error consultando el delta de replicación", e);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Lee una página del estado completo para la transferencia por partes: las filas de la
+     * sección cuya clave sigue a ({@code afterId}, {@code afterRef}), en orden de clave. La
+     * paginación por clave no retiene conexiones entre páginas y permite reanudar desde la
+     * última clave aplicada.
+     */
+    public DatabaseSnapshot capturePage(SnapshotSection section, long afterId, long afterRef, int limit) {
+        DatabaseSnapshot page = new DatabaseSnapshot();
+        try (Connection connection = dataSource.getConnection()) {
+            switch (section) {
+                case CLIENTES -> page.setClientes(queryRecords(connection,
+                    CLIENTES_SELECT + "WHERE id > ? ORDER BY id LIMIT ?",
+                    this::mapClienteRecord, afterId, limit));
+                case CANALES -> page.setCanales(queryRecords(connection,
+                    CANALES_SELECT + "WHERE id > ? ORDER BY id LIMIT ?",
+                    this::mapCanalRecord, afterId, limit));
+                case CANAL_CLIENTES -> page.setCanalMiembros(queryRecords(connection,
+                    MIEMBROS_SELECT + "WHERE cc.canal_id > ? OR (cc.canal_id = ? AND cc.cliente_id > ?) " +
+                        "ORDER BY cc.canal_id, cc.cliente_id LIMIT ?",
+                    this::mapMembershipRecord, afterId, afterId, afterRef, limit));
+                case MENSAJES -> page.setMensajes(queryRecords(connection,
+                    MENSAJES_SELECT + "WHERE m.id > ? ORDER BY m.id LIMIT ?",
+                    this::mapMensajeRecord, afterId, limit));
+                case INVITACIONES -> page.setInvitaciones(queryRecords(connection,
+                    INVITACIONES_SELECT + "WHERE i.id > ? ORDER BY i.id LIMIT ?",
+                    this::mapInvitationRecord, afterId, limit));
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Error consultando página " + section + " del snapshot", e);
+        }
+        return page;
+    }
+
+    /**
+     * Secuencia del log local hasta la que un snapshot que empieza ahora lo cubre todo: la
+     * anterior al primer hueco reciente, porque ese número puede pertenecer a una transacción
+     * que aún no se confirmó. Los huecos de más de {@link #IN_FLIGHT_GRACE_SECONDS} se dan por
+     * abortados.
+     */
+    public long currentReplicationSeq() {
+        String sql = "SELECT seq, creado < NOW(3) - INTERVAL ? SECOND FROM replication_log ORDER BY seq DESC LIMIT ?";
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setInt(1, IN_FLIGHT_GRACE_SECONDS);
+            ps.setInt(2, IN_FLIGHT_SCAN_LIMIT);
+            long safeSeq = -1L;
+            try (ResultSet rs = ps.executeQuery()) {
+                long previous = -1L;
+                boolean previousSettled = true;
+                while (rs.next()) {
+                    long seq = rs.getLong(1);
+                    boolean settled = rs.getBoolean(2);
+                    if (previous < 0) {
+                        safeSeq = seq;
+                    } else if (seq != previous - 1 && !previousSettled) {
+                        // Falta algo entre seq y previous, y previous es reciente: puede estar en curso
+                        safeSeq = seq;
+                    }
+                    if (settled) {
+                        break;
+                    }
+                    previous = seq;
+                    previousSettled = settled;
+                }
+            }
+            long pruned = prunedReplicationSeq(connection);
+            return safeSeq < 0 ? pruned : Math.max(safeSeq, pruned);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Error consultando la secuencia del log de replicación", e);
+        }
+    }
+
+    /**
+     * Mayor secuencia asignada en el log local (o podada, si ya no queda ninguna).
+     */
+    private long maxReplicationSeq() {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement ps = connection.prepareStatement("SELECT COALESCE(MAX(seq), 0) FROM replication_log");
+             ResultSet rs = ps.executeQuery()) {
+            long max = rs.next() ? rs.getLong(1) : 0L;
+            return Math.max(max, prunedReplicationSeq(connection));
+        } catch (SQLException e) {
+            throw new IllegalStateException("Error consultando la secuencia del log de replicación", e);
+        }
+    }
+
+    private long prunedReplicationSeq() {
+        try (Connection connection = dataSource.getConnection()) {
+            return prunedReplicationSeq(connection);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Error consultando la poda del log de replicación", e);
+        }
+    }
+
+    private long prunedReplicationSeq(Connection connection) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT podado_hasta FROM replication_meta WHERE id = 1");
+             ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0L;
+        }
+    }
+
+    /**
+     * Guarda la marca que un par anunció sobre el log local (lo que ya aplicó de él); la menor
+     * de las marcas recientes limita la poda.
+     */
+    public void recordPeerAck(String peerServerId, Long mark) {
+        if (peerServerId == null || mark == null || mark < 0 || getReplicationLogId() == null) {
+            return;
+        }
+        String sql = "INSERT INTO replication_acks(server_id, last_seq, actualizado) VALUES(?,?,NOW()) " +
+            "ON DUPLICATE KEY UPDATE last_seq=VALUES(last_seq), actualizado=VALUES(actualizado)";
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setString(1, peerServerId);
+            ps.setLong(2, mark);
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "No se pudo guardar la marca de replicación de " + peerServerId, e);
+        }
+    }
+
+    /**
+     * Borra del log lo que ya aplicaron todos los pares vistos en los últimos
+     * {@code replicationRetentionDays} días, y lo más antiguo que eso aunque algún par no lo
+     * haya aplicado (ese par recibirá el estado completo). Primero se anota hasta dónde se poda:
+     * si se corta a mitad, una marca en el rango pide el estado completo en vez de un delta con
+     * filas de menos.
+     *
+     * @return entradas borradas
+     */
+    public int pruneReplicationLog() {
+        if (getReplicationLogId() == null) {
+            return 0;
+        }
+        int days = replicationRetentionDays;
+        try (Connection connection = dataSource.getConnection()) {
+            long limit;
+            try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT MIN(last_seq) FROM replication_acks WHERE actualizado >= NOW() - INTERVAL ? DAY")) {
+                ps.setInt(1, days);
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    long acked = rs.getLong(1);
+                    limit = rs.wasNull() ? 0L : acked;
+                }
+            }
+            try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT COALESCE(MAX(seq), 0) FROM replication_log WHERE creado < NOW() - INTERVAL ? DAY")) {
+                ps.setInt(1, days);
+                try (ResultSet rs = ps.executeQuery()) {
+                    limit = Math.max(limit, rs.next() ? rs.getLong(1) : 0L);
+                }
+            }
+            // Nunca más allá de lo que un snapshot nuevo cubre por completo
+            limit = Math.min(limit, currentReplicationSeq());
+            if (limit <= prunedReplicationSeq(connection)) {
+                return 0;
+            }
+            try (PreparedStatement ps = connection.prepareStatement(
+                "UPDATE replication_meta SET podado_hasta = GREATEST(podado_hasta, ?) WHERE id = 1")) {
+                ps.setLong(1, limit);
+                ps.executeUpdate();
+            }
+            int deleted = 0;
+            try (PreparedStatement ps = connection.prepareStatement(
+                "DELETE FROM replication_log WHERE seq <= ? ORDER BY seq LIMIT ?")) {
+                ps.setLong(1, limit);
+                ps.setInt(2, PRUNE_BATCH_SIZE);
+                int batch;
+                do {
+                    batch = ps.executeUpdate();
+                    deleted += batch;
+                } while (batch == PRUNE_BATCH_SIZE);
+            }
+            long podado = limit;
+            int total = deleted;
+            LOGGER.info(() -> "Log de replicación podado hasta seq " + podado + " (" + total + " entradas)");
+            return deleted;
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "No se pudo podar el log de replicación", e);
+            return 0;
+        }
+    }
+
+    private <T> List<T> queryRecords(Connection connection, String sql, RowMapper<T> mapper,
+                                     Object... params) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) {
+                ps.setObject(i + 1, params[i]);
+            }
+            List<T> records = new ArrayList<>();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    records.add(mapper.map(rs));
+                }
+            }
+            return records;
+        }
+    }
+
+    private DatabaseSnapshot.ClienteRecord mapClienteRecord(ResultSet rs) throws SQLException {
+        DatabaseSnapshot.ClienteRecord record = new DatabaseSnapshot.ClienteRecord();
+        record.setId(rs.getLong("id"));
+        record.setUsuario(rs.getString("usuario"));
+        record.setEmail(rs.getString("email"));
+        record.setContrasenia(rs.getString("contrasenia"));
+        record.setFotoBase64(fotoBase64(rs.getBytes("foto"), rs.getString("foto_hash")));
+        record.setIp(rs.getString("ip"));
+        boolean estado = rs.getBoolean("estado");
+        record.setEstado(rs.wasNull() ? null : estado);
+        return record;
+    }
+
+    /**
+     * Imagen a enviar a otro servidor: la de la columna {@code foto} si es un registro antiguo,
+     * si no la del almacén.
+     */
+    private String fotoBase64(byte[] foto, String fotoHash) {
+        if (foto == null || foto.length == 0) {
+            AvatarStorageService storage = avatarStorage;
+            if (fotoHash == null || storage == null) {
+                return null;
+            }
+            foto = storage.leerAvatar(fotoHash).orElse(null);
+            if (foto == null) {
+                LOGGER.warning(() -> "Avatar " + fotoHash + " no está en el almacén; se replica sin foto");
+                return null;
+            }
+        }
+        return Base64.getEncoder().encodeToString(foto);
+    }
+
+    private DatabaseSnapshot.CanalRecord mapCanalRecord(ResultSet rs) throws SQLException {
+        DatabaseSnapshot.CanalRecord record = new DatabaseSnapshot.CanalRecord();
+        record.setId(rs.getLong("id"));
+        record.setUuid(rs.getString("uuid"));
+        record.setNombre(rs.getString("nombre"));
+        boolean privado = rs.getBoolean("privado");
+        record.setPrivado(rs.wasNull() ? null : privado);
+        return record;
+    }
+
+    private DatabaseSnapshot.ChannelMembershipRecord mapMembershipRecord(ResultSet rs) throws SQLException {
+        DatabaseSnapshot.ChannelMembershipRecord membership = new DatabaseSnapshot.ChannelMembershipRecord();
+        membership.setCanalId(rs.getLong("canal_id"));
+        membership.setCanalUuid(rs.getString("canal_uuid"));
+        membership.setClienteId(rs.getLong("cliente_id"));
+        return membership;
+    }
+
+    private DatabaseSnapshot.MensajeRecord mapMensajeRecord(ResultSet rs) throws SQLException {
+        return toMensajeRecord(mapMensaje(rs), rs.getString("canal_uuid"));
+    }
+
+    private DatabaseSnapshot.InvitationRecord mapInvitationRecord(ResultSet rs) throws SQLException {
+        DatabaseSnapshot.InvitationRecord record = new DatabaseSnapshot.InvitationRecord();
+        record.setId(rs.getLong("id"));
+        record.setCanalId(rs.getLong("canal_id"));
+        record.setCanalUuid(rs.getString("canal_uuid"));
+        record.setInvitadorId(rs.getLong("invitador_id"));
+        record.setInvitadoId(rs.getLong("invitado_id"));
+        Timestamp ts = rs.getTimestamp("fecha_invitacion");
+        record.setFechaInvitacion(ts != null ? ts.toLocalDateTime().toString() : null);
+        record.setEstado(rs.getString("estado"));
+        return record;
+    }
+
+    private DatabaseSnapshot.MensajeRecord toMensajeRecord(Mensaje mensaje, String canalUuid) {
+        DatabaseSnapshot.MensajeRecord record = new DatabaseSnapshot.MensajeRecord();
+        record.setId(mensaje.getId());
+        LocalDateTime ts = mensaje.getTimeStamp();
+        record.setTimestamp(ts != null ? ts.toString() : null);
+        record.setTipo(mensaje.getTipo());
+        record.setEmisorId(mensaje.getEmisor());
+        record.setReceptorId(mensaje.getReceptor());
+        record.setCanalId(mensaje.getCanalId());
+        if (mensaje.getCanalId() != null) {
+            record.setCanalUuid(canalUuid);
+        }
+        if (mensaje instanceof TextoMensaje texto) {
+            record.setContenido(texto.getContenido());
+        } else if (mensaje instanceof AudioMensaje audio) {
+            record.setRutaArchivo(audio.getRutaArchivo());
+            record.setMime(audio.getMime());
+            record.setDuracionSeg(audio.getDuracionSeg());
+            record.setTranscripcion(audio.getTranscripcion());
+        } else if (mensaje instanceof ArchivoMensaje archivo) {
+            record.setRutaArchivo(archivo.getRutaArchivo());
+            record.setMime(archivo.getMime());
+        }
+        return record;
+    }
+
     private List<Mensaje> loadOrderedMessages() {
         List<Mensaje> mensajes = tryRepositoryOrderedFetch();
         if (mensajes != null) {
@@ -237,28 +728,11 @@ public class DatabaseSyncCoordinator {
     }
 
     private List<DatabaseSnapshot.InvitationRecord> loadInvitaciones() {
-        String sql = "SELECT i.id, i.canal_id, c.uuid AS canal_uuid, i.invitador_id, i.invitado_id, i.fecha_invitacion, i.estado " +
-            "FROM invitaciones i LEFT JOIN canales c ON c.id = i.canal_id ORDER BY i.id";
-        List<DatabaseSnapshot.InvitationRecord> invitaciones = new ArrayList<>();
-        try (Connection connection = dataSource.getConnection();
-             PreparedStatement ps = connection.prepareStatement(sql);
-             ResultSet rs = ps.executeQuery()) {
-            while (rs.next()) {
-                DatabaseSnapshot.InvitationRecord record = new DatabaseSnapshot.InvitationRecord();
-                record.setId(rs.getLong("id"));
-                record.setCanalId(rs.getLong("canal_id"));
-                record.setCanalUuid(rs.getString("canal_uuid"));
-                record.setInvitadorId(rs.getLong("invitador_id"));
-                record.setInvitadoId(rs.getLong("invitado_id"));
-                Timestamp ts = rs.getTimestamp("fecha_invitacion");
-                record.setFechaInvitacion(ts != null ? ts.toLocalDateTime().toString() : null);
-                record.setEstado(rs.getString("estado"));
-                invitaciones.add(record);
-            }
+        try (Connection connection = dataSource.getConnection()) {
+            return queryRecords(connection, INVITACIONES_SELECT + "ORDER BY i.id", this::mapInvitationRecord);
         } catch (SQLException e) {
             throw new IllegalStateException("Error consultando invitaciones para snapshot", e);
         }
-        return invitaciones;
     }
 
     private Long getNullableLong(ResultSet rs, String column) throws SQLException {
@@ -271,6 +745,44 @@ public class DatabaseSyncCoordinator {
      * @return {@code true} si se realizaron cambios en la base.
      */
     public boolean applySnapshot(DatabaseSnapshot snapshot) {
+        return applySnapshot(snapshot, new HashMap<>(), new HashMap<>());
+    }
+
+    /**
+     * Inicia la importación de un snapshot recibido por páginas.
+     */
+    public SnapshotImport beginImport() {
+        return new SnapshotImport();
+    }
+
+    /**
+     * Aplica una página de un snapshot por partes en su propia transacción, reutilizando la
+     * correspondencia de IDs de las páginas anteriores.
+     * @return {@code true} si se realizaron cambios en la base.
+     */
+    public boolean applyPage(SnapshotImport state, DatabaseSnapshot page) {
+        return applySnapshot(page, state.clientIds, state.channelIds);
+    }
+
+    /**
+     * Cierra una importación completa fijando la marca de agua del log de origen, de modo que
+     * la siguiente reconexión solo pida el delta posterior.
+     */
+    public void completeImport(String logId, Long toSeq) {
+        DatabaseSnapshot marker = new DatabaseSnapshot();
+        marker.setLogId(logId);
+        marker.setFromSeq(0L);
+        marker.setToSeq(toSeq);
+        try (Connection connection = dataSource.getConnection()) {
+            recordReplicationMark(connection, marker);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Error registrando la marca de replicación", e);
+        }
+    }
+
+    private boolean applySnapshot(DatabaseSnapshot snapshot,
+                                  Map<Long, Long> clientIds,
+                                  Map<Long, Long> channelIds) {
         if (snapshot == null || snapshot.isEmpty()) {
             return false;
         }
@@ -285,11 +797,28 @@ public class DatabaseSyncCoordinator {
             ChannelSyncResult channelResult = syncCanales(connection, snapshot.getCanales());
             changed |= clientResult.changed();
             changed |= channelResult.changed();
-            changed |= syncMemberships(connection, snapshot.getCanalMiembros(), clientResult.idMapping(), channelResult.idMapping());
-            changed |= syncMensajes(connection, snapshot.getMensajes(), clientResult.idMapping(), channelResult.idMapping());
-            changed |= syncInvitaciones(connection, snapshot.getInvitaciones(), clientResult.idMapping(), channelResult.idMapping());
+            clientIds.putAll(clientResult.idMapping());
+            channelIds.putAll(channelResult.idMapping());
+            Set<Long> touchedChannels = new HashSet<>(channelResult.idMapping().values());
+            boolean membershipsChanged = syncMemberships(connection, snapshot.getCanalMiembros(), clientIds, channelIds,
+                touchedChannels);
+            changed |= membershipsChanged;
+            changed |= syncMensajes(connection, snapshot.getMensajes(), clientIds, channelIds);
+            changed |= syncInvitaciones(connection, snapshot.getInvitaciones(), clientIds, channelIds);
+            recordReplicationMark(connection, snapshot);
 
             connection.commit();
+            if (clientResult.changed()) {
+                invalidateIdentities(snapshot.getClientes(), clientResult.idMapping());
+            }
+            CanalCatalog catalog = channelCatalog;
+            if (catalog != null && (channelResult.changed() || membershipsChanged)) {
+                catalog.refresh(touchedChannels);
+            }
+            ChannelReportCache reports = channelReportCache;
+            if (reports != null && (channelResult.changed() || membershipsChanged)) {
+                reports.invalidateAll();
+            }
             return changed;
         } catch (SQLException e) {
             if (connection != null) {
@@ -311,17 +840,66 @@ public class DatabaseSyncCoordinator {
         }
     }
 
+    /**
+     * Avanza la marca de agua del log remoto del que proviene el volcado. Un volcado completo
+     * siempre la fija; un delta solo la avanza si empieza donde terminó lo ya aplicado, porque
+     * los reenviados por otro par pueden no ser contiguos.
+     */
+    private void recordReplicationMark(Connection connection, DatabaseSnapshot snapshot) throws SQLException {
+        String logId = snapshot.getLogId();
+        Long toSeq = snapshot.getToSeq();
+        String localLogId = getReplicationLogId();
+        if (logId == null || toSeq == null || localLogId == null || logId.equals(localLogId)) {
+            return;
+        }
+        long fromSeq = snapshot.getFromSeq() != null ? snapshot.getFromSeq() : 0L;
+        if (fromSeq == 0L) {
+            String sql = "INSERT INTO replication_peers(log_id, last_seq, actualizado) VALUES(?,?,NOW()) " +
+                "ON DUPLICATE KEY UPDATE last_seq=GREATEST(last_seq, VALUES(last_seq)), actualizado=VALUES(actualizado)";
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setString(1, logId);
+                ps.setLong(2, toSeq);
+                ps.executeUpdate();
+            }
+            return;
+        }
+        String sql = "UPDATE replication_peers SET last_seq=?, actualizado=NOW() " +
+            "WHERE log_id=? AND last_seq >= ? AND last_seq < ?";
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setLong(1, toSeq);
+            ps.setString(2, logId);
+            ps.setLong(3, fromSeq);
+            ps.setLong(4, toSeq);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Se invalida tras el commit: antes, una lectura concurrente volvería a cachear los datos viejos.
+     */
+    private void invalidateIdentities(List<DatabaseSnapshot.ClienteRecord> clientes, Map<Long, Long> idMapping) {
+        ClienteIdentityCache cache = identityCache;
+        if (cache == null) {
+            return;
+        }
+        for (DatabaseSnapshot.ClienteRecord record : clientes) {
+            cache.invalidateEmail(record.getEmail());
+            Long localId = idMapping.get(record.getId());
+            cache.invalidate(localId != null ? localId : record.getId());
+        }
+    }
+
     private ClientSyncResult syncClientes(Connection connection, List<DatabaseSnapshot.ClienteRecord> clientes) throws SQLException {
         if (clientes == null || clientes.isEmpty()) {
             return ClientSyncResult.empty();
         }
         boolean changed = false;
         java.util.Map<Long, Long> idMapping = new java.util.HashMap<>();
-        String upsertSql = "INSERT INTO clientes(id, usuario, email, contrasenia, foto, ip, estado) " +
-            "VALUES(?,?,?,?,?,?,?) ON DUPLICATE KEY UPDATE " +
+        String upsertSql = "INSERT INTO clientes(id, usuario, email, contrasenia, foto, foto_hash, ip, estado) " +
+            "VALUES(?,?,?,?,?,?,?,?) ON DUPLICATE KEY UPDATE " +
             "usuario=VALUES(usuario), email=VALUES(email), contrasenia=VALUES(contrasenia), " +
-            "foto=VALUES(foto), ip=VALUES(ip), estado=VALUES(estado)";
-        String insertSql = "INSERT INTO clientes(usuario, email, contrasenia, foto, ip, estado) VALUES(?,?,?,?,?,?)";
+            "foto=VALUES(foto), foto_hash=VALUES(foto_hash), ip=VALUES(ip), estado=VALUES(estado)";
+        String insertSql = "INSERT INTO clientes(usuario, email, contrasenia, foto, foto_hash, ip, estado) VALUES(?,?,?,?,?,?,?)";
         try (PreparedStatement upsert = connection.prepareStatement(upsertSql);
              PreparedStatement insert = connection.prepareStatement(insertSql, Statement.RETURN_GENERATED_KEYS)) {
             for (DatabaseSnapshot.ClienteRecord record : clientes) {
@@ -421,20 +999,16 @@ public class DatabaseSyncCoordinator {
         ps.setString(2, record.getUsuario());
         ps.setString(3, record.getEmail());
         ps.setString(4, record.getContrasenia());
-        if (includePhoto && record.getFotoBase64() != null && !record.getFotoBase64().isBlank()) {
-            ps.setBytes(5, Base64.getDecoder().decode(record.getFotoBase64()));
-        } else {
-            ps.setNull(5, Types.BLOB);
-        }
+        bindFoto(ps, 5, record, includePhoto);
         if (record.getIp() != null && !record.getIp().isBlank()) {
-            ps.setString(6, record.getIp());
+            ps.setString(7, record.getIp());
         } else {
-            ps.setNull(6, Types.VARCHAR);
+            ps.setNull(7, Types.VARCHAR);
         }
         if (record.getEstado() != null) {
-            ps.setBoolean(7, record.getEstado());
+            ps.setBoolean(8, record.getEstado());
         } else {
-            ps.setNull(7, Types.TINYINT);
+            ps.setNull(8, Types.TINYINT);
         }
     }
 
@@ -444,23 +1018,45 @@ public class DatabaseSyncCoordinator {
         ps.setString(1, record.getUsuario());
         ps.setString(2, record.getEmail());
         ps.setString(3, record.getContrasenia());
-        if (includePhoto && record.getFotoBase64() != null && !record.getFotoBase64().isBlank()) {
-            ps.setBytes(4, Base64.getDecoder().decode(record.getFotoBase64()));
-        } else {
-            ps.setNull(4, Types.BLOB);
-        }
+        bindFoto(ps, 4, record, includePhoto);
         if (record.getIp() != null && !record.getIp().isBlank()) {
-            ps.setString(5, record.getIp());
+            ps.setString(6, record.getIp());
         } else {
-            ps.setNull(5, Types.VARCHAR);
+            ps.setNull(6, Types.VARCHAR);
         }
         if (record.getEstado() != null) {
-            ps.setBoolean(6, record.getEstado());
+            ps.setBoolean(7, record.getEstado());
         } else {
-            ps.setNull(6, Types.TINYINT);
+            ps.setNull(7, Types.TINYINT);
         }
     }
 
+    /**
+     * Llena las columnas {@code foto} (en {@code index}) y {@code foto_hash} (en {@code index + 1}).
+     * Con almacén de avatares la imagen se guarda en él y la columna {@code foto} queda vacía.
+     */
+    private void bindFoto(PreparedStatement ps,
+                          int index,
+                          DatabaseSnapshot.ClienteRecord record,
+                          boolean includePhoto) throws SQLException {
+        byte[] foto = null;
+        if (record.getFotoBase64() != null && !record.getFotoBase64().isBlank()) {
+            foto = Base64.getDecoder().decode(record.getFotoBase64());
+        }
+        AvatarStorageService storage = avatarStorage;
+        if (foto != null && storage != null) {
+            ps.setNull(index, Types.BLOB);
+            ps.setString(index + 1, storage.guardarAvatar(foto));
+            return;
+        }
+        if (includePhoto && foto != null) {
+            ps.setBytes(index, foto);
+        } else {
+            ps.setNull(index, Types.BLOB);
+        }
+        ps.setNull(index + 1, Types.CHAR);
+    }
+
     private void logPacketTooBig(DatabaseSnapshot.ClienteRecord record, SQLException ex) {
         String identificador = record.getUsuario();
         if (identificador == null || identificador.isBlank()) {
@@ -544,14 +1140,15 @@ public class DatabaseSyncCoordinator {
     private boolean syncMemberships(Connection connection,
                                     List<DatabaseSnapshot.ChannelMembershipRecord> memberships,
                                     java.util.Map<Long, Long> clientIdMap,
-                                    java.util.Map<Long, Long> channelIdMap) throws SQLException {
+                                    java.util.Map<Long, Long> channelIdMap,
+                                    Set<Long> touchedChannels) throws SQLException {
         if (memberships == null || memberships.isEmpty()) {
             return false;
         }
-        boolean changed = false;
         String sql = "INSERT INTO canal_clientes(canal_id, cliente_id) VALUES(?,?) " +
             "ON DUPLICATE KEY UPDATE cliente_id=VALUES(cliente_id)";
         try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            StatementBatch batch = new StatementBatch(ps, batchSize);
             for (DatabaseSnapshot.ChannelMembershipRecord record : memberships) {
                 if (record.getClienteId() == null) {
                     continue;
@@ -562,10 +1159,12 @@ public class DatabaseSyncCoordinator {
                 }
                 ps.setLong(1, localCanalId);
                 ps.setLong(2, resolveClientId(record.getClienteId(), clientIdMap));
-                changed |= ps.executeUpdate() > 0;
+                batch.add();
+                touchedChannels.add(localCanalId);
             }
+            batch.flush();
+            return batch.changed();
         }
-        return changed;
     }
 
     private boolean syncMensajes(Connection connection,
@@ -575,13 +1174,13 @@ public class DatabaseSyncCoordinator {
         if (mensajes == null || mensajes.isEmpty()) {
             return false;
         }
-        boolean changed = false;
         String sql = "INSERT INTO mensajes(id, timestamp, tipo, emisor_id, receptor_id, canal_id, contenido, ruta_archivo, mime, " +
             "duracion_seg, transcripcion) VALUES(?,?,?,?,?,?,?,?,?,?,?) ON DUPLICATE KEY UPDATE " +
             "timestamp=VALUES(timestamp), tipo=VALUES(tipo), emisor_id=VALUES(emisor_id), receptor_id=VALUES(receptor_id), " +
             "canal_id=VALUES(canal_id), contenido=VALUES(contenido), ruta_archivo=VALUES(ruta_archivo), mime=VALUES(mime), " +
             "duracion_seg=VALUES(duracion_seg), transcripcion=VALUES(transcripcion)";
         try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            StatementBatch batch = new StatementBatch(ps, batchSize);
             for (DatabaseSnapshot.MensajeRecord record : mensajes) {
                 if (record.getId() == null) {
                     continue;
@@ -618,10 +1217,11 @@ public class DatabaseSyncCoordinator {
                     ps.setNull(10, Types.INTEGER);
                 }
                 ps.setString(11, record.getTranscripcion());
-                changed |= ps.executeUpdate() > 0;
+                batch.add();
             }
+            batch.flush();
+            return batch.changed();
         }
-        return changed;
     }
 
     private boolean syncInvitaciones(Connection connection,
@@ -644,6 +1244,8 @@ public class DatabaseSyncCoordinator {
         
         try (PreparedStatement withId = connection.prepareStatement(sqlWithId);
              PreparedStatement withoutId = connection.prepareStatement(sqlWithoutId)) {
+            StatementBatch withIdBatch = new StatementBatch(withId, batchSize);
+            StatementBatch withoutIdBatch = new StatementBatch(withoutId, batchSize);
             for (DatabaseSnapshot.InvitationRecord record : invitaciones) {
                 if (record.getInvitadoId() == null && record.getInvitadoEmail() == null) {
                     continue;
@@ -666,6 +1268,14 @@ public class DatabaseSyncCoordinator {
                     continue;
                 }
 
+                // Las pendientes necesitan el conteo por fila para decidir si se notifican,
+                // el resto se acumula en lote
+                boolean pendiente = "PENDIENTE".equals(record.getEstado());
+                if (pendiente) {
+                    // Vaciar los lotes antes para conservar el orden del snapshot
+                    withIdBatch.flush();
+                    withoutIdBatch.flush();
+                }
                 boolean updated = false;
                 if (record.getId() != null) {
                     withId.setLong(1, record.getId());
@@ -686,7 +1296,11 @@ public class DatabaseSyncCoordinator {
                     } else {
                         withId.setNull(6, Types.VARCHAR);
                     }
-                    updated = withId.executeUpdate() > 0;
+                    if (pendiente) {
+                        updated = withId.executeUpdate() > 0;
+                    } else {
+                        withIdBatch.add();
+                    }
                 } else {
                     withoutId.setLong(1, localCanalId);
                     if (invitadorId != null) {
@@ -705,19 +1319,24 @@ public class DatabaseSyncCoordinator {
                     } else {
                         withoutId.setNull(5, Types.VARCHAR);
                     }
-                    updated = withoutId.executeUpdate() > 0;
+                    if (pendiente) {
+                        updated = withoutId.executeUpdate() > 0;
+                    } else {
+                        withoutIdBatch.add();
+                    }
                 }
                 
                 if (updated) {
                     changed = true;
                     // Agregar a la lista de notificaciones solo para invitaciones pendientes
-                    if ("PENDIENTE".equals(record.getEstado())) {
-                        notificationsToSend.add(new InvitationNotificationData(
-                            localCanalId, record.getCanalUuid(), invitadorId, invitadoId
-                        ));
-                    }
+                    notificationsToSend.add(new InvitationNotificationData(
+                        localCanalId, record.getCanalUuid(), invitadorId, invitadoId
+                    ));
                 }
             }
+            withIdBatch.flush();
+            withoutIdBatch.flush();
+            changed |= withIdBatch.changed() || withoutIdBatch.changed();
         }
         
         // Publicar eventos de invitación después de que el commit haya sido exitoso
@@ -954,5 +1573,65 @@ public class DatabaseSyncCoordinator {
 
     private record ChannelRowState(boolean exists, String uuid) {
     }
+
+    /**
+     * Estado de una importación por páginas: la correspondencia entre IDs remotos y locales de
+     * clientes y canales, que las páginas posteriores necesitan para resolver sus referencias.
+     */
+    public static final class SnapshotImport {
+        private final Map<Long, Long> clientIds = new HashMap<>();
+        private final Map<Long, Long> channelIds = new HashMap<>();
+
+        private SnapshotImport() {
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    /**
+     * Acumula filas de un {@link PreparedStatement} y las envía con {@code executeBatch()} cada
+     * {@code batchSize} filas. Con {@code rewriteBatchedStatements} el driver reescribe cada lote
+     * como un único INSERT multi-fila y solo informa {@link Statement#SUCCESS_NO_INFO}, por lo que
+     * los cambios se detectan por lote y no por fila.
+     */
+    private static final class StatementBatch {
+        private final PreparedStatement statement;
+        private final int batchSize;
+        private int pending;
+        private boolean changed;
+
+        StatementBatch(PreparedStatement statement, int batchSize) {
+            this.statement = statement;
+            this.batchSize = batchSize;
+        }
+
+        void add() throws SQLException {
+            statement.addBatch();
+            if (++pending >= batchSize) {
+                flush();
+            }
+        }
+
+        void flush() throws SQLException {
+            if (pending == 0) {
+                return;
+            }
+            int[] counts = statement.executeBatch();
+            pending = 0;
+            for (int count : counts) {
+                if (count > 0 || count == Statement.SUCCESS_NO_INFO) {
+                    changed = true;
+                    break;
+                }
+            }
+        }
+
+        boolean changed() {
+            return changed;
+        }
+    }
 }
 
@@ -0,0 +1,215 @@
+package com.arquitectura.controladores.p2p;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Números de secuencia y confirmaciones acumuladas de los mensajes reenviados por una conexión
+ * con otro servidor. Cada conexión empieza en 1 en ambos sentidos; tras reconectar, lo que
+ * quedó sin confirmar se vuelve a enviar con números nuevos.
+ * <p>
+ * Envío: solo se asignan números hasta {@code ventana} por encima del último confirmado de
+ * forma acumulada; lo demás queda en espera, en orden, hasta que las confirmaciones abran la
+ * ventana. Un reintento del mismo mensaje reutiliza su número para rellenar el hueco.
+ * <p>
+ * Recepción: se lleva el mayor número recibido sin huecos y los recibidos por encima de él,
+ * que se confirman juntos en un solo {@code WINDOW_ACK}.
+ */
+final class PeerAckWindow {
+
+    private final int ventanaRecepcion;
+
+    // --- Envío; protegido por this ---
+    // 0 hasta que el peer ofrece la ventana (las versiones anteriores no lo hacen)
+    private int ventanaEnvio;
+    private long siguiente = 1;
+    private long confirmadoEnvio;
+    private final TreeMap<Long, String> enVuelo = new TreeMap<>();
+    private final Map<String, Long> seqPorMensaje = new HashMap<>();
+    private final ArrayDeque<String> enEspera = new ArrayDeque<>();
+
+    // --- Recepción; protegido por this ---
+    private long acumulado;
+    private final TreeSet<Long> recibidos = new TreeSet<>();
+    private final Map<Long, String> errores = new HashMap<>();
+    private int sinConfirmar;
+    private boolean ackProgramado;
+
+    PeerAckWindow(int ventanaRecepcion) {
+        this.ventanaRecepcion = Math.max(1, ventanaRecepcion);
+    }
+
+    /**
+     * El peer ofreció recibir hasta {@code ofrecida} mensajes sin confirmar.
+     */
+    synchronized void habilitar(int ofrecida) {
+        ventanaEnvio = Math.max(1, Math.min(ofrecida, ventanaRecepcion));
+    }
+
+    synchronized boolean habilitada() {
+        return ventanaEnvio > 0;
+    }
+
+    /**
+     * Número con el que enviar el mensaje: el que ya tenía si es un reintento o uno nuevo si la
+     * ventana lo permite.
+     *
+     * @return el número, o -1 si quedó en espera de que se abra la ventana
+     */
+    synchronized long asignar(String messageId) {
+        Long existente = seqPorMensaje.get(messageId);
+        if (existente != null) {
+            return existente;
+        }
+        if (!enEspera.isEmpty() || siguiente > confirmadoEnvio + ventanaEnvio) {
+            if (!enEspera.contains(messageId)) {
+                enEspera.add(messageId);
+            }
+            return -1;
+        }
+        return nuevo(messageId);
+    }
+
+    /**
+     * Aplica un {@code WINDOW_ACK}: todo hasta {@code acumulado} y los {@code selectivos}.
+     *
+     * @return los mensajes confirmados por este ack
+     */
+    synchronized List<Confirmado> confirmar(long acumulado, Collection<Long> selectivos) {
+        List<Confirmado> confirmados = new ArrayList<>();
+        if (acumulado > confirmadoEnvio) {
+            Iterator<Map.Entry<Long, String>> it = enVuelo.headMap(acumulado, true).entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Long, String> entry = it.next();
+                confirmados.add(new Confirmado(entry.getKey(), entry.getValue()));
+                seqPorMensaje.remove(entry.getValue());
+                it.remove();
+            }
+            confirmadoEnvio = Math.min(acumulado, siguiente - 1);
+        }
+        if (selectivos != null) {
+            for (Long seq : selectivos) {
+                String messageId = seq != null ? enVuelo.remove(seq) : null;
+                if (messageId != null) {
+                    confirmados.add(new Confirmado(seq, messageId));
+                    seqPorMensaje.remove(messageId);
+                }
+            }
+        }
+        return confirmados;
+    }
+
+    /**
+     * Saca de la espera lo que ahora cabe en la ventana y le asigna número.
+     */
+    synchronized List<Confirmado> liberar() {
+        List<Confirmado> liberados = new ArrayList<>();
+        while (!enEspera.isEmpty() && siguiente <= confirmadoEnvio + ventanaEnvio) {
+            String messageId = enEspera.poll();
+            liberados.add(new Confirmado(nuevo(messageId), messageId));
+        }
+        return liberados;
+    }
+
+    /**
+     * Olvida un mensaje que ya no se reintentará (confirmado por otra vía o descartado). Si ya
+     * tenía número sin confirmar, el número sigue ocupando la ventana hasta que el receptor lo
+     * confirme: el llamador debe enviar un relleno con ese número, porque si el receptor nunca
+     * lo procesó su cuenta acumulada quedaría detenida en el hueco.
+     *
+     * @return el número a rellenar, o -1 si no tenía
+     */
+    synchronized long olvidar(String messageId) {
+        enEspera.remove(messageId);
+        Long seq = seqPorMensaje.remove(messageId);
+        return seq != null && enVuelo.containsKey(seq) ? seq : -1;
+    }
+
+    synchronized int enVuelo() {
+        return enVuelo.size();
+    }
+
+    synchronized int enEspera() {
+        return enEspera.size();
+    }
+
+    private long nuevo(String messageId) {
+        long seq = siguiente++;
+        enVuelo.put(seq, messageId);
+        seqPorMensaje.put(messageId, seq);
+        return seq;
+    }
+
+    /**
+     * @return {@code false} si ya se había recibido (se confirma otra vez sin entregar) o si
+     *         queda fuera de la ventana de recepción (se descarta; el emisor lo reintentará)
+     */
+    synchronized boolean esNuevo(long seq) {
+        return seq > acumulado && seq <= acumulado + ventanaRecepcion && !recibidos.contains(seq);
+    }
+
+    /**
+     * Registra un mensaje procesado; {@code error} es {@code null} si se entregó.
+     *
+     * @return mensajes recibidos desde la última confirmación enviada
+     */
+    synchronized int recibido(long seq, String error) {
+        if (seq == acumulado + 1) {
+            acumulado = seq;
+            while (!recibidos.isEmpty() && recibidos.first() == acumulado + 1) {
+                acumulado = recibidos.pollFirst();
+            }
+        } else if (seq > acumulado) {
+            recibidos.add(seq);
+        }
+        if (error != null) {
+            errores.put(seq, error);
+        }
+        return ++sinConfirmar;
+    }
+
+    /**
+     * Un duplicado también pide confirmación: la anterior pudo perderse.
+     */
+    synchronized void reconfirmar() {
+        sinConfirmar++;
+    }
+
+    /**
+     * @return {@code true} si hay que programar el envío de la confirmación (no había uno pendiente)
+     */
+    synchronized boolean programarAck() {
+        if (ackProgramado || sinConfirmar == 0) {
+            return false;
+        }
+        ackProgramado = true;
+        return true;
+    }
+
+    /**
+     * Confirmación con lo recibido hasta ahora, o {@code null} si no hay nada que confirmar.
+     */
+    synchronized Ack tomarAck() {
+        ackProgramado = false;
+        if (sinConfirmar == 0) {
+            return null;
+        }
+        sinConfirmar = 0;
+        Ack ack = new Ack(acumulado, List.copyOf(recibidos), Map.copyOf(errores));
+        errores.clear();
+        return ack;
+    }
+
+    record Confirmado(long seq, String messageId) {
+    }
+
+    record Ack(long acumulado, List<Long> selectivos, Map<Long, String> errores) {
+    }
+}
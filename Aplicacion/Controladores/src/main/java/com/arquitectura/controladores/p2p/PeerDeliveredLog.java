@@ -0,0 +1,198 @@
+package com.arquitectura.controladores.p2p;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Mensajes de otros servidores ya entregados a sus destinatarios locales, para no entregar dos
+ * veces un reintento cuya confirmación se perdió. El emisor reintenta desde su outbox durante
+ * {@code ttlMillis} como mucho, así que un id se recuerda ese tiempo (y hasta {@code max} ids).
+ * <p>
+ * Con directorio, cada entrega se anexa a un archivo que se vuelve a cargar al arrancar: un
+ * reintento que llega después de reiniciar este servidor tampoco se duplica. No se hace
+ * {@code force} por entrega; lo escrito sobrevive a la caída del proceso, no a la del equipo.
+ */
+final class PeerDeliveredLog implements Closeable {
+
+    private static final Logger LOGGER = Logger.getLogger(PeerDeliveredLog.class.getName());
+    private static final String ARCHIVO = "delivered.log";
+
+    private final Path file;
+    private final int max;
+    private final long ttlMillis;
+    // Protege entregados, raf y registrosEnDisco
+    private final ReentrantLock lock = new ReentrantLock();
+    // Id -> momento de la entrega, en orden de entrega
+    private final Map<String, Long> entregados = new LinkedHashMap<>();
+    private RandomAccessFile raf;
+    private int registrosEnDisco;
+
+    private PeerDeliveredLog(Path file, int max, long ttlMillis) {
+        this.file = file;
+        this.max = Math.max(1, max);
+        this.ttlMillis = ttlMillis;
+    }
+
+    static PeerDeliveredLog inMemory(int max, long ttlMillis) {
+        return new PeerDeliveredLog(null, max, ttlMillis);
+    }
+
+    /**
+     * Abre (o crea) el registro de {@code directory} y carga lo vigente. Si falla, queda en memoria.
+     */
+    static PeerDeliveredLog open(Path directory, int max, long ttlMillis) {
+        Path file = directory.resolve(ARCHIVO);
+        PeerDeliveredLog log = new PeerDeliveredLog(file, max, ttlMillis);
+        try {
+            Files.createDirectories(directory);
+            log.raf = new RandomAccessFile(file.toFile(), "rw");
+            log.load();
+            return log;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "No se pudo abrir " + file + ", las entregas P2P no sobrevivirán a un reinicio", e);
+            log.closeQuietly();
+            return inMemory(max, ttlMillis);
+        }
+    }
+
+    boolean contains(String messageId) {
+        lock.lock();
+        try {
+            Long entregado = entregados.get(messageId);
+            return entregado != null && entregado >= System.currentTimeMillis() - ttlMillis;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void add(String messageId) {
+        long ahora = System.currentTimeMillis();
+        lock.lock();
+        try {
+            if (entregados.putIfAbsent(messageId, ahora) != null) {
+                return;
+            }
+            olvidarVencidos(ahora);
+            if (raf == null) {
+                return;
+            }
+            try {
+                raf.seek(raf.length());
+                raf.write(registro(messageId, ahora));
+                registrosEnDisco++;
+                // Se reescribe cuando lo vencido ocupa más que lo vigente
+                if (registrosEnDisco > 2 * entregados.size() && registrosEnDisco > 1024) {
+                    compact();
+                }
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "No se pudo registrar la entrega del mensaje P2P " + messageId, e);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (raf != null) {
+                raf.close();
+                raf = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            close();
+        } catch (IOException ignored) {
+            // Ya se informó el error original
+        }
+    }
+
+    private void olvidarVencidos(long ahora) {
+        long limite = ahora - ttlMillis;
+        Iterator<Long> it = entregados.values().iterator();
+        while (it.hasNext()) {
+            long entregado = it.next();
+            if (entregados.size() <= max && entregado >= limite) {
+                return;
+            }
+            it.remove();
+        }
+    }
+
+    /**
+     * Carga lo vigente. Un registro cortado al final (caída a mitad de escritura) se descarta.
+     */
+    private void load() throws IOException {
+        long valido = 0;
+        long length = raf.length();
+        raf.seek(0);
+        try {
+            while (raf.getFilePointer() < length) {
+                String messageId = raf.readUTF();
+                long entregado = raf.readLong();
+                entregados.putIfAbsent(messageId, entregado);
+                registrosEnDisco++;
+                valido = raf.getFilePointer();
+            }
+        } catch (EOFException e) {
+            raf.setLength(valido);
+        }
+        olvidarVencidos(System.currentTimeMillis());
+        if (registrosEnDisco > entregados.size()) {
+            compact();
+        }
+        int vigentes = entregados.size();
+        if (vigentes > 0) {
+            LOGGER.info(() -> "Registro de entregas P2P: " + vigentes + " mensajes recientes cargados de " + file);
+        }
+    }
+
+    /**
+     * Reescribe el archivo solo con lo vigente y lo reemplaza de forma atómica.
+     */
+    private void compact() throws IOException {
+        Path tmp = file.resolveSibling(ARCHIVO + ".tmp");
+        try (RandomAccessFile out = new RandomAccessFile(tmp.toFile(), "rw")) {
+            out.setLength(0);
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            for (Map.Entry<String, Long> entry : entregados.entrySet()) {
+                buffer.write(registro(entry.getKey(), entry.getValue()));
+            }
+            out.write(buffer.toByteArray());
+        }
+        raf.close();
+        try {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            raf = new RandomAccessFile(file.toFile(), "rw");
+        }
+        registrosEnDisco = entregados.size();
+    }
+
+    private static byte[] registro(String messageId, long entregado) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(16 + messageId.length());
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeUTF(messageId);
+        out.writeLong(entregado);
+        return buffer.toByteArray();
+    }
+}
@@ -0,0 +1,279 @@
+package com.arquitectura.controladores.p2p;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import com.arquitectura.controladores.conexion.BinaryFrameCodec;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * Tramas binarias del enlace entre servidores, negociadas después del {@code HELLO}: entero de
+ * 4 bytes big-endian con la longitud de lo que sigue, un byte de opciones y el sobre codificado
+ * en CBOR, comprimido con deflate si el cuerpo alcanza {@code compressionThreshold} bytes. Una
+ * trama de lote lleva un arreglo CBOR con varios sobres que se escribieron juntos, sin pasar de
+ * {@link #MAX_BODY_BYTES} sin comprimir (el receptor no acepta más ni al descomprimir).
+ * <p>
+ * El audio y las fotos ({@code audioContent} y los campos {@code *Base64}) viajan como bytes
+ * crudos; al leerlos Jackson los devuelve como texto Base64, así que los payloads no cambian.
+ */
+final class PeerFrameCodec {
+
+    static final String FORMATO = "cbor";
+    static final String COMPRESION = "deflate";
+    static final int HEADER_BYTES = 5;
+    // Un snapshot por páginas o un audio reenviado caben de sobra; evita reservar basura
+    static final int MAX_FRAME_BYTES = 64 * 1024 * 1024;
+    // La longitud de la cabecera cuenta también el byte de opciones
+    static final int MAX_BODY_BYTES = MAX_FRAME_BYTES - 1;
+    private static final byte FLAG_DEFLATE = 1;
+    private static final byte FLAG_BATCH = 2;
+
+    private static final ObjectMapper CBOR = new ObjectMapper(new CBORFactory())
+        .registerModule(new JavaTimeModule())
+        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private PeerFrameCodec() {
+    }
+
+    /**
+     * Los sobres en el mismo orden, en tantas tramas como hagan falta para que ninguna pase de
+     * {@link #MAX_BODY_BYTES}; el receptor los procesa en ese orden. Un sobre que no entra junto
+     * a los anteriores abre una trama nueva, y uno que no cabe ni solo se entrega a
+     * {@code demasiadoGrande} en lugar de escribirse: el receptor cerraría la conexión.
+     *
+     * @param compressionThreshold cuerpo mínimo para comprimir; 0 desactiva la compresión
+     */
+    static <T> List<Trama> encodeBatches(List<T> envelopes, int compressionThreshold,
+                                         Consumer<? super T> demasiadoGrande) throws IOException {
+        List<Trama> tramas = new ArrayList<>();
+        List<byte[]> lote = new ArrayList<>();
+        long loteBytes = 0;
+        for (T envelope : envelopes) {
+            byte[] body = body(envelope);
+            if (body.length > MAX_BODY_BYTES) {
+                demasiadoGrande.accept(envelope);
+                continue;
+            }
+            if (!lote.isEmpty() && loteBytes + body.length + cabeceraArreglo(lote.size() + 1).length > MAX_BODY_BYTES) {
+                tramas.add(loteEnTrama(lote, loteBytes, compressionThreshold));
+                lote.clear();
+                loteBytes = 0;
+            }
+            lote.add(body);
+            loteBytes += body.length;
+        }
+        if (!lote.isEmpty()) {
+            tramas.add(loteEnTrama(lote, loteBytes, compressionThreshold));
+        }
+        return tramas;
+    }
+
+    /**
+     * Cota superior, sin codificarlo, del CBOR de un árbol: el texto en UTF-8 y hasta 9 bytes de
+     * cabecera por valor. Los campos binarios se cuentan como texto Base64, más largo que sus bytes.
+     */
+    static long bodyBytesBound(JsonNode node) {
+        if (node == null) {
+            return 1;
+        }
+        if (node.isTextual()) {
+            return 9 + utf8Length(node.textValue());
+        }
+        if (node.isBinary()) {
+            try {
+                return 9 + node.binaryValue().length;
+            } catch (IOException e) {
+                return 9;
+            }
+        }
+        long bytes = 9;
+        if (node.isObject()) {
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                bytes += 9 + utf8Length(field.getKey()) + bodyBytesBound(field.getValue());
+            }
+        } else if (node.isArray()) {
+            for (JsonNode item : node) {
+                bytes += bodyBytesBound(item);
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Tamaño exacto del cuerpo sin comprimir de la trama de {@code envelope}.
+     */
+    static int bodyBytes(Object envelope) throws IOException {
+        return body(envelope).length;
+    }
+
+    private static byte[] body(Object envelope) throws IOException {
+        JsonNode tree = CBOR.valueToTree(envelope);
+        BinaryFrameCodec.aBytesCrudos(tree, PeerFrameCodec::esCampoBinario);
+        return CBOR.writeValueAsBytes(tree);
+    }
+
+    /**
+     * Un lote de un sobre sale como trama simple; si no, el arreglo CBOR se arma concatenando
+     * los cuerpos ya codificados tras la cabecera del arreglo.
+     */
+    private static Trama loteEnTrama(List<byte[]> lote, long loteBytes, int compressionThreshold) {
+        if (lote.size() == 1) {
+            return frame(lote.get(0), (byte) 0, compressionThreshold);
+        }
+        byte[] cabecera = cabeceraArreglo(lote.size());
+        ByteBuffer body = ByteBuffer.allocate(Math.toIntExact(cabecera.length + loteBytes)).put(cabecera);
+        lote.forEach(body::put);
+        return frame(body.array(), FLAG_BATCH, compressionThreshold);
+    }
+
+    /**
+     * Cabecera CBOR (tipo mayor 4) de un arreglo de longitud definida.
+     */
+    private static byte[] cabeceraArreglo(int elementos) {
+        if (elementos < 24) {
+            return new byte[]{(byte) (0x80 | elementos)};
+        }
+        if (elementos < 0x100) {
+            return new byte[]{(byte) 0x98, (byte) elementos};
+        }
+        if (elementos < 0x10000) {
+            return new byte[]{(byte) 0x99, (byte) (elementos >>> 8), (byte) elementos};
+        }
+        return ByteBuffer.allocate(5).put((byte) 0x9A).putInt(elementos).array();
+    }
+
+    private static long utf8Length(String text) {
+        long bytes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    private static Trama frame(byte[] body, byte flags, int compressionThreshold) {
+        byte[] data = body;
+        boolean comprimida = false;
+        if (compressionThreshold > 0 && body.length >= compressionThreshold) {
+            byte[] comprimido = deflate(body);
+            // Lo ya comprimido (p. ej. audio) puede crecer: se manda tal cual
+            if (comprimido.length < body.length) {
+                data = comprimido;
+                flags |= FLAG_DEFLATE;
+                comprimida = true;
+            }
+        }
+        byte[] frame = ByteBuffer.allocate(HEADER_BYTES + data.length)
+            .putInt(1 + data.length)
+            .put(flags)
+            .put(data)
+            .array();
+        return new Trama(frame, body.length, comprimida);
+    }
+
+    /**
+     * Bytes que siguen a los 4 de longitud, el de opciones incluido.
+     */
+    static int frameLength(byte[] header) throws IOException {
+        int length = ByteBuffer.wrap(header, 0, 4).getInt();
+        if (length < 1 || length > MAX_FRAME_BYTES) {
+            throw new IOException("Trama P2P de " + length + " bytes fuera de rango");
+        }
+        return length;
+    }
+
+    /**
+     * @param flags byte de opciones de la cabecera
+     * @param data  resto de la trama
+     * @return los sobres de la trama, uno o varios si es un lote
+     */
+    static <T> Decodificada<T> decode(byte flags, byte[] data, Class<T> type) throws IOException {
+        byte[] body = (flags & FLAG_DEFLATE) != 0 ? inflate(data) : data;
+        List<T> values = (flags & FLAG_BATCH) != 0
+            ? CBOR.readValue(body, CBOR.getTypeFactory().constructCollectionType(List.class, type))
+            : List.of(CBOR.readValue(body, type));
+        return new Decodificada<>(values, body.length);
+    }
+
+    static boolean isCompressed(byte flags) {
+        return (flags & FLAG_DEFLATE) != 0;
+    }
+
+    private static boolean esCampoBinario(String campo) {
+        return campo.equals("audioContent") || campo.toLowerCase(Locale.ROOT).endsWith("base64");
+    }
+
+    private static byte[] deflate(byte[] body) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(body);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, body.length / 2));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] data) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 2);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Trama P2P comprimida incompleta");
+                }
+                out.write(buffer, 0, n);
+                if (out.size() > MAX_FRAME_BYTES) {
+                    throw new IOException("Trama P2P descomprimida supera " + MAX_FRAME_BYTES + " bytes");
+                }
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException("Trama P2P comprimida inválida", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Trama lista para escribir; {@code bodyBytes} es el tamaño del CBOR antes de comprimir.
+     */
+    record Trama(byte[] frame, int bodyBytes, boolean comprimida) {
+    }
+
+    record Decodificada<T>(List<T> values, int bodyBytes) {
+    }
+}
@@ -0,0 +1,443 @@
+package com.arquitectura.controladores.p2p;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Mensajes reenviados a otros servidores que esperan confirmación, guardados en un archivo de
+ * solo anexado para que sobrevivan a un reinicio. Cada alta escribe el sobre serializado y cada
+ * confirmación o descarte una marca de borrado; en memoria solo queda el índice con la posición
+ * del payload, que se vuelve a leer del disco al reintentar.
+ * <p>
+ * El archivo se vacía cuando no queda nada pendiente y se reescribe con lo vivo cuando lo
+ * borrado ocupa más que eso. Sin directorio, o si el archivo no se puede abrir, los payloads se
+ * guardan en memoria y se pierden al reiniciar, como antes.
+ * <p>
+ * Un alta no vuelve hasta que su registro está en disco, pero el {@code force} se hace fuera del
+ * lock y cubre todo lo escrito hasta ese momento: las altas concurrentes comparten un solo
+ * {@code force} (commit en grupo) en vez de hacer uno cada una en fila.
+ */
+final class PeerOutbox implements Closeable {
+
+    private static final Logger LOGGER = Logger.getLogger(PeerOutbox.class.getName());
+    private static final String ARCHIVO = "outbox.log";
+    private static final byte ALTA = 'P';
+    private static final byte BAJA = 'D';
+    // Por debajo de esto no vale la pena reescribir el archivo
+    private static final long MIN_COMPACT_BYTES = 4L * 1024 * 1024;
+
+    private final Path file;
+    // Protege entradas, raf, bytesVivos, escritos y version. ReentrantLock y no synchronized:
+    // quien espera el disco suele ser un hilo virtual y no debe quedar fijado a su portador
+    private final ReentrantLock lock = new ReentrantLock();
+    // Solo uno hace force a la vez; los demás esperan y casi siempre ya quedan cubiertos por él
+    private final ReentrantLock forceLock = new ReentrantLock();
+    // Orden de alta, para reenviar en el mismo orden tras un reinicio
+    private final Map<String, Entrada> entradas = new LinkedHashMap<>();
+    private RandomAccessFile raf;
+    private long bytesVivos;
+    // Largo del archivo actual y cuántos de esos bytes ya están en disco
+    private long escritos;
+    private final AtomicLong sincronizados = new AtomicLong();
+    // Cambia cada vez que el archivo se trunca o se reescribe: lo anexado antes ya quedó cubierto
+    private long version;
+
+    private PeerOutbox(Path file) {
+        this.file = file;
+    }
+
+    static PeerOutbox inMemory() {
+        return new PeerOutbox(null);
+    }
+
+    /**
+     * Abre (o crea) el outbox de {@code directory} y carga lo pendiente. Si falla, queda en memoria.
+     */
+    static PeerOutbox open(Path directory) {
+        Path file = directory.resolve(ARCHIVO);
+        PeerOutbox outbox = new PeerOutbox(file);
+        try {
+            Files.createDirectories(directory);
+            outbox.raf = new RandomAccessFile(file.toFile(), "rw");
+            outbox.load();
+            return outbox;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "No se pudo abrir el outbox P2P " + file + ", los pendientes no sobrevivirán a un reinicio", e);
+            outbox.closeQuietly();
+            return inMemory();
+        }
+    }
+
+    /**
+     * Registra un mensaje pendiente y vuelve cuando el registro está en disco. Si no se puede
+     * escribir se conserva en memoria.
+     */
+    Entrada add(String messageId, String target, String type, byte[] payload) {
+        long createdAt = System.currentTimeMillis();
+        Entrada entrada = new Entrada(messageId, target, type, createdAt, -1, payload.length, payload);
+        long hasta = -1;
+        long versionAlta;
+        lock.lock();
+        try {
+            entrada = anexar(entrada);
+            if (entrada.enDisco()) {
+                hasta = escritos;
+            }
+            versionAlta = version;
+            Entrada anterior = entradas.put(messageId, entrada);
+            if (anterior != null && anterior.enDisco()) {
+                bytesVivos -= anterior.bytesEnDisco();
+            }
+        } finally {
+            lock.unlock();
+        }
+        // Un borrado perdido solo provoca un reintento de más; un alta perdida, un mensaje
+        if (hasta >= 0) {
+            sincronizar(hasta, versionAlta);
+        }
+        return entrada;
+    }
+
+    private Entrada anexar(Entrada entrada) {
+        String messageId = entrada.messageId();
+        byte[] payload = entrada.payload();
+        if (raf != null) {
+            try {
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream(payload.length + 128);
+                DataOutputStream out = new DataOutputStream(buffer);
+                out.writeByte(ALTA);
+                out.writeUTF(messageId);
+                out.writeUTF(entrada.target());
+                out.writeUTF(entrada.type());
+                out.writeLong(entrada.createdAt());
+                out.writeInt(payload.length);
+                int header = out.size();
+                out.write(payload);
+                long start = raf.length();
+                raf.seek(start);
+                raf.write(buffer.toByteArray());
+                escritos += buffer.size();
+                Entrada guardada = new Entrada(messageId, entrada.target(), entrada.type(), entrada.createdAt(),
+                    start + header, payload.length, null);
+                bytesVivos += guardada.bytesEnDisco();
+                return guardada;
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "No se pudo guardar en el outbox P2P el mensaje " + messageId, e);
+            }
+        }
+        return entrada;
+    }
+
+    /**
+     * Espera a que lo anexado hasta {@code hasta} del archivo de {@code versionAlta} esté en
+     * disco. Si otro ya hizo un {@code force} que lo cubre no hace nada; si no, hace uno que
+     * cubre también lo que otros anexaron mientras tanto. Si el archivo se truncó o se compactó
+     * después, lo vivo ya se forzó al reescribirlo.
+     */
+    private void sincronizar(long hasta, long versionAlta) {
+        forceLock.lock();
+        try {
+            while (sincronizados.get() < hasta) {
+                FileChannel canal;
+                long objetivo;
+                lock.lock();
+                try {
+                    if (raf == null || version != versionAlta) {
+                        return;
+                    }
+                    canal = raf.getChannel();
+                    objetivo = escritos;
+                } finally {
+                    lock.unlock();
+                }
+                try {
+                    canal.force(false);
+                } catch (ClosedChannelException e) {
+                    // Se reemplazó el archivo al compactar: la próxima vuelta lo ve por la versión
+                    continue;
+                }
+                lock.lock();
+                try {
+                    // Un force del archivo anterior no dice nada de las posiciones del nuevo
+                    if (version == versionAlta) {
+                        sincronizados.accumulateAndGet(objetivo, Math::max);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "No se pudo sincronizar el outbox P2P", e);
+        } finally {
+            forceLock.unlock();
+        }
+    }
+
+    /**
+     * Quita el mensaje (confirmado o descartado).
+     *
+     * @return la entrada quitada o {@code null} si no estaba
+     */
+    Entrada remove(String messageId) {
+        lock.lock();
+        try {
+            return quitar(messageId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Entrada quitar(String messageId) {
+        Entrada entrada = entradas.remove(messageId);
+        if (entrada == null || !entrada.enDisco() || raf == null) {
+            return entrada;
+        }
+        bytesVivos -= entrada.bytesEnDisco();
+        try {
+            if (entradas.isEmpty()) {
+                raf.setLength(0);
+                bytesVivos = 0;
+                // Nada vivo que perder: lo anexado antes ya no hace falta en disco
+                escritos = 0;
+                sincronizados.set(0);
+                version++;
+                return entrada;
+            }
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(32 + messageId.length());
+            DataOutputStream out = new DataOutputStream(buffer);
+            out.writeByte(BAJA);
+            out.writeUTF(messageId);
+            raf.seek(raf.length());
+            raf.write(buffer.toByteArray());
+            escritos += buffer.size();
+            if (raf.length() > MIN_COMPACT_BYTES && raf.length() > 2 * bytesVivos) {
+                compact();
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "No se pudo marcar como entregado en el outbox P2P el mensaje " + messageId, e);
+        }
+        return entrada;
+    }
+
+    /**
+     * Payload serializado del mensaje, o {@code null} si ya no está pendiente o no se pudo leer.
+     */
+    byte[] payload(String messageId) {
+        lock.lock();
+        try {
+            return leer(messageId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private byte[] leer(String messageId) {
+        Entrada entrada = entradas.get(messageId);
+        if (entrada == null) {
+            return null;
+        }
+        if (!entrada.enDisco()) {
+            return entrada.payload();
+        }
+        if (raf == null) {
+            return null;
+        }
+        try {
+            byte[] data = new byte[entrada.length()];
+            raf.seek(entrada.offset());
+            raf.readFully(data);
+            return data;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "No se pudo leer del outbox P2P el mensaje " + messageId, e);
+            return null;
+        }
+    }
+
+    List<Entrada> entries() {
+        lock.lock();
+        try {
+            return new ArrayList<>(entradas.values());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int size() {
+        lock.lock();
+        try {
+            return entradas.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    boolean isDurable() {
+        return file != null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (raf != null) {
+                raf.close();
+                raf = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            close();
+        } catch (IOException ignored) {
+            // Ya se informó el error original
+        }
+    }
+
+    /**
+     * Recorre el archivo aplicando altas y bajas. Una escritura cortada al final (caída a mitad
+     * de un registro) se descarta.
+     */
+    private void load() throws IOException {
+        long valido = 0;
+        long length = raf.length();
+        raf.seek(0);
+        try {
+            while (raf.getFilePointer() < length) {
+                long start = raf.getFilePointer();
+                byte tipo = raf.readByte();
+                String messageId = raf.readUTF();
+                if (tipo == ALTA) {
+                    String target = raf.readUTF();
+                    String type = raf.readUTF();
+                    long createdAt = raf.readLong();
+                    int size = raf.readInt();
+                    long offset = raf.getFilePointer();
+                    if (size < 0 || offset + size > length) {
+                        throw new EOFException();
+                    }
+                    raf.seek(offset + size);
+                    Entrada entrada = new Entrada(messageId, target, type, createdAt, offset, size, null);
+                    Entrada anterior = entradas.put(messageId, entrada);
+                    if (anterior != null) {
+                        bytesVivos -= anterior.bytesEnDisco();
+                    }
+                    bytesVivos += entrada.bytesEnDisco();
+                } else if (tipo == BAJA) {
+                    Entrada borrada = entradas.remove(messageId);
+                    if (borrada != null) {
+                        bytesVivos -= borrada.bytesEnDisco();
+                    }
+                } else {
+                    throw new IOException("Registro desconocido en el outbox P2P en la posición " + start);
+                }
+                valido = raf.getFilePointer();
+            }
+        } catch (EOFException e) {
+            long descartados = length - valido;
+            LOGGER.warning(() -> "Outbox P2P con un registro incompleto al final, se descartan " + descartados + " bytes");
+            raf.setLength(valido);
+        }
+        if (entradas.isEmpty()) {
+            raf.setLength(0);
+            bytesVivos = 0;
+        }
+        // Lo leído ya estaba en el archivo
+        escritos = raf.length();
+        sincronizados.set(escritos);
+        int pendientes = entradas.size();
+        if (pendientes > 0) {
+            LOGGER.info(() -> "Outbox P2P: " + pendientes + " mensajes pendientes recuperados de " + file);
+        }
+    }
+
+    /**
+     * Reescribe el archivo solo con lo pendiente y lo reemplaza de forma atómica.
+     */
+    private void compact() throws IOException {
+        Path tmp = file.resolveSibling(ARCHIVO + ".tmp");
+        Map<String, Entrada> movidas = new LinkedHashMap<>();
+        long escritosNuevos = 0;
+        long vivos = 0;
+        try (RandomAccessFile out = new RandomAccessFile(tmp.toFile(), "rw")) {
+            out.setLength(0);
+            for (Entrada entrada : entradas.values()) {
+                if (!entrada.enDisco()) {
+                    movidas.put(entrada.messageId(), entrada);
+                    continue;
+                }
+                byte[] data = new byte[entrada.length()];
+                raf.seek(entrada.offset());
+                raf.readFully(data);
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream(data.length + 128);
+                DataOutputStream record = new DataOutputStream(buffer);
+                record.writeByte(ALTA);
+                record.writeUTF(entrada.messageId());
+                record.writeUTF(entrada.target());
+                record.writeUTF(entrada.type());
+                record.writeLong(entrada.createdAt());
+                record.writeInt(data.length);
+                int header = record.size();
+                record.write(data);
+                out.write(buffer.toByteArray());
+                Entrada movida = new Entrada(entrada.messageId(), entrada.target(), entrada.type(),
+                    entrada.createdAt(), escritosNuevos + header, data.length, null);
+                movidas.put(movida.messageId(), movida);
+                escritosNuevos += buffer.size();
+                vivos += movida.bytesEnDisco();
+            }
+            out.getChannel().force(false);
+        }
+        raf.close();
+        try {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            raf = new RandomAccessFile(file.toFile(), "rw");
+        }
+        entradas.clear();
+        entradas.putAll(movidas);
+        bytesVivos = vivos;
+        // Lo vivo quedó forzado en el archivo nuevo; las posiciones del anterior ya no valen
+        this.escritos = escritosNuevos;
+        sincronizados.set(this.escritos);
+        version++;
+        long total = escritosNuevos;
+        LOGGER.fine(() -> "Outbox P2P compactado a " + total + " bytes");
+    }
+
+    /**
+     * Mensaje pendiente. Si está en disco {@code payload} es {@code null} y {@code offset} indica
+     * dónde leerlo; si no, {@code offset} es -1.
+     */
+    record Entrada(String messageId, String target, String type, long createdAt,
+                   long offset, int length, byte[] payload) {
+
+        boolean enDisco() {
+            return offset >= 0;
+        }
+
+        // Aproximado: cabecera más payload, basta para decidir cuándo compactar
+        long bytesEnDisco() {
+            return length + 32L + messageId.length() + target.length() + type.length();
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.arquitectura.controladores.p2p;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Tabla de rutas por vector de distancias para los mensajes dirigidos entre servidores. Cada
+ * vecino (conexión directa) anuncia a qué distancia tiene a cada servidor; la ruta a un destino
+ * es el vecino con menor distancia, con el menor id como desempate para que sea estable.
+ * <p>
+ * Los destinos se guardan normalizados (minúsculas); los vecinos, con el id de la conexión. Los
+ * anuncios usan horizonte dividido con envenenamiento: lo que se alcanza por un vecino se le
+ * anuncia a él como inalcanzable, y {@link #INALCANZABLE} corta la cuenta al infinito.
+ */
+final class PeerRoutingTable {
+
+    static final int INALCANZABLE = 16;
+
+    private final String selfId;
+    // destino -> (vecino -> distancia por ese vecino); protegido por this
+    private final Map<String, Map<String, Integer>> vias = new HashMap<>();
+
+    PeerRoutingTable(String selfId) {
+        this.selfId = normalize(selfId);
+    }
+
+    /**
+     * Conexión directa con {@code neighbor}, a distancia 1.
+     *
+     * @return {@code true} si cambió alguna ruta
+     */
+    synchronized boolean addNeighbor(String neighbor) {
+        Map<String, Ruta> antes = mejores();
+        vias.computeIfAbsent(normalize(neighbor), k -> new HashMap<>()).put(neighbor, 1);
+        return !antes.equals(mejores());
+    }
+
+    /**
+     * Quita el vecino y todas las rutas que pasaban por él.
+     *
+     * @return {@code true} si cambió alguna ruta
+     */
+    synchronized boolean removeNeighbor(String neighbor) {
+        Map<String, Ruta> antes = mejores();
+        Iterator<Map<String, Integer>> it = vias.values().iterator();
+        while (it.hasNext()) {
+            Map<String, Integer> porVecino = it.next();
+            porVecino.remove(neighbor);
+            if (porVecino.isEmpty()) {
+                it.remove();
+            }
+        }
+        return !antes.equals(mejores());
+    }
+
+    /**
+     * Reemplaza lo anunciado por {@code neighbor}: cada destino queda a la distancia anunciada
+     * más uno y lo que ya no anuncia deja de alcanzarse por él.
+     *
+     * @return {@code true} si cambió alguna ruta
+     */
+    synchronized boolean update(String neighbor, Map<String, Integer> distancias) {
+        Map<String, Ruta> antes = mejores();
+        String vecino = normalize(neighbor);
+        Iterator<Map.Entry<String, Map<String, Integer>>> it = vias.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Map<String, Integer>> entry = it.next();
+            if (!entry.getKey().equals(vecino)) {
+                entry.getValue().remove(neighbor);
+                if (entry.getValue().isEmpty()) {
+                    it.remove();
+                }
+            }
+        }
+        if (distancias != null) {
+            for (Map.Entry<String, Integer> entry : distancias.entrySet()) {
+                String destino = normalize(entry.getKey());
+                Integer distancia = entry.getValue();
+                if (destino == null || destino.equals(selfId) || destino.equals(vecino)
+                    || distancia == null || distancia < 0 || distancia + 1 >= INALCANZABLE) {
+                    continue;
+                }
+                vias.computeIfAbsent(destino, k -> new HashMap<>()).put(neighbor, distancia + 1);
+            }
+        }
+        return !antes.equals(mejores());
+    }
+
+    synchronized Optional<Ruta> route(String destino) {
+        return Optional.ofNullable(mejor(normalize(destino)));
+    }
+
+    /**
+     * Vector a anunciar a {@code neighbor}: este servidor a distancia 0 y cada destino conocido,
+     * envenenado si la ruta pasa por ese mismo vecino.
+     */
+    synchronized Map<String, Integer> vectorFor(String neighbor) {
+        Map<String, Integer> vector = new TreeMap<>();
+        if (selfId != null) {
+            vector.put(selfId, 0);
+        }
+        mejores().forEach((destino, ruta) ->
+            vector.put(destino, ruta.nextHop().equals(neighbor) ? INALCANZABLE : ruta.distancia()));
+        return vector;
+    }
+
+    /**
+     * Mejor ruta a cada destino, ordenado por destino.
+     */
+    synchronized Map<String, Ruta> mejores() {
+        Map<String, Ruta> result = new TreeMap<>();
+        for (String destino : vias.keySet()) {
+            Ruta ruta = mejor(destino);
+            if (ruta != null) {
+                result.put(destino, ruta);
+            }
+        }
+        return result;
+    }
+
+    synchronized int size() {
+        return vias.size();
+    }
+
+    private Ruta mejor(String destino) {
+        Map<String, Integer> porVecino = destino != null ? vias.get(destino) : null;
+        if (porVecino == null) {
+            return null;
+        }
+        Ruta mejor = null;
+        for (Map.Entry<String, Integer> entry : porVecino.entrySet()) {
+            int distancia = entry.getValue();
+            if (mejor == null || distancia < mejor.distancia()
+                || (distancia == mejor.distancia() && entry.getKey().compareTo(mejor.nextHop()) < 0)) {
+                mejor = new Ruta(entry.getKey(), distancia);
+            }
+        }
+        return mejor;
+    }
+
+    private static String normalize(String id) {
+        if (id == null || id.isBlank()) {
+            return null;
+        }
+        return id.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Siguiente salto (id de la conexión vecina) y servidores hasta el destino.
+     */
+    record Ruta(String nextHop, int distancia) {
+    }
+}
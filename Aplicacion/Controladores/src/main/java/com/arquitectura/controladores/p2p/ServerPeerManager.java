@@ -1,10 +1,13 @@
 package com.arquitectura.controladores.p2p;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.NetworkInterface;
@@ -12,6 +15,7 @@ import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Enumeration;
@@ -25,9 +29,12 @@ import java.util.TreeSet;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -40,6 +47,11 @@ import com.arquitectura.dto.ConnectionStatusUpdateDto;
 import com.arquitectura.entidades.Canal;
 import com.arquitectura.repositorios.CanalRepository;
 import com.arquitectura.repositorios.ClienteRepository;
+import com.arquitectura.servicios.AudioStorageService;
+import com.arquitectura.servicios.cache.CanalCatalog;
+import com.arquitectura.servicios.cache.ClienteIdentityCache;
+import com.arquitectura.servicios.metrics.ServerMetrics;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
@@ -70,15 +82,53 @@ public class ServerPeerManager {
     private final LocalAliasRegistry localAliases;
     private final String instanceId;
     private final String normalizedServerId;
+    private final PeerRoutingTable routingTable;
     
-    // Sistema de confirmación de mensajes
+    // Sistema de confirmación de mensajes; el payload de cada pendiente se lee del outbox.
+    // Los reintentos se programan y ejecutan en retryExecutor, uno por mensaje
     private final Map<String, PendingMessage> pendingMessages = new ConcurrentHashMap<>();
     private final Map<String, Integer> replicationMetrics = new ConcurrentHashMap<>();
     private java.util.concurrent.ScheduledExecutorService retryExecutor;
-    
-    // Configuración de reintento
-    private static final long MESSAGE_TIMEOUT_MS = 30000; // 30 segundos
-    private static final int MAX_RETRIES = 3;
+    // Poda periódica del log de replicación; aparte de retryExecutor para no retrasar reintentos ni acks
+    private static final long REPLICATION_PRUNE_INTERVAL_MINUTES = 60;
+    private java.util.concurrent.ScheduledExecutorService replicationMaintenance;
+    private volatile PeerOutbox outbox = PeerOutbox.inMemory();
+    // Margen para el sobre, la numeración y la ruta alrededor de un mensaje reenviado
+    private static final int ENVELOPE_OVERHEAD_BYTES = 64 * 1024;
+    // Esperas vencidas sin confirmación seguidas por servidor destino; marcan su backoff
+    private final Map<String, Integer> retryFailures = new ConcurrentHashMap<>();
+    // Mensajes entregados mientras el emisor puede reintentarlos: un reintento de algo ya
+    // entregado solo se vuelve a confirmar. Se guarda junto al outbox para sobrevivir a un reinicio
+    private static final int DELIVERED_IDS_MAX = 100000;
+    private volatile PeerDeliveredLog deliveredLog = PeerDeliveredLog.inMemory(DELIVERED_IDS_MAX, TimeUnit.HOURS.toMillis(24));
+
+    // Configuración de reintento: primera espera de la confirmación, tope del backoff, envíos
+    // como máximo y antigüedad máxima de un mensaje cuyo destino no es alcanzable
+    private volatile long retryBaseMillis = 5000;
+    private volatile long retryMaxMillis = 300000;
+    private volatile int maxRetries = 6;
+    private volatile long outboxMaxAgeMillis = TimeUnit.HOURS.toMillis(24);
+    // Mensajes numerados sin confirmar por conexión y espera antes de confirmar lo recibido
+    private volatile int ackWindowSize = 256;
+    private volatile long ackDelayMillis = 20;
+
+    // Transferencia del snapshot completo por páginas: filas por página y páginas sin confirmar
+    private volatile int snapshotPageSize = 500;
+    private volatile int snapshotWindow = 4;
+    // Último punto aplicado de cada snapshot entrante sin terminar, por logId del origen
+    private final Map<String, SnapshotStreamPayload> snapshotResumePoints = new ConcurrentHashMap<>();
+
+    // Si está presente, los mensajes de audio reenviados llevan el archivo para que el
+    // servidor destino pueda atender FETCH_AUDIO
+    // Enlace binario (CBOR) con los peers que lo ofrezcan y tamaño mínimo de trama a comprimir
+    private volatile boolean binaryFraming = true;
+    private volatile int compressionThreshold = 1024;
+    // Sobres por escritura al peer y espera máxima para juntar más tras el primero
+    private volatile int batchMaxEnvelopes = 64;
+    private volatile long batchLingerNanos = TimeUnit.MILLISECONDS.toNanos(2);
+    private volatile AudioStorageService audioStorageService;
+    private volatile ClienteIdentityCache identityCache;
+    private volatile CanalCatalog channelCatalog;
 
     private volatile boolean running;
     private ServerSocket serverSocket;
@@ -103,11 +153,97 @@ public class ServerPeerManager {
         this.localAliases = new LocalAliasRegistry(serverId);
         this.instanceId = UUID.randomUUID().toString();
         this.normalizedServerId = normalizeServerId(serverId);
+        this.routingTable = new PeerRoutingTable(serverId);
         this.localAliases.initialize();
         
         // Inicializar el executor de reintento
         this.retryExecutor = Executors.newSingleThreadScheduledExecutor(
             r -> new Thread(r, "P2P-Retry-" + this.serverId));
+        ServerMetrics.bindP2POutboxSize(() -> outbox.size());
+    }
+
+    /**
+     * Outbox de los mensajes reenviados. Con {@code directory} los pendientes se guardan en disco
+     * y se vuelven a enviar al arrancar; sin él quedan solo en memoria. Cada mensaje sin
+     * confirmar se reintenta con backoff exponencial (con jitter) por servidor destino, desde
+     * {@code retryBaseMillis} hasta {@code retryMaxMillis}, como mucho {@code maxRetries} veces.
+     * Mientras el destino no es alcanzable no gasta reintentos: se reenvía al reconectar y se
+     * descarta pasados {@code maxAgeMinutes}. En el mismo directorio se recuerdan durante ese
+     * tiempo los mensajes recibidos ya entregados, para no duplicar un reintento tras reiniciar.
+     * Debe llamarse antes de {@link #start()}.
+     */
+    public void configureOutbox(String directory, int retryBaseMillis, int retryMaxMillis,
+                                int maxRetries, int maxAgeMinutes) {
+        this.retryBaseMillis = Math.max(100, retryBaseMillis);
+        this.retryMaxMillis = Math.max(this.retryBaseMillis, retryMaxMillis);
+        this.maxRetries = Math.max(0, maxRetries);
+        this.outboxMaxAgeMillis = TimeUnit.MINUTES.toMillis(Math.max(1, maxAgeMinutes));
+        boolean durable = directory != null && !directory.isBlank();
+        PeerOutbox previous = outbox;
+        this.outbox = durable ? PeerOutbox.open(Path.of(directory)) : PeerOutbox.inMemory();
+        closeOutbox(previous);
+        PeerDeliveredLog previousLog = deliveredLog;
+        this.deliveredLog = durable
+            ? PeerDeliveredLog.open(Path.of(directory), DELIVERED_IDS_MAX, outboxMaxAgeMillis)
+            : PeerDeliveredLog.inMemory(DELIVERED_IDS_MAX, outboxMaxAgeMillis);
+        closeOutbox(previousLog);
+    }
+
+    /**
+     * Ajusta la transferencia por páginas del snapshot completo: filas por página y páginas que
+     * se envían sin confirmación del receptor antes de esperar.
+     */
+    public void configureSnapshotStreaming(int pageSize, int window) {
+        this.snapshotPageSize = Math.max(1, pageSize);
+        this.snapshotWindow = Math.max(1, window);
+    }
+
+    /**
+     * Formato del enlace con otros servidores. Con {@code binary} se ofrece CBOR tras el
+     * {@code HELLO} y se usa con los peers que también lo ofrecen; los demás siguen en JSON.
+     * Las tramas de al menos {@code compressionThreshold} bytes se comprimen (0 = nunca).
+     */
+    public void configureFraming(boolean binary, int compressionThreshold) {
+        this.binaryFraming = binary;
+        this.compressionThreshold = Math.max(0, compressionThreshold);
+    }
+
+    /**
+     * Agrupa los envíos a cada peer: el escritor junta hasta {@code maxEnvelopes} sobres, esperando
+     * como mucho {@code lingerMillis} por más tras el primero, y los escribe con un solo flush
+     * (en binario, en una sola trama). Con 0 ms solo junta lo que ya estaba en cola.
+     */
+    public void configureBatching(int maxEnvelopes, int lingerMillis) {
+        this.batchMaxEnvelopes = Math.max(1, maxEnvelopes);
+        this.batchLingerNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, lingerMillis));
+    }
+
+    /**
+     * Confirmaciones acumuladas con los vecinos que las negocian: cada conexión acepta hasta
+     * {@code window} mensajes numerados sin confirmar, y lo recibido se confirma junto tras
+     * {@code delayMillis} (o antes, en el siguiente envío a ese peer o al llegar a media ventana).
+     */
+    public void configureAckWindow(int window, int delayMillis) {
+        this.ackWindowSize = Math.max(1, window);
+        this.ackDelayMillis = Math.max(0, delayMillis);
+    }
+
+    public void setAudioStorageService(AudioStorageService audioStorageService) {
+        this.audioStorageService = audioStorageService;
+    }
+
+    /**
+     * Traduce entre id local y email (identificador global) sin consultar la base en cada mensaje.
+     */
+    public void setIdentityCache(ClienteIdentityCache identityCache) {
+        this.identityCache = identityCache;
+    }
+
+    /**
+     * Traduce entre id local y UUID de canal sin consultar la base en cada mensaje reenviado.
+     */
+    public void setChannelCatalog(CanalCatalog channelCatalog) {
+        this.channelCatalog = channelCatalog;
     }
 
     public void start() {
@@ -116,8 +252,27 @@ public class ServerPeerManager {
         }
         running = true;
         startAcceptor();
+        recoverOutbox();
+        scheduleReplicationPruning();
         connectToBootstrapPeers();
-        startRetrySystem();
+    }
+
+    private void scheduleReplicationPruning() {
+        if (databaseSync == null) {
+            return;
+        }
+        replicationMaintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "P2P-Replog-" + serverId);
+            thread.setDaemon(true);
+            return thread;
+        });
+        replicationMaintenance.scheduleWithFixedDelay(() -> {
+            try {
+                databaseSync.pruneReplicationLog();
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Error podando el log de replicación", e);
+            }
+        }, REPLICATION_PRUNE_INTERVAL_MINUTES, REPLICATION_PRUNE_INTERVAL_MINUTES, TimeUnit.MINUTES);
     }
 
     public void stop() {
@@ -130,6 +285,10 @@ public class ServerPeerManager {
             LOGGER.log(Level.WARNING, "Error cerrando socket de peers", e);
         }
         
+        if (replicationMaintenance != null) {
+            replicationMaintenance.shutdownNow();
+        }
+
         // Detener sistema de reintentos
         if (retryExecutor != null && !retryExecutor.isShutdown()) {
             retryExecutor.shutdown();
@@ -148,7 +307,11 @@ public class ServerPeerManager {
         peers.clear();
         peersByAlias.clear();
         routeHints.clear();
+        // Lo pendiente sigue en el outbox para el próximo arranque
         pendingMessages.clear();
+        retryFailures.clear();
+        closeOutbox(outbox);
+        closeOutbox(deliveredLog);
     }
 
     public Set<String> connectedPeerIds() {
@@ -254,9 +417,7 @@ public class ServerPeerManager {
         // Obtener el email del usuario para identificación global entre servidores
         String userEmail = null;
         try {
-            userEmail = clienteRepository.findById(userId)
-                .map(cliente -> cliente.getEmail())
-                .orElse(null);
+            userEmail = emailOf(userId);
         } catch (Exception e) {
             LOGGER.warning(() -> "No se pudo obtener email para usuario " + userId + ": " + e.getMessage());
         }
@@ -269,17 +430,17 @@ public class ServerPeerManager {
         message.setUserId(userId);
         message.setUserEmail(userEmail); // Usar email para identificación global
         message.setMessage(mapper.valueToTree(payload));
+        message.setAudioContent(loadAudioContent(message.getMessage()));
         
         // Rastrear mensaje para confirmación
-        PendingMessage pending = new PendingMessage(messageId, targetServerId, 
-                                                   PeerMessageType.DIRECT_MESSAGE, 
-                                                   mapper.valueToTree(message));
-        pendingMessages.put(messageId, pending);
+        if (!track(messageId, targetServerId, PeerMessageType.DIRECT_MESSAGE, message)) {
+            return;
+        }
         
         LOGGER.info(() -> String.format("📤 Reenviando mensaje directo %s a servidor %s para usuario %d (email: %s)", 
             messageId, targetServerId, userId, finalUserEmail));
         
-        sendToPeer(targetServerId, PeerMessageType.DIRECT_MESSAGE, message);
+        dispatch(messageId, targetServerId, PeerMessageType.DIRECT_MESSAGE, message);
         incrementMetric("messages_sent");
     }
 
@@ -294,20 +455,54 @@ public class ServerPeerManager {
         message.setCanalId(canalId);
         message.setCanalUuid(resolveChannelUuid(canalId));
         message.setMessage(mapper.valueToTree(payload));
+        message.setAudioContent(loadAudioContent(message.getMessage()));
         
         // Rastrear mensaje para confirmación
-        PendingMessage pending = new PendingMessage(messageId, targetServerId, 
-                                                   PeerMessageType.CHANNEL_MESSAGE, 
-                                                   mapper.valueToTree(message));
-        pendingMessages.put(messageId, pending);
+        if (!track(messageId, targetServerId, PeerMessageType.CHANNEL_MESSAGE, message)) {
+            return;
+        }
         
         LOGGER.info(() -> String.format("📤 Reenviando mensaje de canal %s a servidor %s para canal %d", 
             messageId, targetServerId, canalId));
         
-        sendToPeer(targetServerId, PeerMessageType.CHANNEL_MESSAGE, message);
+        dispatch(messageId, targetServerId, PeerMessageType.CHANNEL_MESSAGE, message);
         incrementMetric("channel_messages_sent");
     }
 
+    /**
+     * El archivo de un mensaje de audio viaja una sola vez por servidor destino; a los
+     * clientes solo llega la referencia.
+     */
+    private String loadAudioContent(JsonNode message) {
+        AudioStorageService storage = audioStorageService;
+        if (storage == null || message == null || !"AUDIO".equalsIgnoreCase(message.path("tipoMensaje").asText())) {
+            return null;
+        }
+        JsonNode ruta = message.path("contenido").path("rutaArchivo");
+        if (!ruta.isTextual() || ruta.asText().isBlank()) {
+            return null;
+        }
+        try {
+            return storage.cargarAudioBase64(ruta.asText());
+        } catch (RuntimeException e) {
+            LOGGER.warning(() -> "No se pudo adjuntar el audio " + ruta.asText() + " al reenvío: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void storeForwardedAudio(JsonNode message, String audioContent) {
+        AudioStorageService storage = audioStorageService;
+        if (storage == null || audioContent == null || message == null) {
+            return;
+        }
+        String ruta = message.path("contenido").path("rutaArchivo").asText(null);
+        try {
+            storage.guardarAudioReplicado(ruta, audioContent);
+        } catch (RuntimeException e) {
+            LOGGER.warning(() -> "No se pudo guardar el audio reenviado " + ruta + ": " + e.getMessage());
+        }
+    }
+
     public void forwardToSession(String targetServerId, String sessionId, Object payload) {
         if (targetServerId == null || sessionId == null || payload == null) {
             return;
@@ -341,6 +536,34 @@ public class ServerPeerManager {
         routeEnvelope(null, envelope);
     }
 
+    /**
+     * Envía un mensaje que espera confirmación. Si el destino es un vecino que negoció la
+     * ventana, sale numerado por esa conexión; si no, enrutado y con confirmación individual.
+     *
+     * @return {@code false} si quedó en espera de que se abra la ventana del vecino
+     */
+    private boolean dispatch(String messageId, String targetServerId, PeerMessageType type, Object message) {
+        PeerConnection direct = findDirectPeer(targetServerId);
+        if (direct == null || !direct.ackWindow().habilitada()) {
+            sendToPeer(targetServerId, type, message);
+            return true;
+        }
+        long seq = direct.ackWindow().asignar(messageId);
+        if (seq < 0) {
+            PendingMessage pending = pendingMessages.get(messageId);
+            if (pending != null) {
+                pending.markWaiting();
+            }
+            ServerMetrics.recordP2PWindowHeld();
+            LOGGER.fine(() -> "Ventana con " + direct.metricsLabel() + " llena, el mensaje " + messageId + " queda en espera");
+            return false;
+        }
+        JsonNode node = message instanceof JsonNode json ? json : mapper.valueToTree(message);
+        direct.send(new PeerEnvelope(PeerMessageType.SEQ_MESSAGE, serverId,
+            mapper.valueToTree(new SequencedPayload(seq, type, node))));
+        return true;
+    }
+
     private void routeEnvelope(PeerConnection source, PeerEnvelope envelope) {
         if (envelope == null) {
             return;
@@ -351,22 +574,39 @@ public class ServerPeerManager {
         }
 
         String target = envelope.getTarget();
-        if (target != null) {
-            PeerConnection direct = findPeerConnection(target);
-            if (direct != null && direct != source) {
-                direct.send(envelope);
-                return;
-            }
+        if (target == null) {
+            // Difusión: a todos los pares por los que aún no pasó
+            flood(source, envelope, false);
+            return;
+        }
+        PeerConnection next = findPeerConnection(target);
+        if (next == null) {
+            next = nextHop(target);
+        }
+        if (next == null) {
+            String normalized = normalizeServerId(target);
+            next = normalized != null ? routeHints.get(normalized) : null;
+        }
+        if (next != null && next != source && !envelope.hasVisited(next.getRouteIdentifier())) {
+            next.send(envelope);
+            return;
         }
+        // Sin ruta conocida: solo se inunda hacia pares que no anuncian rutas (versiones
+        // anteriores), que pueden conocer el destino
+        if (!flood(source, envelope, true)) {
+            LOGGER.fine(() -> "No se encontró ruta para mensaje " + envelope.getType()
+                + " con destino " + target);
+        }
+    }
 
+    /**
+     * @param onlyLegacy solo a los pares que no participan de la tabla de rutas
+     * @return {@code true} si se envió a algún par
+     */
+    private boolean flood(PeerConnection source, PeerEnvelope envelope, boolean onlyLegacy) {
         boolean forwarded = false;
         for (PeerConnection peer : peers.values()) {
-            if (peer == source) {
-                continue;
-            }
-            if (target != null && peer.matchesIdentity(target)) {
-                peer.send(envelope);
-                forwarded = true;
+            if (peer == source || (onlyLegacy && peer.isRoutingCapable())) {
                 continue;
             }
             String peerRouteId = peer.getRouteIdentifier();
@@ -376,14 +616,83 @@ public class ServerPeerManager {
             peer.send(envelope);
             forwarded = true;
         }
+        return forwarded;
+    }
 
-        if (!forwarded) {
-            LOGGER.fine(() -> "No se encontró ruta para mensaje " + envelope.getType()
-                + " con destino " + target);
+    /**
+     * Vecino por el que sale la mejor ruta de la tabla hacia {@code target}, probando también
+     * las partes de un id {@code servidor@host}.
+     */
+    private PeerConnection nextHop(String target) {
+        Optional<PeerRoutingTable.Ruta> ruta = routingTable.route(target);
+        int separator = target.indexOf('@');
+        if (ruta.isEmpty() && separator > 0) {
+            ruta = routingTable.route(target.substring(0, separator))
+                .or(() -> routingTable.route(target.substring(separator + 1)));
+        }
+        return ruta.map(r -> peers.get(r.nextHop())).orElse(null);
+    }
+
+    /**
+     * Si un mensaje dirigido a {@code target} saldría hoy por algún par (el mismo criterio que
+     * {@link #routeEnvelope}).
+     */
+    private boolean hasRouteTo(String target) {
+        if (findPeerConnection(target) != null || nextHop(target) != null) {
+            return true;
+        }
+        return peers.values().stream().anyMatch(peer -> !peer.isRoutingCapable());
+    }
+
+    /**
+     * Envía a cada vecino que participa de la tabla el vector de distancias que le corresponde.
+     * Se llama cuando cambia la tabla; un par nuevo recibe el suyo con {@link #advertiseRoutes(PeerConnection)}.
+     */
+    private void advertiseRoutes() {
+        ServerMetrics.updateP2PRoutes(routingTable.size());
+        for (PeerConnection peer : peers.values()) {
+            if (peer.isRoutingCapable()) {
+                advertiseRoutes(peer);
+            }
+        }
+    }
+
+    private void advertiseRoutes(PeerConnection peer) {
+        String remoteId = peer.getRemoteServerId();
+        if (remoteId == null) {
+            return;
+        }
+        RouteUpdatePayload payload = new RouteUpdatePayload(routingTable.vectorFor(remoteId));
+        peer.send(new PeerEnvelope(PeerMessageType.ROUTE_UPDATE, serverId, mapper.valueToTree(payload)));
+    }
+
+    private void handleRouteUpdate(PeerConnection connection, PeerEnvelope envelope) throws IOException {
+        String remoteId = connection.getRemoteServerId();
+        if (remoteId == null || peers.get(remoteId) != connection) {
+            return;
+        }
+        connection.markRoutingCapable();
+        RouteUpdatePayload payload = mapper.treeToValue(envelope.getPayload(), RouteUpdatePayload.class);
+        if (payload != null && routingTable.update(remoteId, payload.getDistancias())) {
+            LOGGER.fine(() -> "Rutas P2P actualizadas por " + remoteId + ": " + routingTable.mejores());
+            advertiseRoutes();
+            requestOutboxFlush(null);
         }
     }
 
     private PeerConnection findPeerConnection(String target) {
+        PeerConnection direct = findDirectPeer(target);
+        if (direct != null) {
+            return direct;
+        }
+        String normalized = normalizeServerId(target);
+        return normalized != null ? routeHints.get(normalized) : null;
+    }
+
+    /**
+     * Conexión con el propio {@code target} (por id o alias), sin pasar por otros servidores.
+     */
+    private PeerConnection findDirectPeer(String target) {
         if (target == null) {
             return null;
         }
@@ -399,10 +708,6 @@ public class ServerPeerManager {
         if (alias != null) {
             return alias;
         }
-        PeerConnection hinted = routeHints.get(normalized);
-        if (hinted != null) {
-            return hinted;
-        }
         int separator = target.indexOf('@');
         if (separator > 0) {
             String prefix = target.substring(0, separator);
@@ -560,7 +865,15 @@ public class ServerPeerManager {
         if (payload != null && payload.getInstanceId() != null) {
             connection.setRemoteInstanceId(payload.getInstanceId());
         }
+        if (payload != null) {
+            connection.setRemoteReplicationMarks(payload.getReplicationMarks());
+            connection.setRemoteSnapshotResume(payload.getSnapshotResume());
+        }
         connection.markHelloReceived(announcedId, resolvedId);
+        if (databaseSync != null && payload != null) {
+            // Lo que el par ya aplicó de nuestro log puede podarse
+            databaseSync.recordPeerAck(connection.getRemoteServerId(), remoteReplicationMark(connection));
+        }
     }
 
     private void onHandshakeComplete(PeerConnection connection) {
@@ -576,6 +889,9 @@ public class ServerPeerManager {
         }
         registerPeerAliases(connection);
         registerRouteHint(connection, remoteId);
+        // Antes del estado inicial, para que el snapshot ya pueda viajar en binario
+        connection.offerFraming();
+        connection.offerAckWindow();
         LOGGER.info(() -> String.format(
             "Conexión P2P establecida con servidor %s (%s, %s desde %s)",
             remoteId,
@@ -584,6 +900,15 @@ public class ServerPeerManager {
             connection.remoteSummary()
         ));
         registry.markServerKnown(remoteId);
+        if (routingTable.addNeighbor(remoteId)) {
+            advertiseRoutes();
+        }
+        // Un par de una versión anterior descarta este primer vector y no recibe más
+        if (!connection.isRoutingCapable()) {
+            advertiseRoutes(connection);
+        }
+        retryFailures.remove(backoffKey(remoteId));
+        requestOutboxFlush(connection);
         LOGGER.info(() -> "Sincronizando con servidor " + remoteId);
         JsonNode syncPayload = sendSyncState(connection);
         broadcastRoutingUpdate(connection, syncPayload);
@@ -769,20 +1094,49 @@ public class ServerPeerManager {
         if (connection.getRemoteServerId() == null) {
             return null;
         }
-        JsonNode payload = createSyncStatePayload();
+        // Con marca del par sobre nuestro log solo viaja el delta; sin ella, el estado completo
+        // se transfiere aparte, por páginas, después del SYNC_STATE
+        boolean fullSnapshot = requiresSnapshotTransfer(connection);
+        JsonNode payload = createSyncStatePayload(connection, !fullSnapshot);
         if (payload == null) {
             return null;
         }
         connection.send(new PeerEnvelope(PeerMessageType.SYNC_STATE, serverId, payload));
+        if (fullSnapshot) {
+            startSnapshotTransfer(connection);
+        }
         return payload;
     }
 
-    private JsonNode createSyncStatePayload() {
+    private boolean requiresSnapshotTransfer(PeerConnection connection) {
+        if (databaseSync == null) {
+            return false;
+        }
+        try {
+            return databaseSync.requiresFullSnapshot(remoteReplicationMark(connection));
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Error consultando la marca de replicación del par", e);
+            return false;
+        }
+    }
+
+    private Long remoteReplicationMark(PeerConnection connection) {
+        String logId = databaseSync.getReplicationLogId();
+        return logId != null ? connection.getRemoteReplicationMarks().get(logId) : null;
+    }
+
+    private JsonNode createSyncStatePayload(PeerConnection connection, boolean includeDatabase) {
         SyncStatePayload payload = new SyncStatePayload();
         payload.setServers(registry.snapshotSessionsByServer());
-        if (databaseSync != null) {
+        if (databaseSync != null && includeDatabase) {
             try {
-                payload.setDatabase(databaseSync.captureSnapshot());
+                Long remoteMark = remoteReplicationMark(connection);
+                DatabaseSnapshot snapshot = databaseSync.captureSince(remoteMark);
+                if (remoteMark != null && snapshot.getFromSeq() != null && snapshot.getFromSeq() > 0) {
+                    LOGGER.info(() -> "Sincronización incremental con " + connection.getRemoteServerId() +
+                        " desde seq " + snapshot.getFromSeq() + " hasta " + snapshot.getToSeq());
+                }
+                payload.setDatabase(snapshot);
             } catch (Exception e) {
                 LOGGER.log(Level.WARNING, "Error capturando snapshot de base de datos para sincronización", e);
             }
@@ -799,6 +1153,10 @@ public class ServerPeerManager {
                 continue;
             }
             JsonNode copy = payload.deepCopy();
+            // Los demás pares tienen su propia sincronización: solo se reenvía el enrutamiento
+            if (copy instanceof ObjectNode objectNode) {
+                objectNode.remove("database");
+            }
             peer.send(new PeerEnvelope(PeerMessageType.SYNC_STATE, serverId, copy));
         }
     }
@@ -884,14 +1242,21 @@ public class ServerPeerManager {
                 .orElse(connection.remoteSummary());
         }
         String finalOrigin = origin;
-        String message = rawJson != null ? sanitizePayloadForLogging(rawJson)
-            : sanitizePayloadForLogging(envelope.toString());
+        String message = sanitizePayloadForLogging(rawJson != null ? rawJson : serializeForLogging(envelope));
         LOGGER.info(() -> String.format("Recibido %s desde %s: %s",
             envelope.getType(),
             finalOrigin,
             message));
     }
 
+    private String serializeForLogging(PeerEnvelope envelope) {
+        try {
+            return mapper.writeValueAsString(envelope);
+        } catch (IOException e) {
+            return String.valueOf(envelope.getType());
+        }
+    }
+
     private String sanitizePayloadForLogging(String json) {
         if (json == null || json.isBlank()) {
             return json;
@@ -982,7 +1347,30 @@ public class ServerPeerManager {
 
     private void handleIncoming(PeerConnection connection, String json) {
         try {
-            PeerEnvelope envelope = mapper.readValue(json, PeerEnvelope.class);
+            handleIncoming(connection, mapper.readValue(json, PeerEnvelope.class), json);
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Error procesando mensaje P2P", e);
+        }
+    }
+
+    private void handleIncomingFrame(PeerConnection connection, byte flags, byte[] data) {
+        try {
+            PeerFrameCodec.Decodificada<PeerEnvelope> decoded = PeerFrameCodec.decode(flags, data, PeerEnvelope.class);
+            ServerMetrics.observeP2PFrame(connection.metricsLabel(), "in", decoded.bodyBytes(), data.length,
+                PeerFrameCodec.isCompressed(flags));
+            for (PeerEnvelope envelope : decoded.values()) {
+                handleIncoming(connection, envelope, null);
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Error procesando trama P2P", e);
+        }
+    }
+
+    /**
+     * @param json texto recibido, solo para el log; {@code null} si llegó en binario
+     */
+    private void handleIncoming(PeerConnection connection, PeerEnvelope envelope, String json) {
+        try {
             PeerMessageType type = envelope.getType();
             if (type == null) {
                 return;
@@ -996,6 +1384,10 @@ public class ServerPeerManager {
                 routeEnvelope(connection, envelope);
                 return;
             }
+            if (target != null && !target.isBlank()) {
+                // Llegó a destino: cada servidor que lo reenvió quedó en la ruta
+                ServerMetrics.observeP2PRoute(type.name(), envelope.routeLength());
+            }
             switch (type) {
                 case HELLO -> {
                     HelloPayload payload = mapper.treeToValue(envelope.getPayload(), HelloPayload.class);
@@ -1005,13 +1397,25 @@ public class ServerPeerManager {
                 case CLIENT_CONNECTED -> handleClientConnected(connection, envelope);
                 case CLIENT_DISCONNECTED -> handleClientDisconnected(connection, envelope);
                 case CHANNEL_MEMBERSHIP -> handleChannelMembership(connection, envelope);
-                case DIRECT_MESSAGE -> handleDirectMessage(envelope.getPayload(), envelope.getOrigin());
-                case CHANNEL_MESSAGE -> handleChannelMessage(envelope.getPayload(), envelope.getOrigin());
+                case DIRECT_MESSAGE -> handleDirectMessage(envelope.getPayload(), envelope.getOrigin(), true);
+                case CHANNEL_MESSAGE -> handleChannelMessage(envelope.getPayload(), envelope.getOrigin(), true);
                 case SESSION_MESSAGE -> handleSessionMessage(envelope.getPayload());
                 case BROADCAST -> handleBroadcast(connection, envelope);
                 case DIRECT_MESSAGE_ACK -> handleDirectMessageAck(envelope.getPayload());
                 case CHANNEL_MESSAGE_ACK -> handleChannelMessageAck(envelope.getPayload());
                 case REPLICATION_STATUS -> handleReplicationStatus(envelope.getPayload());
+                case SNAPSHOT_BEGIN -> handleSnapshotBegin(connection, envelope);
+                case SNAPSHOT_CHUNK -> handleSnapshotChunk(connection, envelope);
+                case SNAPSHOT_END -> handleSnapshotEnd(connection, envelope);
+                case SNAPSHOT_ACK -> handleSnapshotAck(connection, envelope);
+                case FRAMING_OFFER -> connection.acceptFraming(
+                    mapper.treeToValue(envelope.getPayload(), FramingPayload.class));
+                case FRAMING_SWITCH -> connection.switchInboundToBinary(
+                    mapper.treeToValue(envelope.getPayload(), FramingPayload.class));
+                case ROUTE_UPDATE -> handleRouteUpdate(connection, envelope);
+                case WINDOW_OFFER -> handleWindowOffer(connection, envelope);
+                case SEQ_MESSAGE -> handleSequencedMessage(connection, envelope);
+                case WINDOW_ACK -> handleWindowAck(connection, envelope);
                 default -> LOGGER.fine(() -> "Mensaje P2P no soportado: " + type);
             }
         } catch (Exception e) {
@@ -1069,6 +1473,107 @@ public class ServerPeerManager {
         }
     }
 
+    private void startSnapshotTransfer(PeerConnection connection) {
+        String logId = databaseSync.getReplicationLogId();
+        SnapshotStreamPayload resume = logId != null ? connection.getRemoteSnapshotResume().get(logId) : null;
+        OutgoingSnapshot transfer = new OutgoingSnapshot(connection, logId, resume);
+        OutgoingSnapshot previous = connection.replaceOutgoingSnapshot(transfer);
+        if (previous != null) {
+            previous.cancel();
+        }
+        Thread thread = new Thread(transfer, "PeerSnapshot-" + connection.getRemoteServerId());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void handleSnapshotBegin(PeerConnection connection, PeerEnvelope envelope) throws IOException {
+        SnapshotStreamPayload begin = mapper.treeToValue(envelope.getPayload(), SnapshotStreamPayload.class);
+        if (begin == null || begin.getTransferId() == null || databaseSync == null) {
+            return;
+        }
+        connection.setIncomingSnapshot(new IncomingSnapshot(begin, databaseSync.beginImport()));
+        LOGGER.info(() -> "Recibiendo snapshot por páginas de " + connection.getRemoteServerId() +
+            (begin.getSection() != null ? " (reanudado en " + begin.getSection() + ")" : ""));
+    }
+
+    private void handleSnapshotChunk(PeerConnection connection, PeerEnvelope envelope) throws IOException {
+        SnapshotStreamPayload chunk = mapper.treeToValue(envelope.getPayload(), SnapshotStreamPayload.class);
+        IncomingSnapshot incoming = connection.getIncomingSnapshot();
+        if (chunk == null || incoming == null || !incoming.transferId.equals(chunk.getTransferId())) {
+            return;
+        }
+        SnapshotStreamPayload ack = incoming.checkpoint(chunk.getSection(), chunk.getLastId(), chunk.getLastRef());
+        try {
+            // Se aplica en el hilo lector: mientras la página se escribe no se leen más, y el
+            // emisor no pasa de su ventana de páginas sin confirmar
+            incoming.changed |= databaseSync.applyPage(incoming.state, chunk.getPage());
+            if (incoming.logId != null) {
+                snapshotResumePoints.put(incoming.logId, ack);
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Error aplicando página " + chunk.getSection() +
+                " del snapshot recibido de " + connection.getRemoteServerId(), e);
+            ack.setAborted(true);
+            connection.setIncomingSnapshot(null);
+        }
+        connection.send(new PeerEnvelope(PeerMessageType.SNAPSHOT_ACK, serverId, mapper.valueToTree(ack)));
+    }
+
+    private void handleSnapshotEnd(PeerConnection connection, PeerEnvelope envelope) throws IOException {
+        SnapshotStreamPayload end = mapper.treeToValue(envelope.getPayload(), SnapshotStreamPayload.class);
+        IncomingSnapshot incoming = connection.getIncomingSnapshot();
+        if (end == null || incoming == null || !incoming.transferId.equals(end.getTransferId())) {
+            return;
+        }
+        connection.setIncomingSnapshot(null);
+        try {
+            databaseSync.completeImport(incoming.logId, incoming.toSeq);
+            if (incoming.logId != null) {
+                snapshotResumePoints.remove(incoming.logId);
+            }
+            LOGGER.info(() -> "Snapshot por páginas de " + connection.getRemoteServerId() + " aplicado" +
+                (incoming.changed ? " con cambios" : " sin cambios"));
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Error cerrando la importación del snapshot recibido", e);
+        }
+    }
+
+    private void handleSnapshotAck(PeerConnection connection, PeerEnvelope envelope) throws IOException {
+        SnapshotStreamPayload ack = mapper.treeToValue(envelope.getPayload(), SnapshotStreamPayload.class);
+        OutgoingSnapshot transfer = connection.getOutgoingSnapshot();
+        if (ack != null && transfer != null) {
+            transfer.onAck(ack);
+        }
+    }
+
+    private static int snapshotPageRows(SnapshotSection section, DatabaseSnapshot page) {
+        List<?> rows = switch (section) {
+            case CLIENTES -> page.getClientes();
+            case CANALES -> page.getCanales();
+            case CANAL_CLIENTES -> page.getCanalMiembros();
+            case MENSAJES -> page.getMensajes();
+            case INVITACIONES -> page.getInvitaciones();
+        };
+        return rows != null ? rows.size() : 0;
+    }
+
+    /**
+     * Clave de la última fila de una página no vacía: {id, 0} o, para membresías, {canal, cliente}.
+     */
+    private static long[] snapshotPageCursor(SnapshotSection section, DatabaseSnapshot page) {
+        return switch (section) {
+            case CLIENTES -> new long[]{page.getClientes().get(page.getClientes().size() - 1).getId(), 0L};
+            case CANALES -> new long[]{page.getCanales().get(page.getCanales().size() - 1).getId(), 0L};
+            case CANAL_CLIENTES -> {
+                DatabaseSnapshot.ChannelMembershipRecord last =
+                    page.getCanalMiembros().get(page.getCanalMiembros().size() - 1);
+                yield new long[]{last.getCanalId(), last.getClienteId()};
+            }
+            case MENSAJES -> new long[]{page.getMensajes().get(page.getMensajes().size() - 1).getId(), 0L};
+            case INVITACIONES -> new long[]{page.getInvitaciones().get(page.getInvitaciones().size() - 1).getId(), 0L};
+        };
+    }
+
     private void handleClientConnected(PeerConnection connection, PeerEnvelope envelope) throws IOException {
         RemoteSessionSnapshot snapshot = mapper.treeToValue(envelope.getPayload(), RemoteSessionSnapshot.class);
         String fallbackId = resolveRemoteServerAlias(connection,
@@ -1122,13 +1627,21 @@ public class ServerPeerManager {
         }
     }
 
-    private void handleDirectMessage(JsonNode payload, String originServerId) throws IOException {
+    /**
+     * @param individualAck responder con {@code DIRECT_MESSAGE_ACK}; los numerados se confirman
+     *                      con {@code WINDOW_ACK}
+     * @return {@code null} si se entregó, o el error
+     */
+    private String handleDirectMessage(JsonNode payload, String originServerId, boolean individualAck) throws IOException {
         DirectMessagePayload message = mapper.treeToValue(payload, DirectMessagePayload.class);
         boolean success = false;
         String error = null;
         
         try {
-            if (message != null && message.getMessage() != null) {
+            if (message != null && wasDelivered(message.getMessageId())) {
+                // Reintento de algo ya entregado (se perdió la confirmación): solo se confirma
+                success = true;
+            } else if (message != null && message.getMessage() != null) {
                 // Resolver el ID local del usuario usando el email (identificador global)
                 Long localUserId = resolveLocalUserId(message.getUserId(), message.getUserEmail());
                 
@@ -1136,7 +1649,9 @@ public class ServerPeerManager {
                     final Long finalLocalUserId = localUserId;
                     LOGGER.info(() -> String.format("📨 Recibido mensaje directo P2P para usuario local %d (email: %s, remoto: %d) desde %s", 
                         finalLocalUserId, message.getUserEmail(), message.getUserId(), originServerId));
+                    storeForwardedAudio(message.getMessage(), message.getAudioContent());
                     registry.deliverToUserLocally(localUserId, message.getMessage());
+                    markDelivered(message.getMessageId());
                     success = true;
                     incrementMetric("messages_received");
                 } else {
@@ -1155,10 +1670,33 @@ public class ServerPeerManager {
         }
         
         // Enviar confirmación
-        sendMessageAck(originServerId, message != null ? message.getMessageId() : null, 
-                      PeerMessageType.DIRECT_MESSAGE_ACK, success, error);
+        if (individualAck) {
+            sendMessageAck(originServerId, message != null ? message.getMessageId() : null,
+                          PeerMessageType.DIRECT_MESSAGE_ACK, success, error);
+        }
+        return success ? null : error;
     }
     
+    private String emailOf(Long userId) {
+        ClienteIdentityCache cache = identityCache;
+        if (cache != null) {
+            return cache.findEmail(userId).orElse(null);
+        }
+        return clienteRepository.findById(userId)
+            .map(cliente -> cliente.getEmail())
+            .orElse(null);
+    }
+
+    private Long localIdByEmail(String email) {
+        ClienteIdentityCache cache = identityCache;
+        if (cache != null) {
+            return cache.findIdByEmail(email).orElse(null);
+        }
+        return clienteRepository.findByEmail(email)
+            .map(cliente -> cliente.getId())
+            .orElse(null);
+    }
+
     /**
      * Resuelve el ID local del usuario usando el email como identificador global.
      * Si el email está disponible, lo usa para buscar el usuario local.
@@ -1168,9 +1706,7 @@ public class ServerPeerManager {
         // Prioridad 1: Buscar por email (identificador global único)
         if (userEmail != null && !userEmail.isBlank()) {
             try {
-                return clienteRepository.findByEmail(userEmail)
-                    .map(cliente -> cliente.getId())
-                    .orElse(null);
+                return localIdByEmail(userEmail);
             } catch (Exception e) {
                 LOGGER.warning(() -> "Error buscando usuario por email " + userEmail + ": " + e.getMessage());
             }
@@ -1181,7 +1717,7 @@ public class ServerPeerManager {
         return remoteUserId;
     }
 
-    private void handleChannelMessage(JsonNode payload, String originServerId) throws IOException {
+    private String handleChannelMessage(JsonNode payload, String originServerId, boolean individualAck) throws IOException {
         ChannelMessagePayload message = mapper.treeToValue(payload, ChannelMessagePayload.class);
         boolean success = false;
         String error = null;
@@ -1190,6 +1726,8 @@ public class ServerPeerManager {
             if (message == null || message.getMessage() == null) {
                 error = "Payload inválido para mensaje de canal";
                 LOGGER.warning(() -> "Payload inválido en mensaje de canal P2P: " + payload);
+            } else if (wasDelivered(message.getMessageId())) {
+                success = true;
             } else {
                 Long localCanalId = resolveChannelId(message.getCanalId(), message.getCanalUuid());
                 if (localCanalId == null) {
@@ -1199,7 +1737,9 @@ public class ServerPeerManager {
                 } else {
                     LOGGER.info(() -> String.format("📨 Recibido mensaje de canal P2P para canal %d desde %s", 
                         localCanalId, originServerId));
+                    storeForwardedAudio(message.getMessage(), message.getAudioContent());
                     registry.deliverToChannelLocally(localCanalId, message.getMessage());
+                    markDelivered(message.getMessageId());
                     success = true;
                     incrementMetric("channel_messages_received");
                 }
@@ -1210,8 +1750,11 @@ public class ServerPeerManager {
         }
         
         // Enviar confirmación
-        sendMessageAck(originServerId, message != null ? message.getMessageId() : null, 
-                      PeerMessageType.CHANNEL_MESSAGE_ACK, success, error);
+        if (individualAck) {
+            sendMessageAck(originServerId, message != null ? message.getMessageId() : null,
+                          PeerMessageType.CHANNEL_MESSAGE_ACK, success, error);
+        }
+        return success ? null : error;
     }
 
     private void handleSessionMessage(JsonNode payload) throws IOException {
@@ -1261,15 +1804,15 @@ public class ServerPeerManager {
         }
         
         // Buscar el usuario local por email
-        var localCliente = clienteRepository.findByEmail(email).orElse(null);
-        if (localCliente == null) {
+        Long localClienteId = localIdByEmail(email);
+        if (localClienteId == null) {
             return messageNode; // No encontrado localmente, devolver sin modificar
         }
         
         // Crear una copia del mensaje con el ID local
         try {
             com.fasterxml.jackson.databind.node.ObjectNode modifiedNode = messageNode.deepCopy();
-            modifiedNode.put("usuarioId", localCliente.getId());
+            modifiedNode.put("usuarioId", localClienteId);
             return modifiedNode;
         } catch (Exception e) {
             LOGGER.log(Level.WARNING, "Error transformando USER_STATUS_CHANGED para broadcast local", e);
@@ -1295,9 +1838,7 @@ public class ServerPeerManager {
             // Primero intentar buscar por email (más confiable entre servidores con diferentes IDs)
             Long localUserId = null;
             if (update.getUsuarioEmail() != null && !update.getUsuarioEmail().isBlank()) {
-                localUserId = clienteRepository.findByEmail(update.getUsuarioEmail())
-                    .map(cliente -> cliente.getId())
-                    .orElse(null);
+                localUserId = localIdByEmail(update.getUsuarioEmail());
             }
             
             // Fallback al ID si no encontramos por email
@@ -1341,6 +1882,7 @@ public class ServerPeerManager {
             ackType, messageId, targetServerId, success ? "SUCCESS" : "ERROR: " + error));
         
         sendToPeer(targetServerId, ackType, ack);
+        ServerMetrics.recordP2PAckSent("individual");
     }
 
     private void handleDirectMessageAck(JsonNode payload) throws IOException {
@@ -1366,57 +1908,210 @@ public class ServerPeerManager {
     }
 
     private void processMessageAck(MessageAck ack, PeerMessageType originalType) {
-        if (ack.getMessageId() == null) {
+        completeMessage(ack.getMessageId(), originalType, ack.isSuccess(), ack.getError());
+    }
+
+    private void completeMessage(String messageId, PeerMessageType originalType, boolean success, String error) {
+        if (messageId == null) {
             return;
         }
         
-        PendingMessage pending = pendingMessages.remove(ack.getMessageId());
+        PendingMessage pending = pendingMessages.remove(messageId);
         if (pending != null) {
-            if (ack.isSuccess()) {
+            outbox.remove(messageId);
+            forgetInWindow(pending);
+            retryFailures.remove(backoffKey(pending.getTargetServerId()));
+            ServerMetrics.recordP2POutbox(success ? "confirmed" : "rejected");
+            if (success) {
                 LOGGER.info(() -> String.format("✅ Confirmación exitosa para mensaje %s (%s)", 
-                    ack.getMessageId(), originalType));
+                    messageId, originalType));
                 incrementMetric("messages_confirmed");
             } else {
                 LOGGER.warning(() -> String.format("❌ Error en mensaje %s (%s): %s", 
-                    ack.getMessageId(), originalType, ack.getError()));
+                    messageId, originalType, error));
                 incrementMetric("messages_failed");
             }
         } else {
             LOGGER.fine(() -> String.format("Confirmación recibida para mensaje desconocido: %s", 
-                ack.getMessageId()));
+                messageId));
         }
     }
 
-    private void incrementMetric(String key) {
-        replicationMetrics.compute(key, (k, v) -> (v == null) ? 1 : v + 1);
+    /**
+     * Saca el mensaje de la ventana de su vecino. Si ya tenía número se envía un relleno con ese
+     * número: el receptor lo confirma aunque nunca hubiera procesado el original.
+     */
+    private void forgetInWindow(PendingMessage pending) {
+        PeerConnection direct = findDirectPeer(pending.getTargetServerId());
+        if (direct == null) {
+            return;
+        }
+        long seq = direct.ackWindow().olvidar(pending.getMessageId());
+        if (seq > 0) {
+            direct.send(new PeerEnvelope(PeerMessageType.SEQ_MESSAGE, serverId,
+                mapper.valueToTree(new SequencedPayload(seq, null, null))));
+        }
     }
 
-    private String generateMessageId() {
-        return serverId + "-" + System.currentTimeMillis() + "-" + UUID.randomUUID().toString().substring(0, 8);
+    private void handleWindowOffer(PeerConnection connection, PeerEnvelope envelope) throws IOException {
+        WindowPayload offer = mapper.treeToValue(envelope.getPayload(), WindowPayload.class);
+        if (offer == null || offer.getVentana() <= 0) {
+            return;
+        }
+        connection.ackWindow().habilitar(offer.getVentana());
+        LOGGER.info(() -> "Confirmaciones acumuladas con " + connection.metricsLabel()
+            + " (ventana de " + offer.getVentana() + " mensajes)");
     }
 
-    public Map<String, Integer> getReplicationMetrics() {
-        return new ConcurrentHashMap<>(replicationMetrics);
+    /**
+     * Mensaje numerado de un vecino: se entrega si es nuevo y se confirma junto con los demás.
+     * Sin {@code tipo} solo ocupa su número.
+     */
+    private void handleSequencedMessage(PeerConnection connection, PeerEnvelope envelope) throws IOException {
+        SequencedPayload message = mapper.treeToValue(envelope.getPayload(), SequencedPayload.class);
+        if (message == null || message.getSeq() <= 0) {
+            return;
+        }
+        PeerAckWindow window = connection.ackWindow();
+        if (!window.esNuevo(message.getSeq())) {
+            window.reconfirmar();
+            scheduleWindowAck(connection);
+            return;
+        }
+        String error = null;
+        try {
+            if (message.getTipo() == PeerMessageType.DIRECT_MESSAGE) {
+                error = handleDirectMessage(message.getPayload(), envelope.getOrigin(), false);
+            } else if (message.getTipo() == PeerMessageType.CHANNEL_MESSAGE) {
+                error = handleChannelMessage(message.getPayload(), envelope.getOrigin(), false);
+            } else if (message.getTipo() != null) {
+                error = "Tipo no soportado en mensaje numerado: " + message.getTipo();
+            }
+        } catch (Exception e) {
+            // Un payload que no se puede decodificar se confirma con error: si no se registrara,
+            // la cuenta acumulada quedaría detenida en este número y con ella la ventana del emisor
+            error = "Payload ilegible en mensaje numerado: " + e.getMessage();
+            LOGGER.log(Level.WARNING, "Error procesando mensaje numerado " + message.getSeq()
+                + " de " + connection.metricsLabel(), e);
+        } finally {
+            if (window.recibido(message.getSeq(), error) >= Math.max(1, ackWindowSize / 2)) {
+                connection.flushWindowAck();
+            } else {
+                scheduleWindowAck(connection);
+            }
+        }
     }
 
-    public List<String> getPendingMessageIds() {
-        return new ArrayList<>(pendingMessages.keySet());
+    private void scheduleWindowAck(PeerConnection connection) {
+        if (!connection.ackWindow().programarAck()) {
+            return;
+        }
+        try {
+            retryExecutor.schedule(connection::flushWindowAck, ackDelayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Servidor detenido
+        }
     }
 
-    // Métodos de diagnóstico
-    public String generateDiagnosticReport() {
-        StringBuilder report = new StringBuilder();
-        report.append("=== REPORTE DE ESTADO P2P ===\n");
-        report.append(String.format("Servidor ID: %s\n", serverId));
-        report.append(String.format("Estado: %s\n", running ? "ACTIVO" : "DETENIDO"));
-        report.append(String.format("Puerto P2P: %d\n", peerPort));
-        report.append("\n--- CONEXIONES ---\n");
-        report.append(String.format("Peers conectados: %d\n", peers.size()));
-        
-        for (String peerId : peers.keySet()) {
-            report.append(String.format("  - %s\n", peerId));
+    private void handleWindowAck(PeerConnection connection, PeerEnvelope envelope) throws IOException {
+        WindowAckPayload ack = mapper.treeToValue(envelope.getPayload(), WindowAckPayload.class);
+        if (ack == null) {
+            return;
         }
-        
+        Map<Long, String> errores = ack.getErrores() != null ? ack.getErrores() : Map.of();
+        for (PeerAckWindow.Confirmado confirmado : connection.ackWindow().confirmar(ack.getAcumulado(), ack.getSelectivos())) {
+            PendingMessage pending = pendingMessages.get(confirmado.messageId());
+            String error = errores.get(confirmado.seq());
+            completeMessage(confirmado.messageId(), pending != null ? pending.getMessageType() : PeerMessageType.SEQ_MESSAGE,
+                error == null, error);
+        }
+        if (connection.ackWindow().enEspera() > 0) {
+            try {
+                retryExecutor.execute(() -> releaseWindow(connection));
+            } catch (RejectedExecutionException e) {
+                // Servidor detenido
+            }
+        }
+    }
+
+    /**
+     * Envía lo que esperaba a que se abriera la ventana. Un número asignado siempre se envía,
+     * aunque el mensaje ya no esté pendiente, para no dejar un hueco en la cuenta del receptor.
+     */
+    private void releaseWindow(PeerConnection connection) {
+        for (PeerAckWindow.Confirmado liberado : connection.ackWindow().liberar()) {
+            PendingMessage pending = pendingMessages.get(liberado.messageId());
+            JsonNode node = null;
+            if (pending != null) {
+                byte[] payload = outbox.payload(liberado.messageId());
+                try {
+                    node = payload != null ? mapper.readTree(payload) : null;
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Payload ilegible en el outbox P2P para " + liberado.messageId(), e);
+                }
+            }
+            SequencedPayload message = node != null
+                ? new SequencedPayload(liberado.seq(), pending.getMessageType(), node)
+                : new SequencedPayload(liberado.seq(), null, null);
+            connection.send(new PeerEnvelope(PeerMessageType.SEQ_MESSAGE, serverId, mapper.valueToTree(message)));
+            if (node != null) {
+                pending.markInFlight();
+                scheduleRetry(pending, backoffMillis(pending.getTargetServerId()));
+            }
+        }
+    }
+
+    private boolean wasDelivered(String messageId) {
+        return messageId != null && deliveredLog.contains(messageId);
+    }
+
+    private void markDelivered(String messageId) {
+        if (messageId != null) {
+            deliveredLog.add(messageId);
+        }
+    }
+
+    private void incrementMetric(String key) {
+        replicationMetrics.compute(key, (k, v) -> (v == null) ? 1 : v + 1);
+    }
+
+    private String generateMessageId() {
+        return serverId + "-" + System.currentTimeMillis() + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    public Map<String, Integer> getReplicationMetrics() {
+        return new ConcurrentHashMap<>(replicationMetrics);
+    }
+
+    public List<String> getPendingMessageIds() {
+        return new ArrayList<>(pendingMessages.keySet());
+    }
+
+    // Métodos de diagnóstico
+    public String generateDiagnosticReport() {
+        StringBuilder report = new StringBuilder();
+        report.append("=== REPORTE DE ESTADO P2P ===\n");
+        report.append(String.format("Servidor ID: %s\n", serverId));
+        report.append(String.format("Estado: %s\n", running ? "ACTIVO" : "DETENIDO"));
+        report.append(String.format("Puerto P2P: %d\n", peerPort));
+        report.append("\n--- CONEXIONES ---\n");
+        report.append(String.format("Peers conectados: %d\n", peers.size()));
+        
+        for (Map.Entry<String, PeerConnection> peer : peers.entrySet()) {
+            PeerAckWindow window = peer.getValue().ackWindow();
+            report.append(window.habilitada()
+                ? String.format("  - %s (en vuelo: %d, en espera: %d)\n", peer.getKey(), window.enVuelo(), window.enEspera())
+                : String.format("  - %s\n", peer.getKey()));
+        }
+
+        report.append("\n--- RUTAS ---\n");
+        Map<String, PeerRoutingTable.Ruta> rutas = routingTable.mejores();
+        if (rutas.isEmpty()) {
+            report.append("Sin rutas\n");
+        }
+        rutas.forEach((destino, ruta) -> report.append(String.format("  - %s vía %s (%d saltos)\n",
+            destino, ruta.nextHop(), ruta.distancia())));
+        
         report.append("\n--- MÉTRICAS DE REPLICACIÓN ---\n");
         Map<String, Integer> metrics = getReplicationMetrics();
         if (metrics.isEmpty()) {
@@ -1429,16 +2124,18 @@ public class ServerPeerManager {
         
         report.append("\n--- MENSAJES PENDIENTES ---\n");
         List<String> pendingIds = getPendingMessageIds();
-        report.append(String.format("Total pendientes: %d\n", pendingIds.size()));
+        report.append(String.format("Total pendientes: %d (outbox %s)\n", pendingIds.size(),
+            outbox.isDurable() ? "en disco" : "en memoria"));
         
         if (!pendingIds.isEmpty()) {
             report.append("IDs de mensajes pendientes:\n");
             for (String messageId : pendingIds) {
                 PendingMessage pending = pendingMessages.get(messageId);
                 if (pending != null) {
-                    long ageMs = System.currentTimeMillis() - pending.getTimestamp();
-                    report.append(String.format("  - %s (edad: %ds, reintentos: %d, destino: %s)\n", 
-                        messageId, ageMs / 1000, pending.getRetryCount(), pending.getTargetServerId()));
+                    long ageMs = System.currentTimeMillis() - pending.getCreatedAt();
+                    report.append(String.format("  - %s (edad: %ds, reintentos: %d, destino: %s%s)\n",
+                        messageId, ageMs / 1000, pending.getRetryCount(), pending.getTargetServerId(),
+                        pending.isWaiting() ? ", sin ruta" : ""));
                 }
             }
         }
@@ -1471,66 +2168,217 @@ public class ServerPeerManager {
         LOGGER.info("📊 Reporte de diagnóstico P2P generado");
     }
 
-    private void startRetrySystem() {
-        if (retryExecutor != null && !retryExecutor.isShutdown()) {
-            // Programar verificación periódica de mensajes pendientes cada 10 segundos
-            retryExecutor.scheduleWithFixedDelay(this::checkPendingMessages, 10, 10, 
-                java.util.concurrent.TimeUnit.SECONDS);
-            LOGGER.info("🔄 Sistema de reintento P2P iniciado");
+    /**
+     * Guarda el mensaje en el outbox y programa la espera de su confirmación.
+     *
+     * @return {@code false} si no se pudo guardar y no debe enviarse
+     */
+    private boolean track(String messageId, String targetServerId, PeerMessageType type, Object message) {
+        byte[] payload;
+        try {
+            payload = mapper.writeValueAsBytes(message);
+            if (!fitsInFrame(message)) {
+                LOGGER.warning(() -> "Mensaje P2P " + messageId + " para " + targetServerId
+                    + " descartado: no cabe en una trama de " + PeerFrameCodec.MAX_FRAME_BYTES + " bytes");
+                ServerMetrics.recordP2POutbox("too_large");
+                return false;
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "No se pudo serializar el mensaje " + messageId + " para el outbox P2P", e);
+            return false;
+        }
+        PeerOutbox.Entrada entrada = outbox.add(messageId, targetServerId, type.name(), payload);
+        PendingMessage pending = new PendingMessage(messageId, targetServerId, type, entrada.createdAt());
+        if (!hasRouteTo(targetServerId)) {
+            pending.markWaiting();
+        }
+        pendingMessages.put(messageId, pending);
+        scheduleRetry(pending, backoffMillis(targetServerId));
+        return true;
+    }
+
+    /**
+     * Si el mensaje, con su sobre, cabe solo en una trama binaria. Un mensaje que no cabe se
+     * reintentaría para siempre: el receptor cierra la conexión al leer la cabecera. Solo se
+     * codifica cuando la cota rápida no alcanza para decidirlo (audios muy grandes).
+     */
+    private boolean fitsInFrame(Object message) throws IOException {
+        JsonNode node = mapper.valueToTree(message);
+        if (PeerFrameCodec.bodyBytesBound(node) + ENVELOPE_OVERHEAD_BYTES <= PeerFrameCodec.MAX_BODY_BYTES) {
+            return true;
+        }
+        return PeerFrameCodec.bodyBytes(node) + ENVELOPE_OVERHEAD_BYTES <= PeerFrameCodec.MAX_BODY_BYTES;
+    }
+
+    /**
+     * Vuelve a programar lo que quedó en el outbox de la ejecución anterior. Los destinos aún no
+     * están conectados: se reenvía al completarse cada conexión.
+     */
+    private void recoverOutbox() {
+        int recuperados = 0;
+        for (PeerOutbox.Entrada entrada : outbox.entries()) {
+            PeerMessageType type;
+            try {
+                type = PeerMessageType.valueOf(entrada.type());
+            } catch (IllegalArgumentException e) {
+                outbox.remove(entrada.messageId());
+                continue;
+            }
+            PendingMessage pending = new PendingMessage(entrada.messageId(), entrada.target(), type, entrada.createdAt());
+            pending.markWaiting();
+            pendingMessages.put(pending.getMessageId(), pending);
+            scheduleRetry(pending, retryBaseMillis);
+            ServerMetrics.recordP2POutbox("recovered");
+            recuperados++;
+        }
+        if (recuperados > 0) {
+            int total = recuperados;
+            LOGGER.info(() -> "🔄 " + total + " mensajes P2P pendientes recuperados del outbox");
+        }
+    }
+
+    /**
+     * Espera antes del próximo reintento hacia el destino: se duplica con cada espera vencida sin
+     * confirmación hasta {@code retryMaxMillis}, y se elige al azar entre la mitad y el total para
+     * que los pendientes de un mismo destino no se reenvíen todos juntos.
+     */
+    private long backoffMillis(String targetServerId) {
+        int fallos = retryFailures.getOrDefault(backoffKey(targetServerId), 0);
+        long delay = Math.min(retryMaxMillis, retryBaseMillis << Math.min(fallos, 20));
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    private String backoffKey(String targetServerId) {
+        String normalized = normalizeServerId(targetServerId);
+        return normalized != null ? normalized : String.valueOf(targetServerId);
+    }
+
+    private void scheduleRetry(PendingMessage pending, long delayMillis) {
+        long deadline = pending.nextDeadline();
+        try {
+            retryExecutor.schedule(() -> onRetryDue(pending.getMessageId(), deadline),
+                delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Servidor detenido: el mensaje sigue en el outbox
+        }
+    }
+
+    /**
+     * Reenvía ya, en el hilo de reintentos, los pendientes que esperaban a que su destino fuera
+     * alcanzable y los que iban por {@code reconnected} (se perdieron con la conexión anterior).
+     */
+    private void requestOutboxFlush(PeerConnection reconnected) {
+        if (pendingMessages.isEmpty()) {
+            return;
+        }
+        try {
+            retryExecutor.execute(() -> flushOutbox(reconnected));
+        } catch (RejectedExecutionException e) {
+            // Servidor detenido
         }
     }
 
-    private void checkPendingMessages() {
+    private void flushOutbox(PeerConnection reconnected) {
         if (!running) {
             return;
         }
-        
-        List<String> expiredMessageIds = new ArrayList<>();
-        List<PendingMessage> toRetry = new ArrayList<>();
-        
-        // Identificar mensajes expirados y que necesitan reintento
-        for (Map.Entry<String, PendingMessage> entry : pendingMessages.entrySet()) {
-            PendingMessage pending = entry.getValue();
-            
-            if (pending.isExpired(MESSAGE_TIMEOUT_MS)) {
-                if (pending.getRetryCount() >= MAX_RETRIES) {
-                    // Mensaje falló definitivamente
-                    expiredMessageIds.add(entry.getKey());
-                    LOGGER.warning(() -> String.format("❌ Mensaje %s falló después de %d reintentos", 
-                        pending.getMessageId(), pending.getRetryCount()));
-                    incrementMetric("messages_failed_permanent");
-                } else {
-                    // Reintentar mensaje
-                    toRetry.add(pending);
-                }
+        int reenviados = 0;
+        for (PendingMessage pending : pendingMessages.values()) {
+            String target = pending.getTargetServerId();
+            boolean porReconectado = reconnected != null && findPeerConnection(target) == reconnected;
+            if ((pending.isWaiting() || porReconectado) && hasRouteTo(target)) {
+                resend(pending);
+                reenviados++;
             }
         }
-        
-        // Limpiar mensajes que fallaron definitivamente
-        expiredMessageIds.forEach(pendingMessages::remove);
-        
-        // Reintentar mensajes
-        for (PendingMessage pending : toRetry) {
-            retryMessage(pending);
+        if (reenviados > 0) {
+            int total = reenviados;
+            LOGGER.info(() -> "🔄 Reenviados " + total + " mensajes P2P pendientes al recuperar la ruta");
         }
-        
-        // Log de estado periódico
-        if (!pendingMessages.isEmpty()) {
-            LOGGER.info(() -> String.format("📊 Mensajes P2P pendientes: %d, reintentando: %d, fallaron: %d", 
-                pendingMessages.size(), toRetry.size(), expiredMessageIds.size()));
+    }
+
+    /**
+     * Vence la espera de un pendiente. El aviso es obsoleto si el mensaje ya se confirmó o si
+     * después se programó otra espera.
+     */
+    private void onRetryDue(String messageId, long deadline) {
+        if (!running) {
+            return;
+        }
+        PendingMessage pending = pendingMessages.get(messageId);
+        if (pending == null || pending.getDeadline() != deadline) {
+            return;
+        }
+        String target = pending.getTargetServerId();
+        if (!pending.isWaiting()) {
+            retryFailures.merge(backoffKey(target), 1, Integer::sum);
+        }
+        if (!hasRouteTo(target)) {
+            if (System.currentTimeMillis() - pending.getCreatedAt() > outboxMaxAgeMillis) {
+                discard(pending, "expired");
+                return;
+            }
+            // Al reconectar se reenvía antes; esto solo vigila la antigüedad
+            pending.markWaiting();
+            scheduleRetry(pending, retryMaxMillis);
+            return;
+        }
+        if (pending.getRetryCount() >= maxRetries) {
+            discard(pending, "failed");
+            return;
         }
+        resend(pending);
     }
 
-    private void retryMessage(PendingMessage pending) {
-        pending.incrementRetryCount();
-        pending.updateTimestamp(); // Actualizar timestamp para nuevo timeout
-        
-        LOGGER.info(() -> String.format("🔄 Reintentando mensaje %s (intento %d/%d) a servidor %s", 
-            pending.getMessageId(), pending.getRetryCount(), MAX_RETRIES, pending.getTargetServerId()));
-        
-        // Reenviar mensaje
-        sendToPeer(pending.getTargetServerId(), pending.getMessageType(), pending.getPayload());
+    private void resend(PendingMessage pending) {
+        byte[] payload = outbox.payload(pending.getMessageId());
+        JsonNode node = null;
+        try {
+            node = payload != null ? mapper.readTree(payload) : null;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Payload ilegible en el outbox P2P para " + pending.getMessageId(), e);
+        }
+        if (node == null) {
+            discard(pending, "failed");
+            return;
+        }
+        if (!dispatch(pending.getMessageId(), pending.getTargetServerId(), pending.getMessageType(), node)) {
+            // Ventana del vecino llena: sale al llegar sus confirmaciones, sin gastar reintentos
+            scheduleRetry(pending, retryMaxMillis);
+            return;
+        }
+        pending.markSent();
+
+        LOGGER.info(() -> String.format("🔄 Reintentando mensaje %s (intento %d/%d) a servidor %s",
+            pending.getMessageId(), pending.getRetryCount(), maxRetries, pending.getTargetServerId()));
+
         incrementMetric("messages_retried");
+        ServerMetrics.recordP2POutbox("retried");
+        scheduleRetry(pending, backoffMillis(pending.getTargetServerId()));
+    }
+
+    private void discard(PendingMessage pending, String reason) {
+        pendingMessages.remove(pending.getMessageId());
+        outbox.remove(pending.getMessageId());
+        forgetInWindow(pending);
+        if ("expired".equals(reason)) {
+            LOGGER.warning(() -> String.format("❌ Mensaje %s descartado: sin ruta a %s durante %d min",
+                pending.getMessageId(), pending.getTargetServerId(), TimeUnit.MILLISECONDS.toMinutes(outboxMaxAgeMillis)));
+            incrementMetric("messages_expired");
+        } else {
+            LOGGER.warning(() -> String.format("❌ Mensaje %s falló después de %d reintentos",
+                pending.getMessageId(), pending.getRetryCount()));
+            incrementMetric("messages_failed_permanent");
+        }
+        ServerMetrics.recordP2POutbox(reason);
+    }
+
+    private static void closeOutbox(Closeable outbox) {
+        try {
+            outbox.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Error cerrando el outbox P2P", e);
+        }
     }
 
     private JsonNode wrapBroadcastPayload(Object payload) {
@@ -1570,6 +2418,10 @@ public class ServerPeerManager {
     }
 
     private Long resolveChannelId(Long canalId, String canalUuid) {
+        CanalCatalog catalog = channelCatalog;
+        if (catalog != null) {
+            return catalog.resolveId(canalId, canalUuid);
+        }
         if (canalRepository == null) {
             return canalId;
         }
@@ -1595,6 +2447,10 @@ public class ServerPeerManager {
     }
 
     private String resolveChannelUuid(Long canalId) {
+        CanalCatalog catalog = channelCatalog;
+        if (catalog != null) {
+            return catalog.resolveUuid(canalId);
+        }
         if (canalRepository == null || canalId == null) {
             return null;
         }
@@ -1621,6 +2477,10 @@ public class ServerPeerManager {
             boolean removed = peers.remove(remoteId, connection);
             unregisterPeerAliases(connection);
             unregisterRouteHints(connection);
+            // Si la conexión fue reemplazada por otra al mismo servidor, sus rutas siguen valiendo
+            if (removed && routingTable.removeNeighbor(remoteId)) {
+                advertiseRoutes();
+            }
             List<RemoteSessionSnapshot> drained = registry.drainRemoteSessions(remoteId);
             registry.forgetRemoteServer(remoteId);
             if (!drained.isEmpty()) {
@@ -1656,9 +2516,7 @@ public class ServerPeerManager {
             Long localUserId = null;
             String email = snapshot.getEmail();
             if (email != null && !email.isBlank()) {
-                localUserId = clienteRepository.findByEmail(email)
-                    .map(cliente -> cliente.getId())
-                    .orElse(null);
+                localUserId = localIdByEmail(email);
             }
             
             if (localUserId == null) {
@@ -1850,39 +2708,51 @@ public class ServerPeerManager {
     private final class PeerConnection {
         private final Socket socket;
         private final boolean initiator;
-        private BufferedReader reader;
-        private BufferedWriter writer;
-        private final ExecutorService outboundExecutor;
+        private InputStream input;
+        private OutputStream output;
+        // Sobres pendientes; solo los consume el hilo escritor
+        private final LinkedBlockingQueue<PeerEnvelope> outbound = new LinkedBlockingQueue<>();
+        private final Thread writerThread;
         private volatile String remoteServerId;
         private volatile String announcedServerId;
         private volatile boolean helloSent;
         private volatile boolean helloReceived;
         private volatile String remoteInstanceId;
+        private volatile Map<String, Long> remoteReplicationMarks = Map.of();
+        private volatile Map<String, SnapshotStreamPayload> remoteSnapshotResume = Map.of();
+        private volatile OutgoingSnapshot outgoingSnapshot;
+        private volatile IncomingSnapshot incomingSnapshot;
         private final AtomicBoolean closed = new AtomicBoolean();
+        private final AtomicBoolean framingOffered = new AtomicBoolean();
+        private final AtomicBoolean windowOffered = new AtomicBoolean();
+        // Números y confirmaciones de los mensajes reenviados por esta conexión
+        private final PeerAckWindow ackWindow = new PeerAckWindow(ackWindowSize);
+        // El peer anuncia su vector de distancias; si no, es de una versión anterior
+        private volatile boolean routingCapable;
+        // Lo que llega después del FRAMING_SWITCH del peer son tramas binarias; solo lo cambia el lector
+        private volatile boolean binaryIn;
+        // Formato de salida; solo lo toca el hilo escritor
+        private boolean binaryOut;
+        private int outCompressionThreshold;
 
         private PeerConnection(Socket socket, boolean initiator) {
             this.socket = socket;
             this.initiator = initiator;
-            this.outboundExecutor = Executors.newSingleThreadExecutor(r -> {
-                Thread thread = new Thread(r,
-                    "PeerConnection-Writer-" + socket.getRemoteSocketAddress());
-                thread.setDaemon(true);
-                return thread;
-            });
+            this.writerThread = new Thread(this::writeLoop,
+                "PeerConnection-Writer-" + socket.getRemoteSocketAddress());
+            this.writerThread.setDaemon(true);
         }
 
         private void start() {
             Thread thread = new Thread(() -> {
                 try {
-                    reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
-                    writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+                    input = new BufferedInputStream(socket.getInputStream());
+                    output = new BufferedOutputStream(socket.getOutputStream());
+                    writerThread.start();
                     if (initiator) {
                         sendHello();
                     }
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        handleIncoming(this, line);
-                    }
+                    readLoop();
                 } catch (IOException e) {
                     if (running) {
                         LOGGER.log(Level.FINE, "Conexión P2P cerrada: " + e.getMessage(), e);
@@ -1895,42 +2765,264 @@ public class ServerPeerManager {
             thread.start();
         }
 
+        /**
+         * Lee líneas JSON hasta el {@code FRAMING_SWITCH} del peer y tramas binarias desde ahí. El
+         * cambio se procesa en este hilo, así que ocurre justo en el límite entre ambos formatos.
+         */
+        private void readLoop() throws IOException {
+            ByteArrayOutputStream line = new ByteArrayOutputStream(1024);
+            byte[] header = new byte[PeerFrameCodec.HEADER_BYTES];
+            while (true) {
+                if (binaryIn) {
+                    if (!readFully(header, true)) {
+                        return;
+                    }
+                    byte[] data = new byte[PeerFrameCodec.frameLength(header) - 1];
+                    readFully(data, false);
+                    ServerMetrics.recordP2PBytes(metricsLabel(), "in", PeerFrameCodec.FORMATO, header.length + data.length);
+                    handleIncomingFrame(this, header[4], data);
+                    continue;
+                }
+                line.reset();
+                int b;
+                while ((b = input.read()) != -1 && b != '\n') {
+                    line.write(b);
+                }
+                if (b == -1 && line.size() == 0) {
+                    return;
+                }
+                ServerMetrics.recordP2PBytes(metricsLabel(), "in", "json", line.size() + 1L);
+                if (line.size() > 0) {
+                    handleIncoming(this, line.toString(StandardCharsets.UTF_8));
+                }
+                if (b == -1) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * @return {@code false} si el peer cerró antes del primer byte y {@code eofAllowed}
+         */
+        private boolean readFully(byte[] buffer, boolean eofAllowed) throws IOException {
+            int read = 0;
+            while (read < buffer.length) {
+                int n = input.read(buffer, read, buffer.length - read);
+                if (n == -1) {
+                    if (read == 0 && eofAllowed) {
+                        return false;
+                    }
+                    throw new EOFException("Trama P2P incompleta");
+                }
+                read += n;
+            }
+            return true;
+        }
+
+        /**
+         * Anuncia, una vez por conexión, que este servidor puede leer tramas binarias. Un peer
+         * antiguo no conoce el tipo y lo descarta, y la conexión sigue en JSON.
+         */
+        private void offerFraming() {
+            if (!binaryFraming || !framingOffered.compareAndSet(false, true)) {
+                return;
+            }
+            String compresion = compressionThreshold > 0 ? PeerFrameCodec.COMPRESION : null;
+            send(new PeerEnvelope(PeerMessageType.FRAMING_OFFER, serverId,
+                mapper.valueToTree(new FramingPayload(PeerFrameCodec.FORMATO, compresion))));
+        }
+
+        /**
+         * El peer puede leer binario: se le avisa con un último mensaje JSON y lo que se encole
+         * después sale en tramas binarias.
+         */
+        private void acceptFraming(FramingPayload offer) {
+            if (!binaryFraming || offer == null || !PeerFrameCodec.FORMATO.equals(offer.getFormato())) {
+                return;
+            }
+            int threshold = PeerFrameCodec.COMPRESION.equals(offer.getCompresion()) ? compressionThreshold : 0;
+            FramingPayload accepted = new FramingPayload(PeerFrameCodec.FORMATO,
+                threshold > 0 ? PeerFrameCodec.COMPRESION : null);
+            // El escritor cambia de formato al escribirlo (ver writeBatch)
+            send(new PeerEnvelope(PeerMessageType.FRAMING_SWITCH, serverId, mapper.valueToTree(accepted)));
+        }
+
+        private void switchInboundToBinary(FramingPayload payload) {
+            if (payload == null || !PeerFrameCodec.FORMATO.equals(payload.getFormato())) {
+                LOGGER.warning(() -> "Formato P2P no soportado anunciado por " + remoteSummary());
+                return;
+            }
+            binaryIn = true;
+        }
+
+        /**
+         * Anuncia, una vez por conexión, cuántos mensajes numerados acepta este servidor sin
+         * confirmar. Un peer antiguo descarta el tipo y sigue con confirmaciones individuales.
+         */
+        private void offerAckWindow() {
+            if (windowOffered.compareAndSet(false, true)) {
+                send(new PeerEnvelope(PeerMessageType.WINDOW_OFFER, serverId,
+                    mapper.valueToTree(new WindowPayload(ackWindowSize))));
+            }
+        }
+
+        private PeerAckWindow ackWindow() {
+            return ackWindow;
+        }
+
+        private void flushWindowAck() {
+            PeerEnvelope ack = takeWindowAck();
+            if (ack != null) {
+                send(ack);
+            }
+        }
+
+        /**
+         * Confirmación de lo recibido desde la última, o {@code null} si no hay nada pendiente.
+         */
+        private PeerEnvelope takeWindowAck() {
+            PeerAckWindow.Ack ack = ackWindow.tomarAck();
+            if (ack == null) {
+                return null;
+            }
+            ServerMetrics.recordP2PAckSent("window");
+            return new PeerEnvelope(PeerMessageType.WINDOW_ACK, serverId,
+                mapper.valueToTree(new WindowAckPayload(ack.acumulado(), ack.selectivos(), ack.errores())));
+        }
+
+        private void markRoutingCapable() {
+            routingCapable = true;
+        }
+
+        private boolean isRoutingCapable() {
+            return routingCapable;
+        }
+
+        private String metricsLabel() {
+            return remoteServerId != null ? remoteServerId : "unknown";
+        }
+
         private void send(PeerEnvelope envelope) {
             if (envelope == null) {
                 return;
             }
-            try {
-                outboundExecutor.execute(() -> doSend(envelope));
-            } catch (RejectedExecutionException ex) {
-                LOGGER.log(Level.FINE, "No se pudo encolar mensaje para peer (conexión cerrada)", ex);
+            if (closed.get()) {
+                LOGGER.fine("No se pudo encolar mensaje para peer (conexión cerrada)");
+                return;
             }
+            outbound.add(envelope);
         }
 
-        private void doSend(PeerEnvelope envelope) {
+        /**
+         * Toma el primer sobre pendiente, completa el lote hasta {@code batchMaxEnvelopes} o hasta
+         * que venza la espera y lo escribe con un solo flush.
+         */
+        private void writeLoop() {
+            List<PeerEnvelope> batch = new ArrayList<>();
             try {
-                if (writer == null) {
-                    return;
-                }
-                String serialized = mapper.writeValueAsString(envelope);
-                logOutgoingPayload(envelope, serialized);
-                synchronized (writer) {
-                    writer.write(serialized);
-                    writer.write('\n');
-                    writer.flush();
+                while (!closed.get()) {
+                    int maxEnvelopes = batchMaxEnvelopes;
+                    batch.add(outbound.take());
+                    long deadline = System.nanoTime() + batchLingerNanos;
+                    while (batch.size() < maxEnvelopes) {
+                        outbound.drainTo(batch, maxEnvelopes - batch.size());
+                        long remaining = deadline - System.nanoTime();
+                        if (batch.size() >= maxEnvelopes || remaining <= 0) {
+                            break;
+                        }
+                        PeerEnvelope next = outbound.poll(remaining, TimeUnit.NANOSECONDS);
+                        if (next == null) {
+                            break;
+                        }
+                        batch.add(next);
+                    }
+                    // La confirmación pendiente viaja en la misma escritura que el tráfico saliente
+                    PeerEnvelope ack = takeWindowAck();
+                    if (ack != null) {
+                        batch.add(ack);
+                    }
+                    writeBatch(batch);
+                    batch.clear();
                 }
+            } catch (InterruptedException e) {
+                // Cierre de la conexión: lo pendiente se descarta como antes
+                Thread.currentThread().interrupt();
             } catch (IOException e) {
                 LOGGER.log(Level.WARNING, "Error enviando mensaje P2P", e);
                 closeWithNotification();
             }
         }
 
+        private void writeBatch(List<PeerEnvelope> batch) throws IOException {
+            int from = 0;
+            for (int i = 0; i < batch.size(); i++) {
+                PeerEnvelope envelope = batch.get(i);
+                if (envelope.getType() != PeerMessageType.FRAMING_SWITCH) {
+                    continue;
+                }
+                // Lo anterior sale en el formato vigente y el aviso siempre en JSON
+                writeEnvelopes(batch.subList(from, i));
+                from = i + 1;
+                if (!binaryOut) {
+                    writeEnvelopes(List.of(envelope));
+                    switchOutboundToBinary(envelope);
+                }
+            }
+            writeEnvelopes(batch.subList(from, batch.size()));
+            output.flush();
+            ServerMetrics.observeP2PFlush(batch.size());
+        }
+
+        /**
+         * Escribe sin flush; en binario los sobres van juntos en tramas de hasta
+         * {@link PeerFrameCodec#MAX_FRAME_BYTES}.
+         */
+        private void writeEnvelopes(List<PeerEnvelope> envelopes) throws IOException {
+            if (envelopes.isEmpty()) {
+                return;
+            }
+            if (binaryOut) {
+                envelopes.forEach(envelope -> logOutgoingPayload(envelope, null));
+                List<PeerFrameCodec.Trama> tramas = PeerFrameCodec.encodeBatches(envelopes, outCompressionThreshold,
+                    envelope -> LOGGER.warning(() -> "Mensaje P2P " + envelope.getType() + " para " + metricsLabel()
+                        + " descartado: no cabe en una trama de " + PeerFrameCodec.MAX_FRAME_BYTES + " bytes"));
+                for (PeerFrameCodec.Trama trama : tramas) {
+                    output.write(trama.frame());
+                    ServerMetrics.observeP2PFrame(metricsLabel(), "out", trama.bodyBytes(),
+                        trama.frame().length - PeerFrameCodec.HEADER_BYTES, trama.comprimida());
+                    ServerMetrics.recordP2PBytes(metricsLabel(), "out", PeerFrameCodec.FORMATO, trama.frame().length);
+                }
+                return;
+            }
+            long bytes = 0;
+            for (PeerEnvelope envelope : envelopes) {
+                String serialized = mapper.writeValueAsString(envelope);
+                logOutgoingPayload(envelope, serialized);
+                byte[] line = (serialized + '\n').getBytes(StandardCharsets.UTF_8);
+                output.write(line);
+                bytes += line.length;
+            }
+            ServerMetrics.recordP2PBytes(metricsLabel(), "out", "json", bytes);
+        }
+
+        private void switchOutboundToBinary(PeerEnvelope switchEnvelope) {
+            JsonNode compresion = switchEnvelope.getPayload() != null ? switchEnvelope.getPayload().get("compresion") : null;
+            int threshold = compresion != null && PeerFrameCodec.COMPRESION.equals(compresion.asText())
+                ? compressionThreshold : 0;
+            binaryOut = true;
+            outCompressionThreshold = threshold;
+            LOGGER.info(() -> "Enlace P2P con " + metricsLabel() + " en " + PeerFrameCodec.FORMATO
+                + (threshold > 0 ? " con " + PeerFrameCodec.COMPRESION + " desde " + threshold + " bytes" : ""));
+        }
+
         private void sendHello() {
             if (helloSent) {
                 return;
             }
             helloSent = true;
+            Map<String, Long> marks = databaseSync != null ? databaseSync.loadReplicationMarks() : Map.of();
             send(new PeerEnvelope(PeerMessageType.HELLO, serverId,
-                mapper.valueToTree(new HelloPayload(serverId, instanceId))));
+                mapper.valueToTree(new HelloPayload(serverId, instanceId, marks, Map.copyOf(snapshotResumePoints)))));
             if (helloReceived) {
                 onHandshakeComplete(this);
             }
@@ -1962,21 +3054,60 @@ public class ServerPeerManager {
             }
         }
 
+        private void setRemoteReplicationMarks(Map<String, Long> marks) {
+            this.remoteReplicationMarks = marks != null ? Map.copyOf(marks) : Map.of();
+        }
+
+        private Map<String, Long> getRemoteReplicationMarks() {
+            return remoteReplicationMarks;
+        }
+
+        private void setRemoteSnapshotResume(Map<String, SnapshotStreamPayload> resume) {
+            this.remoteSnapshotResume = resume != null ? Map.copyOf(resume) : Map.of();
+        }
+
+        private Map<String, SnapshotStreamPayload> getRemoteSnapshotResume() {
+            return remoteSnapshotResume;
+        }
+
+        private OutgoingSnapshot replaceOutgoingSnapshot(OutgoingSnapshot transfer) {
+            OutgoingSnapshot previous = outgoingSnapshot;
+            outgoingSnapshot = transfer;
+            return previous;
+        }
+
+        private OutgoingSnapshot getOutgoingSnapshot() {
+            return outgoingSnapshot;
+        }
+
+        private void setIncomingSnapshot(IncomingSnapshot incoming) {
+            this.incomingSnapshot = incoming;
+        }
+
+        private IncomingSnapshot getIncomingSnapshot() {
+            return incomingSnapshot;
+        }
+
+        private boolean isClosed() {
+            return closed.get();
+        }
+
         private String getRouteIdentifier() {
             return remoteInstanceId != null ? remoteInstanceId : remoteServerId;
         }
 
         private void closeSilently() {
-            outboundExecutor.shutdownNow();
+            writerThread.interrupt();
+            outbound.clear();
             try {
-                if (writer != null) {
-                    writer.close();
+                if (output != null) {
+                    output.close();
                 }
             } catch (IOException ignored) {
             }
             try {
-                if (reader != null) {
-                    reader.close();
+                if (input != null) {
+                    input.close();
                 }
             } catch (IOException ignored) {
             }
@@ -2033,7 +3164,7 @@ public class ServerPeerManager {
                 }
             }
             String finalDestination = destinationLabel;
-            String sanitized = sanitizePayloadForLogging(serialized);
+            String sanitized = sanitizePayloadForLogging(serialized != null ? serialized : serializeForLogging(envelope));
             LOGGER.info(() -> String.format("Enviando %s a %s: %s",
                 envelope.getType(),
                 finalDestination,
@@ -2103,28 +3234,6 @@ public class ServerPeerManager {
             }
             return "peer";
         }
-
-        private boolean matchesIdentity(String candidate) {
-            if (candidate == null) {
-                return false;
-            }
-            String normalized = normalizeServerId(candidate);
-            if (normalized == null) {
-                return false;
-            }
-            if (matchesNormalized(normalized, remoteServerId)) {
-                return true;
-            }
-            if (matchesNormalized(normalized, announcedServerId)) {
-                return true;
-            }
-            return matchesNormalized(normalized, remoteInstanceId);
-        }
-
-        private boolean matchesNormalized(String normalizedCandidate, String identifier) {
-            String normalizedIdentifier = normalizeServerId(identifier);
-            return normalizedIdentifier != null && normalizedIdentifier.equals(normalizedCandidate);
-        }
     }
 
     private enum PeerMessageType {
@@ -2139,7 +3248,17 @@ public class ServerPeerManager {
         BROADCAST,
         DIRECT_MESSAGE_ACK,
         CHANNEL_MESSAGE_ACK,
-        REPLICATION_STATUS
+        REPLICATION_STATUS,
+        SNAPSHOT_BEGIN,
+        SNAPSHOT_CHUNK,
+        SNAPSHOT_END,
+        SNAPSHOT_ACK,
+        FRAMING_OFFER,
+        FRAMING_SWITCH,
+        ROUTE_UPDATE,
+        WINDOW_OFFER,
+        SEQ_MESSAGE,
+        WINDOW_ACK
     }
 
     private static final class PeerEnvelope {
@@ -2217,6 +3336,10 @@ public class ServerPeerManager {
             return true;
         }
 
+        private synchronized int routeLength() {
+            return route != null ? route.size() : 0;
+        }
+
         private synchronized boolean hasVisited(String serverId) {
             if (serverId == null || serverId.isBlank() || route == null) {
                 return false;
@@ -2228,13 +3351,20 @@ public class ServerPeerManager {
     private static final class HelloPayload {
         private String serverId;
         private String instanceId;
+        // Última secuencia aplicada de cada log de replicación remoto (por logId)
+        private Map<String, Long> replicationMarks;
+        // Snapshots por páginas recibidos a medias: dónde retomar cada uno (por logId)
+        private Map<String, SnapshotStreamPayload> snapshotResume;
 
         private HelloPayload() {
         }
 
-        private HelloPayload(String serverId, String instanceId) {
+        private HelloPayload(String serverId, String instanceId, Map<String, Long> replicationMarks,
+                             Map<String, SnapshotStreamPayload> snapshotResume) {
             this.serverId = serverId;
             this.instanceId = instanceId;
+            this.replicationMarks = replicationMarks;
+            this.snapshotResume = snapshotResume;
         }
 
         public String getServerId() {
@@ -2252,6 +3382,418 @@ public class ServerPeerManager {
         public void setInstanceId(String instanceId) {
             this.instanceId = instanceId;
         }
+
+        public Map<String, Long> getReplicationMarks() {
+            return replicationMarks;
+        }
+
+        public void setReplicationMarks(Map<String, Long> replicationMarks) {
+            this.replicationMarks = replicationMarks;
+        }
+
+        public Map<String, SnapshotStreamPayload> getSnapshotResume() {
+            return snapshotResume;
+        }
+
+        public void setSnapshotResume(Map<String, SnapshotStreamPayload> snapshotResume) {
+            this.snapshotResume = snapshotResume;
+        }
+    }
+
+    /**
+     * Formato del enlace: en {@code FRAMING_OFFER}, lo que el emisor sabe leer; en
+     * {@code FRAMING_SWITCH}, lo que usa a partir de la siguiente trama. Va aparte del
+     * {@code HELLO} porque los servidores antiguos rechazan campos desconocidos en él.
+     */
+    private static final class FramingPayload {
+        private String formato;
+        // "deflate" o null si no se comprime
+        private String compresion;
+
+        private FramingPayload() {
+        }
+
+        private FramingPayload(String formato, String compresion) {
+            this.formato = formato;
+            this.compresion = compresion;
+        }
+
+        public String getFormato() {
+            return formato;
+        }
+
+        public void setFormato(String formato) {
+            this.formato = formato;
+        }
+
+        public String getCompresion() {
+            return compresion;
+        }
+
+        public void setCompresion(String compresion) {
+            this.compresion = compresion;
+        }
+    }
+
+    /**
+     * Vector de distancias de un servidor: a cuántos saltos tiene a cada servidor (por id
+     * normalizado). {@link PeerRoutingTable#INALCANZABLE} marca una ruta que ya no sirve.
+     */
+    private static final class RouteUpdatePayload {
+        private Map<String, Integer> distancias;
+
+        private RouteUpdatePayload() {
+        }
+
+        private RouteUpdatePayload(Map<String, Integer> distancias) {
+            this.distancias = distancias;
+        }
+
+        public Map<String, Integer> getDistancias() {
+            return distancias;
+        }
+
+        public void setDistancias(Map<String, Integer> distancias) {
+            this.distancias = distancias;
+        }
+    }
+
+    /**
+     * Mensajes numerados que el emisor acepta sin confirmar ({@code WINDOW_OFFER}).
+     */
+    private static final class WindowPayload {
+        private int ventana;
+
+        private WindowPayload() {
+        }
+
+        private WindowPayload(int ventana) {
+            this.ventana = ventana;
+        }
+
+        public int getVentana() {
+            return ventana;
+        }
+
+        public void setVentana(int ventana) {
+            this.ventana = ventana;
+        }
+    }
+
+    /**
+     * {@code DIRECT_MESSAGE} o {@code CHANNEL_MESSAGE} numerado por la conexión; sin
+     * {@code tipo} ni {@code payload} solo ocupa el número de un mensaje que ya no estaba pendiente.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private static final class SequencedPayload {
+        private long seq;
+        private PeerMessageType tipo;
+        private JsonNode payload;
+
+        private SequencedPayload() {
+        }
+
+        private SequencedPayload(long seq, PeerMessageType tipo, JsonNode payload) {
+            this.seq = seq;
+            this.tipo = tipo;
+            this.payload = payload;
+        }
+
+        public long getSeq() {
+            return seq;
+        }
+
+        public void setSeq(long seq) {
+            this.seq = seq;
+        }
+
+        public PeerMessageType getTipo() {
+            return tipo;
+        }
+
+        public void setTipo(PeerMessageType tipo) {
+            this.tipo = tipo;
+        }
+
+        public JsonNode getPayload() {
+            return payload;
+        }
+
+        public void setPayload(JsonNode payload) {
+            this.payload = payload;
+        }
+    }
+
+    /**
+     * Todo lo recibido hasta {@code acumulado}, lo recibido por encima ({@code selectivos}) y los
+     * números que no se pudieron entregar con su error.
+     */
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private static final class WindowAckPayload {
+        private long acumulado;
+        private List<Long> selectivos;
+        private Map<Long, String> errores;
+
+        private WindowAckPayload() {
+        }
+
+        private WindowAckPayload(long acumulado, List<Long> selectivos, Map<Long, String> errores) {
+            this.acumulado = acumulado;
+            this.selectivos = selectivos;
+            this.errores = errores;
+        }
+
+        public long getAcumulado() {
+            return acumulado;
+        }
+
+        public void setAcumulado(long acumulado) {
+            this.acumulado = acumulado;
+        }
+
+        public List<Long> getSelectivos() {
+            return selectivos;
+        }
+
+        public void setSelectivos(List<Long> selectivos) {
+            this.selectivos = selectivos;
+        }
+
+        public Map<Long, String> getErrores() {
+            return errores;
+        }
+
+        public void setErrores(Map<Long, String> errores) {
+            this.errores = errores;
+        }
+    }
+
+    /**
+     * Emisor de un snapshot completo por páginas. Cada sección se recorre por clave y se envía
+     * con una ventana de páginas sin confirmar; el receptor confirma cada página aplicada.
+     */
+    private final class OutgoingSnapshot implements Runnable {
+        private final PeerConnection connection;
+        private final String transferId = UUID.randomUUID().toString();
+        private final String logId;
+        private final SnapshotStreamPayload resume;
+        private final Semaphore window = new Semaphore(snapshotWindow);
+        private volatile boolean cancelled;
+
+        private OutgoingSnapshot(PeerConnection connection, String logId, SnapshotStreamPayload resume) {
+            this.connection = connection;
+            this.logId = logId;
+            this.resume = resume;
+        }
+
+        @Override
+        public void run() {
+            try {
+                Long toSeq = logId != null ? databaseSync.currentReplicationSeq() : null;
+                // Se reanuda solo si el log no ha retrocedido desde el intento anterior
+                boolean resuming = resume != null && resume.getSection() != null && resume.getToSeq() != null
+                    && toSeq != null && resume.getToSeq() <= toSeq;
+                if (resuming) {
+                    toSeq = resume.getToSeq();
+                }
+                SnapshotStreamPayload begin = header(toSeq);
+                if (resuming) {
+                    begin.setSection(resume.getSection());
+                }
+                connection.send(new PeerEnvelope(PeerMessageType.SNAPSHOT_BEGIN, serverId, mapper.valueToTree(begin)));
+
+                int pages = 0;
+                for (SnapshotSection section : SnapshotSection.values()) {
+                    long afterId = 0L;
+                    long afterRef = 0L;
+                    // Clientes y canales se reenvían siempre: el receptor rehace con ellos la
+                    // correspondencia de IDs que usan las demás secciones
+                    if (resuming && section.ordinal() > SnapshotSection.CANALES.ordinal()) {
+                        if (section.ordinal() < resume.getSection().ordinal()) {
+                            continue;
+                        }
+                        if (section == resume.getSection()) {
+                            afterId = resume.getLastId() != null ? resume.getLastId() : 0L;
+                            afterRef = resume.getLastRef() != null ? resume.getLastRef() : 0L;
+                        }
+                    }
+                    // Las filas de clientes llevan la foto en base64: páginas más pequeñas
+                    int limit = section == SnapshotSection.CLIENTES ? Math.max(1, snapshotPageSize / 10) : snapshotPageSize;
+                    while (true) {
+                        if (!awaitWindow()) {
+                            LOGGER.info(() -> "Transferencia de snapshot a " + connection.getRemoteServerId() + " interrumpida");
+                            return;
+                        }
+                        DatabaseSnapshot page = databaseSync.capturePage(section, afterId, afterRef, limit);
+                        int rows = snapshotPageRows(section, page);
+                        if (rows == 0) {
+                            window.release();
+                            break;
+                        }
+                        long[] cursor = snapshotPageCursor(section, page);
+                        afterId = cursor[0];
+                        afterRef = cursor[1];
+                        SnapshotStreamPayload chunk = header(toSeq);
+                        chunk.setSection(section);
+                        chunk.setLastId(afterId);
+                        chunk.setLastRef(afterRef);
+                        chunk.setPage(page);
+                        connection.send(new PeerEnvelope(PeerMessageType.SNAPSHOT_CHUNK, serverId, mapper.valueToTree(chunk)));
+                        pages++;
+                        if (rows < limit) {
+                            break;
+                        }
+                    }
+                }
+                connection.send(new PeerEnvelope(PeerMessageType.SNAPSHOT_END, serverId, mapper.valueToTree(header(toSeq))));
+                int sentPages = pages;
+                LOGGER.info(() -> "Snapshot enviado a " + connection.getRemoteServerId() + " en " + sentPages + " páginas" +
+                    (resuming ? " (reanudado en " + resume.getSection() + ")" : ""));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                LOGGER.log(Level.WARNING, "Error enviando snapshot por páginas a " + connection.getRemoteServerId(), e);
+            }
+        }
+
+        private SnapshotStreamPayload header(Long toSeq) {
+            SnapshotStreamPayload payload = new SnapshotStreamPayload();
+            payload.setTransferId(transferId);
+            payload.setLogId(logId);
+            payload.setToSeq(toSeq);
+            return payload;
+        }
+
+        private boolean awaitWindow() throws InterruptedException {
+            while (!cancelled && running && !connection.isClosed()) {
+                if (window.tryAcquire(1, TimeUnit.SECONDS)) {
+                    return !cancelled;
+                }
+            }
+            return false;
+        }
+
+        private void onAck(SnapshotStreamPayload ack) {
+            if (!transferId.equals(ack.getTransferId())) {
+                return;
+            }
+            if (ack.isAborted()) {
+                cancelled = true;
+            }
+            window.release();
+        }
+
+        private void cancel() {
+            cancelled = true;
+        }
+    }
+
+    /**
+     * Estado del lado receptor de un snapshot por páginas.
+     */
+    private static final class IncomingSnapshot {
+        private final String transferId;
+        private final String logId;
+        private final Long toSeq;
+        private final DatabaseSyncCoordinator.SnapshotImport state;
+        private boolean changed;
+
+        private IncomingSnapshot(SnapshotStreamPayload begin, DatabaseSyncCoordinator.SnapshotImport state) {
+            this.transferId = begin.getTransferId();
+            this.logId = begin.getLogId();
+            this.toSeq = begin.getToSeq();
+            this.state = state;
+        }
+
+        private SnapshotStreamPayload checkpoint(SnapshotSection section, Long lastId, Long lastRef) {
+            SnapshotStreamPayload point = new SnapshotStreamPayload();
+            point.setTransferId(transferId);
+            point.setLogId(logId);
+            point.setToSeq(toSeq);
+            point.setSection(section);
+            point.setLastId(lastId);
+            point.setLastRef(lastRef);
+            return point;
+        }
+    }
+
+    /**
+     * Mensajes SNAPSHOT_*: cabecera de la transferencia, página con la clave de su última fila,
+     * o confirmación del receptor. También sirve de punto de reanudación en el HELLO.
+     */
+    private static final class SnapshotStreamPayload {
+        private String transferId;
+        private String logId;
+        private Long toSeq;
+        private SnapshotSection section;
+        private Long lastId;
+        private Long lastRef;
+        private DatabaseSnapshot page;
+        private boolean aborted;
+
+        public String getTransferId() {
+            return transferId;
+        }
+
+        public void setTransferId(String transferId) {
+            this.transferId = transferId;
+        }
+
+        public String getLogId() {
+            return logId;
+        }
+
+        public void setLogId(String logId) {
+            this.logId = logId;
+        }
+
+        public Long getToSeq() {
+            return toSeq;
+        }
+
+        public void setToSeq(Long toSeq) {
+            this.toSeq = toSeq;
+        }
+
+        public SnapshotSection getSection() {
+            return section;
+        }
+
+        public void setSection(SnapshotSection section) {
+            this.section = section;
+        }
+
+        public Long getLastId() {
+            return lastId;
+        }
+
+        public void setLastId(Long lastId) {
+            this.lastId = lastId;
+        }
+
+        public Long getLastRef() {
+            return lastRef;
+        }
+
+        public void setLastRef(Long lastRef) {
+            this.lastRef = lastRef;
+        }
+
+        public DatabaseSnapshot getPage() {
+            return page;
+        }
+
+        public void setPage(DatabaseSnapshot page) {
+            this.page = page;
+        }
+
+        public boolean isAborted() {
+            return aborted;
+        }
+
+        public void setAborted(boolean aborted) {
+            this.aborted = aborted;
+        }
     }
 
     private static final class SyncStatePayload {
@@ -2349,6 +3891,7 @@ public class ServerPeerManager {
         private Long userId;
         private String userEmail; // Email para identificación global entre servidores
         private JsonNode message;
+        private String audioContent; // Base64 del audio referenciado, si es un mensaje de audio
 
         public String getMessageId() {
             return messageId;
@@ -2381,6 +3924,15 @@ public class ServerPeerManager {
         public void setMessage(JsonNode message) {
             this.message = message;
         }
+
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        public String getAudioContent() {
+            return audioContent;
+        }
+
+        public void setAudioContent(String audioContent) {
+            this.audioContent = audioContent;
+        }
     }
 
     private static final class ChannelMessagePayload {
@@ -2388,6 +3940,7 @@ public class ServerPeerManager {
         private Long canalId;
         private JsonNode message;
         private String canalUuid;
+        private String audioContent; // Base64 del audio referenciado, si es un mensaje de audio
 
         public String getMessageId() {
             return messageId;
@@ -2420,6 +3973,15 @@ public class ServerPeerManager {
         public void setMessage(JsonNode message) {
             this.message = message;
         }
+
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        public String getAudioContent() {
+            return audioContent;
+        }
+
+        public void setAudioContent(String audioContent) {
+            this.audioContent = audioContent;
+        }
     }
 
     private static final class SessionForwardPayload {
@@ -2467,30 +4029,45 @@ public class ServerPeerManager {
         private final String messageId;
         private final String targetServerId;
         private final PeerMessageType messageType;
-        private final JsonNode payload;
-        private long timestamp;
-        private int retryCount = 0;
-
-        public PendingMessage(String messageId, String targetServerId, PeerMessageType messageType, JsonNode payload) {
+        private final long createdAt;
+        private volatile long timestamp;
+        private volatile int retryCount = 0;
+        // Sin ruta al destino: no hay envío en vuelo y no gasta reintentos
+        private volatile boolean waiting;
+        // Identifica la espera programada vigente; los avisos de esperas anteriores se ignoran
+        private volatile long deadline;
+
+        public PendingMessage(String messageId, String targetServerId, PeerMessageType messageType, long createdAt) {
             this.messageId = messageId;
             this.targetServerId = targetServerId;
             this.messageType = messageType;
-            this.payload = payload;
-            this.timestamp = System.currentTimeMillis();
+            this.createdAt = createdAt;
+            this.timestamp = createdAt;
         }
 
         // Getters
         public String getMessageId() { return messageId; }
         public String getTargetServerId() { return targetServerId; }
         public PeerMessageType getMessageType() { return messageType; }
-        public JsonNode getPayload() { return payload; }
+        public long getCreatedAt() { return createdAt; }
         public long getTimestamp() { return timestamp; }
         public int getRetryCount() { return retryCount; }
-        public void incrementRetryCount() { retryCount++; }
-        public void updateTimestamp() { this.timestamp = System.currentTimeMillis(); }
-        
-        public boolean isExpired(long timeoutMs) {
-            return System.currentTimeMillis() - timestamp > timeoutMs;
+        public boolean isWaiting() { return waiting; }
+        public long getDeadline() { return deadline; }
+        public void markWaiting() { waiting = true; }
+
+        public void markSent() {
+            retryCount++;
+            markInFlight();
+        }
+
+        public void markInFlight() {
+            timestamp = System.currentTimeMillis();
+            waiting = false;
+        }
+
+        public synchronized long nextDeadline() {
+            return ++deadline;
         }
     }
 
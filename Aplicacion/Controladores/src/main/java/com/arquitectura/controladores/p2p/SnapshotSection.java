@@ -0,0 +1,18 @@
+package com.arquitectura.controladores.p2p;
+
+/**
+ * Secciones de un snapshot transferido por páginas, en el orden en que se envían y aplican.
+ * Clientes y canales van primero porque el resto de secciones referencia sus IDs.
+ */
+public enum SnapshotSection {
+    CLIENTES,
+    CANALES,
+    CANAL_CLIENTES,
+    MENSAJES,
+    INVITACIONES;
+
+    public SnapshotSection next() {
+        SnapshotSection[] values = values();
+        return ordinal() + 1 < values.length ? values[ordinal() + 1] : null;
+    }
+}
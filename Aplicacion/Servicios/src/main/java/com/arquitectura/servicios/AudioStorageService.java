@@ -1,5 +1,11 @@
 package com.arquitectura.servicios;
 
+import com.arquitectura.dto.AudioChunkResponse;
+import com.arquitectura.dto.AudioReferenceDto;
+import com.arquitectura.dto.UploadBeginRequest;
+import com.arquitectura.dto.UploadChunkRequest;
+import com.arquitectura.dto.UploadStatusResponse;
+
 /**
  * Servicio para almacenar archivos de audio en el servidor
  */
@@ -39,5 +45,60 @@ public interface AudioStorageService {
      * @return Contenido codificado en Base64 o {@code null} si el archivo no existe o no puede leerse
      */
     String cargarAudioBase64(String rutaArchivo);
-}
 
+    /**
+     * Describe un audio guardado sin cargar su contenido
+     *
+     * @param rutaArchivo Ruta del archivo en el servidor
+     * @return Tamaño y hash del audio, o {@code null} si no existe
+     */
+    AudioReferenceDto describirAudio(String rutaArchivo);
+
+    /**
+     * Lee un fragmento acotado de un audio guardado
+     *
+     * @param rutaArchivo Ruta del archivo en el servidor
+     * @param offset Byte desde el que se lee
+     * @return Fragmento leído, o {@code null} si el archivo no existe
+     * @throws IllegalArgumentException si la ruta está fuera del almacén de audios o el offset es inválido
+     */
+    AudioChunkResponse leerFragmento(String rutaArchivo, long offset);
+
+    /**
+     * Guarda en la misma ruta un audio recibido de otro servidor, si aún no existe aquí
+     *
+     * @param rutaArchivo Ruta del archivo en el servidor de origen
+     * @param audioBase64 Contenido del audio codificado en Base64
+     * @throws IllegalArgumentException si la ruta está fuera del almacén de audios
+     */
+    void guardarAudioReplicado(String rutaArchivo, String audioBase64);
+
+    /**
+     * Inicia una carga por fragmentos, o devuelve el estado de una en curso para reanudarla
+     *
+     * @param usuarioId ID del usuario que sube el archivo
+     * @param request Tamaño, tipo y hash del archivo, o el {@code uploadId} a reanudar
+     * @return Identificador de la carga y offset desde el que enviar
+     * @throws IllegalArgumentException si el archivo supera el máximo permitido o faltan datos
+     */
+    UploadStatusResponse iniciarCarga(Long usuarioId, UploadBeginRequest request);
+
+    /**
+     * Escribe un fragmento de una carga en curso
+     *
+     * @param usuarioId ID del usuario dueño de la carga
+     * @param request Fragmento y offset en que empieza
+     * @return Estado de la carga; si el offset no era el esperado no se escribe y se devuelve el actual
+     */
+    UploadStatusResponse escribirFragmento(Long usuarioId, UploadChunkRequest request);
+
+    /**
+     * Verifica tamaño y SHA-256 de una carga completa y la guarda como archivo definitivo
+     *
+     * @param usuarioId ID del usuario dueño de la carga
+     * @param uploadId Carga a cerrar
+     * @return Ruta del archivo guardado
+     * @throws IllegalArgumentException si la carga está incompleta o el hash no coincide
+     */
+    String confirmarCarga(Long usuarioId, String uploadId);
+}
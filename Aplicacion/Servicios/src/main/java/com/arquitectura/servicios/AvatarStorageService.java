@@ -0,0 +1,26 @@
+package com.arquitectura.servicios;
+
+import java.util.Optional;
+
+/**
+ * Almacén de avatares direccionado por contenido: cada imagen se guarda una sola vez con su
+ * SHA-256 como nombre, y los clientes solo conservan ese hash.
+ */
+public interface AvatarStorageService {
+
+    /**
+     * Guarda la imagen si no estaba ya en el almacén.
+     *
+     * @param datos Bytes de la imagen
+     * @return SHA-256 en hexadecimal, o {@code null} si no hay datos
+     */
+    String guardarAvatar(byte[] datos);
+
+    /**
+     * Lee la imagen con el hash indicado.
+     *
+     * @param fotoHash SHA-256 devuelto por {@link #guardarAvatar}
+     * @return La imagen, o vacío si el hash no es válido o no está en el almacén
+     */
+    Optional<byte[]> leerAvatar(String fotoHash);
+}
@@ -7,4 +7,10 @@ public interface MensajeriaService {
     Mensaje enviarMensajeAUsuario(MessageRequest request);
 
     Mensaje enviarMensajeACanal(MessageRequest request);
+
+    /**
+     * Indica si el usuario puede descargar el audio: debe haberlo enviado, recibido o tener
+     * acceso al canal donde se publicó.
+     */
+    boolean puedeDescargarAudio(Long usuarioId, String rutaArchivo);
 }
@@ -8,11 +8,12 @@ import com.arquitectura.dto.MessageSyncResponse;
 public interface MessageSyncService {
     
     /**
-     * Obtiene todos los mensajes del usuario para sincronización
+     * Obtiene la siguiente página de mensajes del usuario para sincronización
      * Incluye mensajes enviados y recibidos (privados y de canales)
      * 
      * @param usuarioId ID del usuario que hizo login
-     * @return Respuesta con todos los mensajes del usuario
+     * @param desdeId último ID de mensaje que el cliente ya tiene ({@code null} para empezar desde el principio)
+     * @return Página de mensajes con ID mayor que {@code desdeId}, con el cursor de la siguiente
      */
-    MessageSyncResponse sincronizarMensajes(Long usuarioId);
+    MessageSyncResponse sincronizarMensajes(Long usuarioId, Long desdeId);
 }
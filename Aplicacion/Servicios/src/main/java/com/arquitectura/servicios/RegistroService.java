@@ -1,9 +1,17 @@
 package com.arquitectura.servicios;
 
+import com.arquitectura.dto.AvatarResponse;
 import com.arquitectura.entidades.Cliente;
 
 public interface RegistroService {
     Cliente registrarCliente(String usuario, String email, String contrasenia, byte[] foto, String ip);
 
     Cliente autenticarCliente(String email, String contrasenia, String ip);
+
+    /**
+     * Avatar de un usuario, por su hash o por su ID.
+     *
+     * @throws IllegalArgumentException si el usuario no existe o no tiene avatar
+     */
+    AvatarResponse obtenerAvatar(Long usuarioId, String fotoHash);
 }
@@ -0,0 +1,221 @@
+package com.arquitectura.servicios.cache;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.arquitectura.entidades.Canal;
+import com.arquitectura.repositorios.CanalRepository;
+import com.arquitectura.servicios.eventos.SessionEvent;
+import com.arquitectura.servicios.eventos.SessionEventBus;
+import com.arquitectura.servicios.eventos.SessionObserver;
+import com.arquitectura.servicios.metrics.ServerMetrics;
+
+/**
+ * Catálogo en memoria de los canales (id, uuid, nombre, privacidad y miembros) para traducir
+ * entre ids locales y UUIDs del clúster y repartir mensajes de canal sin ir a la base.
+ * <p>
+ * Se carga completo al arrancar con {@link #warmUp()}. Después se mantiene con
+ * {@code CHANNEL_CREATED} e {@code INVITE_ACCEPTED}, y con {@link #refresh} tras cada
+ * snapshot aplicado por la sincronización entre servidores. Un canal que no esté se lee de la
+ * base y queda en el catálogo.
+ */
+public class CanalCatalog implements SessionObserver {
+
+    private static final Logger LOGGER = Logger.getLogger(CanalCatalog.class.getName());
+
+    private final CanalRepository canalRepository;
+    private final Map<Long, CanalInfo> porId = new ConcurrentHashMap<>();
+    private final Map<String, Long> idPorUuid = new ConcurrentHashMap<>();
+    // Cambia con cada recarga: una lectura que empezó antes no debe guardar datos viejos
+    private long generacion;
+
+    public CanalCatalog(CanalRepository canalRepository, SessionEventBus bus) {
+        this.canalRepository = Objects.requireNonNull(canalRepository, "canalRepository");
+        ServerMetrics.bindChannelCatalogSize(porId::size);
+        if (bus != null) {
+            bus.subscribe(this);
+        }
+    }
+
+    /**
+     * Carga todos los canales y sus miembros con dos consultas.
+     */
+    public void warmUp() {
+        long leida = generacionActual();
+        Map<Long, Set<Long>> miembros = canalRepository.findAllUserIds();
+        int cargados = 0;
+        for (Canal canal : canalRepository.findAll()) {
+            guardar(canal, miembros.getOrDefault(canal.getId(), Set.of()), leida);
+            cargados++;
+        }
+        int total = cargados;
+        LOGGER.info(() -> "Catálogo de canales cargado: " + total + " canales");
+    }
+
+    public Optional<CanalInfo> findById(Long canalId) {
+        if (canalId == null) {
+            return Optional.empty();
+        }
+        CanalInfo info = porId.get(canalId);
+        if (info != null) {
+            ServerMetrics.recordChannelCatalogHit();
+            return Optional.of(info);
+        }
+        ServerMetrics.recordChannelCatalogMiss();
+        return cargar(canalId);
+    }
+
+    public Optional<CanalInfo> findByUuid(String uuid) {
+        if (uuid == null || uuid.isBlank()) {
+            return Optional.empty();
+        }
+        Long id = idPorUuid.get(uuid);
+        CanalInfo info = id != null ? porId.get(id) : null;
+        if (info != null) {
+            ServerMetrics.recordChannelCatalogHit();
+            return Optional.of(info);
+        }
+        ServerMetrics.recordChannelCatalogMiss();
+        long leida = generacionActual();
+        return canalRepository.findByUuid(uuid)
+            .map(canal -> guardar(canal, canalRepository.findUserIds(canal.getId()), leida));
+    }
+
+    /**
+     * Id local de un canal que llega de otro servidor. El UUID manda: si no coincide con el
+     * canal de ese id, el canal no existe aquí. Sin UUID se confía en el id recibido.
+     */
+    public Long resolveId(Long remoteId, String uuid) {
+        if (uuid != null && !uuid.isBlank()) {
+            Optional<CanalInfo> porUuid = findByUuid(uuid);
+            if (porUuid.isPresent()) {
+                return porUuid.get().id();
+            }
+            if (remoteId != null) {
+                return findById(remoteId)
+                    .filter(info -> uuid.equals(info.uuid()))
+                    .map(CanalInfo::id)
+                    .orElse(null);
+            }
+            return null;
+        }
+        if (remoteId != null) {
+            return findById(remoteId).map(CanalInfo::id).orElse(remoteId);
+        }
+        return null;
+    }
+
+    public String resolveUuid(Long canalId) {
+        return findById(canalId)
+            .map(CanalInfo::uuid)
+            .filter(uuid -> !uuid.isBlank())
+            .orElse(null);
+    }
+
+    public Set<Long> miembros(Long canalId) {
+        return findById(canalId).map(CanalInfo::miembros).orElse(Set.of());
+    }
+
+    /**
+     * Vuelve a leer los canales de la base, p. ej. después de aplicar un snapshot replicado.
+     */
+    public void refresh(Collection<Long> canalIds) {
+        for (Long canalId : canalIds) {
+            if (canalId == null) {
+                continue;
+            }
+            invalidate(canalId);
+            try {
+                cargar(canalId);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "No se pudo recargar el canal " + canalId, e);
+            }
+        }
+    }
+
+    public synchronized void invalidate(Long canalId) {
+        generacion++;
+        CanalInfo anterior = porId.remove(canalId);
+        if (anterior != null && anterior.uuid() != null) {
+            idPorUuid.remove(anterior.uuid(), canalId);
+        }
+    }
+
+    @Override
+    public void onEvent(SessionEvent event) {
+        switch (event.getType()) {
+            case CHANNEL_CREATED -> {
+                if (event.getPayload() instanceof Canal canal && canal.getId() != null) {
+                    // El creador ya quedó vinculado antes de publicarse el evento
+                    registrar(canal, event.getActorId());
+                }
+            }
+            case INVITE_ACCEPTED -> {
+                if (event.getPayload() instanceof Map<?, ?> payload
+                    && payload.get("canalId") instanceof Long canalId && event.getActorId() != null) {
+                    agregarMiembro(canalId, event.getActorId());
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    private synchronized void registrar(Canal canal, Long creadorId) {
+        generacion++;
+        Set<Long> miembros = creadorId != null ? Set.of(creadorId) : Set.of();
+        guardar(canal, miembros, generacion);
+    }
+
+    private synchronized void agregarMiembro(Long canalId, Long clienteId) {
+        generacion++;
+        CanalInfo info = porId.get(canalId);
+        if (info == null) {
+            // Se leerá completo, con el nuevo miembro, la próxima vez que se pida
+            return;
+        }
+        Set<Long> miembros = new HashSet<>(info.miembros());
+        miembros.add(clienteId);
+        porId.put(canalId, new CanalInfo(info.id(), info.uuid(), info.nombre(), info.privado(), Set.copyOf(miembros)));
+    }
+
+    private Optional<CanalInfo> cargar(Long canalId) {
+        long leida = generacionActual();
+        return canalRepository.findById(canalId)
+            .map(canal -> guardar(canal, canalRepository.findUserIds(canalId), leida));
+    }
+
+    private synchronized long generacionActual() {
+        return generacion;
+    }
+
+    private synchronized CanalInfo guardar(Canal canal, Set<Long> miembros, long leida) {
+        CanalInfo info = new CanalInfo(canal.getId(), canal.getUuid(), canal.getNombre(),
+            canal.getPrivado(), Set.copyOf(miembros));
+        if (info.id() == null || leida != generacion) {
+            return info;
+        }
+        CanalInfo anterior = porId.put(info.id(), info);
+        if (anterior != null && anterior.uuid() != null && !anterior.uuid().equals(info.uuid())) {
+            idPorUuid.remove(anterior.uuid(), info.id());
+        }
+        if (info.uuid() != null && !info.uuid().isBlank()) {
+            idPorUuid.put(info.uuid(), info.id());
+        }
+        return info;
+    }
+
+    /**
+     * Datos de un canal que necesitan el enrutamiento y las notificaciones; {@code miembros}
+     * es inmutable.
+     */
+    public record CanalInfo(Long id, String uuid, String nombre, Boolean privado, Set<Long> miembros) {
+    }
+}
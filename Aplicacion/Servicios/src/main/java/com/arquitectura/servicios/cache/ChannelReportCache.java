@@ -0,0 +1,176 @@
+package com.arquitectura.servicios.cache;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.arquitectura.entidades.Canal;
+import com.arquitectura.entidades.Cliente;
+import com.arquitectura.repositorios.CanalRepository;
+import com.arquitectura.servicios.eventos.SessionEvent;
+import com.arquitectura.servicios.eventos.SessionEventBus;
+import com.arquitectura.servicios.eventos.SessionObserver;
+import com.arquitectura.servicios.metrics.ServerMetrics;
+
+/**
+ * Caché de los listados de canales con sus miembros ({@code LIST_CHANNELS} y
+ * {@code REPORT_CANALES}), por usuario y el listado completo. Cada carga son dos consultas:
+ * los canales y los miembros de todos ellos.
+ * <p>
+ * Solo guarda lo que no depende de la sesión; el estado de conexión de los miembros lo pone
+ * quien arma la respuesta. {@code CHANNEL_CREATED} invalida al creador,
+ * {@code INVITE_ACCEPTED} a todos los que ven ese canal y la sincronización entre servidores
+ * invalida todo al aplicar cambios de canales o membresías.
+ */
+public class ChannelReportCache implements SessionObserver {
+
+    private final CanalRepository canalRepository;
+    private final int maxEntries;
+    private final Map<Long, List<CanalReporte>> porUsuario = new ConcurrentHashMap<>();
+    // Orden de inserción para descartar los más antiguos; protegido por this
+    private final LinkedHashSet<Long> orden = new LinkedHashSet<>();
+    private volatile List<CanalReporte> todos;
+    // Cambia con cada invalidación: una carga que empezó antes no debe guardar datos viejos
+    private long generacion;
+
+    public ChannelReportCache(CanalRepository canalRepository, int maxEntries, SessionEventBus bus) {
+        this.canalRepository = Objects.requireNonNull(canalRepository, "canalRepository");
+        this.maxEntries = Math.max(1, maxEntries);
+        ServerMetrics.bindChannelReportCacheSize(porUsuario::size);
+        if (bus != null) {
+            bus.subscribe(this);
+        }
+    }
+
+    /**
+     * Canales de los que el usuario es miembro, con sus miembros.
+     */
+    public List<CanalReporte> canalesDe(Long usuarioId) {
+        if (usuarioId == null) {
+            return List.of();
+        }
+        List<CanalReporte> cacheado = porUsuario.get(usuarioId);
+        if (cacheado != null) {
+            ServerMetrics.recordChannelReportCacheHit();
+            return cacheado;
+        }
+        ServerMetrics.recordChannelReportCacheMiss();
+        long leida = generacionActual();
+        List<Canal> canales = canalRepository.findByCliente(usuarioId);
+        List<Long> ids = canales.stream().map(Canal::getId).toList();
+        List<CanalReporte> cargado = armar(canales, canalRepository.findUsersByCanales(ids));
+        guardar(usuarioId, cargado, leida);
+        return cargado;
+    }
+
+    /**
+     * Todos los canales con sus miembros.
+     */
+    public List<CanalReporte> todos() {
+        List<CanalReporte> cacheado = todos;
+        if (cacheado != null) {
+            ServerMetrics.recordChannelReportCacheHit();
+            return cacheado;
+        }
+        ServerMetrics.recordChannelReportCacheMiss();
+        long leida = generacionActual();
+        List<CanalReporte> cargado = armar(canalRepository.findAll(), canalRepository.findAllUsers());
+        synchronized (this) {
+            if (leida == generacion) {
+                todos = cargado;
+            }
+        }
+        return cargado;
+    }
+
+    public synchronized void invalidate(Long usuarioId) {
+        generacion++;
+        todos = null;
+        if (usuarioId != null) {
+            orden.remove(usuarioId);
+            porUsuario.remove(usuarioId);
+        }
+    }
+
+    /**
+     * Descarta los listados que incluyen el canal (sus miembros cambiaron).
+     */
+    public synchronized void invalidateCanal(Long canalId) {
+        generacion++;
+        todos = null;
+        Iterator<Map.Entry<Long, List<CanalReporte>>> it = porUsuario.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Long, List<CanalReporte>> entry = it.next();
+            if (entry.getValue().stream().anyMatch(canal -> canal.id().equals(canalId))) {
+                it.remove();
+                orden.remove(entry.getKey());
+            }
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        generacion++;
+        todos = null;
+        porUsuario.clear();
+        orden.clear();
+    }
+
+    @Override
+    public void onEvent(SessionEvent event) {
+        switch (event.getType()) {
+            case CHANNEL_CREATED -> invalidate(event.getActorId());
+            case INVITE_ACCEPTED -> {
+                if (event.getPayload() instanceof Map<?, ?> payload && payload.get("canalId") instanceof Long canalId) {
+                    invalidateCanal(canalId);
+                }
+                invalidate(event.getActorId());
+            }
+            default -> {
+            }
+        }
+    }
+
+    private synchronized long generacionActual() {
+        return generacion;
+    }
+
+    private synchronized void guardar(Long usuarioId, List<CanalReporte> canales, long leida) {
+        if (leida != generacion) {
+            return;
+        }
+        porUsuario.put(usuarioId, canales);
+        orden.remove(usuarioId);
+        orden.add(usuarioId);
+        Iterator<Long> it = orden.iterator();
+        while (orden.size() > maxEntries && it.hasNext()) {
+            Long masAntiguo = it.next();
+            it.remove();
+            porUsuario.remove(masAntiguo);
+        }
+    }
+
+    private static List<CanalReporte> armar(List<Canal> canales, Map<Long, List<Cliente>> miembrosPorCanal) {
+        List<CanalReporte> result = new ArrayList<>(canales.size());
+        for (Canal canal : canales) {
+            List<Miembro> miembros = miembrosPorCanal.getOrDefault(canal.getId(), List.of()).stream()
+                .map(cli -> new Miembro(cli.getId(), cli.getNombreDeUsuario(), cli.getEmail(), cli.getFotoHash()))
+                .toList();
+            result.add(new CanalReporte(canal.getId(), canal.getUuid(), canal.getNombre(),
+                Boolean.TRUE.equals(canal.getPrivado()), miembros));
+        }
+        return List.copyOf(result);
+    }
+
+    /**
+     * Canal tal como aparece en los listados; {@code miembros} es inmutable.
+     */
+    public record CanalReporte(Long id, String uuid, String nombre, boolean privado, List<Miembro> miembros) {
+    }
+
+    public record Miembro(Long id, String usuario, String email, String fotoHash) {
+    }
+}
@@ -0,0 +1,196 @@
+package com.arquitectura.servicios.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.arquitectura.entidades.Cliente;
+import com.arquitectura.repositorios.ClienteRepository;
+import com.arquitectura.servicios.eventos.SessionEvent;
+import com.arquitectura.servicios.eventos.SessionEventBus;
+import com.arquitectura.servicios.eventos.SessionEventTypes;
+import com.arquitectura.servicios.eventos.SessionObserver;
+import com.arquitectura.servicios.metrics.ServerMetrics;
+
+/**
+ * Caché de lectura de la identidad de los clientes (id, usuario y email), compartida por el
+ * registro de conexiones, el enrutamiento P2P y las notificaciones para no consultar la base
+ * en cada mensaje. Solo guarda lo que no cambia con la sesión: ni foto, ni contraseña, ni IP
+ * ni estado de conexión.
+ * <p>
+ * Las búsquedas acertadas no toman ningún lock. Al superar {@code maxEntries} se descartan
+ * las identidades más antiguas. Los registros nuevos se agregan al publicarse
+ * {@code USER_REGISTERED} y la sincronización entre servidores invalida los clientes que
+ * replica. No se recuerdan búsquedas sin resultado.
+ */
+public class ClienteIdentityCache implements SessionObserver {
+
+    private static final Logger LOGGER = Logger.getLogger(ClienteIdentityCache.class.getName());
+
+    private final ClienteRepository clienteRepository;
+    private final int maxEntries;
+    private final Map<Long, Identidad> porId = new ConcurrentHashMap<>();
+    private final Map<String, Long> idPorEmail = new ConcurrentHashMap<>();
+    // Orden de inserción para descartar las más antiguas; protegido por this
+    private final LinkedHashSet<Long> orden = new LinkedHashSet<>();
+    // Cambia con cada invalidación: una carga que empezó antes no debe guardar datos viejos
+    private long generacion;
+
+    public ClienteIdentityCache(ClienteRepository clienteRepository, int maxEntries, SessionEventBus bus) {
+        this.clienteRepository = Objects.requireNonNull(clienteRepository, "clienteRepository");
+        this.maxEntries = Math.max(1, maxEntries);
+        ServerMetrics.bindIdentityCacheSize(porId::size);
+        if (bus != null) {
+            bus.subscribe(this);
+        }
+    }
+
+    public Optional<Identidad> findById(Long id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        Identidad identidad = porId.get(id);
+        if (identidad != null) {
+            ServerMetrics.recordIdentityCacheHit();
+            return Optional.of(identidad);
+        }
+        ServerMetrics.recordIdentityCacheMiss();
+        long leida = generacionActual();
+        return clienteRepository.findById(id).map(cliente -> guardar(cliente, leida));
+    }
+
+    public Optional<Long> findIdByEmail(String email) {
+        String clave = emailKey(email);
+        if (clave == null) {
+            return Optional.empty();
+        }
+        Long id = idPorEmail.get(clave);
+        if (id != null && porId.containsKey(id)) {
+            ServerMetrics.recordIdentityCacheHit();
+            return Optional.of(id);
+        }
+        ServerMetrics.recordIdentityCacheMiss();
+        long leida = generacionActual();
+        return clienteRepository.findByEmail(email).map(cliente -> guardar(cliente, leida).id());
+    }
+
+    public Optional<String> findEmail(Long id) {
+        return findById(id).map(Identidad::email);
+    }
+
+    public Optional<String> findNombreDeUsuario(Long id) {
+        return findById(id).map(Identidad::usuario);
+    }
+
+    /**
+     * Descarta la identidad del cliente; la siguiente búsqueda vuelve a la base.
+     */
+    public synchronized void invalidate(Long id) {
+        if (id == null) {
+            return;
+        }
+        generacion++;
+        if (quitar(id)) {
+            ServerMetrics.recordIdentityCacheEviction("invalidated");
+        }
+    }
+
+    /**
+     * Descarta la identidad que tenga ese email, por si el email pasó a otro id.
+     */
+    public synchronized void invalidateEmail(String email) {
+        String clave = emailKey(email);
+        if (clave == null) {
+            return;
+        }
+        generacion++;
+        Long id = idPorEmail.remove(clave);
+        if (id != null && quitar(id)) {
+            ServerMetrics.recordIdentityCacheEviction("invalidated");
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        generacion++;
+        porId.clear();
+        idPorEmail.clear();
+        orden.clear();
+    }
+
+    @Override
+    public void onEvent(SessionEvent event) {
+        if (SessionEventTypes.isUserRegistered(event.getType()) && event.getPayload() instanceof Cliente cliente) {
+            registrar(cliente);
+        }
+    }
+
+    private synchronized void registrar(Cliente cliente) {
+        generacion++;
+        guardar(cliente, generacion);
+    }
+
+    private synchronized long generacionActual() {
+        return generacion;
+    }
+
+    private synchronized Identidad guardar(Cliente cliente, long leida) {
+        Identidad identidad = new Identidad(cliente.getId(), cliente.getNombreDeUsuario(), cliente.getEmail());
+        if (identidad.id() == null || leida != generacion) {
+            return identidad;
+        }
+        Identidad anterior = porId.put(identidad.id(), identidad);
+        if (anterior != null && !Objects.equals(emailKey(anterior.email()), emailKey(identidad.email()))) {
+            idPorEmail.remove(emailKey(anterior.email()), anterior.id());
+        }
+        String clave = emailKey(identidad.email());
+        if (clave != null) {
+            idPorEmail.put(clave, identidad.id());
+        }
+        orden.remove(identidad.id());
+        orden.add(identidad.id());
+        Iterator<Long> it = orden.iterator();
+        while (orden.size() > maxEntries && it.hasNext()) {
+            Long masAntiguo = it.next();
+            it.remove();
+            Identidad descartada = porId.remove(masAntiguo);
+            if (descartada != null && emailKey(descartada.email()) != null) {
+                idPorEmail.remove(emailKey(descartada.email()), masAntiguo);
+            }
+            ServerMetrics.recordIdentityCacheEviction("capacity");
+        }
+        LOGGER.log(Level.FINEST, () -> "Identidad en caché: " + identidad.id());
+        return identidad;
+    }
+
+    private boolean quitar(Long id) {
+        orden.remove(id);
+        Identidad identidad = porId.remove(id);
+        if (identidad == null) {
+            return false;
+        }
+        String clave = emailKey(identidad.email());
+        if (clave != null) {
+            idPorEmail.remove(clave, id);
+        }
+        return true;
+    }
+
+    private static String emailKey(String email) {
+        if (email == null || email.isBlank()) {
+            return null;
+        }
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Lo mínimo de un cliente para enrutar y notificar.
+     */
+    public record Identidad(Long id, String usuario, String email) {
+    }
+}
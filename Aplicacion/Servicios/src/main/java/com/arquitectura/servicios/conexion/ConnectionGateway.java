@@ -18,4 +18,10 @@ public interface ConnectionGateway {
     List<SessionDescriptor> activeSessions();
 
     SessionDescriptor descriptor(String sessionId);
+
+    /**
+     * Serializa una vez el evento para reutilizarlo en varios envíos; cualquier método de este
+     * gateway acepta el {@link EncodedFrame} resultante en lugar del payload original.
+     */
+    EncodedFrame encodeEvent(Object payload);
 }
@@ -0,0 +1,102 @@
+package com.arquitectura.servicios.conexion;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Trama del protocolo ya serializada: una línea JSON en UTF-8 (incluye el {@code '\n'} final) o,
+ * para las sesiones que negociaron el protocolo binario, la trama con prefijo de longitud.
+ * <p>
+ * Se produce una sola vez por entrega y se comparte, en solo lectura, entre todas las sesiones
+ * destinatarias de un fan-out; la versión binaria también se calcula una sola vez, la primera
+ * vez que una sesión binaria la necesita. Conserva el payload original para los envíos que deben
+ * reenviarse a otros servidores, que tienen su propio formato de sobre.
+ */
+public final class EncodedFrame {
+
+    private final Object payload;
+    private final byte[] bytes;
+    private final boolean binary;
+    private volatile EncodedFrame binaryVersion;
+
+    private EncodedFrame(Object payload, byte[] bytes, boolean binary) {
+        this.payload = payload;
+        this.bytes = bytes;
+        this.binary = binary;
+    }
+
+    /**
+     * @param payload objeto original (puede ser {@code null} para respuestas directas)
+     * @param json    línea JSON sin salto de línea final
+     */
+    public static EncodedFrame of(Object payload, String json) {
+        return new EncodedFrame(payload, (json + '\n').getBytes(StandardCharsets.UTF_8), false);
+    }
+
+    /**
+     * @param payload objeto original (puede ser {@code null} para respuestas directas)
+     * @param frame   trama binaria completa, con su prefijo de longitud
+     */
+    public static EncodedFrame ofBinary(Object payload, byte[] frame) {
+        return new EncodedFrame(payload, frame, true);
+    }
+
+    public Object getPayload() {
+        return payload;
+    }
+
+    public boolean isBinary() {
+        return binary;
+    }
+
+    /**
+     * Misma trama en formato binario, codificada con {@code encoder} a partir del payload y
+     * guardada para los demás destinatarios.
+     */
+    public EncodedFrame toBinary(BinaryEncoder encoder) {
+        if (binary) {
+            return this;
+        }
+        EncodedFrame version = binaryVersion;
+        if (version == null) {
+            try {
+                version = ofBinary(payload, encoder.encode(payload));
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo codificar la trama binaria", e);
+            }
+            binaryVersion = version;
+        }
+        return version;
+    }
+
+    public int length() {
+        return bytes.length;
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(bytes);
+    }
+
+    public ByteBuffer asByteBuffer() {
+        return ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+    }
+
+    @Override
+    public String toString() {
+        if (binary) {
+            return "<trama binaria de " + bytes.length + " bytes>";
+        }
+        return new String(bytes, 0, Math.max(0, bytes.length - 1), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Codifica el payload de un evento como trama binaria completa.
+     */
+    @FunctionalInterface
+    public interface BinaryEncoder {
+        byte[] encode(Object payload) throws IOException;
+    }
+}
@@ -2,11 +2,10 @@ package com.arquitectura.servicios.eventos;
 
 import com.arquitectura.dto.RealtimeInvitationDto;
 import com.arquitectura.entidades.Canal;
-import com.arquitectura.entidades.Cliente;
 import com.arquitectura.entidades.Invitacion;
 import com.arquitectura.repositorios.CanalRepository;
-import com.arquitectura.repositorios.ClienteRepository;
 import com.arquitectura.repositorios.InvitacionRepository;
+import com.arquitectura.servicios.cache.ClienteIdentityCache;
 import com.arquitectura.servicios.conexion.ConnectionGateway;
 
 import java.time.LocalDateTime;
@@ -22,19 +21,19 @@ public class InvitationNotificationService implements SessionObserver {
 
     private final ConnectionGateway connectionGateway;
     private final CanalRepository canalRepository;
-    private final ClienteRepository clienteRepository;
+    private final ClienteIdentityCache identityCache;
     private final InvitacionRepository invitacionRepository;
 
     public InvitationNotificationService(ConnectionGateway connectionGateway,
                                          CanalRepository canalRepository,
-                                         ClienteRepository clienteRepository,
+                                         ClienteIdentityCache identityCache,
                                          InvitacionRepository invitacionRepository,
                                          SessionEventBus eventBus) {
         this.connectionGateway = Objects.requireNonNull(connectionGateway, "connectionGateway");
         this.canalRepository = Objects.requireNonNull(canalRepository, "canalRepository");
-        this.clienteRepository = Objects.requireNonNull(clienteRepository, "clienteRepository");
+        this.identityCache = Objects.requireNonNull(identityCache, "identityCache");
         this.invitacionRepository = Objects.requireNonNull(invitacionRepository, "invitacionRepository");
-        Objects.requireNonNull(eventBus, "eventBus").subscribe(this);
+        Objects.requireNonNull(eventBus, "eventBus").subscribeAsync(this);
     }
 
     @Override
@@ -150,16 +149,10 @@ public class InvitationNotificationService implements SessionObserver {
             dto.setCanalId(canal.getId());
         });
 
-        Optional<Cliente> invitadorOpt = context.invitadorId != null
-            ? clienteRepository.findById(context.invitadorId)
-            : Optional.empty();
-        invitadorOpt.ifPresent(cliente -> dto.setInvitadorNombre(cliente.getNombreDeUsuario()));
+        identityCache.findNombreDeUsuario(context.invitadorId).ifPresent(dto::setInvitadorNombre);
         dto.setInvitadorId(context.invitadorId);
 
-        Optional<Cliente> invitadoOpt = context.invitadoId != null
-            ? clienteRepository.findById(context.invitadoId)
-            : Optional.empty();
-        invitadoOpt.ifPresent(cliente -> dto.setInvitadoNombre(cliente.getNombreDeUsuario()));
+        identityCache.findNombreDeUsuario(context.invitadoId).ifPresent(dto::setInvitadoNombre);
         dto.setInvitadoId(context.invitadoId);
 
         invitacion.ifPresent(inv -> {
@@ -15,6 +15,7 @@ import com.arquitectura.entidades.TextoMensaje;
 import com.arquitectura.repositorios.CanalRepository;
 import com.arquitectura.repositorios.ClienteRepository;
 import com.arquitectura.repositorios.LogRepository;
+import com.arquitectura.servicios.cache.ClienteIdentityCache;
 
 public class LogSubscriber implements SessionObserver {
 
@@ -22,13 +23,16 @@ public class LogSubscriber implements SessionObserver {
 
     private final LogRepository logRepository;
     private final ClienteRepository clienteRepository;
+    private final ClienteIdentityCache identityCache;
     private final CanalRepository canalRepository;
 
-    public LogSubscriber(LogRepository logRepository, ClienteRepository clienteRepository, CanalRepository canalRepository, SessionEventBus bus) {
+    public LogSubscriber(LogRepository logRepository, ClienteRepository clienteRepository, ClienteIdentityCache identityCache,
+                         CanalRepository canalRepository, SessionEventBus bus) {
         this.logRepository = Objects.requireNonNull(logRepository, "logRepository");
         this.clienteRepository = Objects.requireNonNull(clienteRepository, "clienteRepository");
+        this.identityCache = Objects.requireNonNull(identityCache, "identityCache");
         this.canalRepository = Objects.requireNonNull(canalRepository, "canalRepository");
-        bus.subscribe(this);
+        bus.subscribeAsync(this);
     }
 
     @Override
@@ -161,10 +165,10 @@ public class LogSubscriber implements SessionObserver {
             return "Logout de sesión " + event.getSessionId();
         }
 
-        return clienteRepository.findById(event.getActorId())
+        return identityCache.findById(event.getActorId())
             .map(cliente -> String.format("Usuario '%s' (%s) cerró sesión",
-                    cliente.getNombreDeUsuario(),
-                    cliente.getEmail()))
+                    cliente.usuario(),
+                    cliente.email()))
             .orElse("Logout de usuario ID " + event.getActorId() + " (no encontrado)");
     }
 
@@ -182,8 +186,7 @@ public class LogSubscriber implements SessionObserver {
         }
 
         String emisor = mensaje.getEmisor() != null
-            ? clienteRepository.findById(mensaje.getEmisor())
-                .map(c -> c.getNombreDeUsuario())
+            ? identityCache.findNombreDeUsuario(mensaje.getEmisor())
                 .orElse("Usuario desconocido")
             : "Usuario desconocido";
 
@@ -216,8 +219,7 @@ public class LogSubscriber implements SessionObserver {
         }
 
         String creador = event.getActorId() != null
-            ? clienteRepository.findById(event.getActorId())
-                .map(c -> c.getNombreDeUsuario())
+            ? identityCache.findNombreDeUsuario(event.getActorId())
                 .orElse("Usuario desconocido")
             : "Usuario desconocido";
 
@@ -237,14 +239,12 @@ public class LogSubscriber implements SessionObserver {
         Long invitadoId = payload.get("invitadoId") instanceof Long id ? id : null;
 
         String solicitante = event.getActorId() != null
-            ? clienteRepository.findById(event.getActorId())
-                .map(c -> c.getNombreDeUsuario())
+            ? identityCache.findNombreDeUsuario(event.getActorId())
                 .orElse("Usuario desconocido")
             : "Usuario desconocido";
 
         String invitado = invitadoId != null
-            ? clienteRepository.findById(invitadoId)
-                .map(c -> c.getNombreDeUsuario())
+            ? identityCache.findNombreDeUsuario(invitadoId)
                 .orElse("Usuario ID " + invitadoId)
             : "Usuario desconocido";
 
@@ -266,14 +266,12 @@ public class LogSubscriber implements SessionObserver {
         Long invitadorId = payload.get("invitadorId") instanceof Long id ? id : null;
 
         String invitado = event.getActorId() != null
-            ? clienteRepository.findById(event.getActorId())
-                .map(c -> c.getNombreDeUsuario())
+            ? identityCache.findNombreDeUsuario(event.getActorId())
                 .orElse("Usuario desconocido")
             : "Usuario desconocido";
 
         String invitador = invitadorId != null
-            ? clienteRepository.findById(invitadorId)
-                .map(c -> c.getNombreDeUsuario())
+            ? identityCache.findNombreDeUsuario(invitadorId)
                 .orElse("Usuario ID " + invitadorId)
             : "Usuario desconocido";
 
@@ -295,14 +293,12 @@ public class LogSubscriber implements SessionObserver {
         Long invitadorId = payload.get("invitadorId") instanceof Long id ? id : null;
 
         String invitado = event.getActorId() != null
-            ? clienteRepository.findById(event.getActorId())
-                .map(c -> c.getNombreDeUsuario())
+            ? identityCache.findNombreDeUsuario(event.getActorId())
                 .orElse("Usuario desconocido")
             : "Usuario desconocido";
 
         String invitador = invitadorId != null
-            ? clienteRepository.findById(invitadorId)
-                .map(c -> c.getNombreDeUsuario())
+            ? identityCache.findNombreDeUsuario(invitadorId)
                 .orElse("Usuario ID " + invitadorId)
             : "Usuario desconocido";
 
@@ -321,8 +317,7 @@ public class LogSubscriber implements SessionObserver {
         }
 
         String emisor = audio.getEmisor() != null
-            ? clienteRepository.findById(audio.getEmisor())
-                .map(c -> c.getNombreDeUsuario())
+            ? identityCache.findNombreDeUsuario(audio.getEmisor())
                 .orElse("Usuario desconocido")
             : "Usuario desconocido";
 
@@ -344,8 +339,8 @@ public class LogSubscriber implements SessionObserver {
         }
 
         if (mensaje.getReceptor() != null) {
-            return clienteRepository.findById(mensaje.getReceptor())
-                .map(c -> "usuario '" + c.getNombreDeUsuario() + "'")
+            return identityCache.findNombreDeUsuario(mensaje.getReceptor())
+                .map(nombre -> "usuario \'" + nombre + "\'")
                 .orElse("usuario ID " + mensaje.getReceptor());
         }
 
@@ -356,8 +351,7 @@ public class LogSubscriber implements SessionObserver {
         if (usuarioId == null) {
             return "Usuario desconocido";
         }
-        return clienteRepository.findById(usuarioId)
-                .map(c -> c.getNombreDeUsuario())
+        return identityCache.findNombreDeUsuario(usuarioId)
                 .orElse("Usuario ID " + usuarioId);
     }
 }
\ No newline at end of file
@@ -1,19 +1,24 @@
 package com.arquitectura.servicios.eventos;
 
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 import java.util.logging.Logger;
 
 import com.arquitectura.dto.RealtimeMessageDto;
+import com.arquitectura.dto.TranscriptionReadyDto;
 import com.arquitectura.dto.UserSummary;
 import com.arquitectura.entidades.ArchivoMensaje;
 import com.arquitectura.entidades.AudioMensaje;
 import com.arquitectura.entidades.Mensaje;
 import com.arquitectura.entidades.TextoMensaje;
 import com.arquitectura.repositorios.CanalRepository;
-import com.arquitectura.repositorios.ClienteRepository;
+import com.arquitectura.servicios.cache.CanalCatalog;
+import com.arquitectura.servicios.cache.ClienteIdentityCache;
 import com.arquitectura.servicios.conexion.ConnectionGateway;
+import com.arquitectura.servicios.conexion.EncodedFrame;
 
 /**
  * Servicio que escucha eventos de mensajes y notifica a los clientes correspondientes
@@ -24,31 +29,27 @@ public class MessageNotificationService implements SessionObserver {
     
     private final ConnectionGateway connectionGateway;
     private final CanalRepository canalRepository;
-    private final ClienteRepository clienteRepository;
+    private final CanalCatalog canalCatalog;
+    private final ClienteIdentityCache identityCache;
 
     public MessageNotificationService(ConnectionGateway connectionGateway,
                                     CanalRepository canalRepository,
-                                    ClienteRepository clienteRepository,
+                                    CanalCatalog canalCatalog,
+                                    ClienteIdentityCache identityCache,
                                     SessionEventBus eventBus) {
         this.connectionGateway = Objects.requireNonNull(connectionGateway, "connectionGateway");
         this.canalRepository = Objects.requireNonNull(canalRepository, "canalRepository");
-        this.clienteRepository = Objects.requireNonNull(clienteRepository, "clienteRepository");
-        eventBus.subscribe(this);
+        this.canalCatalog = Objects.requireNonNull(canalCatalog, "canalCatalog");
+        this.identityCache = Objects.requireNonNull(identityCache, "identityCache");
+        eventBus.subscribeAsync(this);
     }
     
     @Override
     public void onEvent(SessionEvent event) {
         switch (event.getType()) {
             case NEW_MESSAGE -> notificarNuevoMensajePrivado(event);
-            case NEW_CHANNEL_MESSAGE -> {
-                // Agregar un pequeño delay para que el LogSubscriber procese primero
-                try {
-                    Thread.sleep(10);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                }
-                notificarNuevoMensajeCanal(event);
-            }
+            case NEW_CHANNEL_MESSAGE -> notificarNuevoMensajeCanal(event);
+            case TRANSCRIPTION_READY -> notificarTranscripcion(event);
         }
     }
     
@@ -62,7 +63,8 @@ public class MessageNotificationService implements SessionObserver {
         }
 
         try {
-            RealtimeMessageDto dto = construirEventoMensaje(mensaje, "NEW_MESSAGE");
+            // Se serializa una vez y se reutiliza para receptor y emisor
+            EncodedFrame dto = connectionGateway.encodeEvent(construirEventoMensaje(mensaje, "NEW_MESSAGE"));
 
             // Enviar el mensaje a todas las sesiones del receptor
             connectionGateway.sendToUser(mensaje.getReceptor(), dto);
@@ -90,7 +92,8 @@ public class MessageNotificationService implements SessionObserver {
         }
 
         try {
-            RealtimeMessageDto dto = construirEventoMensaje(mensaje, "NEW_CHANNEL_MESSAGE");
+            // Un único frame compartido por todos los miembros del canal
+            EncodedFrame dto = connectionGateway.encodeEvent(construirEventoMensaje(mensaje, "NEW_CHANNEL_MESSAGE"));
             // Log detallado del mensaje que se va a enviar
             LOGGER.info(String.format(
                 "NEW_CHANNEL_MESSAGE - Enviando mensaje ID:%d, Tipo:%s, Emisor:%d, Canal:%d",
@@ -104,27 +107,26 @@ public class MessageNotificationService implements SessionObserver {
             }
 
             // Obtener información del canal
-            String canalInfo = canalRepository.findById(mensaje.getCanalId())
-                .map(c -> "'" + c.getNombre() + "'")
+            String canalInfo = canalCatalog.findById(mensaje.getCanalId())
+                .map(c -> "'" + c.nombre() + "'")
                 .orElse("Canal ID " + mensaje.getCanalId());
 
             LOGGER.info("   Enviando a canal: " + canalInfo);
 
             // Enviar el mensaje a todos los miembros del canal (excluyendo al emisor)
             try {
-                var miembros = canalRepository.findUsers(mensaje.getCanalId());
+                var miembros = canalCatalog.miembros(mensaje.getCanalId());
                 int enviados = 0;
                 StringBuilder receptores = new StringBuilder();
-                for (var cliente : miembros) {
-                    if (cliente == null || cliente.getId() == null) continue;
-                    if (cliente.getId().equals(mensaje.getEmisor())) {
+                for (Long miembroId : miembros) {
+                    if (miembroId.equals(mensaje.getEmisor())) {
                         // No reenviar al emisor en este ciclo; se maneja más abajo
                         continue;
                     }
-                    connectionGateway.sendToUser(cliente.getId(), dto);
+                    connectionGateway.sendToUser(miembroId, dto);
                     enviados++;
                     // Mostrar solo el ID del receptor
-                    receptores.append(String.format("[ID:%d] ", cliente.getId()));
+                    receptores.append(String.format("[ID:%d] ", miembroId));
                 }
 
                 // Replicar también al emisor en todas sus sesiones activas
@@ -148,6 +150,40 @@ public class MessageNotificationService implements SessionObserver {
         }
     }
 
+    /**
+     * Avisa a los mismos destinatarios del mensaje original (receptor o miembros del canal,
+     * más el emisor) de que su transcripción está lista.
+     */
+    private void notificarTranscripcion(SessionEvent event) {
+        if (!(event.getPayload() instanceof AudioMensaje audio)) {
+            return;
+        }
+        try {
+            TranscriptionReadyDto dto = new TranscriptionReadyDto();
+            dto.setMensajeId(audio.getId());
+            dto.setEmisorId(audio.getEmisor());
+            dto.setReceptorId(audio.getReceptor());
+            dto.setCanalId(audio.getCanalId());
+            dto.setTipoConversacion(determinarTipoConversacion(audio));
+            dto.setTranscripcion(audio.getTranscripcion());
+            EncodedFrame frame = connectionGateway.encodeEvent(dto);
+
+            Set<Long> destinatarios = new LinkedHashSet<>();
+            if (audio.getCanalId() != null) {
+                destinatarios.addAll(canalCatalog.miembros(audio.getCanalId()));
+            } else if (audio.getReceptor() != null) {
+                destinatarios.add(audio.getReceptor());
+            }
+            if (audio.getEmisor() != null) {
+                destinatarios.add(audio.getEmisor());
+            }
+            destinatarios.forEach(id -> connectionGateway.sendToUser(id, frame));
+            LOGGER.fine(() -> "Transcripción del mensaje " + audio.getId() + " notificada a " + destinatarios.size() + " usuario(s)");
+        } catch (Exception e) {
+            LOGGER.warning(() -> "Error notificando transcripción del mensaje " + audio.getId() + ": " + e.getMessage());
+        }
+    }
+
     private RealtimeMessageDto construirEventoMensaje(Mensaje mensaje, String tipoEvento) {
         RealtimeMessageDto dto = new RealtimeMessageDto();
         dto.setEvento(tipoEvento);
@@ -184,17 +220,15 @@ public class MessageNotificationService implements SessionObserver {
         if (usuarioId == null) {
             return null;
         }
-        return clienteRepository.findById(usuarioId)
-                .map(com.arquitectura.entidades.Cliente::getNombreDeUsuario)
-                .orElse("Desconocido");
+        return identityCache.findNombreDeUsuario(usuarioId).orElse("Desconocido");
     }
 
     private String obtenerNombreCanal(Long canalId) {
         if (canalId == null) {
             return null;
         }
-        return canalRepository.findById(canalId)
-                .map(com.arquitectura.entidades.Canal::getNombre)
+        return canalCatalog.findById(canalId)
+                .map(CanalCatalog.CanalInfo::nombre)
                 .orElse("Canal " + canalId);
     }
 
@@ -226,7 +260,8 @@ public class MessageNotificationService implements SessionObserver {
             contenido.put("mime", audio.getMime());
             contenido.put("duracionSeg", audio.getDuracionSeg());
             contenido.put("transcripcion", audio.getTranscripcion());
-            contenido.put("audioBase64", audio.getAudioBase64());
+            contenido.put("tamanoBytes", audio.getTamanoBytes());
+            contenido.put("sha256", audio.getSha256());
         } else if (mensaje instanceof ArchivoMensaje archivo) {
             contenido.put("rutaArchivo", archivo.getRutaArchivo());
             contenido.put("mime", archivo.getMime());
@@ -1,23 +1,228 @@
 package com.arquitectura.servicios.eventos;
 
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
+import com.arquitectura.entidades.Mensaje;
+import com.arquitectura.servicios.metrics.ServerMetrics;
+
+/**
+ * Bus de eventos de sesión. Cada observador se suscribe de forma síncrona (corre en el hilo que
+ * publica, antes de que {@link #publish} retorne) o asíncrona (corre en hilos propios del
+ * observador, alimentados por colas acotadas).
+ * <p>
+ * En la suscripción asíncrona cada evento va a la partición de su clave: el canal para los
+ * mensajes de canal y el actor (o la sesión) para el resto, de modo que los eventos de una
+ * misma clave llegan en el orden en que se publicaron. Si la cola está llena, quien publica
+ * espera.
+ */
 public class SessionEventBus {
 
-    private final List<SessionObserver> observers = new CopyOnWriteArrayList<>();
+    private static final Logger LOGGER = Logger.getLogger(SessionEventBus.class.getName());
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private volatile int asyncWorkers = 2;
+    private volatile int asyncQueueCapacity = 4096;
+
+    /**
+     * Hilos por observador asíncrono y capacidad de la cola de cada hilo. Aplica a las
+     * suscripciones asíncronas posteriores.
+     */
+    public void configureAsync(int workers, int queueCapacity) {
+        this.asyncWorkers = Math.max(1, workers);
+        this.asyncQueueCapacity = Math.max(1, queueCapacity);
+    }
 
     public void subscribe(SessionObserver observer) {
-        observers.add(observer);
+        subscriptions.add(new Subscription(observer));
+    }
+
+    /**
+     * Suscribe un observador cuyo trabajo (E/S, base de datos, red) no debe retrasar a quien
+     * publica el evento.
+     */
+    public void subscribeAsync(SessionObserver observer) {
+        subscriptions.add(new AsyncSubscription(observer, asyncWorkers, asyncQueueCapacity));
     }
 
     public void unsubscribe(SessionObserver observer) {
-        observers.remove(observer);
+        for (Subscription subscription : subscriptions) {
+            if (subscription.observer == observer && subscriptions.remove(subscription)) {
+                subscription.close();
+            }
+        }
     }
 
     public void publish(SessionEvent event) {
-        for (SessionObserver observer : observers) {
-            observer.onEvent(event);
+        for (Subscription subscription : subscriptions) {
+            subscription.dispatch(event);
+        }
+    }
+
+    /**
+     * Deja de encolar eventos (los siguientes se entregan en el hilo que publica) y espera
+     * a que los observadores asíncronos vacíen sus colas.
+     */
+    public void shutdown(long timeoutMillis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        for (Subscription subscription : subscriptions) {
+            subscription.close();
+        }
+        for (Subscription subscription : subscriptions) {
+            subscription.await(deadline);
+        }
+    }
+
+    private static Object partitionKey(SessionEvent event) {
+        if (event.getPayload() instanceof Mensaje mensaje && mensaje.getCanalId() != null) {
+            return "canal:" + mensaje.getCanalId();
+        }
+        if (event.getActorId() != null) {
+            return event.getActorId();
+        }
+        return event.getSessionId() != null ? event.getSessionId() : event.getType();
+    }
+
+    private static class Subscription {
+        protected final SessionObserver observer;
+        protected final String name;
+
+        private Subscription(SessionObserver observer) {
+            this.observer = observer;
+            this.name = observer.getClass().getSimpleName();
+        }
+
+        void dispatch(SessionEvent event) {
+            long start = System.nanoTime();
+            try {
+                observer.onEvent(event);
+            } finally {
+                ServerMetrics.observeEventHandling(name, System.nanoTime() - start);
+            }
+        }
+
+        void close() {
         }
+
+        void await(long deadlineNanos) {
+        }
+    }
+
+    private static final class AsyncSubscription extends Subscription {
+        private final BlockingQueue<QueuedEvent>[] partitions;
+        private final Thread[] workers;
+        private volatile boolean closed;
+
+        @SuppressWarnings("unchecked")
+        private AsyncSubscription(SessionObserver observer, int workerCount, int queueCapacity) {
+            super(observer);
+            this.partitions = new BlockingQueue[workerCount];
+            this.workers = new Thread[workerCount];
+            for (int i = 0; i < workerCount; i++) {
+                BlockingQueue<QueuedEvent> queue = new ArrayBlockingQueue<>(queueCapacity);
+                partitions[i] = queue;
+                Thread worker = new Thread(() -> drain(queue), "EventBus-" + name + "-" + i);
+                worker.setDaemon(true);
+                workers[i] = worker;
+                worker.start();
+            }
+            ServerMetrics.bindEventQueueDepth(name, this::depth);
+        }
+
+        @Override
+        void dispatch(SessionEvent event) {
+            // Tras el cierre, o si el propio observador publica desde su hilo, se entrega en
+            // línea: esperar a su propia cola podría bloquearlo indefinidamente
+            if (closed || isWorkerThread()) {
+                deliver(event, System.nanoTime());
+                return;
+            }
+            BlockingQueue<QueuedEvent> queue =
+                partitions[Math.floorMod(partitionKey(event).hashCode(), partitions.length)];
+            try {
+                queue.put(new QueuedEvent(event, System.nanoTime()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                deliver(event, System.nanoTime());
+            }
+        }
+
+        private void drain(BlockingQueue<QueuedEvent> queue) {
+            while (true) {
+                QueuedEvent next;
+                try {
+                    next = queue.poll(200, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (next == null) {
+                    if (closed) {
+                        return;
+                    }
+                    continue;
+                }
+                deliver(next.event(), next.enqueuedAt());
+            }
+        }
+
+        private void deliver(SessionEvent event, long enqueuedAt) {
+            long start = System.nanoTime();
+            ServerMetrics.observeEventLag(name, start - enqueuedAt);
+            try {
+                observer.onEvent(event);
+            } catch (RuntimeException e) {
+                ServerMetrics.recordEventObserverError(name);
+                LOGGER.log(Level.WARNING, "Error en observador " + name + " procesando " + event.getType(), e);
+            } finally {
+                ServerMetrics.observeEventHandling(name, System.nanoTime() - start);
+            }
+        }
+
+        private boolean isWorkerThread() {
+            Thread current = Thread.currentThread();
+            for (Thread worker : workers) {
+                if (worker == current) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private int depth() {
+            int depth = 0;
+            for (BlockingQueue<QueuedEvent> queue : partitions) {
+                depth += queue.size();
+            }
+            return depth;
+        }
+
+        @Override
+        void close() {
+            closed = true;
+        }
+
+        @Override
+        void await(long deadlineNanos) {
+            for (Thread worker : workers) {
+                long remaining = deadlineNanos - System.nanoTime();
+                if (remaining <= 0) {
+                    return;
+                }
+                try {
+                    worker.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(remaining)));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private record QueuedEvent(SessionEvent event, long enqueuedAt) {
     }
 }
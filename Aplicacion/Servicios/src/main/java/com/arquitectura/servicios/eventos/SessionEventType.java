@@ -14,5 +14,6 @@ public enum SessionEventType {
     INVITE_ACCEPTED,
     INVITE_REJECTED,
     AUDIO_SENT,
+    TRANSCRIPTION_READY, // Transcripción de un audio guardada (para notificar a los destinatarios)
     CLUSTER_STATE_UPDATED
 }
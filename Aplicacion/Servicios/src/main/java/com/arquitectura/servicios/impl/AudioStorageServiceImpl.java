@@ -1,25 +1,64 @@
 package com.arquitectura.servicios.impl;
 
+import com.arquitectura.dto.AudioChunkResponse;
+import com.arquitectura.dto.AudioReferenceDto;
+import com.arquitectura.dto.UploadBeginRequest;
+import com.arquitectura.dto.UploadChunkRequest;
+import com.arquitectura.dto.UploadStatusResponse;
 import com.arquitectura.servicios.AudioStorageService;
 import com.arquitectura.servicios.metrics.ServerMetrics;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.HexFormat;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Implementación del servicio de almacenamiento de audio
- * Guarda los archivos en el sistema de archivos del servidor
+ * Guarda los archivos en el sistema de archivos del servidor; junto a cada audio se guarda
+ * su SHA-256 en un archivo {@code .sha256} para describirlo sin volver a leerlo.
  */
 public class AudioStorageServiceImpl implements AudioStorageService {
     
     private static final Logger LOGGER = Logger.getLogger(AudioStorageServiceImpl.class.getName());
     private static final String BASE_AUDIO_PATH = "media/audio/usuarios";
+    private static final String HASH_SUFFIX = ".sha256";
+    private static final String BASE_FILE_PATH = "media/archivos/usuarios";
+    private static final int DEFAULT_CHUNK_BYTES = 64 * 1024;
+    private static final long DEFAULT_MAX_UPLOAD_BYTES = 25L * 1024 * 1024;
+    private static final int DEFAULT_UPLOAD_CHUNK_BYTES = 256 * 1024;
+
+    private final int tamanoFragmento;
+    private final ChunkedUploadStore cargas;
+
+    public AudioStorageServiceImpl() {
+        this(DEFAULT_CHUNK_BYTES, DEFAULT_MAX_UPLOAD_BYTES, DEFAULT_UPLOAD_CHUNK_BYTES);
+    }
+
+    /**
+     * @param tamanoFragmento bytes máximos por fragmento en {@link #leerFragmento}
+     * @param maxCargaBytes tamaño máximo de un archivo subido
+     * @param fragmentoCargaBytes bytes máximos por fragmento en {@link #escribirFragmento}
+     */
+    public AudioStorageServiceImpl(int tamanoFragmento, long maxCargaBytes, int fragmentoCargaBytes) {
+        this.tamanoFragmento = tamanoFragmento > 0 ? tamanoFragmento : DEFAULT_CHUNK_BYTES;
+        this.cargas = new ChunkedUploadStore(
+            maxCargaBytes > 0 ? maxCargaBytes : DEFAULT_MAX_UPLOAD_BYTES,
+            fragmentoCargaBytes > 0 ? fragmentoCargaBytes : DEFAULT_UPLOAD_CHUNK_BYTES);
+    }
     
     @Override
     public String guardarAudio(String audioBase64, Long usuarioId, String mime) {
@@ -30,6 +69,12 @@ public class AudioStorageServiceImpl implements AudioStorageService {
         if (usuarioId == null) {
             throw new IllegalArgumentException("El ID de usuario es requerido");
         }
+
+        if (audioBase64.length() > 4 * ((cargas.getMaxBytes() + 2) / 3)) {
+            ServerMetrics.recordUploadRejected("too_large");
+            throw new IllegalArgumentException("El audio supera el máximo de " + cargas.getMaxBytes()
+                + " bytes; usa UPLOAD_BEGIN para subirlo por fragmentos");
+        }
         
         try {
             // Decodificar el audio desde Base64
@@ -46,6 +91,7 @@ public class AudioStorageServiceImpl implements AudioStorageService {
             
             // Guardar el archivo
             Files.write(rutaCompleta, audioBytes);
+            escribirHash(rutaCompleta, sha256(audioBytes));
             
             String rutaRelativa = BASE_AUDIO_PATH + "/" + usuarioId + "/" + nombreArchivo;
             LOGGER.info(() -> "Audio guardado exitosamente en: " + rutaRelativa + 
@@ -80,6 +126,7 @@ public class AudioStorageServiceImpl implements AudioStorageService {
         }
         try {
             Path path = Paths.get(rutaArchivo);
+            Files.deleteIfExists(hashPath(path));
             return Files.deleteIfExists(path);
         } catch (IOException e) {
             LOGGER.log(Level.WARNING, "Error eliminando archivo de audio: " + rutaArchivo, e);
@@ -108,6 +155,202 @@ public class AudioStorageServiceImpl implements AudioStorageService {
         }
     }
 
+    @Override
+    public AudioReferenceDto describirAudio(String rutaArchivo) {
+        Path path = resolverEnAlmacen(rutaArchivo);
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try {
+            return new AudioReferenceDto(rutaArchivo, Files.size(path), obtenerHash(path));
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Error describiendo archivo de audio " + rutaArchivo, e);
+            return null;
+        }
+    }
+
+    @Override
+    public AudioChunkResponse leerFragmento(String rutaArchivo, long offset) {
+        Path path = resolverEnAlmacen(rutaArchivo);
+        if (offset < 0) {
+            throw new IllegalArgumentException("El offset no puede ser negativo");
+        }
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long total = channel.size();
+            if (offset > total) {
+                throw new IllegalArgumentException("El offset supera el tamaño del audio");
+            }
+            byte[] datos = new byte[(int) Math.min(tamanoFragmento, total - offset)];
+            ByteBuffer buffer = ByteBuffer.wrap(datos);
+            // Lectura posicional: no depende ni modifica la posición del canal
+            int leidos = 0;
+            while (leidos < datos.length) {
+                int n = channel.read(buffer, offset + leidos);
+                if (n < 0) {
+                    break;
+                }
+                leidos += n;
+            }
+            String base64 = Base64.getEncoder().encodeToString(
+                leidos == datos.length ? datos : Arrays.copyOf(datos, leidos));
+            ServerMetrics.recordAudioFetchChunk(leidos);
+            return new AudioChunkResponse(rutaArchivo, offset, leidos, total, base64, offset + leidos >= total);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Error leyendo archivo de audio " + rutaArchivo, e);
+            throw new IllegalStateException("No se pudo leer el archivo de audio", e);
+        }
+    }
+
+    @Override
+    public void guardarAudioReplicado(String rutaArchivo, String audioBase64) {
+        Path path = resolverEnAlmacen(rutaArchivo);
+        if (audioBase64 == null || audioBase64.isEmpty() || Files.exists(path)) {
+            return;
+        }
+        byte[] audioBytes = Base64.getDecoder().decode(audioBase64);
+        try {
+            Files.createDirectories(path.getParent());
+            // Se escribe aparte y se mueve para que FETCH_AUDIO nunca vea un archivo a medias
+            Path temporal = Files.createTempFile(path.getParent(), "rep_", ".tmp");
+            try {
+                Files.write(temporal, audioBytes);
+                Files.move(temporal, path, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporal);
+            }
+            escribirHash(path, sha256(audioBytes));
+            ServerMetrics.recordAudioReplicated();
+            LOGGER.info(() -> "Audio replicado guardado en: " + rutaArchivo + " (" + audioBytes.length + " bytes)");
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "No se pudo guardar el audio replicado " + rutaArchivo, e);
+        }
+    }
+
+    @Override
+    public UploadStatusResponse iniciarCarga(Long usuarioId, UploadBeginRequest request) {
+        if (usuarioId == null) {
+            throw new IllegalArgumentException("El ID de usuario es requerido");
+        }
+        return cargas.iniciar(usuarioId, request);
+    }
+
+    @Override
+    public UploadStatusResponse escribirFragmento(Long usuarioId, UploadChunkRequest request) {
+        return cargas.escribir(usuarioId, request);
+    }
+
+    @Override
+    public String confirmarCarga(Long usuarioId, String uploadId) {
+        ChunkedUploadStore.CargaVerificada carga = cargas.confirmar(usuarioId, uploadId);
+        boolean esAudio = "AUDIO".equals(carga.tipo());
+        String base = esAudio ? BASE_AUDIO_PATH : BASE_FILE_PATH;
+        String extension = esAudio ? getExtensionFromMime(carga.mime()) : getExtensionFromName(carga.nombreArchivo());
+        // El sufijo del uploadId evita colisiones entre cargas cerradas en el mismo milisegundo
+        String nombreArchivo = (esAudio ? "rec_" : "file_") + System.currentTimeMillis()
+            + "_" + uploadId.substring(0, 8) + extension;
+        String rutaRelativa = base + "/" + usuarioId + "/" + nombreArchivo;
+        Path destino = Paths.get(base, usuarioId.toString(), nombreArchivo);
+        try {
+            Files.createDirectories(destino.getParent());
+            Files.move(carga.temporal(), destino, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Error publicando archivo subido " + rutaRelativa, e);
+            try {
+                Files.deleteIfExists(carga.temporal());
+            } catch (IOException ignored) {
+                // ya se registró el error principal
+            }
+            throw new IllegalStateException("No se pudo guardar el archivo subido", e);
+        }
+        escribirHash(destino, carga.sha256());
+        if (esAudio) {
+            ServerMetrics.recordAudioUpload(carga.tamanoBytes());
+        }
+        LOGGER.info(() -> "Carga " + uploadId + " guardada en: " + rutaRelativa + " (" + carga.tamanoBytes() + " bytes)");
+        return rutaRelativa;
+    }
+
+    /**
+     * Normaliza la ruta y exige que quede dentro del almacén de audios, para que una ruta
+     * recibida del cliente o de otro servidor no pueda leer ni escribir fuera de él.
+     */
+    private Path resolverEnAlmacen(String rutaArchivo) {
+        if (rutaArchivo == null || rutaArchivo.isBlank()) {
+            throw new IllegalArgumentException("La ruta del audio no puede estar vacía");
+        }
+        Path base = Paths.get(BASE_AUDIO_PATH).toAbsolutePath().normalize();
+        Path path = Paths.get(rutaArchivo).toAbsolutePath().normalize();
+        if (!path.startsWith(base) || path.equals(base) || path.getFileName().toString().endsWith(HASH_SUFFIX)) {
+            throw new IllegalArgumentException("Ruta de audio inválida: " + rutaArchivo);
+        }
+        return path;
+    }
+
+    /**
+     * Lee el hash guardado junto al audio; si falta (audios anteriores), lo calcula una vez
+     * recorriendo el archivo y lo guarda.
+     */
+    private String obtenerHash(Path path) throws IOException {
+        Path hashPath = hashPath(path);
+        if (Files.isRegularFile(hashPath)) {
+            String guardado = Files.readString(hashPath, StandardCharsets.US_ASCII).trim();
+            if (!guardado.isEmpty()) {
+                return guardado;
+            }
+        }
+        MessageDigest digest = nuevoDigest();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(tamanoFragmento);
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        String hash = HexFormat.of().formatHex(digest.digest());
+        escribirHash(path, hash);
+        return hash;
+    }
+
+    private void escribirHash(Path path, String hash) {
+        try {
+            Files.writeString(hashPath(path), hash, StandardCharsets.US_ASCII);
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "No se pudo guardar el hash de " + path, e);
+        }
+    }
+
+    private static Path hashPath(Path path) {
+        return path.resolveSibling(path.getFileName().toString() + HASH_SUFFIX);
+    }
+
+    private static String sha256(byte[] datos) {
+        return HexFormat.of().formatHex(nuevoDigest().digest(datos));
+    }
+
+    private static MessageDigest nuevoDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    /**
+     * Conserva la extensión del nombre original si es simple; si no, usa .bin
+     */
+    private String getExtensionFromName(String nombreArchivo) {
+        if (nombreArchivo == null) {
+            return ".bin";
+        }
+        int punto = nombreArchivo.lastIndexOf('.');
+        String extension = punto >= 0 ? nombreArchivo.substring(punto) : "";
+        return extension.matches("\\.[A-Za-z0-9]{1,8}") ? extension.toLowerCase() : ".bin";
+    }
+
     /**
      * Obtiene la extensión del archivo según el tipo MIME
      */
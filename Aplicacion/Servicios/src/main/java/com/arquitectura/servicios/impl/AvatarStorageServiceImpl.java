@@ -0,0 +1,92 @@
+package com.arquitectura.servicios.impl;
+
+import com.arquitectura.servicios.AvatarStorageService;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Guarda los avatares en {@code media/avatars/<2 primeros caracteres>/<sha256>}. Como el nombre
+ * es el contenido, dos usuarios con la misma imagen comparten archivo y un archivo nunca cambia.
+ */
+public class AvatarStorageServiceImpl implements AvatarStorageService {
+
+    private static final Logger LOGGER = Logger.getLogger(AvatarStorageServiceImpl.class.getName());
+    private static final String BASE_AVATAR_PATH = "media/avatars";
+
+    @Override
+    public String guardarAvatar(byte[] datos) {
+        if (datos == null || datos.length == 0) {
+            return null;
+        }
+        String hash = sha256(datos);
+        Path path = resolver(hash);
+        if (Files.exists(path)) {
+            return hash;
+        }
+        try {
+            Files.createDirectories(path.getParent());
+            // Se escribe aparte y se mueve para que nunca se lea un avatar a medias
+            Path temporal = Files.createTempFile(path.getParent(), "avatar_", ".tmp");
+            try {
+                Files.write(temporal, datos);
+                Files.move(temporal, path, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                // Otro hilo guardó la misma imagen a la vez
+            } finally {
+                Files.deleteIfExists(temporal);
+            }
+            LOGGER.fine(() -> "Avatar guardado: " + hash + " (" + datos.length + " bytes)");
+            return hash;
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Error guardando avatar", e);
+            throw new IllegalStateException("No se pudo guardar el avatar", e);
+        }
+    }
+
+    @Override
+    public Optional<byte[]> leerAvatar(String fotoHash) {
+        if (!esHashValido(fotoHash)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(Files.readAllBytes(resolver(fotoHash.toLowerCase(Locale.ROOT))));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Error leyendo avatar " + fotoHash, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Solo se aceptan 64 dígitos hexadecimales: el hash llega del cliente y forma la ruta.
+     */
+    static boolean esHashValido(String fotoHash) {
+        return fotoHash != null && fotoHash.matches("[0-9a-fA-F]{64}");
+    }
+
+    private static Path resolver(String hash) {
+        return Paths.get(BASE_AVATAR_PATH, hash.substring(0, 2), hash);
+    }
+
+    private static String sha256(byte[] datos) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(datos));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package com.arquitectura.servicios.impl;
+
+import com.arquitectura.dto.UploadBeginRequest;
+import com.arquitectura.dto.UploadChunkRequest;
+import com.arquitectura.dto.UploadStatusResponse;
+import com.arquitectura.servicios.metrics.ServerMetrics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Cargas por fragmentos en curso. Cada fragmento se escribe directamente en un archivo
+ * temporal por usuario y actualiza el SHA-256, así el archivo nunca está completo en memoria.
+ * Las cargas sobreviven a la reconexión del cliente (no al reinicio del servidor) y se
+ * descartan tras {@link #IDLE_TIMEOUT_MILLIS} sin actividad.
+ */
+final class ChunkedUploadStore {
+
+    private static final Logger LOGGER = Logger.getLogger(ChunkedUploadStore.class.getName());
+    private static final String UPLOAD_PATH = "media/uploads";
+    private static final long IDLE_TIMEOUT_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final int MAX_UPLOADS_PER_USER = 4;
+
+    private final long maxBytes;
+    private final int maxChunkBytes;
+    private final Map<String, Upload> uploads = new ConcurrentHashMap<>();
+
+    ChunkedUploadStore(long maxBytes, int maxChunkBytes) {
+        this.maxBytes = maxBytes;
+        this.maxChunkBytes = maxChunkBytes;
+    }
+
+    long getMaxBytes() {
+        return maxBytes;
+    }
+
+    UploadStatusResponse iniciar(Long usuarioId, UploadBeginRequest request) {
+        descartarInactivas();
+        if (request.getUploadId() != null && !request.getUploadId().isBlank()) {
+            Upload upload = buscar(usuarioId, request.getUploadId());
+            upload.lock.lock();
+            try {
+                upload.touch();
+                return estado(upload);
+            } finally {
+                upload.lock.unlock();
+            }
+        }
+        String tipo = request.getTipo() == null || request.getTipo().isBlank()
+            ? "AUDIO" : request.getTipo().trim().toUpperCase(Locale.ROOT);
+        if (!tipo.equals("AUDIO") && !tipo.equals("ARCHIVO")) {
+            throw new IllegalArgumentException("Tipo de carga no soportado: " + request.getTipo());
+        }
+        Long tamano = request.getTamanoBytes();
+        if (tamano == null || tamano < 0) {
+            throw new IllegalArgumentException("El tamaño del archivo es requerido");
+        }
+        if (tamano > maxBytes) {
+            ServerMetrics.recordUploadRejected("too_large");
+            throw new IllegalArgumentException("El archivo supera el máximo de " + maxBytes + " bytes");
+        }
+        String sha256 = request.getSha256();
+        if (sha256 == null || !sha256.matches("[0-9a-fA-F]{64}")) {
+            throw new IllegalArgumentException("El SHA-256 del archivo es requerido");
+        }
+        long enCurso = uploads.values().stream().filter(u -> u.usuarioId.equals(usuarioId)).count();
+        if (enCurso >= MAX_UPLOADS_PER_USER) {
+            ServerMetrics.recordUploadRejected("too_many");
+            throw new IllegalArgumentException("Demasiadas cargas en curso");
+        }
+
+        String uploadId = UUID.randomUUID().toString();
+        Path temporal = Paths.get(UPLOAD_PATH, usuarioId.toString(), uploadId + ".part");
+        try {
+            Files.createDirectories(temporal.getParent());
+            FileChannel channel = FileChannel.open(temporal,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            Upload upload = new Upload(uploadId, usuarioId, tipo, request.getMime(), request.getNombreArchivo(),
+                tamano, sha256.toLowerCase(Locale.ROOT), temporal, channel);
+            uploads.put(uploadId, upload);
+            LOGGER.info(() -> "Carga " + uploadId + " iniciada por usuario " + usuarioId + " (" + tamano + " bytes)");
+            return estado(upload);
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Error creando archivo temporal de carga", e);
+            throw new IllegalStateException("No se pudo iniciar la carga", e);
+        }
+    }
+
+    UploadStatusResponse escribir(Long usuarioId, UploadChunkRequest request) {
+        Upload upload = buscar(usuarioId, request.getUploadId());
+        String datosBase64 = request.getDatosBase64();
+        if (datosBase64 == null || datosBase64.isEmpty()) {
+            throw new IllegalArgumentException("El fragmento está vacío");
+        }
+        // Se rechaza antes de decodificar: el fragmento nunca ocupa más de maxChunkBytes
+        if (datosBase64.length() > 4L * ((maxChunkBytes + 2) / 3)) {
+            ServerMetrics.recordUploadRejected("chunk_too_large");
+            throw new IllegalArgumentException("El fragmento supera el máximo de " + maxChunkBytes + " bytes");
+        }
+        byte[] datos = Base64.getDecoder().decode(datosBase64);
+        // ReentrantLock y no synchronized: la escritura en disco no fija el hilo virtual a su portador
+        upload.lock.lock();
+        try {
+            if (upload.channel == null) {
+                throw new IllegalArgumentException("Carga no encontrada: " + upload.uploadId);
+            }
+            long offset = request.getOffset() != null ? request.getOffset() : upload.offset;
+            if (offset != upload.offset) {
+                // Fragmento repetido o fuera de orden: el cliente reanuda desde el offset devuelto
+                return estado(upload);
+            }
+            if (upload.offset + datos.length > upload.tamanoBytes) {
+                throw new IllegalArgumentException("El fragmento excede el tamaño declarado");
+            }
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(datos);
+                while (buffer.hasRemaining()) {
+                    upload.channel.write(buffer, upload.offset + buffer.position());
+                }
+            } catch (IOException e) {
+                truncar(upload);
+                LOGGER.log(Level.WARNING, "Error escribiendo fragmento de carga " + upload.uploadId, e);
+                throw new IllegalStateException("No se pudo escribir el fragmento", e);
+            }
+            upload.digest.update(datos);
+            upload.offset += datos.length;
+            upload.touch();
+            ServerMetrics.recordUploadChunk(datos.length);
+            return estado(upload);
+        } finally {
+            upload.lock.unlock();
+        }
+    }
+
+    /**
+     * Verifica tamaño y hash, cierra el archivo temporal y deja de seguir la carga.
+     * Quien llama mueve el archivo a su destino.
+     */
+    CargaVerificada confirmar(Long usuarioId, String uploadId) {
+        Upload upload = buscar(usuarioId, uploadId);
+        upload.lock.lock();
+        try {
+            if (upload.channel == null) {
+                throw new IllegalArgumentException("Carga no encontrada: " + uploadId);
+            }
+            if (upload.offset != upload.tamanoBytes) {
+                throw new IllegalArgumentException("Carga incompleta: " + upload.offset + " de "
+                    + upload.tamanoBytes + " bytes");
+            }
+            String hash = HexFormat.of().formatHex(upload.digest.digest());
+            uploads.remove(uploadId);
+            cerrar(upload);
+            if (!hash.equals(upload.sha256)) {
+                borrar(upload.temporal);
+                ServerMetrics.recordUploadRejected("checksum");
+                throw new IllegalArgumentException("El SHA-256 no coincide; la carga se descartó");
+            }
+            return new CargaVerificada(upload.temporal, upload.tipo, upload.mime, upload.nombreArchivo,
+                upload.tamanoBytes, hash);
+        } finally {
+            upload.lock.unlock();
+        }
+    }
+
+    private Upload buscar(Long usuarioId, String uploadId) {
+        Upload upload = uploadId != null ? uploads.get(uploadId) : null;
+        if (upload == null || !upload.usuarioId.equals(usuarioId)) {
+            throw new IllegalArgumentException("Carga no encontrada: " + uploadId);
+        }
+        return upload;
+    }
+
+    private UploadStatusResponse estado(Upload upload) {
+        return new UploadStatusResponse(upload.uploadId, upload.offset, upload.tamanoBytes, maxChunkBytes);
+    }
+
+    private void descartarInactivas() {
+        long limite = System.currentTimeMillis() - IDLE_TIMEOUT_MILLIS;
+        Iterator<Upload> it = uploads.values().iterator();
+        while (it.hasNext()) {
+            Upload upload = it.next();
+            if (upload.lastActivity < limite) {
+                it.remove();
+                upload.lock.lock();
+                try {
+                    cerrar(upload);
+                    borrar(upload.temporal);
+                } finally {
+                    upload.lock.unlock();
+                }
+                ServerMetrics.recordUploadRejected("expired");
+                LOGGER.info(() -> "Carga " + upload.uploadId + " descartada por inactividad");
+            }
+        }
+    }
+
+    private void truncar(Upload upload) {
+        try {
+            upload.channel.truncate(upload.offset);
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "No se pudo truncar la carga " + upload.uploadId, e);
+        }
+    }
+
+    private static void cerrar(Upload upload) {
+        if (upload.channel == null) {
+            return;
+        }
+        try {
+            upload.channel.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Error cerrando carga " + upload.uploadId, e);
+        }
+        upload.channel = null;
+    }
+
+    private static void borrar(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "No se pudo borrar " + path, e);
+        }
+    }
+
+    /**
+     * Carga terminada y verificada; {@code temporal} es el archivo a mover a su destino.
+     */
+    record CargaVerificada(Path temporal, String tipo, String mime, String nombreArchivo,
+                           long tamanoBytes, String sha256) {
+    }
+
+    private static final class Upload {
+        private final String uploadId;
+        private final Long usuarioId;
+        private final String tipo;
+        private final String mime;
+        private final String nombreArchivo;
+        private final long tamanoBytes;
+        private final String sha256;
+        private final Path temporal;
+        private final MessageDigest digest;
+        // Protege channel, offset y digest
+        private final ReentrantLock lock = new ReentrantLock();
+        private FileChannel channel;
+        private long offset;
+        private volatile long lastActivity = System.currentTimeMillis();
+
+        private Upload(String uploadId, Long usuarioId, String tipo, String mime, String nombreArchivo,
+                       long tamanoBytes, String sha256, Path temporal, FileChannel channel) {
+            this.uploadId = uploadId;
+            this.usuarioId = usuarioId;
+            this.tipo = tipo;
+            this.mime = mime;
+            this.nombreArchivo = nombreArchivo;
+            this.tamanoBytes = tamanoBytes;
+            this.sha256 = sha256;
+            this.temporal = temporal;
+            this.channel = channel;
+            try {
+                this.digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 no disponible", e);
+            }
+        }
+
+        private void touch() {
+            lastActivity = System.currentTimeMillis();
+        }
+    }
+}
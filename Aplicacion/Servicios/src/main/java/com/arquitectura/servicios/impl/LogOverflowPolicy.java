@@ -0,0 +1,26 @@
+package com.arquitectura.servicios.impl;
+
+import java.util.Locale;
+
+/**
+ * Qué hacer cuando el buffer de escritura diferida de logs está lleno porque la base no da abasto.
+ */
+public enum LogOverflowPolicy {
+    /** Descarta las entradas más antiguas pendientes y conserva las nuevas. */
+    DROP_OLDEST,
+    /** Descarta la entrada nueva. */
+    DROP_NEWEST,
+    /** Espera a que haya hueco: no se pierde nada, pero quien registra queda bloqueado. */
+    BLOCK;
+
+    public static LogOverflowPolicy fromConfig(String raw) {
+        if (raw == null || raw.isBlank()) {
+            return DROP_OLDEST;
+        }
+        try {
+            return valueOf(raw.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return DROP_OLDEST;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.arquitectura.servicios.impl;
 
+import com.arquitectura.dto.AudioReferenceDto;
 import com.arquitectura.dto.MessageRequest;
 import com.arquitectura.entidades.ArchivoMensaje;
 import com.arquitectura.entidades.AudioMensaje;
@@ -9,7 +10,6 @@ import com.arquitectura.entidades.MensajeFactory;
 import com.arquitectura.repositorios.LogRepository;
 import com.arquitectura.repositorios.MensajeRepository;
 import com.arquitectura.servicios.AudioStorageService;
-import com.arquitectura.servicios.AudioTranscriptionService;
 import com.arquitectura.servicios.MensajeriaService;
 import com.arquitectura.servicios.conexion.ConnectionGateway;
 import com.arquitectura.servicios.eventos.SessionEvent;
@@ -30,20 +30,20 @@ public class MensajeriaServiceImpl implements MensajeriaService, SessionObserver
     private final LogRepository logRepository;
     private final ConnectionGateway connectionGateway;
     private final SessionEventBus eventBus;
-    private final AudioTranscriptionService transcriptionService;
+    private final TranscriptionWorkerPool transcriptionPool;
     private final AudioStorageService audioStorageService;
 
     public MensajeriaServiceImpl(MensajeRepository mensajeRepository,
                                  LogRepository logRepository,
                                  ConnectionGateway connectionGateway,
                                  SessionEventBus eventBus,
-                                 AudioTranscriptionService transcriptionService,
+                                 TranscriptionWorkerPool transcriptionPool,
                                  AudioStorageService audioStorageService) {
         this.mensajeRepository = Objects.requireNonNull(mensajeRepository, "mensajeRepository");
         this.logRepository = Objects.requireNonNull(logRepository, "logRepository");
         this.connectionGateway = Objects.requireNonNull(connectionGateway, "connectionGateway");
         this.eventBus = Objects.requireNonNull(eventBus, "eventBus");
-        this.transcriptionService = Objects.requireNonNull(transcriptionService, "transcriptionService");
+        this.transcriptionPool = Objects.requireNonNull(transcriptionPool, "transcriptionPool");
         this.audioStorageService = Objects.requireNonNull(audioStorageService, "audioStorageService");
         this.eventBus.subscribe(this);
     }
@@ -65,6 +65,9 @@ public class MensajeriaServiceImpl implements MensajeriaService, SessionObserver
         
         // Evento específico para notificar al receptor
         eventBus.publish(new SessionEvent(SessionEventType.NEW_MESSAGE, null, saved.getReceptor(), saved));
+        if (saved instanceof AudioMensaje audio) {
+            transcriptionPool.submit(audio);
+        }
         
         return saved;
     }
@@ -86,10 +89,21 @@ public class MensajeriaServiceImpl implements MensajeriaService, SessionObserver
         
         // Evento específico para notificar a los miembros del canal
         eventBus.publish(new SessionEvent(SessionEventType.NEW_CHANNEL_MESSAGE, null, request.getEmisor(), saved));
+        if (saved instanceof AudioMensaje audio) {
+            transcriptionPool.submit(audio);
+        }
         
         return saved;
     }
 
+    @Override
+    public boolean puedeDescargarAudio(Long usuarioId, String rutaArchivo) {
+        if (usuarioId == null || rutaArchivo == null || rutaArchivo.isBlank()) {
+            return false;
+        }
+        return mensajeRepository.existsAttachmentVisibleTo(usuarioId, rutaArchivo);
+    }
+
     private Mensaje construirMensaje(MessageRequest request, boolean esCanal) {
         String tipo = request.getTipo() != null ? request.getTipo().toUpperCase(Locale.ROOT) : "TEXTO";
         Long receptor = esCanal ? null : request.getReceptor();
@@ -104,26 +118,18 @@ public class MensajeriaServiceImpl implements MensajeriaService, SessionObserver
                         request.getEmisor(),
                         receptor,
                         canalId);
-                // Transcribir el audio automáticamente
+                // La transcripción se hace en segundo plano tras guardar y entregar (TRANSCRIPTION_READY)
+                // Solo se adjunta la referencia; el contenido se descarga con FETCH_AUDIO
                 try {
-                    String transcripcion = transcriptionService.transcribir(request.getRutaArchivo());
-                    audioMensaje.setTranscripcion(transcripcion);
-                    LOGGER.info(() -> "Audio transcrito: " + transcripcion);
-                } catch (Exception e) {
-                    LOGGER.warning(() -> "Error transcribiendo audio: " + e.getMessage());
-                    audioMensaje.setTranscripcion("[Error al transcribir audio]");
-                }
-                if (audioMensaje.getRutaArchivo() != null && !audioMensaje.getRutaArchivo().isBlank()) {
-                    try {
-                        String audioBase64 = audioStorageService.cargarAudioBase64(audioMensaje.getRutaArchivo());
-                        audioMensaje.setAudioBase64(audioBase64);
-                    } catch (Exception e) {
-                        LOGGER.warning(() -> "No se pudo adjuntar contenido de audio: " + e.getMessage());
-                        audioMensaje.setAudioBase64(null);
+                    AudioReferenceDto referencia = audioStorageService.describirAudio(audioMensaje.getRutaArchivo());
+                    if (referencia != null) {
+                        audioMensaje.setTamanoBytes(referencia.getTamanoBytes());
+                        audioMensaje.setSha256(referencia.getSha256());
+                    } else {
+                        LOGGER.warning(() -> "Audio no encontrado: " + audioMensaje.getRutaArchivo());
                     }
-                } else {
-                    LOGGER.warning("Ruta de audio vacía, no se adjunta contenido codificado");
-                    audioMensaje.setAudioBase64(null);
+                } catch (Exception e) {
+                    LOGGER.warning(() -> "No se pudo describir el audio: " + e.getMessage());
                 }
                 mensaje = audioMensaje;
             }
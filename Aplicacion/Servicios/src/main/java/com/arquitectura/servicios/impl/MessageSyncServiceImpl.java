@@ -1,5 +1,6 @@
 package com.arquitectura.servicios.impl;
 
+import com.arquitectura.dto.AudioReferenceDto;
 import com.arquitectura.dto.MessageSyncResponse;
 import com.arquitectura.dto.SyncedMessageDto;
 import com.arquitectura.entidades.ArchivoMensaje;
@@ -7,11 +8,10 @@ import com.arquitectura.entidades.AudioMensaje;
 import com.arquitectura.entidades.Mensaje;
 import com.arquitectura.entidades.TextoMensaje;
 import com.arquitectura.repositorios.CanalRepository;
-import com.arquitectura.repositorios.ClienteRepository;
 import com.arquitectura.repositorios.MensajeRepository;
 import com.arquitectura.servicios.AudioStorageService;
 import com.arquitectura.servicios.MessageSyncService;
-import com.arquitectura.servicios.metrics.ServerMetrics;
+import com.arquitectura.servicios.cache.ClienteIdentityCache;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -29,30 +29,42 @@ public class MessageSyncServiceImpl implements MessageSyncService {
     private static final Logger LOGGER = Logger.getLogger(MessageSyncServiceImpl.class.getName());
 
     private final MensajeRepository mensajeRepository;
-    private final ClienteRepository clienteRepository;
+    private final ClienteIdentityCache identityCache;
     private final CanalRepository canalRepository;
     private final AudioStorageService audioStorageService;
+    private final int pageSize;
 
     public MessageSyncServiceImpl(MensajeRepository mensajeRepository,
-                                  ClienteRepository clienteRepository,
+                                  ClienteIdentityCache identityCache,
                                   CanalRepository canalRepository,
                                   AudioStorageService audioStorageService) {
+        this(mensajeRepository, identityCache, canalRepository, audioStorageService, 200);
+    }
+
+    public MessageSyncServiceImpl(MensajeRepository mensajeRepository,
+                                  ClienteIdentityCache identityCache,
+                                  CanalRepository canalRepository,
+                                  AudioStorageService audioStorageService,
+                                  int pageSize) {
         this.mensajeRepository = Objects.requireNonNull(mensajeRepository, "mensajeRepository");
-        this.clienteRepository = Objects.requireNonNull(clienteRepository, "clienteRepository");
+        this.identityCache = Objects.requireNonNull(identityCache, "identityCache");
         this.canalRepository = Objects.requireNonNull(canalRepository, "canalRepository");
         this.audioStorageService = Objects.requireNonNull(audioStorageService, "audioStorageService");
+        this.pageSize = Math.max(1, pageSize);
     }
 
     @Override
-    public MessageSyncResponse sincronizarMensajes(Long usuarioId) {
-        LOGGER.info(() -> "Sincronizando mensajes para usuario: " + usuarioId);
-        var timer = ServerMetrics.startMessageSyncTimer();
+    public MessageSyncResponse sincronizarMensajes(Long usuarioId, Long desdeId) {
+        long afterId = desdeId != null ? desdeId : 0L;
+        LOGGER.fine(() -> "Sincronizando mensajes para usuario " + usuarioId + " desde id " + afterId);
 
         try {
-            // Obtener todos los mensajes del usuario (enviados y recibidos)
-            List<Mensaje> mensajes = mensajeRepository.findAllByUser(usuarioId);
-
-            LOGGER.info(() -> "Encontrados " + mensajes.size() + " mensajes para usuario " + usuarioId);
+            // Se pide una fila de más para saber si queda otra página sin contarlas
+            List<Mensaje> mensajes = mensajeRepository.findByUserAfter(usuarioId, afterId, pageSize + 1);
+            boolean hasMore = mensajes.size() > pageSize;
+            if (hasMore) {
+                mensajes = mensajes.subList(0, pageSize);
+            }
 
             Map<Long, String> cacheUsuarios = new HashMap<>();
             Map<Long, String> cacheCanales = new HashMap<>();
@@ -63,15 +75,16 @@ public class MessageSyncServiceImpl implements MessageSyncService {
             }
 
             MessageSyncResponse response = new MessageSyncResponse(mensajesDto);
-            ServerMetrics.observeMessageSyncBacklog(response.getTotalMensajes());
+            response.setCursor(mensajes.isEmpty() ? desdeId : mensajes.get(mensajes.size() - 1).getId());
+            response.setHasMore(hasMore);
             return response;
 
         } catch (Exception e) {
             LOGGER.warning(() -> "Error sincronizando mensajes para usuario " + usuarioId + ": " + e.getMessage());
-            // Retornar respuesta vacía en caso de error
-            return new MessageSyncResponse(List.of());
-        } finally {
-            ServerMetrics.observeMessageSyncDuration(timer);
+            // Retornar respuesta vacía en caso de error; el cliente puede reintentar desde su cursor
+            MessageSyncResponse response = new MessageSyncResponse(List.of());
+            response.setCursor(desdeId);
+            return response;
         }
     }
 
@@ -116,14 +129,16 @@ public class MessageSyncServiceImpl implements MessageSyncService {
             contenido.put("mime", audio.getMime());
             contenido.put("duracionSeg", audio.getDuracionSeg());
             contenido.put("transcripcion", audio.getTranscripcion());
+            // Solo la referencia: el cliente descarga con FETCH_AUDIO los audios que reproduzca
             if (audio.getRutaArchivo() != null && !audio.getRutaArchivo().isBlank()) {
                 try {
-                    String audioBase64 = audioStorageService.cargarAudioBase64(audio.getRutaArchivo());
-                    if (audioBase64 != null) {
-                        contenido.put("audioBase64", audioBase64);
+                    AudioReferenceDto referencia = audioStorageService.describirAudio(audio.getRutaArchivo());
+                    if (referencia != null) {
+                        contenido.put("tamanoBytes", referencia.getTamanoBytes());
+                        contenido.put("sha256", referencia.getSha256());
                     }
                 } catch (Exception e) {
-                    LOGGER.warning(() -> "No se pudo cargar audio para sincronización: " + e.getMessage());
+                    LOGGER.warning(() -> "No se pudo describir audio para sincronización: " + e.getMessage());
                 }
             }
         } else if (mensaje instanceof ArchivoMensaje archivo) {
@@ -138,9 +153,7 @@ public class MessageSyncServiceImpl implements MessageSyncService {
             return null;
         }
         return cacheUsuarios.computeIfAbsent(usuarioId, id ->
-            clienteRepository.findById(id)
-                .map(com.arquitectura.entidades.Cliente::getNombreDeUsuario)
-                .orElse("Desconocido"));
+            identityCache.findNombreDeUsuario(id).orElse("Desconocido"));
     }
 
     private String obtenerNombreCanal(Long canalId, Map<Long, String> cacheCanales) {
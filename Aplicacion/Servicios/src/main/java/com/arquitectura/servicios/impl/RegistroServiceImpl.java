@@ -1,7 +1,9 @@
 package com.arquitectura.servicios.impl;
 
+import com.arquitectura.dto.AvatarResponse;
 import com.arquitectura.entidades.Cliente;
 import com.arquitectura.repositorios.ClienteRepository;
+import com.arquitectura.servicios.AvatarStorageService;
 import com.arquitectura.servicios.ConexionService;
 import com.arquitectura.servicios.RegistroService;
 import com.arquitectura.servicios.security.PasswordHasher;
@@ -11,7 +13,9 @@ import com.arquitectura.servicios.eventos.SessionEventType;
 import com.arquitectura.servicios.eventos.SessionEventTypes;
 import com.arquitectura.servicios.metrics.ServerMetrics;
 
+import java.util.Base64;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.logging.Logger;
 
 public class RegistroServiceImpl implements RegistroService {
@@ -20,15 +24,18 @@ public class RegistroServiceImpl implements RegistroService {
 
     private final ClienteRepository clienteRepository;
     private final PasswordHasher passwordHasher;
+    private final AvatarStorageService avatarStorage;
     private final SessionEventBus eventBus;
     private final SessionEventType userRegisteredEventType;
     private ConexionService conexionService; // Inyección circular - se establece después
 
     public RegistroServiceImpl(ClienteRepository clienteRepository,
                                PasswordHasher passwordHasher,
+                               AvatarStorageService avatarStorage,
                                SessionEventBus eventBus) {
         this.clienteRepository = Objects.requireNonNull(clienteRepository, "clienteRepository");
         this.passwordHasher = Objects.requireNonNull(passwordHasher, "passwordHasher");
+        this.avatarStorage = Objects.requireNonNull(avatarStorage, "avatarStorage");
         this.eventBus = Objects.requireNonNull(eventBus, "eventBus");
         this.userRegisteredEventType = SessionEventTypes.userRegistered();
         if (this.userRegisteredEventType == null) {
@@ -49,9 +56,7 @@ public class RegistroServiceImpl implements RegistroService {
             throw new IllegalArgumentException("El email ya está registrado");
         });
 
-        boolean usuarioDuplicado = clienteRepository.all().stream()
-                .anyMatch(cli -> cli.getNombreDeUsuario().equalsIgnoreCase(usuario));
-        if (usuarioDuplicado) {
+        if (clienteRepository.existsByUsuario(usuario)) {
             throw new IllegalArgumentException("El usuario ya está registrado");
         }
 
@@ -59,6 +64,8 @@ public class RegistroServiceImpl implements RegistroService {
         cliente.setNombreDeUsuario(usuario);
         cliente.setEmail(email);
         cliente.setContrasenia(passwordHasher.hash(contrasenia));
+        cliente.setFotoHash(avatarStorage.guardarAvatar(foto));
+        // Solo en memoria: la replicación del registro a otros servidores lleva la imagen
         cliente.setFoto(foto);
         cliente.setIp(normalizeIp(ip));
         cliente.setEstado(Boolean.FALSE);
@@ -91,6 +98,39 @@ public class RegistroServiceImpl implements RegistroService {
         return cliente;
     }
 
+    @Override
+    public AvatarResponse obtenerAvatar(Long usuarioId, String fotoHash) {
+        if (fotoHash != null && !fotoHash.isBlank()) {
+            byte[] datos = avatarStorage.leerAvatar(fotoHash)
+                    .orElseThrow(() -> new IllegalArgumentException("Avatar no encontrado"));
+            return new AvatarResponse(usuarioId, fotoHash, Base64.getEncoder().encodeToString(datos));
+        }
+        if (usuarioId == null) {
+            throw new IllegalArgumentException("Se requiere usuarioId o fotoHash");
+        }
+        Cliente cliente = clienteRepository.findById(usuarioId)
+                .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado"));
+        String hash = cliente.getFotoHash() != null ? cliente.getFotoHash() : migrarFotoAntigua(usuarioId);
+        byte[] datos = Optional.ofNullable(hash)
+                .flatMap(avatarStorage::leerAvatar)
+                .orElseThrow(() -> new IllegalArgumentException("El usuario no tiene avatar"));
+        return new AvatarResponse(usuarioId, hash, Base64.getEncoder().encodeToString(datos));
+    }
+
+    /**
+     * Pasa al almacén la foto de un registro anterior que todavía está en la base.
+     */
+    private String migrarFotoAntigua(Long usuarioId) {
+        return clienteRepository.findFoto(usuarioId)
+                .map(foto -> {
+                    String hash = avatarStorage.guardarAvatar(foto);
+                    clienteRepository.updateFotoHash(usuarioId, hash);
+                    LOGGER.info(() -> "Avatar del cliente " + usuarioId + " movido al almacén");
+                    return hash;
+                })
+                .orElse(null);
+    }
+
     private String normalizeIp(String ip) {
         if (ip == null) {
             return null;
@@ -3,6 +3,7 @@ package com.arquitectura.servicios.impl;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import com.arquitectura.dto.AudioMetadataDto;
@@ -11,26 +12,28 @@ import com.arquitectura.dto.LogEntryDto;
 import com.arquitectura.dto.UserSummary;
 import com.arquitectura.entidades.ArchivoMensaje;
 import com.arquitectura.entidades.AudioMensaje;
+import com.arquitectura.entidades.Cliente;
 import com.arquitectura.entidades.Mensaje;
-import com.arquitectura.repositorios.CanalRepository;
 import com.arquitectura.repositorios.ClienteRepository;
 import com.arquitectura.repositorios.LogRepository;
 import com.arquitectura.repositorios.MensajeRepository;
 import com.arquitectura.servicios.ReporteService;
+import com.arquitectura.servicios.cache.ChannelReportCache;
+import com.arquitectura.servicios.cache.ChannelReportCache.CanalReporte;
 
 public class ReporteServiceImpl implements ReporteService {
 
     private final ClienteRepository clienteRepository;
-    private final CanalRepository canalRepository;
+    private final ChannelReportCache channelReports;
     private final MensajeRepository mensajeRepository;
     private final LogRepository logRepository;
 
     public ReporteServiceImpl(ClienteRepository clienteRepository,
-                              CanalRepository canalRepository,
+                              ChannelReportCache channelReports,
                               MensajeRepository mensajeRepository,
                               LogRepository logRepository) {
         this.clienteRepository = Objects.requireNonNull(clienteRepository, "clienteRepository");
-        this.canalRepository = Objects.requireNonNull(canalRepository, "canalRepository");
+        this.channelReports = Objects.requireNonNull(channelReports, "channelReports");
         this.mensajeRepository = Objects.requireNonNull(mensajeRepository, "mensajeRepository");
         this.logRepository = Objects.requireNonNull(logRepository, "logRepository");
     }
@@ -39,50 +42,26 @@ public class ReporteServiceImpl implements ReporteService {
     public List<UserSummary> usuariosRegistrados(Long excluirUsuarioId) {
         return clienteRepository.all().stream()
                 .filter(cli -> excluirUsuarioId == null || !cli.getId().equals(excluirUsuarioId))
-                .map(cli -> new UserSummary(cli.getId(), cli.getNombreDeUsuario(), cli.getEmail(), Boolean.TRUE.equals(cli.getEstado())))
+                .map(cli -> resumen(cli, Boolean.TRUE.equals(cli.getEstado())))
                 .collect(Collectors.toList());
     }
 
     @Override
     public List<ChannelSummary> canalesConUsuarios() {
-        return canalRepository.findAll().stream()
-                .map(canal -> {
-                    ChannelSummary summary = new ChannelSummary(canal.getId(), canal.getUuid(), canal.getNombre(), Boolean.TRUE.equals(canal.getPrivado()));
-                    List<UserSummary> usuarios = canalRepository.findUsers(canal.getId()).stream()
-                            .map(cli -> new UserSummary(cli.getId(), cli.getNombreDeUsuario(), cli.getEmail(), Boolean.TRUE.equals(cli.getEstado())))
-                            .collect(Collectors.toCollection(ArrayList::new));
-                    summary.setUsuarios(usuarios);
-                    return summary;
-                })
-                .collect(Collectors.toList());
+        return resumenes(channelReports.todos());
     }
 
     @Override
     public List<ChannelSummary> canalesAccesiblesParaUsuario(Long usuarioId) {
-        return canalRepository.findAll().stream()
-                .filter(canal -> {
-                    // Solo mostrar canales donde el usuario es miembro
-                    List<Long> miembrosIds = canalRepository.findUsers(canal.getId()).stream()
-                            .map(cli -> cli.getId())
-                            .collect(Collectors.toList());
-                    return miembrosIds.contains(usuarioId);
-                })
-                .map(canal -> {
-                    ChannelSummary summary = new ChannelSummary(canal.getId(), canal.getUuid(), canal.getNombre(), Boolean.TRUE.equals(canal.getPrivado()));
-                    List<UserSummary> usuarios = canalRepository.findUsers(canal.getId()).stream()
-                            .map(cli -> new UserSummary(cli.getId(), cli.getNombreDeUsuario(), cli.getEmail(), Boolean.TRUE.equals(cli.getEstado())))
-                            .collect(Collectors.toCollection(ArrayList::new));
-                    summary.setUsuarios(usuarios);
-                    return summary;
-                })
-                .collect(Collectors.toList());
+        // Solo los canales donde el usuario es miembro
+        return resumenes(channelReports.canalesDe(usuarioId));
     }
 
     @Override
     public List<UserSummary> usuariosConectados(Long excluirUsuarioId) {
         return clienteRepository.findConnected().stream()
                 .filter(cli -> excluirUsuarioId == null || !cli.getId().equals(excluirUsuarioId))
-                .map(cli -> new UserSummary(cli.getId(), cli.getNombreDeUsuario(), cli.getEmail(), true))
+                .map(cli -> resumen(cli, true))
                 .collect(Collectors.toList());
     }
 
@@ -120,4 +99,37 @@ public class ReporteServiceImpl implements ReporteService {
                 .map(log -> new LogEntryDto(log.getId(), Boolean.TRUE.equals(log.getTipo()), log.getDetalle(), log.getFechaHora()))
                 .collect(Collectors.toList());
     }
+
+    /**
+     * Arma los DTO a partir de la caché; el estado de conexión se lee aparte porque cambia con
+     * cada login y no invalida la caché.
+     */
+    private List<ChannelSummary> resumenes(List<CanalReporte> canales) {
+        if (canales.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Set<Long> conectados = clienteRepository.findConnected().stream()
+                .map(Cliente::getId)
+                .collect(Collectors.toSet());
+        List<ChannelSummary> result = new ArrayList<>(canales.size());
+        for (CanalReporte canal : canales) {
+            ChannelSummary summary = new ChannelSummary(canal.id(), canal.uuid(), canal.nombre(), canal.privado());
+            List<UserSummary> usuarios = new ArrayList<>(canal.miembros().size());
+            for (ChannelReportCache.Miembro miembro : canal.miembros()) {
+                UserSummary usuario = new UserSummary(miembro.id(), miembro.usuario(), miembro.email(),
+                        conectados.contains(miembro.id()));
+                usuario.setFotoHash(miembro.fotoHash());
+                usuarios.add(usuario);
+            }
+            summary.setUsuarios(usuarios);
+            result.add(summary);
+        }
+        return result;
+    }
+
+    private static UserSummary resumen(Cliente cli, boolean conectado) {
+        UserSummary summary = new UserSummary(cli.getId(), cli.getNombreDeUsuario(), cli.getEmail(), conectado);
+        summary.setFotoHash(cli.getFotoHash());
+        return summary;
+    }
 }
@@ -0,0 +1,112 @@
+package com.arquitectura.servicios.impl;
+
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.arquitectura.entidades.AudioMensaje;
+import com.arquitectura.repositorios.MensajeRepository;
+import com.arquitectura.servicios.AudioTranscriptionService;
+import com.arquitectura.servicios.eventos.SessionEvent;
+import com.arquitectura.servicios.eventos.SessionEventBus;
+import com.arquitectura.servicios.eventos.SessionEventType;
+import com.arquitectura.servicios.metrics.ServerMetrics;
+
+/**
+ * Transcribe en segundo plano los audios ya guardados y entregados: un número fijo de hilos
+ * (por defecto uno por núcleo, todos sobre el mismo modelo) atiende una cola acotada. Al
+ * terminar guarda el texto en {@code mensajes.transcripcion} y publica
+ * {@link SessionEventType#TRANSCRIPTION_READY}.
+ */
+public class TranscriptionWorkerPool {
+
+    private static final Logger LOGGER = Logger.getLogger(TranscriptionWorkerPool.class.getName());
+    static final String TEXTO_COLA_LLENA = "[Transcripción no disponible: servidor ocupado]";
+    static final String TEXTO_ERROR = "[Error al transcribir audio]";
+
+    private final AudioTranscriptionService transcriptionService;
+    private final MensajeRepository mensajeRepository;
+    private final SessionEventBus eventBus;
+    private final ThreadPoolExecutor executor;
+
+    public TranscriptionWorkerPool(AudioTranscriptionService transcriptionService,
+                                   MensajeRepository mensajeRepository,
+                                   SessionEventBus eventBus,
+                                   int workers,
+                                   int queueCapacity) {
+        this.transcriptionService = Objects.requireNonNull(transcriptionService, "transcriptionService");
+        this.mensajeRepository = Objects.requireNonNull(mensajeRepository, "mensajeRepository");
+        this.eventBus = Objects.requireNonNull(eventBus, "eventBus");
+        int threads = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        ArrayBlockingQueue<Runnable> queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, queue, r -> {
+            Thread thread = new Thread(r, "Transcription-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        ServerMetrics.bindTranscriptionQueueDepth(queue::size);
+    }
+
+    /**
+     * Encola la transcripción de un audio ya persistido. Si la cola está llena el audio queda
+     * marcado como no transcrito y se notifica igual, para que los clientes no esperen.
+     */
+    public void submit(AudioMensaje mensaje) {
+        if (mensaje == null || mensaje.getId() == null) {
+            return;
+        }
+        long enqueuedAt = System.nanoTime();
+        try {
+            executor.execute(() -> transcribir(mensaje, enqueuedAt));
+        } catch (RejectedExecutionException e) {
+            ServerMetrics.recordTranscriptionRejected();
+            LOGGER.warning(() -> "Cola de transcripción llena, se omite el audio del mensaje " + mensaje.getId());
+            completar(mensaje, TEXTO_COLA_LLENA);
+        }
+    }
+
+    /**
+     * Deja de aceptar audios y espera a que terminen los encolados.
+     */
+    public void shutdown(long timeoutMillis) {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                LOGGER.warning(() -> executor.getQueue().size() + " audios quedaron sin transcribir al detener el servidor");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void transcribir(AudioMensaje mensaje, long enqueuedAt) {
+        String texto;
+        try {
+            texto = transcriptionService.transcribir(mensaje.getRutaArchivo());
+            LOGGER.info(() -> "Audio del mensaje " + mensaje.getId() + " transcrito");
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Error transcribiendo audio del mensaje " + mensaje.getId(), e);
+            texto = TEXTO_ERROR;
+        }
+        completar(mensaje, texto);
+        ServerMetrics.observeTranscriptionJob(System.nanoTime() - enqueuedAt);
+    }
+
+    private void completar(AudioMensaje mensaje, String texto) {
+        mensaje.setTranscripcion(texto);
+        try {
+            mensajeRepository.updateTranscripcion(mensaje.getId(), texto);
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "No se pudo guardar la transcripción del mensaje " + mensaje.getId(), e);
+        }
+        // Misma clave de partición que el NEW_MESSAGE, para que el aviso no le adelante
+        Long actor = mensaje.getCanalId() == null ? mensaje.getReceptor() : mensaje.getEmisor();
+        eventBus.publish(new SessionEvent(SessionEventType.TRANSCRIPTION_READY, null, actor, mensaje));
+    }
+}
@@ -14,10 +14,13 @@ import org.vosk.Model;
 import org.vosk.Recognizer;
 
 import com.arquitectura.servicios.AudioTranscriptionService;
+import com.arquitectura.servicios.metrics.ServerMetrics;
 
 /**
  * Implementación del servicio de transcripción usando Vosk
  * Requiere modelo de Vosk en español descargado en la carpeta models/
+ * El {@link Model} se carga una vez y lo comparten todos los hilos; cada llamada crea su
+ * propio {@link Recognizer}, así que admite transcripciones concurrentes.
  */
 public class VoskTranscriptionService implements AudioTranscriptionService {
     
@@ -54,7 +57,12 @@ public class VoskTranscriptionService implements AudioTranscriptionService {
             return "[Audio no encontrado]";
         }
         
+        long start = System.nanoTime();
         try (AudioInputStream originalStream = AudioSystem.getAudioInputStream(audioFile)) {
+            AudioFormat sourceFormat = originalStream.getFormat();
+            double audioSeconds = originalStream.getFrameLength() > 0 && sourceFormat.getFrameRate() > 0
+                    ? originalStream.getFrameLength() / sourceFormat.getFrameRate()
+                    : 0;
             AudioInputStream preparedStream = prepareStreamForVosk(originalStream);
             if (preparedStream == null) {
                 return "[Formato de audio no compatible - requiere PCM 16kHz mono]";
@@ -79,6 +87,7 @@ public class VoskTranscriptionService implements AudioTranscriptionService {
                 String finalText = extractText(recognizer.getFinalResult());
                 appendIfNotBlank(transcripcion, finalText);
 
+                ServerMetrics.observeTranscriptionRealTimeFactor(System.nanoTime() - start, audioSeconds);
                 String texto = transcripcion.toString().trim();
                 return texto.isEmpty() ? "[Sin contenido de voz detectado]" : texto;
             }
@@ -0,0 +1,186 @@
+package com.arquitectura.servicios.impl;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.arquitectura.entidades.Log;
+import com.arquitectura.repositorios.LogRepository;
+import com.arquitectura.servicios.metrics.ServerMetrics;
+
+/**
+ * Escritura diferida de la bitácora: {@link #append} solo encola la entrada y un hilo la
+ * persiste en lotes cuando se juntan {@code batchSize} entradas o pasa {@code flushInterval}.
+ * Las lecturas vacían antes el buffer para ver lo ya registrado.
+ */
+public class WriteBehindLogRepository implements LogRepository, AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(WriteBehindLogRepository.class.getName());
+
+    private final LogRepository delegate;
+    private final BlockingQueue<Log> buffer;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final LogOverflowPolicy overflowPolicy;
+    // Serializa las escrituras del hilo de fondo con los vaciados forzados por lecturas o cierre
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Thread writer;
+    private volatile boolean closed;
+
+    public WriteBehindLogRepository(LogRepository delegate,
+                                    int capacity,
+                                    int batchSize,
+                                    long flushIntervalMillis,
+                                    LogOverflowPolicy overflowPolicy) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+        this.buffer = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalMillis = Math.max(1, flushIntervalMillis);
+        this.overflowPolicy = overflowPolicy != null ? overflowPolicy : LogOverflowPolicy.DROP_OLDEST;
+        ServerMetrics.bindLogBufferSize(buffer::size);
+        this.writer = new Thread(this::runWriter, "Log-Writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @Override
+    public void append(Log log) {
+        if (log == null) {
+            return;
+        }
+        if (closed) {
+            delegate.append(log);
+            return;
+        }
+        if (buffer.offer(log)) {
+            return;
+        }
+        switch (overflowPolicy) {
+            case DROP_NEWEST -> ServerMetrics.recordLogDropped("overflow");
+            case DROP_OLDEST -> {
+                while (!buffer.offer(log)) {
+                    if (buffer.poll() != null) {
+                        ServerMetrics.recordLogDropped("overflow");
+                    }
+                }
+            }
+            case BLOCK -> {
+                try {
+                    buffer.put(log);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    ServerMetrics.recordLogDropped("interrupted");
+                }
+            }
+        }
+    }
+
+    @Override
+    public void appendAll(List<Log> logs) {
+        if (logs != null) {
+            logs.forEach(this::append);
+        }
+    }
+
+    @Override
+    public List<Log> findAll() {
+        flush();
+        return delegate.findAll();
+    }
+
+    @Override
+    public List<Log> findByFechaHoraAfter(LocalDateTime fechaHora) {
+        flush();
+        return delegate.findByFechaHoraAfter(fechaHora);
+    }
+
+    /**
+     * Persiste todo lo pendiente en el hilo que llama.
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            List<Log> batch = new ArrayList<>(batchSize);
+            while (buffer.drainTo(batch, batchSize) > 0) {
+                write(batch);
+                batch.clear();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Detiene el hilo de escritura y persiste lo pendiente; lo que llegue después se escribe
+     * directamente.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        // Sin interrumpir: el hilo puede estar dentro de JDBC; sale al vencer su espera
+        try {
+            writer.join(flushIntervalMillis + TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    private void runWriter() {
+        List<Log> batch = new ArrayList<>(batchSize);
+        while (!closed) {
+            try {
+                Log first = buffer.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // Se completa el lote hasta batchSize o hasta que venza el intervalo
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+                while (batch.size() < batchSize) {
+                    buffer.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    Log next = buffer.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // Lo ya sacado del buffer se escribe abajo; el resto lo vacía close()
+                Thread.currentThread().interrupt();
+                closed = true;
+            }
+            if (!batch.isEmpty()) {
+                flushLock.lock();
+                try {
+                    write(batch);
+                } finally {
+                    flushLock.unlock();
+                }
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<Log> batch) {
+        long start = System.nanoTime();
+        try {
+            delegate.appendAll(batch);
+            ServerMetrics.observeLogFlush(batch.size(), System.nanoTime() - start);
+        } catch (RuntimeException e) {
+            ServerMetrics.recordLogDropped("error", batch.size());
+            LOGGER.log(Level.WARNING, "No se pudieron persistir " + batch.size() + " entradas de log", e);
+        }
+    }
+}
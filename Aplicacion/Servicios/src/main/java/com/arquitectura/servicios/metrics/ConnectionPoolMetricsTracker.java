@@ -0,0 +1,39 @@
+package com.arquitectura.servicios.metrics;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+/**
+ * Adaptador que traduce los eventos del pool HikariCP a {@link ServerMetrics}:
+ * estado del pool (activas, inactivas, hilos esperando), latencia de adquisicion
+ * y tiempos de espera agotados.
+ */
+public class ConnectionPoolMetricsTracker implements MetricsTrackerFactory {
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        ServerMetrics.bindDbPoolStats(
+            poolStats::getActiveConnections,
+            poolStats::getIdleConnections,
+            poolStats::getPendingThreads,
+            poolStats::getTotalConnections
+        );
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                ServerMetrics.observeDbPoolAcquire(elapsedAcquiredNanos);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                ServerMetrics.observeDbPoolUsage(elapsedBorrowedMillis);
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                ServerMetrics.recordDbPoolTimeout();
+            }
+        };
+    }
+}
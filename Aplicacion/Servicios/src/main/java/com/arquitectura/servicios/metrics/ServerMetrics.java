@@ -4,13 +4,20 @@ import io.prometheus.client.Counter;
 import io.prometheus.client.Gauge;
 import io.prometheus.client.Histogram;
 import io.prometheus.client.exporter.HTTPServer;
+import jdk.jfr.consumer.RecordingStream;
 
 import java.io.IOException;
 import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -24,6 +31,7 @@ public final class ServerMetrics {
 
     private static volatile HTTPServer httpServer;
     private static volatile ScheduledExecutorService systemMetricsExecutor;
+    private static volatile RecordingStream pinningRecording;
 
     // --- TCP / comandos cliente ---
 
@@ -56,6 +64,12 @@ public final class ServerMetrics {
         .labelNames("command", "type")
         .register();
 
+    private static final Counter protocolNegotiations = Counter.build()
+        .name("chat_client_protocol_negotiations_total")
+        .help("Sesiones que negociaron protocolo con HELLO (json | cbor).")
+        .labelNames("protocol")
+        .register();
+
     private static final Histogram commandLatency = Histogram.build()
         .name("chat_command_latency_seconds")
         .help("Latencia de procesamiento de comandos (desde recepciÃ³n hasta respuesta).")
@@ -71,6 +85,18 @@ public final class ServerMetrics {
                  0.1, 0.25, 0.5, 1.0, 2.0, 5.0, 10.0)
         .register();
 
+    private static final Gauge sessionOutboundQueueDepth = Gauge.build()
+        .name("chat_session_outbound_queue_depth")
+        .help("Frames pendientes en la cola de salida de cada sesion TCP.")
+        .labelNames("session")
+        .register();
+
+    private static final Counter sessionOutboundDropped = Counter.build()
+        .name("chat_session_outbound_dropped_frames_total")
+        .help("Frames descartados por desborde de la cola de salida, por sesion y politica aplicada.")
+        .labelNames("session", "policy")
+        .register();
+
     public static Histogram.Timer startServerResponseTimer() {
 
         return serverResponseTime.startTimer();
@@ -123,6 +149,37 @@ public final class ServerMetrics {
         .buckets(1024, 4096, 16384, 65536, 262144, 1048576, 4194304)
         .register();
 
+    private static final Counter audioFetchChunks = Counter.build()
+        .name("chat_audio_fetch_chunks_total")
+        .help("Fragmentos de audio enviados por FETCH_AUDIO.")
+        .register();
+
+    private static final Counter audioFetchBytes = Counter.build()
+        .name("chat_audio_fetch_bytes_total")
+        .help("Bytes de audio enviados por FETCH_AUDIO (antes de codificar en Base64).")
+        .register();
+
+    private static final Counter audioReplicated = Counter.build()
+        .name("chat_audio_replicated_total")
+        .help("Audios recibidos de otros servidores y guardados localmente.")
+        .register();
+
+    private static final Counter uploadChunks = Counter.build()
+        .name("chat_upload_chunks_total")
+        .help("Fragmentos escritos por UPLOAD_CHUNK.")
+        .register();
+
+    private static final Counter uploadBytes = Counter.build()
+        .name("chat_upload_bytes_total")
+        .help("Bytes escritos a disco por UPLOAD_CHUNK.")
+        .register();
+
+    private static final Counter uploadRejected = Counter.build()
+        .name("chat_upload_rejected_total")
+        .help("Cargas o fragmentos rechazados por motivo (too_large, chunk_too_large, too_many, checksum, expired).")
+        .labelNames("reason")
+        .register();
+
     // --- SincronizaciÃ³n de mensajes ---
 
     private static final Histogram messageSyncBacklog = Histogram.build()
@@ -131,6 +188,18 @@ public final class ServerMetrics {
         .buckets(0, 10, 50, 100, 200, 500, 1000, 2000)
         .register();
 
+    private static final Histogram messageSyncPages = Histogram.build()
+        .name("chat_message_sync_pages")
+        .help("Paginas MESSAGE_SYNC enviadas por sincronizacion.")
+        .buckets(1, 2, 3, 5, 10, 20, 50, 100)
+        .register();
+
+    private static final Histogram messageSyncBytes = Histogram.build()
+        .name("chat_message_sync_bytes")
+        .help("Bytes enviados al cliente por sincronizacion de mensajes.")
+        .buckets(1024, 16384, 65536, 262144, 1048576, 4194304, 16777216, 67108864)
+        .register();
+
     private static final Histogram messageSyncDuration = Histogram.build()
         .name("chat_message_sync_duration_seconds")
         .help("Tiempo dedicado a construir la respuesta de sincronizaciÃ³n de mensajes.")
@@ -177,6 +246,220 @@ public final class ServerMetrics {
         .buckets(1, 2, 3, 4, 5, 8, 12, 16)
         .register();
 
+    private static final Gauge p2pRoutes = Gauge.build()
+        .name("chat_p2p_routes")
+        .help("Servidores alcanzables segun la tabla de rutas P2P.")
+        .register();
+
+    private static final Counter p2pWireBytes = Counter.build()
+        .name("chat_p2p_wire_bytes_total")
+        .help("Bytes enviados o recibidos por el enlace P2P, por peer, sentido (in | out) y formato (json | cbor).")
+        .labelNames("peer", "direction", "encoding")
+        .register();
+
+    private static final Counter p2pFrameBodyBytes = Counter.build()
+        .name("chat_p2p_frame_body_bytes_total")
+        .help("Bytes CBOR de las tramas P2P binarias antes de comprimir; wire_bytes/body_bytes da la compresion.")
+        .labelNames("peer", "direction")
+        .register();
+
+    private static final Histogram p2pEnvelopesPerFlush = Histogram.build()
+        .name("chat_p2p_envelopes_per_flush")
+        .help("Sobres P2P escritos en cada flush al socket de un peer.")
+        .buckets(1, 2, 4, 8, 16, 32, 64, 128, 256)
+        .register();
+
+    private static final Gauge p2pOutboxMessages = Gauge.build()
+        .name("chat_p2p_outbox_messages")
+        .help("Mensajes P2P reenviados que esperan confirmacion en el outbox.")
+        .register();
+
+    private static final Counter p2pOutboxEvents = Counter.build()
+        .name("chat_p2p_outbox_events_total")
+        .help("Eventos del outbox P2P: retried, confirmed, rejected, failed, expired, recovered, too_large.")
+        .labelNames("event")
+        .register();
+
+    private static final Counter p2pAcksSent = Counter.build()
+        .name("chat_p2p_acks_sent_total")
+        .help("Confirmaciones de mensajes P2P enviadas: individual (un ACK por mensaje) o window (acumulada).")
+        .labelNames("kind")
+        .register();
+
+    private static final Counter p2pWindowHeld = Counter.build()
+        .name("chat_p2p_window_held_total")
+        .help("Mensajes P2P que esperaron a que se abriera la ventana de confirmaciones del peer.")
+        .register();
+
+    private static final Histogram p2pCompressionRatio = Histogram.build()
+        .name("chat_p2p_compression_ratio")
+        .help("Tamano comprimido / original de cada trama P2P comprimida.")
+        .labelNames("peer", "direction")
+        .buckets(0.05, 0.1, 0.2, 0.3, 0.4, 0.5, 0.6, 0.7, 0.8, 0.9, 1)
+        .register();
+
+    // --- Hilos virtuales ---
+
+    private static final Counter virtualThreadPinned = Counter.build()
+        .name("chat_virtual_thread_pinned_total")
+        .help("Veces que un hilo virtual quedo fijado a su hilo portador al bloquearse (evento JFR jdk.VirtualThreadPinned).")
+        .register();
+
+    private static final Histogram virtualThreadPinnedDuration = Histogram.build()
+        .name("chat_virtual_thread_pinned_seconds")
+        .help("Duracion de los bloqueos con el hilo portador fijado.")
+        .buckets(0.02, 0.05, 0.1, 0.25, 0.5, 1.0, 2.0, 5.0)
+        .register();
+
+    // --- Pool de conexiones JDBC ---
+
+    private static final Gauge dbPoolConnections = Gauge.build()
+        .name("chat_db_pool_connections")
+        .help("Conexiones del pool JDBC por estado (active, idle, waiting, total).")
+        .labelNames("state")
+        .register();
+
+    private static final Histogram dbPoolAcquireSeconds = Histogram.build()
+        .name("chat_db_pool_acquire_seconds")
+        .help("Tiempo esperando una conexion libre del pool JDBC.")
+        .buckets(0.0005, 0.001, 0.005, 0.01, 0.05, 0.1, 0.5, 1.0, 5.0)
+        .register();
+
+    private static final Histogram dbPoolUsageSeconds = Histogram.build()
+        .name("chat_db_pool_usage_seconds")
+        .help("Tiempo que una conexion permanece prestada antes de volver al pool.")
+        .buckets(0.001, 0.005, 0.01, 0.05, 0.1, 0.5, 1.0, 5.0, 30.0)
+        .register();
+
+    private static final Counter dbPoolTimeouts = Counter.build()
+        .name("chat_db_pool_timeouts_total")
+        .help("Peticiones de conexion que agotaron el tiempo de espera del pool JDBC.")
+        .register();
+
+    // --- Bus de eventos ---
+
+    private static final Gauge eventQueueDepth = Gauge.build()
+        .name("chat_event_queue_depth")
+        .help("Eventos encolados pendientes por observador asincrono del bus.")
+        .labelNames("observer")
+        .register();
+
+    private static final Histogram eventDispatchLag = Histogram.build()
+        .name("chat_event_dispatch_lag_seconds")
+        .help("Tiempo entre la publicacion de un evento y el inicio de su procesamiento asincrono.")
+        .labelNames("observer")
+        .buckets(0.0001, 0.0005, 0.001, 0.005, 0.01, 0.05, 0.1, 0.5, 1.0, 5.0)
+        .register();
+
+    private static final Histogram eventHandlingSeconds = Histogram.build()
+        .name("chat_event_handling_seconds")
+        .help("Duracion del procesamiento de un evento por observador del bus.")
+        .labelNames("observer")
+        .buckets(0.0001, 0.0005, 0.001, 0.005, 0.01, 0.05, 0.1, 0.5, 1.0, 5.0)
+        .register();
+
+    private static final Counter eventObserverErrors = Counter.build()
+        .name("chat_event_observer_errors_total")
+        .help("Excepciones lanzadas por observadores asincronos del bus de eventos.")
+        .labelNames("observer")
+        .register();
+
+    private static final Map<String, List<IntSupplier>> eventQueueDepthSources = new ConcurrentHashMap<>();
+
+    // --- Escritura diferida de logs ---
+
+    private static final Gauge logBufferedEntries = Gauge.build()
+        .name("chat_log_buffered_entries")
+        .help("Entradas de log en el buffer de escritura diferida pendientes de persistir.")
+        .register();
+
+    private static final Histogram logFlushSeconds = Histogram.build()
+        .name("chat_log_flush_seconds")
+        .help("Duracion de cada insercion por lotes de entradas de log.")
+        .buckets(0.001, 0.005, 0.01, 0.05, 0.1, 0.5, 1.0, 5.0)
+        .register();
+
+    private static final Histogram logFlushBatchSize = Histogram.build()
+        .name("chat_log_flush_batch_size")
+        .help("Entradas de log persistidas por lote.")
+        .buckets(1, 5, 10, 25, 50, 100, 250, 500, 1000)
+        .register();
+
+    private static final Counter logDroppedEntries = Counter.build()
+        .name("chat_log_dropped_entries_total")
+        .help("Entradas de log descartadas por desborde del buffer o error al persistir.")
+        .labelNames("reason")
+        .register();
+
+    // --- Transcripción de audio ---
+
+    private static final Gauge transcriptionQueueDepth = Gauge.build()
+        .name("chat_transcription_queue_depth")
+        .help("Audios en espera de transcripcion.")
+        .register();
+
+    private static final Histogram transcriptionJobSeconds = Histogram.build()
+        .name("chat_transcription_job_seconds")
+        .help("Tiempo desde que se encola un audio hasta que su transcripcion queda guardada.")
+        .buckets(0.1, 0.5, 1.0, 2.5, 5.0, 10.0, 30.0, 60.0, 120.0)
+        .register();
+
+    private static final Histogram transcriptionRealTimeFactor = Histogram.build()
+        .name("chat_transcription_real_time_factor")
+        .help("Segundos de reconocimiento por segundo de audio (menor que 1 es mas rapido que tiempo real).")
+        .buckets(0.05, 0.1, 0.25, 0.5, 0.75, 1.0, 1.5, 2.0, 4.0)
+        .register();
+
+    private static final Counter transcriptionRejected = Counter.build()
+        .name("chat_transcription_rejected_total")
+        .help("Audios que no se transcribieron porque la cola estaba llena.")
+        .register();
+
+    // --- Caché de identidades de clientes ---
+
+    private static final Counter identityCacheRequests = Counter.build()
+        .name("chat_identity_cache_requests_total")
+        .help("Busquedas en la cache de identidades de clientes por resultado (hit | miss).")
+        .labelNames("result")
+        .register();
+
+    private static final Counter identityCacheEvictions = Counter.build()
+        .name("chat_identity_cache_evictions_total")
+        .help("Identidades descartadas de la cache por motivo (capacity | invalidated).")
+        .labelNames("reason")
+        .register();
+
+    private static final Gauge identityCacheSize = Gauge.build()
+        .name("chat_identity_cache_size")
+        .help("Identidades de clientes en cache.")
+        .register();
+
+    // --- Catálogo de canales ---
+
+    private static final Counter channelCatalogRequests = Counter.build()
+        .name("chat_channel_catalog_requests_total")
+        .help("Busquedas en el catalogo de canales por resultado (hit | miss).")
+        .labelNames("result")
+        .register();
+
+    private static final Gauge channelCatalogSize = Gauge.build()
+        .name("chat_channel_catalog_size")
+        .help("Canales en el catalogo en memoria.")
+        .register();
+
+    // --- Caché de listados de canales ---
+
+    private static final Counter channelReportCacheRequests = Counter.build()
+        .name("chat_channel_report_cache_requests_total")
+        .help("Listados de canales con miembros servidos desde cache o cargados (hit | miss).")
+        .labelNames("result")
+        .register();
+
+    private static final Gauge channelReportCacheSize = Gauge.build()
+        .name("chat_channel_report_cache_size")
+        .help("Usuarios con su listado de canales en cache.")
+        .register();
+
     // --- Recursos del sistema ---
 
     private static final Gauge systemCpuUsagePercent = Gauge.build()
@@ -232,6 +515,24 @@ public final class ServerMetrics {
         tcpConnectionEvents.labels(label).inc();
     }
 
+    public static void updateSessionOutboundDepth(String sessionId, int depth) {
+        sessionOutboundQueueDepth.labels(sessionLabel(sessionId)).set(depth);
+    }
+
+    public static void recordSessionOutboundDropped(String sessionId, String policy) {
+        sessionOutboundDropped.labels(sessionLabel(sessionId), normalizeLabel(policy)).inc();
+    }
+
+    /**
+     * Elimina las series de la sesion al cerrarla para no acumular etiquetas de sesiones muertas.
+     */
+    public static void clearSessionOutbound(String sessionId) {
+        String session = sessionLabel(sessionId);
+        sessionOutboundQueueDepth.remove(session);
+        sessionOutboundDropped.remove(session, "drop_oldest");
+        sessionOutboundDropped.remove(session, "disconnect");
+    }
+
     public static void onTcpSocketError(String phase, Exception exception) {
         String exName = exception != null ? exception.getClass().getSimpleName() : "Unknown";
         String phaseLabel = normalizeLabel(phase);
@@ -260,6 +561,10 @@ public final class ServerMetrics {
         commandErrors.labels(cmd, errorType).inc();
     }
 
+    public static void recordProtocolNegotiation(String protocol) {
+        protocolNegotiations.labels(normalizeLabel(protocol)).inc();
+    }
+
     // --- AutenticaciÃ³n / sesiones ---
 
     public static void recordLoginSuccess() {
@@ -296,6 +601,28 @@ public final class ServerMetrics {
         audioMessages.inc();
     }
 
+    public static void recordAudioFetchChunk(long bytes) {
+        audioFetchChunks.inc();
+        if (bytes > 0) {
+            audioFetchBytes.inc(bytes);
+        }
+    }
+
+    public static void recordAudioReplicated() {
+        audioReplicated.inc();
+    }
+
+    public static void recordUploadChunk(long bytes) {
+        uploadChunks.inc();
+        if (bytes > 0) {
+            uploadBytes.inc(bytes);
+        }
+    }
+
+    public static void recordUploadRejected(String reason) {
+        uploadRejected.labels(normalizeLabel(reason)).inc();
+    }
+
     // --- SincronizaciÃ³n de mensajes ---
 
     public static Histogram.Timer startMessageSyncTimer() {
@@ -312,6 +639,11 @@ public final class ServerMetrics {
         messageSyncBacklog.observe(totalMessages);
     }
 
+    public static void observeMessageSyncTransfer(int pages, long bytes) {
+        messageSyncPages.observe(pages);
+        messageSyncBytes.observe(bytes);
+    }
+
     // --- Eventos tiempo real ---
 
     public static void recordRealtimeEvent(String eventName) {
@@ -352,6 +684,256 @@ public final class ServerMetrics {
         p2pRouteHops.labels(t).observe(hops);
     }
 
+    public static void updateP2PRoutes(int count) {
+        p2pRoutes.set(count);
+    }
+
+    public static void observeP2PFlush(int envelopes) {
+        p2pEnvelopesPerFlush.observe(envelopes);
+    }
+
+    public static void bindP2POutboxSize(IntSupplier size) {
+        p2pOutboxMessages.setChild(new Gauge.Child() {
+            @Override
+            public double get() {
+                return size.getAsInt();
+            }
+        });
+    }
+
+    public static void recordP2POutbox(String event) {
+        p2pOutboxEvents.labels(normalizeLabel(event)).inc();
+    }
+
+    public static void recordP2PAckSent(String kind) {
+        p2pAcksSent.labels(normalizeLabel(kind)).inc();
+    }
+
+    public static void recordP2PWindowHeld() {
+        p2pWindowHeld.inc();
+    }
+
+    public static void recordP2PBytes(String peer, String direction, String encoding, long bytes) {
+        p2pWireBytes.labels(normalizeLabel(peer), normalizeLabel(direction), normalizeLabel(encoding)).inc(bytes);
+    }
+
+    /**
+     * Trama binaria: {@code bodyBytes} es el CBOR sin comprimir y {@code dataBytes} lo que viajó
+     * tras la cabecera.
+     */
+    public static void observeP2PFrame(String peer, String direction, long bodyBytes, long dataBytes, boolean compressed) {
+        String p = normalizeLabel(peer);
+        String d = normalizeLabel(direction);
+        p2pFrameBodyBytes.labels(p, d).inc(bodyBytes);
+        if (compressed && bodyBytes > 0) {
+            p2pCompressionRatio.labels(p, d).observe((double) dataBytes / bodyBytes);
+        }
+    }
+
+    // --- Hilos virtuales ---
+
+    /**
+     * Escucha el evento JFR {@code jdk.VirtualThreadPinned} (umbral por defecto de la JVM, 20 ms)
+     * y lo expone como metricas. Es idempotente; si JFR no esta disponible solo se registra el aviso.
+     */
+    public static synchronized void startVirtualThreadPinningMonitor() {
+        if (pinningRecording != null) {
+            return;
+        }
+        try {
+            RecordingStream stream = new RecordingStream();
+            stream.enable("jdk.VirtualThreadPinned");
+            stream.onEvent("jdk.VirtualThreadPinned", event -> recordVirtualThreadPinned(event.getDuration()));
+            stream.startAsync();
+            pinningRecording = stream;
+            LOGGER.info("Monitor de pinning de hilos virtuales activo (JFR jdk.VirtualThreadPinned)");
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "No se pudo iniciar el monitor JFR de pinning de hilos virtuales", e);
+        }
+    }
+
+    public static void recordVirtualThreadPinned(Duration duration) {
+        virtualThreadPinned.inc();
+        if (duration != null) {
+            virtualThreadPinnedDuration.observe(duration.toNanos() / 1_000_000_000.0);
+        }
+    }
+
+    // --- Pool de conexiones JDBC ---
+
+    /**
+     * Enlaza los gauges del pool a lecturas en vivo; Prometheus consulta los proveedores en cada scrape.
+     */
+    public static void bindDbPoolStats(IntSupplier active, IntSupplier idle, IntSupplier waiting, IntSupplier total) {
+        bindDbPoolGauge("active", active);
+        bindDbPoolGauge("idle", idle);
+        bindDbPoolGauge("waiting", waiting);
+        bindDbPoolGauge("total", total);
+    }
+
+    private static void bindDbPoolGauge(String state, IntSupplier supplier) {
+        dbPoolConnections.setChild(new Gauge.Child() {
+            @Override
+            public double get() {
+                return supplier.getAsInt();
+            }
+        }, state);
+    }
+
+    public static void observeDbPoolAcquire(long elapsedNanos) {
+        dbPoolAcquireSeconds.observe(elapsedNanos / 1_000_000_000.0);
+    }
+
+    public static void observeDbPoolUsage(long elapsedMillis) {
+        dbPoolUsageSeconds.observe(elapsedMillis / 1_000.0);
+    }
+
+    public static void recordDbPoolTimeout() {
+        dbPoolTimeouts.inc();
+    }
+
+    // --- Bus de eventos ---
+
+    /**
+     * Enlaza la profundidad de cola de un observador asíncrono; observadores con el mismo nombre
+     * comparten serie y se suman.
+     */
+    public static void bindEventQueueDepth(String observer, IntSupplier depth) {
+        List<IntSupplier> sources = eventQueueDepthSources.computeIfAbsent(observer, key -> {
+            List<IntSupplier> list = new CopyOnWriteArrayList<>();
+            eventQueueDepth.setChild(new Gauge.Child() {
+                @Override
+                public double get() {
+                    return list.stream().mapToInt(IntSupplier::getAsInt).sum();
+                }
+            }, key);
+            return list;
+        });
+        sources.add(depth);
+    }
+
+    public static void observeEventLag(String observer, long elapsedNanos) {
+        eventDispatchLag.labels(observer).observe(elapsedNanos / 1_000_000_000.0);
+    }
+
+    public static void observeEventHandling(String observer, long elapsedNanos) {
+        eventHandlingSeconds.labels(observer).observe(elapsedNanos / 1_000_000_000.0);
+    }
+
+    public static void recordEventObserverError(String observer) {
+        eventObserverErrors.labels(observer).inc();
+    }
+
+    // --- Escritura diferida de logs ---
+
+    public static void bindLogBufferSize(IntSupplier size) {
+        logBufferedEntries.setChild(new Gauge.Child() {
+            @Override
+            public double get() {
+                return size.getAsInt();
+            }
+        });
+    }
+
+    public static void observeLogFlush(int entries, long elapsedNanos) {
+        logFlushSeconds.observe(elapsedNanos / 1_000_000_000.0);
+        logFlushBatchSize.observe(entries);
+    }
+
+    public static void recordLogDropped(String reason) {
+        recordLogDropped(reason, 1);
+    }
+
+    public static void recordLogDropped(String reason, int entries) {
+        logDroppedEntries.labels(normalizeLabel(reason)).inc(entries);
+    }
+
+    // --- Transcripción de audio ---
+
+    public static void bindTranscriptionQueueDepth(IntSupplier depth) {
+        transcriptionQueueDepth.setChild(new Gauge.Child() {
+            @Override
+            public double get() {
+                return depth.getAsInt();
+            }
+        });
+    }
+
+    public static void observeTranscriptionJob(long elapsedNanos) {
+        transcriptionJobSeconds.observe(elapsedNanos / 1_000_000_000.0);
+    }
+
+    public static void observeTranscriptionRealTimeFactor(long elapsedNanos, double audioSeconds) {
+        if (audioSeconds > 0) {
+            transcriptionRealTimeFactor.observe(elapsedNanos / 1_000_000_000.0 / audioSeconds);
+        }
+    }
+
+    public static void recordTranscriptionRejected() {
+        transcriptionRejected.inc();
+    }
+
+    // --- Caché de identidades de clientes ---
+
+    public static void recordIdentityCacheHit() {
+        identityCacheRequests.labels("hit").inc();
+    }
+
+    public static void recordIdentityCacheMiss() {
+        identityCacheRequests.labels("miss").inc();
+    }
+
+    public static void recordIdentityCacheEviction(String reason) {
+        identityCacheEvictions.labels(normalizeLabel(reason)).inc();
+    }
+
+    public static void bindIdentityCacheSize(IntSupplier size) {
+        identityCacheSize.setChild(new Gauge.Child() {
+            @Override
+            public double get() {
+                return size.getAsInt();
+            }
+        });
+    }
+
+    // --- Catálogo de canales ---
+
+    public static void recordChannelCatalogHit() {
+        channelCatalogRequests.labels("hit").inc();
+    }
+
+    public static void recordChannelCatalogMiss() {
+        channelCatalogRequests.labels("miss").inc();
+    }
+
+    public static void bindChannelCatalogSize(IntSupplier size) {
+        channelCatalogSize.setChild(new Gauge.Child() {
+            @Override
+            public double get() {
+                return size.getAsInt();
+            }
+        });
+    }
+
+    // --- Caché de listados de canales ---
+
+    public static void recordChannelReportCacheHit() {
+        channelReportCacheRequests.labels("hit").inc();
+    }
+
+    public static void recordChannelReportCacheMiss() {
+        channelReportCacheRequests.labels("miss").inc();
+    }
+
+    public static void bindChannelReportCacheSize(IntSupplier size) {
+        channelReportCacheSize.setChild(new Gauge.Child() {
+            @Override
+            public double get() {
+                return size.getAsInt();
+            }
+        });
+    }
+
     // --- Utilidades ---
 
     private static String normalizeCommand(String command) {
@@ -361,6 +943,10 @@ public final class ServerMetrics {
         return command.trim().toUpperCase(Locale.ROOT);
     }
 
+    private static String sessionLabel(String sessionId) {
+        return sessionId != null && !sessionId.isBlank() ? sessionId.trim() : "unknown";
+    }
+
     private static String normalizeLabel(String raw) {
         if (raw == null || raw.isBlank()) {
             return "unknown";
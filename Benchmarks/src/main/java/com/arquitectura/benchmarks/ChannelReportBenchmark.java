@@ -0,0 +1,156 @@
+package com.arquitectura.benchmarks;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.arquitectura.dto.ChannelSummary;
+import com.arquitectura.dto.UserSummary;
+import com.arquitectura.entidades.Cliente;
+import com.arquitectura.repositorios.CanalRepository;
+import com.arquitectura.repositorios.LogRepository;
+import com.arquitectura.repositorios.MensajeRepository;
+import com.arquitectura.servicios.cache.ChannelReportCache;
+import com.arquitectura.servicios.impl.ReporteServiceImpl;
+
+/**
+ * {@code LIST_CHANNELS} ({@code canalesAccesiblesParaUsuario}) y {@code REPORT_CANALES}
+ * ({@code canalesConUsuarios}) sobre una {@link SeededDatabase}, antes y después de las consultas
+ * por join y la {@link ChannelReportCache}:
+ * <ul>
+ *   <li>{@code antes*}: el recorrido anterior, todos los canales y {@code findUsers} por canal.</li>
+ *   <li>{@code despues*Frio}: {@link ReporteServiceImpl} con la caché vacía en cada operación.</li>
+ *   <li>{@code despues*Cacheado}: la caché ya cargada; solo se lee quién está conectado.</li>
+ * </ul>
+ * {@code latenciaMicros} es lo que tarda cada consulta en ir y volver de la base. Al terminar
+ * cada prueba se imprimen las consultas por operación.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChannelReportBenchmark {
+
+    private static final int CLIENTES = 5_000;
+    private static final int MIEMBROS_POR_CANAL = 25;
+    private static final long SEMILLA = 20_240_520L;
+
+    @Param({"100", "1000", "5000"})
+    public int canales;
+
+    @Param({"0", "200"})
+    public long latenciaMicros;
+
+    private SeededDatabase base;
+    private CanalRepository canalRepository;
+    private ChannelReportCache cache;
+    private ReporteServiceImpl reportes;
+    private Long usuarioId;
+    private long consultasAlInicio;
+    private long operaciones;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        base = new SeededDatabase(canales, CLIENTES, MIEMBROS_POR_CANAL, latenciaMicros, SEMILLA);
+        canalRepository = base.canalRepository();
+        cache = new ChannelReportCache(canalRepository, 10_000, null);
+        reportes = new ReporteServiceImpl(base.clienteRepository(), cache,
+                sinUso(MensajeRepository.class), sinUso(LogRepository.class));
+        usuarioId = base.clienteConMasCanales();
+    }
+
+    @Setup(Level.Iteration)
+    public void contar() {
+        consultasAlInicio = base.consultas();
+        operaciones = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void informar() {
+        if (operaciones > 0) {
+            System.out.printf(" [%.1f consultas/op]", (double) (base.consultas() - consultasAlInicio) / operaciones);
+        }
+    }
+
+    @Benchmark
+    public List<ChannelSummary> antesListChannels() {
+        operaciones++;
+        return canalRepository.findAll().stream()
+                .filter(canal -> canalRepository.findUsers(canal.getId()).stream()
+                        .map(Cliente::getId)
+                        .collect(Collectors.toList())
+                        .contains(usuarioId))
+                .map(canal -> resumenAnterior(canal.getId(), canal.getUuid(), canal.getNombre(), canal.getPrivado()))
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<ChannelSummary> despuesListChannelsFrio() {
+        operaciones++;
+        cache.invalidateAll();
+        return reportes.canalesAccesiblesParaUsuario(usuarioId);
+    }
+
+    @Benchmark
+    public List<ChannelSummary> despuesListChannelsCacheado() {
+        operaciones++;
+        return reportes.canalesAccesiblesParaUsuario(usuarioId);
+    }
+
+    @Benchmark
+    public List<ChannelSummary> antesReportCanales() {
+        operaciones++;
+        return canalRepository.findAll().stream()
+                .map(canal -> resumenAnterior(canal.getId(), canal.getUuid(), canal.getNombre(), canal.getPrivado()))
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<ChannelSummary> despuesReportCanalesFrio() {
+        operaciones++;
+        cache.invalidateAll();
+        return reportes.canalesConUsuarios();
+    }
+
+    /**
+     * El resumen de un canal como lo armaba {@code ReporteServiceImpl} antes: una consulta más.
+     */
+    private ChannelSummary resumenAnterior(Long id, String uuid, String nombre, Boolean privado) {
+        ChannelSummary summary = new ChannelSummary(id, uuid, nombre, Boolean.TRUE.equals(privado));
+        List<UserSummary> usuarios = canalRepository.findUsers(id).stream()
+                .map(cli -> {
+                    UserSummary usuario = new UserSummary(cli.getId(), cli.getNombreDeUsuario(), cli.getEmail(),
+                            Boolean.TRUE.equals(cli.getEstado()));
+                    usuario.setFotoHash(cli.getFotoHash());
+                    return usuario;
+                })
+                .collect(Collectors.toCollection(ArrayList::new));
+        summary.setUsuarios(usuarios);
+        return summary;
+    }
+
+    private static <T> T sinUso(Class<T> tipo) {
+        return tipo.cast(Proxy.newProxyInstance(tipo.getClassLoader(), new Class<?>[]{tipo},
+                (proxy, method, args) -> {
+                    throw new UnsupportedOperationException(method.getName());
+                }));
+    }
+}
@@ -0,0 +1,154 @@
+package com.arquitectura.benchmarks;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.arquitectura.controladores.conexion.BinaryFrameCodec;
+import com.arquitectura.dto.AckResponse;
+import com.arquitectura.dto.CommandEnvelope;
+import com.arquitectura.dto.MessageRequest;
+import com.arquitectura.dto.MessageSyncResponse;
+import com.arquitectura.dto.SyncedMessageDto;
+import com.arquitectura.servicios.conexion.EncodedFrame;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * Trabajo de protocolo que hace el servidor por comando, en JSON por líneas y en CBOR con prefijo
+ * de longitud (negociado con {@code HELLO}), siguiendo los mismos pasos que {@code ConnectionHandler}:
+ * <ul>
+ *   <li>{@code SEND_CHANNEL}: leer la trama del cliente hasta el {@link MessageRequest} y codificar
+ *   el {@link AckResponse}.</li>
+ *   <li>{@code MESSAGE_SYNC}: codificar una página de historial de {@code pageSize} mensajes
+ *   (200 por defecto en {@code server.messageSync.pageSize}).</li>
+ * </ul>
+ * No incluye los servicios ni el registro de la respuesta en el log. Para el costo de CPU y de
+ * memoria por comando: {@code java -jar Benchmarks/target/benchmarks.jar ClientProtocol -prof gc}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ClientProtocolBenchmark {
+
+    @Param({"JSON", "CBOR"})
+    public String protocolo;
+
+    @Param({"200"})
+    public int pageSize;
+
+    private ObjectMapper mapper;
+    private boolean binario;
+    private String lineaSendChannel;
+    private byte[] tramaSendChannel;
+    private MessageSyncResponse pagina;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        // Misma configuración que el ObjectMapper de ConnectionHandler
+        mapper = new ObjectMapper();
+        mapper.registerModule(new JavaTimeModule());
+        mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        binario = "CBOR".equals(protocolo);
+
+        MessageRequest request = new MessageRequest();
+        request.setTipo("TEXTO");
+        request.setContenido("Hola a todos, la reunión pasa a las 15:30 en la sala 2. ¿Alguien no puede?");
+        request.setCanalId(42L);
+        CommandEnvelope sendChannel = new CommandEnvelope("SEND_CHANNEL", request);
+        lineaSendChannel = mapper.writeValueAsString(sendChannel);
+        byte[] trama = BinaryFrameCodec.encode(sendChannel);
+        // El transporte entrega el cuerpo sin el prefijo de longitud
+        tramaSendChannel = new byte[trama.length - BinaryFrameCodec.HEADER_BYTES];
+        System.arraycopy(trama, BinaryFrameCodec.HEADER_BYTES, tramaSendChannel, 0, tramaSendChannel.length);
+
+        pagina = paginaDeHistorial(pageSize);
+    }
+
+    @Benchmark
+    public long sendChannel() throws IOException {
+        JsonNode node = binario ? BinaryFrameCodec.decode(tramaSendChannel) : mapper.readTree(lineaSendChannel);
+        MessageRequest request = mapper.treeToValue(node.get("payload"), MessageRequest.class);
+        return codificar("SEND_CHANNEL", new AckResponse("Mensaje a canal enviado")) + request.getCanalId();
+    }
+
+    @Benchmark
+    public long messageSync() throws IOException {
+        return codificar("MESSAGE_SYNC", pagina);
+    }
+
+    /**
+     * Como {@code ConnectionHandler.send}: la trama binaria completa, o la línea JSON ya en UTF-8
+     * tal como la encola el registro.
+     */
+    private long codificar(String command, Object payload) throws IOException {
+        CommandEnvelope response = new CommandEnvelope(command, payload);
+        if (binario) {
+            return BinaryFrameCodec.encode(response).length;
+        }
+        return EncodedFrame.of(null, mapper.writeValueAsString(response)).length();
+    }
+
+    static MessageSyncResponse paginaDeHistorial(int mensajes) {
+        List<SyncedMessageDto> lista = new ArrayList<>(mensajes);
+        LocalDateTime inicio = LocalDateTime.of(2024, 5, 20, 9, 0);
+        for (int i = 0; i < mensajes; i++) {
+            SyncedMessageDto dto = new SyncedMessageDto();
+            dto.setId(10_000L + i);
+            dto.setTimestamp(inicio.plusSeconds(37L * i));
+            long emisor = 1 + i % 7;
+            dto.setEmisorId(emisor);
+            dto.setEmisorNombre("usuario" + emisor);
+            Map<String, Object> contenido = new LinkedHashMap<>();
+            if (i % 5 == 4) {
+                dto.setTipoMensaje("AUDIO");
+                contenido.put("rutaArchivo", "media/audio/2024/05/20/" + (10_000 + i) + ".ogg");
+                contenido.put("mime", "audio/ogg");
+                contenido.put("duracionSeg", 12 + i % 40);
+                contenido.put("transcripcion", "te llamo cuando salga de la reunión");
+                contenido.put("tamanoBytes", 48_213L + i);
+                contenido.put("sha256", "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08");
+            } else {
+                dto.setTipoMensaje("TEXTO");
+                contenido.put("contenido", "Mensaje " + i + " del historial, con algo de texto típico de un chat.");
+            }
+            dto.setContenido(contenido);
+            if (i % 2 == 0) {
+                dto.setCanalId(42L);
+                dto.setCanalNombre("general");
+                dto.setTipoConversacion("CANAL");
+            } else {
+                dto.setReceptorId(1L);
+                dto.setReceptorNombre("usuario1");
+                dto.setTipoConversacion("DIRECTO");
+            }
+            lista.add(dto);
+        }
+        MessageSyncResponse page = new MessageSyncResponse(lista);
+        page.setCursor(10_000L + mensajes - 1);
+        page.setHasMore(true);
+        return page;
+    }
+}
@@ -0,0 +1,153 @@
+package com.arquitectura.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.arquitectura.controladores.conexion.BinaryFrameCodec;
+import com.arquitectura.controladores.conexion.ConnectionRegistry;
+import com.arquitectura.dto.CommandEnvelope;
+import com.arquitectura.dto.RealtimeMessageDto;
+import com.arquitectura.dto.UserSummary;
+import com.arquitectura.repositorios.CanalRepository;
+import com.arquitectura.servicios.conexion.EncodedFrame;
+import com.arquitectura.servicios.eventos.SessionEventBus;
+
+/**
+ * Costo de codificar un evento de mensaje de canal para {@code recipients} sesiones: una vez por
+ * destinatario (como antes de {@link EncodedFrame}) o una sola vez compartida entre todas.
+ * <p>
+ * El evento es el que arma {@code MessageNotificationService}, con la lista de miembros del canal,
+ * así que crece con la audiencia igual que en producción. Las sesiones son sumideros en memoria:
+ * se mide la serialización y la copia a la salida, no la red.
+ * <p>
+ * {@code java -jar Benchmarks/target/benchmarks.jar FanOutEncoding -prof gc} muestra además los
+ * bytes asignados por operación.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FanOutEncodingBenchmark {
+
+    private static final EncodedFrame.BinaryEncoder BINARY_EVENT_ENCODER =
+        payload -> BinaryFrameCodec.encode(new CommandEnvelope("EVENT", payload));
+
+    @Param({"10", "100", "1000"})
+    public int recipients;
+
+    // JSON: sesiones de texto; CBOR: sesiones que negociaron el protocolo binario con HELLO
+    @Param({"JSON", "CBOR"})
+    public String protocolo;
+
+    private ConnectionRegistry registry;
+    private RealtimeMessageDto evento;
+    private Sink[] sesiones;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // El registro solo se usa para serializar; el repositorio no se consulta
+        CanalRepository sinBase = (CanalRepository) Proxy.newProxyInstance(
+            CanalRepository.class.getClassLoader(), new Class<?>[]{CanalRepository.class},
+            (proxy, method, args) -> {
+                throw new UnsupportedOperationException(method.getName());
+            });
+        registry = new ConnectionRegistry(new SessionEventBus(), "bench", sinBase);
+        evento = eventoDeCanal(recipients);
+        sesiones = new Sink[recipients];
+        for (int i = 0; i < recipients; i++) {
+            sesiones[i] = new Sink();
+        }
+    }
+
+    @Benchmark
+    public long porDestinatario() throws IOException {
+        long total = 0;
+        boolean binario = "CBOR".equals(protocolo);
+        for (Sink sesion : sesiones) {
+            if (binario) {
+                byte[] trama = BinaryFrameCodec.encode(new CommandEnvelope("EVENT", evento));
+                sesion.write(trama, 0, trama.length);
+            } else {
+                registry.encodeEvent(evento).writeTo(sesion);
+            }
+            total += sesion.bytes;
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long compartido() throws IOException {
+        long total = 0;
+        EncodedFrame frame = registry.encodeEvent(evento);
+        if ("CBOR".equals(protocolo)) {
+            frame = frame.toBinary(BINARY_EVENT_ENCODER);
+        }
+        for (Sink sesion : sesiones) {
+            frame.writeTo(sesion);
+            total += sesion.bytes;
+        }
+        return total;
+    }
+
+    static RealtimeMessageDto eventoDeCanal(int miembros) {
+        List<UserSummary> lista = new ArrayList<>(miembros);
+        for (long i = 1; i <= miembros; i++) {
+            lista.add(new UserSummary(i, "usuario" + i, "usuario" + i + "@chat.local", i % 3 != 0));
+        }
+        Map<String, Object> contenido = new LinkedHashMap<>();
+        contenido.put("contenido", "Hola a todos, la reunión pasa a las 15:30 en la sala 2. ¿Alguien no puede?");
+
+        RealtimeMessageDto dto = new RealtimeMessageDto();
+        dto.setEvento("NEW_CHANNEL_MESSAGE");
+        dto.setId(123_456L);
+        dto.setTipoMensaje("TEXTO");
+        dto.setTimestamp(LocalDateTime.of(2024, 5, 20, 15, 0, 12));
+        dto.setEmisorId(1L);
+        dto.setEmisorNombre("usuario1");
+        dto.setCanalId(42L);
+        dto.setCanalNombre("general");
+        dto.setCanalMiembros(lista);
+        dto.setTipoConversacion("CANAL");
+        dto.setContenido(contenido);
+        return dto;
+    }
+
+    /**
+     * Salida de una sesión: cuenta lo escrito para que el JIT no pueda descartar la escritura.
+     */
+    static final class Sink extends OutputStream {
+        long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.arquitectura.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.arquitectura.entidades.Canal;
+import com.arquitectura.entidades.Cliente;
+import com.arquitectura.repositorios.CanalRepository;
+import com.arquitectura.repositorios.ClienteRepository;
+
+/**
+ * Base de datos en memoria con canales, clientes y membresías generados con semilla fija, para
+ * medir código que consulta {@link CanalRepository} y {@link ClienteRepository} sin MySQL.
+ * <p>
+ * Cada método de lectura cuenta como las consultas que haría la implementación JDBC (las listas
+ * de ids van en bloques de {@value #IN_CHUNK}, como en {@code JdbcCanalRepository}) y espera
+ * {@code latenciaMicros} por consulta para representar el viaje de ida y vuelta a la base.
+ * Las escrituras no se usan y fallan.
+ */
+final class SeededDatabase {
+
+    private static final int IN_CHUNK = 500;
+
+    private final long latenciaNanos;
+    private final AtomicLong consultas = new AtomicLong();
+    private final Map<Long, Canal> canales = new LinkedHashMap<>();
+    private final Map<Long, Cliente> clientes = new LinkedHashMap<>();
+    private final Map<Long, Set<Long>> miembrosPorCanal = new LinkedHashMap<>();
+    private final Map<Long, Set<Long>> canalesPorCliente = new LinkedHashMap<>();
+
+    /**
+     * @param totalCanales   canales a generar
+     * @param totalClientes  clientes a generar; uno de cada cuatro está conectado
+     * @param miembrosMedios miembros por canal en promedio (entre la mitad y una vez y media)
+     */
+    SeededDatabase(int totalCanales, int totalClientes, int miembrosMedios, long latenciaMicros, long semilla) {
+        this.latenciaNanos = latenciaMicros * 1_000L;
+        Random random = new Random(semilla);
+        for (long id = 1; id <= totalClientes; id++) {
+            Cliente cliente = new Cliente(id, "usuario" + id, "usuario" + id + "@chat.local", null, null,
+                    "10.0." + (id / 256) + "." + (id % 256), id % 4 == 0);
+            cliente.setFotoHash(id % 3 == 0 ? Long.toHexString(id * 0x9E3779B97F4A7C15L) : null);
+            clientes.put(id, cliente);
+            canalesPorCliente.put(id, new LinkedHashSet<>());
+        }
+        for (long id = 1; id <= totalCanales; id++) {
+            canales.put(id, new Canal(id, "uuid-" + id, "canal-" + id, id % 5 == 0));
+            Set<Long> miembros = new LinkedHashSet<>();
+            int cantidad = Math.min(totalClientes, miembrosMedios / 2 + random.nextInt(miembrosMedios + 1));
+            while (miembros.size() < cantidad) {
+                miembros.add(1L + random.nextInt(totalClientes));
+            }
+            miembrosPorCanal.put(id, miembros);
+            for (Long clienteId : miembros) {
+                canalesPorCliente.get(clienteId).add(id);
+            }
+        }
+    }
+
+    long consultas() {
+        return consultas.get();
+    }
+
+    /**
+     * Cliente con la mayor cantidad de canales, el peor caso de {@code LIST_CHANNELS}.
+     */
+    Long clienteConMasCanales() {
+        return canalesPorCliente.entrySet().stream()
+                .max((a, b) -> Integer.compare(a.getValue().size(), b.getValue().size()))
+                .map(Map.Entry::getKey)
+                .orElseThrow();
+    }
+
+    CanalRepository canalRepository() {
+        return new Canales();
+    }
+
+    ClienteRepository clienteRepository() {
+        return new Clientes();
+    }
+
+    private void consulta() {
+        consultas.incrementAndGet();
+        if (latenciaNanos > 0) {
+            long fin = System.nanoTime() + latenciaNanos;
+            while (System.nanoTime() < fin) {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    /**
+     * Como lo devuelve {@code findUsers}: sin foto ni contraseña.
+     */
+    private List<Cliente> miembros(Long canalId) {
+        List<Cliente> result = new ArrayList<>();
+        for (Long clienteId : miembrosPorCanal.getOrDefault(canalId, Set.of())) {
+            Cliente cliente = clientes.get(clienteId);
+            Cliente copia = new Cliente(cliente.getId(), cliente.getNombreDeUsuario(), cliente.getEmail(),
+                    null, null, cliente.getIp(), cliente.getEstado());
+            copia.setFotoHash(cliente.getFotoHash());
+            result.add(copia);
+        }
+        return result;
+    }
+
+    private final class Canales implements CanalRepository {
+
+        @Override
+        public Canal save(Canal canal) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Optional<Canal> findById(Long id) {
+            consulta();
+            return Optional.ofNullable(canales.get(id));
+        }
+
+        @Override
+        public Optional<Canal> findByUuid(String uuid) {
+            consulta();
+            return canales.values().stream().filter(canal -> canal.getUuid().equals(uuid)).findFirst();
+        }
+
+        @Override
+        public List<Canal> findAll() {
+            consulta();
+            return new ArrayList<>(canales.values());
+        }
+
+        @Override
+        public List<Cliente> findUsers(Long canalId) {
+            consulta();
+            return miembros(canalId);
+        }
+
+        @Override
+        public List<Canal> findByCliente(Long clienteId) {
+            consulta();
+            List<Canal> result = new ArrayList<>();
+            for (Long canalId : canalesPorCliente.getOrDefault(clienteId, Set.of())) {
+                result.add(canales.get(canalId));
+            }
+            return result;
+        }
+
+        @Override
+        public Map<Long, List<Cliente>> findUsersByCanales(Collection<Long> canalIds) {
+            Map<Long, List<Cliente>> result = new LinkedHashMap<>();
+            List<Long> ids = new ArrayList<>(canalIds);
+            for (int desde = 0; desde < ids.size(); desde += IN_CHUNK) {
+                consulta();
+                for (Long canalId : ids.subList(desde, Math.min(ids.size(), desde + IN_CHUNK))) {
+                    result.put(canalId, miembros(canalId));
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public Map<Long, List<Cliente>> findAllUsers() {
+            consulta();
+            Map<Long, List<Cliente>> result = new LinkedHashMap<>();
+            for (Long canalId : miembrosPorCanal.keySet()) {
+                result.put(canalId, miembros(canalId));
+            }
+            return result;
+        }
+
+        @Override
+        public Set<Long> findUserIds(Long canalId) {
+            consulta();
+            return new LinkedHashSet<>(miembrosPorCanal.getOrDefault(canalId, Set.of()));
+        }
+
+        @Override
+        public Map<Long, Set<Long>> findAllUserIds() {
+            consulta();
+            Map<Long, Set<Long>> result = new LinkedHashMap<>();
+            miembrosPorCanal.forEach((canalId, miembros) -> result.put(canalId, new LinkedHashSet<>(miembros)));
+            return result;
+        }
+
+        @Override
+        public void linkUser(Long canalId, Long clienteId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void unlinkUser(Long canalId, Long clienteId) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private final class Clientes implements ClienteRepository {
+
+        @Override
+        public Cliente save(Cliente cliente) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Optional<Cliente> findById(Long id) {
+            consulta();
+            return Optional.ofNullable(clientes.get(id));
+        }
+
+        @Override
+        public Optional<Cliente> findByEmail(String email) {
+            consulta();
+            return clientes.values().stream().filter(cliente -> cliente.getEmail().equals(email)).findFirst();
+        }
+
+        @Override
+        public List<Cliente> findConnected() {
+            consulta();
+            return clientes.values().stream().filter(cliente -> Boolean.TRUE.equals(cliente.getEstado())).toList();
+        }
+
+        @Override
+        public void setConnected(Long id, boolean connected) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void disconnectAll() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<Cliente> all() {
+            consulta();
+            return new ArrayList<>(clientes.values());
+        }
+
+        @Override
+        public boolean existsByUsuario(String usuario) {
+            consulta();
+            return clientes.values().stream().anyMatch(cliente -> cliente.getNombreDeUsuario().equals(usuario));
+        }
+
+        @Override
+        public Optional<byte[]> findFoto(Long id) {
+            consulta();
+            return Optional.empty();
+        }
+
+        @Override
+        public void updateFotoHash(Long id, String fotoHash) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.arquitectura.dto;
+
+/**
+ * Fragmento de un audio enviado en respuesta a FETCH_AUDIO.
+ * El cliente concatena los fragmentos por {@code offset} hasta recibir {@code ultimo=true}.
+ */
+public class AudioChunkResponse {
+
+    private String rutaArchivo;  // Audio al que pertenece el fragmento
+    private long offset;         // Posición del primer byte del fragmento
+    private int longitud;        // Bytes del fragmento (antes de codificar)
+    private long totalBytes;     // Tamaño total del archivo
+    private String datosBase64;  // Bytes del fragmento en Base64
+    private boolean ultimo;      // Si es el último fragmento
+
+    public AudioChunkResponse() {
+    }
+
+    public AudioChunkResponse(String rutaArchivo, long offset, int longitud, long totalBytes,
+                              String datosBase64, boolean ultimo) {
+        this.rutaArchivo = rutaArchivo;
+        this.offset = offset;
+        this.longitud = longitud;
+        this.totalBytes = totalBytes;
+        this.datosBase64 = datosBase64;
+        this.ultimo = ultimo;
+    }
+
+    public String getRutaArchivo() {
+        return rutaArchivo;
+    }
+
+    public void setRutaArchivo(String rutaArchivo) {
+        this.rutaArchivo = rutaArchivo;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public void setOffset(long offset) {
+        this.offset = offset;
+    }
+
+    public int getLongitud() {
+        return longitud;
+    }
+
+    public void setLongitud(int longitud) {
+        this.longitud = longitud;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public void setTotalBytes(long totalBytes) {
+        this.totalBytes = totalBytes;
+    }
+
+    public String getDatosBase64() {
+        return datosBase64;
+    }
+
+    public void setDatosBase64(String datosBase64) {
+        this.datosBase64 = datosBase64;
+    }
+
+    public boolean isUltimo() {
+        return ultimo;
+    }
+
+    public void setUltimo(boolean ultimo) {
+        this.ultimo = ultimo;
+    }
+}
@@ -0,0 +1,45 @@
+package com.arquitectura.dto;
+
+/**
+ * Referencia a un audio guardado en el servidor: lo que viaja en los mensajes en lugar del
+ * contenido. El cliente lo descarga con FETCH_AUDIO cuando lo necesita.
+ */
+public class AudioReferenceDto {
+
+    private String rutaArchivo;  // Identificador del audio en el servidor
+    private long tamanoBytes;    // Tamaño del archivo
+    private String sha256;       // Hash del contenido en hexadecimal
+
+    public AudioReferenceDto() {
+    }
+
+    public AudioReferenceDto(String rutaArchivo, long tamanoBytes, String sha256) {
+        this.rutaArchivo = rutaArchivo;
+        this.tamanoBytes = tamanoBytes;
+        this.sha256 = sha256;
+    }
+
+    public String getRutaArchivo() {
+        return rutaArchivo;
+    }
+
+    public void setRutaArchivo(String rutaArchivo) {
+        this.rutaArchivo = rutaArchivo;
+    }
+
+    public long getTamanoBytes() {
+        return tamanoBytes;
+    }
+
+    public void setTamanoBytes(long tamanoBytes) {
+        this.tamanoBytes = tamanoBytes;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
+}
@@ -0,0 +1,45 @@
+package com.arquitectura.dto;
+
+/**
+ * Avatar de un usuario. El cliente puede guardarlo con {@code fotoHash} como clave: el
+ * contenido de un hash no cambia nunca.
+ */
+public class AvatarResponse {
+
+    private Long usuarioId;
+    private String fotoHash;
+    private String datosBase64;
+
+    public AvatarResponse() {
+    }
+
+    public AvatarResponse(Long usuarioId, String fotoHash, String datosBase64) {
+        this.usuarioId = usuarioId;
+        this.fotoHash = fotoHash;
+        this.datosBase64 = datosBase64;
+    }
+
+    public Long getUsuarioId() {
+        return usuarioId;
+    }
+
+    public void setUsuarioId(Long usuarioId) {
+        this.usuarioId = usuarioId;
+    }
+
+    public String getFotoHash() {
+        return fotoHash;
+    }
+
+    public void setFotoHash(String fotoHash) {
+        this.fotoHash = fotoHash;
+    }
+
+    public String getDatosBase64() {
+        return datosBase64;
+    }
+
+    public void setDatosBase64(String datosBase64) {
+        this.datosBase64 = datosBase64;
+    }
+}
@@ -0,0 +1,30 @@
+package com.arquitectura.dto;
+
+/**
+ * Solicitud de descarga de un audio por fragmentos.
+ * Con {@code offset} el cliente reanuda una descarga interrumpida.
+ */
+public class FetchAudioRequest {
+
+    private String rutaArchivo;  // Ruta recibida en el contenido del mensaje
+    private Long offset;         // Byte desde el que se envía (0 si se omite)
+
+    public FetchAudioRequest() {
+    }
+
+    public String getRutaArchivo() {
+        return rutaArchivo;
+    }
+
+    public void setRutaArchivo(String rutaArchivo) {
+        this.rutaArchivo = rutaArchivo;
+    }
+
+    public Long getOffset() {
+        return offset;
+    }
+
+    public void setOffset(Long offset) {
+        this.offset = offset;
+    }
+}
@@ -0,0 +1,30 @@
+package com.arquitectura.dto;
+
+/**
+ * Solicitud del avatar de un usuario. Basta uno de los dos campos; con {@code fotoHash} el
+ * cliente pide exactamente la versión que ya conoce.
+ */
+public class FetchAvatarRequest {
+
+    private Long usuarioId;   // Usuario cuyo avatar se pide
+    private String fotoHash;  // SHA-256 recibido en LOGIN o en las listas de usuarios
+
+    public FetchAvatarRequest() {
+    }
+
+    public Long getUsuarioId() {
+        return usuarioId;
+    }
+
+    public void setUsuarioId(Long usuarioId) {
+        this.usuarioId = usuarioId;
+    }
+
+    public String getFotoHash() {
+        return fotoHash;
+    }
+
+    public void setFotoHash(String fotoHash) {
+        this.fotoHash = fotoHash;
+    }
+}
@@ -0,0 +1,20 @@
+package com.arquitectura.dto;
+
+/**
+ * Negociación del protocolo al conectar. Sin {@code HELLO} la sesión sigue en JSON por líneas.
+ */
+public class HelloRequest {
+
+    private String protocolo;  // "json" (por defecto) o "cbor"
+
+    public HelloRequest() {
+    }
+
+    public String getProtocolo() {
+        return protocolo;
+    }
+
+    public void setProtocolo(String protocolo) {
+        this.protocolo = protocolo;
+    }
+}
@@ -0,0 +1,36 @@
+package com.arquitectura.dto;
+
+/**
+ * Protocolo acordado. Esta respuesta siempre llega como línea JSON; si {@code protocolo} es
+ * {@code "cbor"}, todo lo siguiente, en ambos sentidos, va en tramas binarias.
+ */
+public class HelloResponse extends AckResponse {
+
+    private String protocolo;
+    private int maxFrameBytes;
+
+    public HelloResponse() {
+    }
+
+    public HelloResponse(String protocolo, int maxFrameBytes) {
+        super(true, "Protocolo " + protocolo);
+        this.protocolo = protocolo;
+        this.maxFrameBytes = maxFrameBytes;
+    }
+
+    public String getProtocolo() {
+        return protocolo;
+    }
+
+    public void setProtocolo(String protocolo) {
+        this.protocolo = protocolo;
+    }
+
+    public int getMaxFrameBytes() {
+        return maxFrameBytes;
+    }
+
+    public void setMaxFrameBytes(int maxFrameBytes) {
+        this.maxFrameBytes = maxFrameBytes;
+    }
+}
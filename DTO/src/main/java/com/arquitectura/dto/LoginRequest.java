@@ -5,6 +5,7 @@ public class LoginRequest {
     private String email;
     private String contrasenia;
     private String ip;
+    private Long ultimoMensajeId;   // Último mensaje que el cliente ya tiene; la sincronización parte de ahí
 
     public LoginRequest() {
     }
@@ -32,4 +33,12 @@ public class LoginRequest {
     public void setIp(String ip) {
         this.ip = ip;
     }
+
+    public Long getUltimoMensajeId() {
+        return ultimoMensajeId;
+    }
+
+    public void setUltimoMensajeId(Long ultimoMensajeId) {
+        this.ultimoMensajeId = ultimoMensajeId;
+    }
 }
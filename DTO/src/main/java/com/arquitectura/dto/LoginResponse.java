@@ -3,6 +3,7 @@ package com.arquitectura.dto;
 public class LoginResponse extends AckResponse {
 
     private String fotoBase64;
+    private String fotoHash;
 
     public LoginResponse() {
     }
@@ -24,4 +25,12 @@ public class LoginResponse extends AckResponse {
     public void setFotoBase64(String fotoBase64) {
         this.fotoBase64 = fotoBase64;
     }
+
+    public String getFotoHash() {
+        return fotoHash;
+    }
+
+    public void setFotoHash(String fotoHash) {
+        this.fotoHash = fotoHash;
+    }
 }
@@ -0,0 +1,21 @@
+package com.arquitectura.dto;
+
+/**
+ * Petición explícita de sincronización de mensajes (comando MESSAGE_SYNC), p. ej. para
+ * reanudar desde el último cursor recibido si la conexión se cortó a mitad.
+ */
+public class MessageSyncRequest {
+
+    private Long ultimoMensajeId;
+
+    public MessageSyncRequest() {
+    }
+
+    public Long getUltimoMensajeId() {
+        return ultimoMensajeId;
+    }
+
+    public void setUltimoMensajeId(Long ultimoMensajeId) {
+        this.ultimoMensajeId = ultimoMensajeId;
+    }
+}
@@ -11,6 +11,8 @@ public class MessageSyncResponse {
     private List<SyncedMessageDto> mensajes;  // Lista de mensajes con metadatos enriquecidos
     private int totalMensajes;
     private String ultimaSincronizacion;
+    private Long cursor;         // ID del último mensaje de la página; el siguiente MESSAGE_SYNC parte de aquí
+    private boolean hasMore;     // Quedan más páginas por enviar
 
     public MessageSyncResponse() {
     }
@@ -45,4 +47,20 @@ public class MessageSyncResponse {
     public void setUltimaSincronizacion(String ultimaSincronizacion) {
         this.ultimaSincronizacion = ultimaSincronizacion;
     }
+
+    public Long getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(Long cursor) {
+        this.cursor = cursor;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
 }
@@ -0,0 +1,75 @@
+package com.arquitectura.dto;
+
+/**
+ * Evento TRANSCRIPTION_READY: la transcripción de un audio ya entregado está disponible.
+ * El cliente la asocia al mensaje por {@code mensajeId}.
+ */
+public class TranscriptionReadyDto {
+
+    private String evento = "TRANSCRIPTION_READY";
+    private Long mensajeId;
+    private Long emisorId;
+    private Long receptorId;
+    private Long canalId;
+    private String tipoConversacion;
+    private String transcripcion;
+
+    public TranscriptionReadyDto() {
+    }
+
+    public String getEvento() {
+        return evento;
+    }
+
+    public void setEvento(String evento) {
+        this.evento = evento;
+    }
+
+    public Long getMensajeId() {
+        return mensajeId;
+    }
+
+    public void setMensajeId(Long mensajeId) {
+        this.mensajeId = mensajeId;
+    }
+
+    public Long getEmisorId() {
+        return emisorId;
+    }
+
+    public void setEmisorId(Long emisorId) {
+        this.emisorId = emisorId;
+    }
+
+    public Long getReceptorId() {
+        return receptorId;
+    }
+
+    public void setReceptorId(Long receptorId) {
+        this.receptorId = receptorId;
+    }
+
+    public Long getCanalId() {
+        return canalId;
+    }
+
+    public void setCanalId(Long canalId) {
+        this.canalId = canalId;
+    }
+
+    public String getTipoConversacion() {
+        return tipoConversacion;
+    }
+
+    public void setTipoConversacion(String tipoConversacion) {
+        this.tipoConversacion = tipoConversacion;
+    }
+
+    public String getTranscripcion() {
+        return transcripcion;
+    }
+
+    public void setTranscripcion(String transcripcion) {
+        this.transcripcion = transcripcion;
+    }
+}
@@ -0,0 +1,66 @@
+package com.arquitectura.dto;
+
+/**
+ * Inicio de una carga por fragmentos (UPLOAD_BEGIN).
+ * Para reanudar tras una reconexión se envía solo el {@code uploadId} recibido al iniciar.
+ */
+public class UploadBeginRequest {
+
+    private String uploadId;      // Carga a reanudar (omitir para una carga nueva)
+    private String tipo;          // AUDIO (por defecto) o ARCHIVO
+    private String mime;          // Tipo MIME del contenido
+    private Long tamanoBytes;     // Tamaño total del archivo
+    private String sha256;        // Hash del archivo completo en hexadecimal
+    private String nombreArchivo; // Nombre original del archivo (opcional)
+
+    public UploadBeginRequest() {
+    }
+
+    public String getUploadId() {
+        return uploadId;
+    }
+
+    public void setUploadId(String uploadId) {
+        this.uploadId = uploadId;
+    }
+
+    public String getTipo() {
+        return tipo;
+    }
+
+    public void setTipo(String tipo) {
+        this.tipo = tipo;
+    }
+
+    public String getMime() {
+        return mime;
+    }
+
+    public void setMime(String mime) {
+        this.mime = mime;
+    }
+
+    public Long getTamanoBytes() {
+        return tamanoBytes;
+    }
+
+    public void setTamanoBytes(Long tamanoBytes) {
+        this.tamanoBytes = tamanoBytes;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
+
+    public String getNombreArchivo() {
+        return nombreArchivo;
+    }
+
+    public void setNombreArchivo(String nombreArchivo) {
+        this.nombreArchivo = nombreArchivo;
+    }
+}
@@ -0,0 +1,39 @@
+package com.arquitectura.dto;
+
+/**
+ * Fragmento de una carga en curso (UPLOAD_CHUNK).
+ * El {@code offset} debe coincidir con los bytes ya recibidos por el servidor.
+ */
+public class UploadChunkRequest {
+
+    private String uploadId;     // Carga devuelta por UPLOAD_BEGIN
+    private Long offset;         // Posición del primer byte del fragmento
+    private String datosBase64;  // Bytes del fragmento en Base64
+
+    public UploadChunkRequest() {
+    }
+
+    public String getUploadId() {
+        return uploadId;
+    }
+
+    public void setUploadId(String uploadId) {
+        this.uploadId = uploadId;
+    }
+
+    public Long getOffset() {
+        return offset;
+    }
+
+    public void setOffset(Long offset) {
+        this.offset = offset;
+    }
+
+    public String getDatosBase64() {
+        return datosBase64;
+    }
+
+    public void setDatosBase64(String datosBase64) {
+        this.datosBase64 = datosBase64;
+    }
+}
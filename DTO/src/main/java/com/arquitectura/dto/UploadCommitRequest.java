@@ -0,0 +1,21 @@
+package com.arquitectura.dto;
+
+/**
+ * Cierre de una carga por fragmentos (UPLOAD_COMMIT): el servidor verifica tamaño y hash
+ * y publica el archivo.
+ */
+public class UploadCommitRequest {
+
+    private String uploadId;  // Carga devuelta por UPLOAD_BEGIN
+
+    public UploadCommitRequest() {
+    }
+
+    public String getUploadId() {
+        return uploadId;
+    }
+
+    public void setUploadId(String uploadId) {
+        this.uploadId = uploadId;
+    }
+}
@@ -0,0 +1,55 @@
+package com.arquitectura.dto;
+
+/**
+ * Estado de una carga por fragmentos: respuesta a UPLOAD_BEGIN y UPLOAD_CHUNK.
+ * {@code offset} es el siguiente byte que espera el servidor.
+ */
+public class UploadStatusResponse {
+
+    private String uploadId;         // Identificador de la carga
+    private long offset;             // Bytes recibidos hasta ahora
+    private long tamanoBytes;        // Tamaño total declarado
+    private int maxFragmentoBytes;   // Bytes máximos aceptados por fragmento
+
+    public UploadStatusResponse() {
+    }
+
+    public UploadStatusResponse(String uploadId, long offset, long tamanoBytes, int maxFragmentoBytes) {
+        this.uploadId = uploadId;
+        this.offset = offset;
+        this.tamanoBytes = tamanoBytes;
+        this.maxFragmentoBytes = maxFragmentoBytes;
+    }
+
+    public String getUploadId() {
+        return uploadId;
+    }
+
+    public void setUploadId(String uploadId) {
+        this.uploadId = uploadId;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public void setOffset(long offset) {
+        this.offset = offset;
+    }
+
+    public long getTamanoBytes() {
+        return tamanoBytes;
+    }
+
+    public void setTamanoBytes(long tamanoBytes) {
+        this.tamanoBytes = tamanoBytes;
+    }
+
+    public int getMaxFragmentoBytes() {
+        return maxFragmentoBytes;
+    }
+
+    public void setMaxFragmentoBytes(int maxFragmentoBytes) {
+        this.maxFragmentoBytes = maxFragmentoBytes;
+    }
+}
@@ -6,6 +6,7 @@ public class UserSummary {
     private String usuario;
     private String email;
     private boolean conectado;
+    private String fotoHash; // Avatar a pedir con FETCH_AVATAR (null si no tiene)
 
     public UserSummary() {
     }
@@ -56,4 +57,12 @@ public class UserSummary {
     public void setConectado(boolean conectado) {
         this.conectado = conectado;
     }
+
+    public String getFotoHash() {
+        return fotoHash;
+    }
+
+    public void setFotoHash(String fotoHash) {
+        this.fotoHash = fotoHash;
+    }
 }
@@ -9,7 +9,8 @@ import java.util.logging.Logger;
 
 import javax.sql.DataSource;
 
-import com.mysql.cj.jdbc.MysqlConnectionPoolDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
 
 /**
  * Centralised configuration helper that reads the <code>properties/database.properties</code> file
@@ -22,7 +23,7 @@ public final class DBConfig {
     private static final DBConfig INSTANCE = new DBConfig();
 
     private final Properties properties = new Properties();
-    private final DataSource dataSource;
+    private final HikariDataSource dataSource;
 
     private DBConfig() {
         loadProperties();
@@ -44,11 +45,11 @@ public final class DBConfig {
         }
     }
 
-    private DataSource buildMySqlDataSource() {
-        MysqlConnectionPoolDataSource ds = new MysqlConnectionPoolDataSource();
-        ds.setURL(require("mysql.url"));
-        ds.setUser(require("mysql.user"));
-        ds.setPassword(require("mysql.password"));
+    /**
+     * Construye el pool de conexiones. El pool arranca de forma perezosa con la primera
+     * {@code getConnection()}, lo que permite registrar el tracker de metricas antes.
+     */
+    private HikariDataSource buildMySqlDataSource() {
         Optional.ofNullable(properties.getProperty("mysql.driver"))
                 .ifPresent(driver -> {
                     try {
@@ -57,6 +58,27 @@ public final class DBConfig {
                         LOGGER.log(Level.WARNING, "JDBC driver not found: {0}", driver);
                     }
                 });
+        HikariDataSource ds = new HikariDataSource();
+        ds.setPoolName("chat-mysql");
+        ds.setJdbcUrl(require("mysql.url"));
+        ds.setUsername(require("mysql.user"));
+        ds.setPassword(require("mysql.password"));
+        Optional.ofNullable(properties.getProperty("mysql.driver"))
+                .filter(driver -> !driver.isBlank())
+                .ifPresent(ds::setDriverClassName);
+        ds.setMaximumPoolSize(Math.max(1, getIntProperty("db.pool.maxSize", 10)));
+        ds.setMinimumIdle(Math.max(0, Math.min(getIntProperty("db.pool.minIdle", 2), ds.getMaximumPoolSize())));
+        ds.setIdleTimeout(getIntProperty("db.pool.idleTimeoutMs", 600_000));
+        ds.setMaxLifetime(getIntProperty("db.pool.maxLifetimeMs", 1_800_000));
+        ds.setConnectionTimeout(getIntProperty("db.pool.connectionTimeoutMs", 5_000));
+        ds.setValidationTimeout(getIntProperty("db.pool.validationTimeoutMs", 3_000));
+        ds.setLeakDetectionThreshold(getIntProperty("db.pool.leakDetectionThresholdMs", 30_000));
+        // Cache de sentencias preparadas por conexion fisica y reescritura de lotes en INSERT multi-fila
+        ds.addDataSourceProperty("cachePrepStmts", getProperty("mysql.cachePrepStmts", "true"));
+        ds.addDataSourceProperty("useServerPrepStmts", getProperty("mysql.useServerPrepStmts", "true"));
+        ds.addDataSourceProperty("prepStmtCacheSize", getProperty("mysql.prepStmtCacheSize", "250"));
+        ds.addDataSourceProperty("prepStmtCacheSqlLimit", getProperty("mysql.prepStmtCacheSqlLimit", "2048"));
+        ds.addDataSourceProperty("rewriteBatchedStatements", getProperty("mysql.rewriteBatchedStatements", "true"));
         return ds;
     }
 
@@ -70,6 +92,32 @@ public final class DBConfig {
         return dataSource;
     }
 
+    /**
+     * Filas por lote para las escrituras masivas (p. ej. aplicar un snapshot de sincronizacion).
+     */
+    public int getBatchSize() {
+        return Math.max(1, getIntProperty("db.batchSize", 500));
+    }
+
+    /**
+     * Registra el tracker de metricas del pool (conexiones activas/inactivas/en espera,
+     * latencia de adquisicion). Debe invocarse antes de la primera conexion.
+     */
+    public void setPoolMetricsTrackerFactory(MetricsTrackerFactory factory) {
+        if (factory != null) {
+            dataSource.setMetricsTrackerFactory(factory);
+        }
+    }
+
+    /**
+     * Cierra el pool y libera todas sus conexiones.
+     */
+    public void closeDataSource() {
+        if (!dataSource.isClosed()) {
+            dataSource.close();
+        }
+    }
+
     public static String requireProperty(String key) {
         return INSTANCE.require(key);
     }
@@ -5,7 +5,9 @@ public class AudioMensaje extends Mensaje {
     private String mime;
     private int duracionSeg;
     private String transcripcion;
-    private String audioBase64;
+    // Metadatos del archivo para la referencia que se entrega; no se persisten
+    private Long tamanoBytes;
+    private String sha256;
 
     public AudioMensaje() {
     }
@@ -48,12 +50,20 @@ public class AudioMensaje extends Mensaje {
         this.transcripcion = transcripcion;
     }
 
-    public String getAudioBase64() {
-        return audioBase64;
+    public Long getTamanoBytes() {
+        return tamanoBytes;
     }
 
-    public void setAudioBase64(String audioBase64) {
-        this.audioBase64 = audioBase64;
+    public void setTamanoBytes(Long tamanoBytes) {
+        this.tamanoBytes = tamanoBytes;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
     }
 }
 
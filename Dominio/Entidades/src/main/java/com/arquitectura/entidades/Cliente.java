@@ -6,6 +6,7 @@ public class Cliente {
     private String email;
     private String contrasenia;
     private byte[] foto;
+    private String fotoHash; // SHA-256 del avatar en el almacén de avatares
     private String ip;
     private Boolean estado;
 
@@ -62,6 +63,14 @@ public class Cliente {
         this.foto = foto;
     }
 
+    public String getFotoHash() {
+        return fotoHash;
+    }
+
+    public void setFotoHash(String fotoHash) {
+        this.fotoHash = fotoHash;
+    }
+
     public String getIp() {
         return ip;
     }
@@ -1,7 +1,10 @@
 package com.arquitectura.repositorios;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import com.arquitectura.entidades.Canal;
 import com.arquitectura.entidades.Cliente;
@@ -17,6 +20,32 @@ public interface CanalRepository {
 
     List<Cliente> findUsers(Long canalId);
 
+    /**
+     * Canales de los que el cliente es miembro, en una sola consulta.
+     */
+    List<Canal> findByCliente(Long clienteId);
+
+    /**
+     * Miembros de los canales indicados, agrupados por canal. Como {@link #findUsers}, sin foto
+     * ni contraseña.
+     */
+    Map<Long, List<Cliente>> findUsersByCanales(Collection<Long> canalIds);
+
+    /**
+     * Miembros de todos los canales, agrupados por canal, en una sola consulta.
+     */
+    Map<Long, List<Cliente>> findAllUsers();
+
+    /**
+     * Ids de los miembros del canal, sin cargar los datos de cada cliente.
+     */
+    Set<Long> findUserIds(Long canalId);
+
+    /**
+     * Ids de los miembros de todos los canales, agrupados por canal, en una sola consulta.
+     */
+    Map<Long, Set<Long>> findAllUserIds();
+
     void linkUser(Long canalId, Long clienteId);
 
     void unlinkUser(Long canalId, Long clienteId);
@@ -5,6 +5,10 @@ import com.arquitectura.entidades.Cliente;
 import java.util.List;
 import java.util.Optional;
 
+/**
+ * Las lecturas no traen {@code foto}: el avatar vive en el almacén de avatares y los clientes
+ * solo llevan {@code fotoHash}. {@link #save} tampoco toca la columna {@code foto} al actualizar.
+ */
 public interface ClienteRepository {
     Cliente save(Cliente cliente);
 
@@ -19,4 +23,19 @@ public interface ClienteRepository {
     void disconnectAll();
 
     List<Cliente> all();
+
+    /**
+     * Comprueba si el nombre de usuario ya existe usando el índice único de {@code usuario}.
+     */
+    boolean existsByUsuario(String usuario);
+
+    /**
+     * Avatar guardado todavía en la columna {@code foto} (registros anteriores al almacén).
+     */
+    Optional<byte[]> findFoto(Long id);
+
+    /**
+     * Apunta el cliente a un avatar del almacén y libera la columna {@code foto}.
+     */
+    void updateFotoHash(Long id, String fotoHash);
 }
@@ -8,6 +8,11 @@ import com.arquitectura.entidades.Log;
 public interface LogRepository {
     void append(Log log);
 
+    /**
+     * Inserta varias entradas en una sola ida a la base; no asigna los IDs generados.
+     */
+    void appendAll(List<Log> logs);
+
     List<Log> findAll();
     
     List<Log> findByFechaHoraAfter(LocalDateTime fechaHora);
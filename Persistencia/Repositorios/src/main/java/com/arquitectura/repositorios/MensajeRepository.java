@@ -7,6 +7,11 @@ import java.util.List;
 public interface MensajeRepository {
     Mensaje save(Mensaje mensaje);
 
+    /**
+     * Guarda la transcripción de un mensaje de audio ya persistido.
+     */
+    void updateTranscripcion(Long mensajeId, String transcripcion);
+
     List<Mensaje> findTextAudioLogs();
 
     List<Mensaje> findByCanal(Long canalId);
@@ -20,6 +25,18 @@ public interface MensajeRepository {
      */
     List<Mensaje> findAllByUser(Long usuarioId);
 
+    /**
+     * Página de los mensajes del usuario (enviados, recibidos o de sus canales) con ID mayor que
+     * {@code afterId}, ordenados por ID.
+     */
+    List<Mensaje> findByUserAfter(Long usuarioId, long afterId, int limit);
+
+    /**
+     * Indica si el usuario envió, recibió o tiene acceso por canal a algún mensaje con el
+     * adjunto de {@code rutaArchivo}.
+     */
+    boolean existsAttachmentVisibleTo(Long usuarioId, String rutaArchivo);
+
     /**
      * Obtiene todos los mensajes registrados en la base de datos ordenados por identificador.
      */
@@ -73,6 +73,20 @@ public final class DatabaseInitializer {
                         "KEY idx_mensajes_emisor (emisor_id)," +
                         "KEY idx_mensajes_receptor (receptor_id)" +
                         ")",
+                // Se crea aqui (ademas de en InvitacionRepositoryImpl) para que las migraciones
+                // puedan instalar sus triggers de replicacion
+                "CREATE TABLE IF NOT EXISTS invitaciones (" +
+                        "id BIGINT PRIMARY KEY AUTO_INCREMENT," +
+                        "canal_id BIGINT NOT NULL," +
+                        "invitador_id BIGINT NOT NULL," +
+                        "invitado_id BIGINT NOT NULL," +
+                        "fecha_invitacion TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
+                        "estado VARCHAR(20) DEFAULT 'PENDIENTE'," +
+                        "FOREIGN KEY (canal_id) REFERENCES canales(id) ON DELETE CASCADE," +
+                        "FOREIGN KEY (invitador_id) REFERENCES clientes(id) ON DELETE CASCADE," +
+                        "FOREIGN KEY (invitado_id) REFERENCES clientes(id) ON DELETE CASCADE," +
+                        "UNIQUE KEY unique_invitacion (canal_id, invitado_id)" +
+                        ")",
                 "CREATE TABLE IF NOT EXISTS logs (" +
                         "id BIGINT AUTO_INCREMENT PRIMARY KEY," +
                         "tipo TINYINT(1) NOT NULL," +
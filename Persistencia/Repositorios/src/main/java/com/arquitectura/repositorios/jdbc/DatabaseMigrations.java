@@ -25,6 +25,9 @@ public final class DatabaseMigrations {
         try {
             ensureCanalesUuidColumn(dataSource);
             addTranscripcionColumn(dataSource);
+            ensureClientesFotoHashColumn(dataSource);
+            ensureReplicationLog(dataSource);
+            ensureMensajesRutaIndex(dataSource);
             LOGGER.info("Migraciones de base de datos completadas exitosamente");
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Error ejecutando migraciones de base de datos", e);
@@ -79,6 +82,119 @@ public final class DatabaseMigrations {
         }
     }
 
+    /**
+     * Agrega 'foto_hash' a clientes: el avatar pasa a un almacén por contenido y la fila solo
+     * guarda su SHA-256. Las fotos existentes siguen en 'foto' hasta que se piden por primera vez.
+     */
+    private static void ensureClientesFotoHashColumn(DataSource dataSource) throws SQLException {
+        try (Connection conn = dataSource.getConnection()) {
+            if (columnExists(conn, "clientes", "foto_hash")) {
+                return;
+            }
+            String sql = "ALTER TABLE clientes ADD COLUMN foto_hash CHAR(64) NULL AFTER foto";
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate(sql);
+                LOGGER.info("✓ Columna 'foto_hash' agregada a la tabla 'clientes'");
+            }
+        }
+    }
+
+    /**
+     * Crea el log de replicacion incremental: cada alta o cambio real en las tablas replicadas
+     * deja una entrada con secuencia monotona, de modo que un par que reconecta solo recibe
+     * las filas posteriores a su marca. Tambien crea el identificador del log, la tabla con
+     * las marcas ya aplicadas de otros servidores y la de las marcas que otros servidores
+     * anunciaron sobre este log, que decide hasta donde se puede podar.
+     */
+    private static void ensureReplicationLog(DataSource dataSource) {
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS replication_log (" +
+                    "seq BIGINT AUTO_INCREMENT PRIMARY KEY," +
+                    "entidad VARCHAR(32) NOT NULL," +
+                    "entidad_id BIGINT NOT NULL," +
+                    "entidad_ref BIGINT NULL," +
+                    "creado TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3)," +
+                    "KEY idx_replication_log_entidad (entidad, seq)" +
+                    ")");
+            // Momento de la entrada: distingue un hueco de secuencia aún en curso de uno abortado
+            if (!columnExists(conn, "replication_log", "creado")) {
+                stmt.executeUpdate("ALTER TABLE replication_log ADD COLUMN creado TIMESTAMP(3) NOT NULL " +
+                        "DEFAULT CURRENT_TIMESTAMP(3)");
+            }
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS replication_meta (" +
+                    "id TINYINT PRIMARY KEY," +
+                    "log_id CHAR(36) NOT NULL," +
+                    "podado_hasta BIGINT NOT NULL DEFAULT 0" +
+                    ")");
+            // Mayor secuencia borrada del log: una marca anterior necesita el estado completo
+            if (!columnExists(conn, "replication_meta", "podado_hasta")) {
+                stmt.executeUpdate("ALTER TABLE replication_meta ADD COLUMN podado_hasta BIGINT NOT NULL DEFAULT 0");
+            }
+            stmt.executeUpdate("INSERT IGNORE INTO replication_meta(id, log_id) VALUES(1, UUID())");
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS replication_peers (" +
+                    "log_id CHAR(36) PRIMARY KEY," +
+                    "last_seq BIGINT NOT NULL," +
+                    "actualizado DATETIME NOT NULL" +
+                    ")");
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS replication_acks (" +
+                    "server_id VARCHAR(255) PRIMARY KEY," +
+                    "last_seq BIGINT NOT NULL," +
+                    "actualizado DATETIME NOT NULL" +
+                    ")");
+
+            ensureReplicationTriggers(conn, "clientes", "NEW.id", "NULL",
+                    "usuario", "email", "contrasenia", "foto", "foto_hash", "ip", "estado");
+            ensureReplicationTriggers(conn, "canales", "NEW.id", "NULL",
+                    "uuid", "nombre", "privado");
+            ensureReplicationTriggers(conn, "canal_clientes", "NEW.canal_id", "NEW.cliente_id",
+                    "canal_id", "cliente_id");
+            ensureReplicationTriggers(conn, "mensajes", "NEW.id", "NULL",
+                    "timestamp", "tipo", "emisor_id", "receptor_id", "canal_id", "contenido",
+                    "ruta_archivo", "mime", "duracion_seg", "transcripcion");
+            ensureReplicationTriggers(conn, "invitaciones", "NEW.id", "NULL",
+                    "canal_id", "invitador_id", "invitado_id", "fecha_invitacion", "estado");
+        } catch (SQLException e) {
+            // Sin triggers (p. ej. falta el privilegio TRIGGER) la sincronización sigue con snapshots completos
+            LOGGER.log(Level.WARNING, "No se pudo preparar el log de replicación incremental", e);
+        }
+    }
+
+    /**
+     * Instala los triggers AFTER INSERT / AFTER UPDATE que alimentan {@code replication_log}.
+     * El de UPDATE ignora las actualizaciones sin cambios (p. ej. un upsert de sincronizacion
+     * que reescribe los mismos valores) para que los datos no reboten entre servidores.
+     */
+    private static void ensureReplicationTriggers(Connection conn, String table, String idExpr, String refExpr,
+                                                  String... columns) throws SQLException {
+        String insertLog = "INSERT INTO replication_log(entidad, entidad_id, entidad_ref) VALUES('" +
+                table + "', " + idExpr + ", " + refExpr + ")";
+        String insertTrigger = "ai_" + table + "_replog";
+        if (!triggerExists(conn, insertTrigger)) {
+            String sql = "CREATE TRIGGER " + insertTrigger + " AFTER INSERT ON " + table +
+                    " FOR EACH ROW " + insertLog;
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate(sql);
+                LOGGER.info(() -> "✓ Trigger '" + insertTrigger + "' creado para el log de replicación");
+            }
+        }
+        String updateTrigger = "au_" + table + "_replog";
+        if (!triggerExists(conn, updateTrigger)) {
+            StringBuilder unchanged = new StringBuilder();
+            for (String column : columns) {
+                if (unchanged.length() > 0) {
+                    unchanged.append(" AND ");
+                }
+                unchanged.append("OLD.`").append(column).append("` <=> NEW.`").append(column).append('`');
+            }
+            String sql = "CREATE TRIGGER " + updateTrigger + " AFTER UPDATE ON " + table +
+                    " FOR EACH ROW BEGIN IF NOT (" + unchanged + ") THEN " + insertLog + "; END IF; END";
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate(sql);
+                LOGGER.info(() -> "✓ Trigger '" + updateTrigger + "' creado para el log de replicación");
+            }
+        }
+    }
+
     private static int populateMissingChannelUuids(Connection conn) throws SQLException {
         final String sql = "UPDATE canales SET uuid = UUID() WHERE uuid IS NULL OR uuid = '' LIMIT ?";
         int totalUpdated = 0;
@@ -140,6 +256,25 @@ public final class DatabaseMigrations {
         }
     }
 
+    /**
+     * Índice sobre la ruta de los adjuntos: FETCH_AUDIO comprueba por ruta que el usuario
+     * participa en algún mensaje con ese audio.
+     */
+    private static void ensureMensajesRutaIndex(DataSource dataSource) throws SQLException {
+        try (Connection conn = dataSource.getConnection()) {
+            if (indexExists(conn, "mensajes", "idx_mensajes_ruta_archivo")) {
+                return;
+            }
+            String sql = "ALTER TABLE mensajes ADD INDEX idx_mensajes_ruta_archivo (ruta_archivo)";
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate(sql);
+                LOGGER.info("✓ Índice 'idx_mensajes_ruta_archivo' creado en 'mensajes'");
+            } catch (SQLException e) {
+                LOGGER.log(Level.WARNING, "No se pudo crear índice para 'mensajes.ruta_archivo'", e);
+            }
+        }
+    }
+
     /**
      * Verifica si una columna existe en una tabla
      */
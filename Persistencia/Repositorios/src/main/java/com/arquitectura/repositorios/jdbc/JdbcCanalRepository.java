@@ -7,8 +7,14 @@ import com.arquitectura.repositorios.CanalRepository;
 import javax.sql.DataSource;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -30,6 +36,10 @@ import java.util.UUID;
  */
 public class JdbcCanalRepository extends JdbcSupport implements CanalRepository {
 
+    private static final String MIEMBRO_COLUMNS = "c.id, c.usuario, c.email, c.foto_hash, c.ip, c.estado";
+    // Ids por sentencia en findUsersByCanales, para no armar un IN enorme
+    private static final int IN_CHUNK = 500;
+
     public JdbcCanalRepository(DataSource dataSource) {
         super(dataSource);
     }
@@ -135,7 +145,7 @@ public class JdbcCanalRepository extends JdbcSupport implements CanalRepository
 
     @Override
     public List<Cliente> findUsers(Long canalId) {
-        String sql = "SELECT c.id, c.usuario, c.email, c.contrasenia, c.foto, c.ip, c.estado " +
+        String sql = "SELECT " + MIEMBRO_COLUMNS + " " +
                 "FROM clientes c INNER JOIN canal_clientes cc ON c.id = cc.cliente_id WHERE cc.canal_id=?";
         List<Cliente> result = new ArrayList<>();
         try (Connection conn = getConnection();
@@ -143,15 +153,7 @@ public class JdbcCanalRepository extends JdbcSupport implements CanalRepository
             ps.setLong(1, canalId);
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) {
-                    Cliente cliente = new Cliente();
-                    cliente.setId(rs.getLong("id"));
-                    cliente.setNombreDeUsuario(rs.getString("usuario"));
-                    cliente.setEmail(rs.getString("email"));
-                    cliente.setContrasenia(rs.getString("contrasenia"));
-                    cliente.setFoto(rs.getBytes("foto"));
-                    cliente.setIp(rs.getString("ip"));
-                    cliente.setEstado(rs.getBoolean("estado"));
-                    result.add(cliente);
+                    result.add(mapMiembro(rs));
                 }
             }
         } catch (SQLException e) {
@@ -160,6 +162,103 @@ public class JdbcCanalRepository extends JdbcSupport implements CanalRepository
         return result;
     }
 
+    @Override
+    public Set<Long> findUserIds(Long canalId) {
+        String sql = "SELECT cliente_id FROM canal_clientes WHERE canal_id=?";
+        Set<Long> result = new HashSet<>();
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, canalId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    result.add(rs.getLong(1));
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Error listing channel user ids", e);
+        }
+        return result;
+    }
+
+    @Override
+    public Map<Long, Set<Long>> findAllUserIds() {
+        String sql = "SELECT canal_id, cliente_id FROM canal_clientes";
+        Map<Long, Set<Long>> result = new HashMap<>();
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                result.computeIfAbsent(rs.getLong(1), id -> new HashSet<>()).add(rs.getLong(2));
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Error listing channel memberships", e);
+        }
+        return result;
+    }
+
+    @Override
+    public List<Canal> findByCliente(Long clienteId) {
+        String sql = "SELECT c.id, c.uuid, c.nombre, c.privado FROM canales c " +
+                "INNER JOIN canal_clientes cc ON cc.canal_id = c.id WHERE cc.cliente_id=? ORDER BY c.id";
+        List<Canal> result = new ArrayList<>();
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, clienteId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    result.add(mapCanal(conn, rs));
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Error listing channels of user", e);
+        }
+        return result;
+    }
+
+    @Override
+    public Map<Long, List<Cliente>> findUsersByCanales(Collection<Long> canalIds) {
+        Map<Long, List<Cliente>> result = new HashMap<>();
+        List<Long> ids = canalIds == null ? List.of() : new ArrayList<>(new HashSet<>(canalIds));
+        ids.remove(null);
+        if (ids.isEmpty()) {
+            return result;
+        }
+        try (Connection conn = getConnection()) {
+            for (int desde = 0; desde < ids.size(); desde += IN_CHUNK) {
+                List<Long> lote = ids.subList(desde, Math.min(ids.size(), desde + IN_CHUNK));
+                String sql = "SELECT cc.canal_id, " + MIEMBRO_COLUMNS + " FROM canal_clientes cc " +
+                        "INNER JOIN clientes c ON c.id = cc.cliente_id WHERE cc.canal_id IN (" +
+                        String.join(",", Collections.nCopies(lote.size(), "?")) + ")";
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < lote.size(); i++) {
+                        ps.setLong(i + 1, lote.get(i));
+                    }
+                    try (ResultSet rs = ps.executeQuery()) {
+                        agruparMiembros(rs, result);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Error listing channel users", e);
+        }
+        return result;
+    }
+
+    @Override
+    public Map<Long, List<Cliente>> findAllUsers() {
+        String sql = "SELECT cc.canal_id, " + MIEMBRO_COLUMNS + " FROM canal_clientes cc " +
+                "INNER JOIN clientes c ON c.id = cc.cliente_id";
+        Map<Long, List<Cliente>> result = new HashMap<>();
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            agruparMiembros(rs, result);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Error listing channel users", e);
+        }
+        return result;
+    }
+
     @Override
     public void linkUser(Long canalId, Long clienteId) {
         String sql = "INSERT IGNORE INTO canal_clientes(canal_id, cliente_id) VALUES(?,?)";
@@ -186,6 +285,23 @@ public class JdbcCanalRepository extends JdbcSupport implements CanalRepository
         }
     }
 
+    private static void agruparMiembros(ResultSet rs, Map<Long, List<Cliente>> result) throws SQLException {
+        while (rs.next()) {
+            result.computeIfAbsent(rs.getLong("canal_id"), id -> new ArrayList<>()).add(mapMiembro(rs));
+        }
+    }
+
+    private static Cliente mapMiembro(ResultSet rs) throws SQLException {
+        Cliente cliente = new Cliente();
+        cliente.setId(rs.getLong("id"));
+        cliente.setNombreDeUsuario(rs.getString("usuario"));
+        cliente.setEmail(rs.getString("email"));
+        cliente.setFotoHash(rs.getString("foto_hash"));
+        cliente.setIp(rs.getString("ip"));
+        cliente.setEstado(rs.getBoolean("estado"));
+        return cliente;
+    }
+
     private Canal mapCanal(Connection connection, ResultSet rs) throws SQLException {
         Canal canal = new Canal();
         canal.setId(rs.getLong("id"));
@@ -18,13 +18,19 @@ import java.util.Optional;
  *   email VARCHAR(180) UNIQUE NOT NULL,
  *   contrasenia VARBINARY(256) NOT NULL,
  *   foto LONGBLOB,
+ *   foto_hash CHAR(64),
  *   ip VARCHAR(64),
  *   estado TINYINT(1) DEFAULT 0
  * );
  * </pre>
+ * {@code foto} solo conserva avatares antiguos; los nuevos se guardan fuera de la base y
+ * {@code foto_hash} los identifica.
  */
 public class JdbcClienteRepository extends JdbcSupport implements ClienteRepository {
 
+    // Proyección sin la foto: listar usuarios no debe arrastrar los avatares
+    private static final String COLUMNS = "id, usuario, email, contrasenia, foto_hash, ip, estado";
+
     public JdbcClienteRepository(DataSource dataSource) {
         super(dataSource);
     }
@@ -38,15 +44,17 @@ public class JdbcClienteRepository extends JdbcSupport implements ClienteReposit
     }
 
     private Cliente insert(Cliente cliente) {
-        String sql = "INSERT INTO clientes(usuario, email, contrasenia, foto, ip, estado) VALUES(?,?,?,?,?,?)";
+        String sql = "INSERT INTO clientes(usuario, email, contrasenia, foto, foto_hash, ip, estado) VALUES(?,?,?,?,?,?,?)";
         try (Connection conn = getConnection();
              PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             ps.setString(1, cliente.getNombreDeUsuario());
             ps.setString(2, cliente.getEmail());
             ps.setString(3, cliente.getContrasenia());
-            ps.setBytes(4, cliente.getFoto());
-            ps.setString(5, cliente.getIp());
-            ps.setBoolean(6, Boolean.TRUE.equals(cliente.getEstado()));
+            // Con el avatar ya en el almacén no se duplica en la base
+            ps.setBytes(4, cliente.getFotoHash() == null ? cliente.getFoto() : null);
+            ps.setString(5, cliente.getFotoHash());
+            ps.setString(6, cliente.getIp());
+            ps.setBoolean(7, Boolean.TRUE.equals(cliente.getEstado()));
             ps.executeUpdate();
             try (ResultSet rs = ps.getGeneratedKeys()) {
                 if (rs.next()) {
@@ -60,16 +68,16 @@ public class JdbcClienteRepository extends JdbcSupport implements ClienteReposit
     }
 
     private Cliente update(Cliente cliente) {
-        String sql = "UPDATE clientes SET usuario=?, email=?, contrasenia=?, foto=?, ip=?, estado=? WHERE id=?";
+        // La foto no se toca: el cliente leído no la trae y se cambia con updateFotoHash
+        String sql = "UPDATE clientes SET usuario=?, email=?, contrasenia=?, ip=?, estado=? WHERE id=?";
         try (Connection conn = getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setString(1, cliente.getNombreDeUsuario());
             ps.setString(2, cliente.getEmail());
             ps.setString(3, cliente.getContrasenia());
-            ps.setBytes(4, cliente.getFoto());
-            ps.setString(5, cliente.getIp());
-            ps.setBoolean(6, Boolean.TRUE.equals(cliente.getEstado()));
-            ps.setLong(7, cliente.getId());
+            ps.setString(4, cliente.getIp());
+            ps.setBoolean(5, Boolean.TRUE.equals(cliente.getEstado()));
+            ps.setLong(6, cliente.getId());
             ps.executeUpdate();
             return cliente;
         } catch (SQLException e) {
@@ -79,7 +87,7 @@ public class JdbcClienteRepository extends JdbcSupport implements ClienteReposit
 
     @Override
     public Optional<Cliente> findById(Long id) {
-        String sql = "SELECT id, usuario, email, contrasenia, foto, ip, estado FROM clientes WHERE id=?";
+        String sql = "SELECT " + COLUMNS + " FROM clientes WHERE id=?";
         try (Connection conn = getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setLong(1, id);
@@ -96,7 +104,7 @@ public class JdbcClienteRepository extends JdbcSupport implements ClienteReposit
 
     @Override
     public Optional<Cliente> findByEmail(String email) {
-        String sql = "SELECT id, usuario, email, contrasenia, foto, ip, estado FROM clientes WHERE email=?";
+        String sql = "SELECT " + COLUMNS + " FROM clientes WHERE email=?";
         try (Connection conn = getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setString(1, email);
@@ -113,7 +121,7 @@ public class JdbcClienteRepository extends JdbcSupport implements ClienteReposit
 
     @Override
     public List<Cliente> findConnected() {
-        String sql = "SELECT id, usuario, email, contrasenia, foto, ip, estado FROM clientes WHERE estado=1";
+        String sql = "SELECT " + COLUMNS + " FROM clientes WHERE estado=1";
         List<Cliente> result = new ArrayList<>();
         try (Connection conn = getConnection();
              PreparedStatement ps = conn.prepareStatement(sql);
@@ -156,7 +164,7 @@ public class JdbcClienteRepository extends JdbcSupport implements ClienteReposit
 
     @Override
     public List<Cliente> all() {
-        String sql = "SELECT id, usuario, email, contrasenia, foto, ip, estado FROM clientes";
+        String sql = "SELECT " + COLUMNS + " FROM clientes";
         List<Cliente> result = new ArrayList<>();
         try (Connection conn = getConnection();
              PreparedStatement ps = conn.prepareStatement(sql);
@@ -170,13 +178,58 @@ public class JdbcClienteRepository extends JdbcSupport implements ClienteReposit
         return result;
     }
 
+    @Override
+    public boolean existsByUsuario(String usuario) {
+        // La collation de la columna ya compara sin distinguir mayúsculas
+        String sql = "SELECT 1 FROM clientes WHERE usuario=? LIMIT 1";
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, usuario);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Error checking username", e);
+        }
+    }
+
+    @Override
+    public Optional<byte[]> findFoto(Long id) {
+        String sql = "SELECT foto FROM clientes WHERE id=? AND foto IS NOT NULL";
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return Optional.ofNullable(rs.getBytes("foto"));
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Error reading client photo", e);
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public void updateFotoHash(Long id, String fotoHash) {
+        String sql = "UPDATE clientes SET foto_hash=?, foto=NULL WHERE id=?";
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, fotoHash);
+            ps.setLong(2, id);
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Error updating client photo", e);
+        }
+    }
+
     private Cliente map(ResultSet rs) throws SQLException {
         Cliente cliente = new Cliente();
         cliente.setId(rs.getLong("id"));
         cliente.setNombreDeUsuario(rs.getString("usuario"));
         cliente.setEmail(rs.getString("email"));
         cliente.setContrasenia(rs.getString("contrasenia"));
-        cliente.setFoto(rs.getBytes("foto"));
+        cliente.setFotoHash(rs.getString("foto_hash"));
         cliente.setIp(rs.getString("ip"));
         cliente.setEstado(rs.getBoolean("estado"));
         return cliente;
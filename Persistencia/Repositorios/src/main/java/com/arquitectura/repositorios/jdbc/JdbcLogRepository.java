@@ -51,6 +51,27 @@ public class JdbcLogRepository extends JdbcSupport implements LogRepository {
         }
     }
 
+    @Override
+    public void appendAll(List<Log> logs) {
+        if (logs == null || logs.isEmpty()) {
+            return;
+        }
+        // Con rewriteBatchedStatements el driver envía el lote como un INSERT multi-fila
+        String sql = "INSERT INTO logs(tipo, detalle, fecha_hora) VALUES(?,?,?)";
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (Log log : logs) {
+                ps.setBoolean(1, Boolean.TRUE.equals(log.getTipo()));
+                ps.setString(2, log.getDetalle());
+                ps.setTimestamp(3, Timestamp.valueOf(log.getFechaHora()));
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Error inserting log batch", e);
+        }
+    }
+
     @Override
     public List<Log> findAll() {
         String sql = "SELECT id, tipo, detalle, fecha_hora FROM logs ORDER BY fecha_hora DESC";
@@ -132,6 +132,57 @@ public class JdbcMensajeRepository extends JdbcSupport implements MensajeReposit
         return queryMessages(sql, usuarioId, usuarioId, usuarioId);
     }
 
+    @Override
+    public List<Mensaje> findByUserAfter(Long usuarioId, long afterId, int limit) {
+        // Una rama por índice (emisor, receptor, canal) en lugar de OR + IN: cada una recorre
+        // su índice desde afterId y se detiene al llenar la página
+        String sql = "SELECT * FROM (" +
+            "(SELECT * FROM mensajes WHERE emisor_id=? AND id>? ORDER BY id LIMIT ?) " +
+            "UNION " +
+            "(SELECT * FROM mensajes WHERE receptor_id=? AND id>? ORDER BY id LIMIT ?) " +
+            "UNION " +
+            "(SELECT m.* FROM mensajes m JOIN canal_clientes cc ON cc.canal_id=m.canal_id " +
+            "WHERE cc.cliente_id=? AND m.id>? ORDER BY m.id LIMIT ?)" +
+            ") pagina ORDER BY id LIMIT ?";
+        return queryMessages(sql,
+            usuarioId, afterId, limit,
+            usuarioId, afterId, limit,
+            usuarioId, afterId, limit,
+            limit);
+    }
+
+    @Override
+    public void updateTranscripcion(Long mensajeId, String transcripcion) {
+        String sql = "UPDATE mensajes SET transcripcion=? WHERE id=?";
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, transcripcion);
+            ps.setLong(2, mensajeId);
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Error updating transcription", e);
+        }
+    }
+
+    @Override
+    public boolean existsAttachmentVisibleTo(Long usuarioId, String rutaArchivo) {
+        String sql = "SELECT 1 FROM mensajes m " +
+            "LEFT JOIN canal_clientes cc ON cc.canal_id=m.canal_id AND cc.cliente_id=? " +
+            "WHERE m.ruta_archivo=? AND (m.emisor_id=? OR m.receptor_id=? OR cc.cliente_id IS NOT NULL) LIMIT 1";
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, usuarioId);
+            ps.setString(2, rutaArchivo);
+            ps.setLong(3, usuarioId);
+            ps.setLong(4, usuarioId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Error checking attachment access", e);
+        }
+    }
+
     @Override
     public List<Mensaje> findAllOrdered() {
         String sql = "SELECT * FROM mensajes ORDER BY id";